@@ -0,0 +1,63 @@
+package graphbench;
+
+import java.util.concurrent.TimeUnit;
+import java.util.function.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Average time of the read-only queries on a fully loaded graph. Every call
+ * takes the next of the prepared query pairs, so the measurements cover a
+ * spread of sources and targets rather than one pair the caches remember.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphQueryBenchmark extends GraphScenario {
+    private IntFunction<Object> findShortestPath;
+    private IntFunction<Object> suggestFriends;
+    private IntFunction<Object> countClusters;
+    private int query;
+
+    /**
+     * Loads every person and friendship of the scenario.
+     */
+    @Setup(Level.Trial)
+    public void load() {
+        operation("load").apply(0);
+        findShortestPath = operation("findShortestPath");
+        suggestFriends = operation("suggestFriends");
+        countClusters = operation("countClusters");
+    }
+
+    /**
+     * Finds the shortest path between the next pair of people.
+     *
+     * @return the path
+     */
+    @Benchmark
+    public Object findShortestPath() {
+        return findShortestPath.apply(query++);
+    }
+
+    /**
+     * Suggests friends for the next person.
+     *
+     * @return the suggestions
+     */
+    @Benchmark
+    public Object suggestFriends() {
+        return suggestFriends.apply(query++);
+    }
+
+    /**
+     * Lists every cluster of the graph.
+     *
+     * @return the clusters
+     */
+    @Benchmark
+    public Object countClusters() {
+        return countClusters.apply(0);
+    }
+}
@@ -0,0 +1,59 @@
+package graphbench;
+
+import java.util.*;
+import java.util.function.*;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * The parameters shared by the graph benchmarks: the backend, the synthetic
+ * graph model and the number of people. The graph classes live in the
+ * unnamed package, which this package cannot name, so the scenario builds a
+ * {@code GraphWorkload} by reflection once per trial and keeps its
+ * operations as plain {@link IntFunction}s; the measured calls make no
+ * reflective calls.
+ */
+@State(Scope.Benchmark)
+public abstract class GraphScenario {
+    /**
+     * The backend, as accepted by {@code Main}.
+     */
+    @Param({ "default" })
+    public String backend;
+
+    /**
+     * The model of the synthetic graph.
+     */
+    @Param({ "erdos-renyi", "barabasi-albert", "communities" })
+    public String model;
+
+    /**
+     * The number of people.
+     */
+    @Param({ "1000", "10000", "100000" })
+    public int people;
+
+    private Map<String, IntFunction<Object>> operations;
+
+    /**
+     * Returns an operation of the workload, generating the graph of the
+     * scenario on first use. Setup methods of subclasses call this, and JMH
+     * does not order them after a setup method of this class.
+     *
+     * @param name the name of the operation
+     * @return the operation
+     */
+    @SuppressWarnings("unchecked")
+    protected IntFunction<Object> operation(String name) {
+        if (operations == null) {
+            try {
+                Object workload = Class.forName("GraphWorkload")
+                        .getConstructor(String.class, String.class, int.class).newInstance(backend, model, people);
+                operations = (Map<String, IntFunction<Object>>) workload.getClass().getMethod("operations")
+                        .invoke(workload);
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalStateException("Cannot build the workload.", e);
+            }
+        }
+        return operations.get(name);
+    }
+}
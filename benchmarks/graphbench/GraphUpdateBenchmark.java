@@ -0,0 +1,94 @@
+package graphbench;
+
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Time to load and shrink a graph. The updates change the graph, so every
+ * measured call starts from a graph set up again just before it and runs
+ * once: adding every person to an empty network, adding every friendship to
+ * a network holding everyone, and removing 500 people from a loaded graph.
+ * Run with {@code -prof gc} for the bytes allocated per call.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class GraphUpdateBenchmark {
+
+    /**
+     * An empty network.
+     */
+    public static class Empty extends GraphScenario {
+        /**
+         * Replaces the network with an empty one.
+         */
+        @Setup(Level.Invocation)
+        public void reset() {
+            operation("reset").apply(0);
+        }
+    }
+
+    /**
+     * A network holding every person but no friendship.
+     */
+    public static class People extends GraphScenario {
+        /**
+         * Replaces the network with one holding every person.
+         */
+        @Setup(Level.Invocation)
+        public void addPeople() {
+            operation("reset").apply(0);
+            operation("addPeople").apply(0);
+        }
+    }
+
+    /**
+     * A network holding every person and friendship.
+     */
+    public static class Loaded extends GraphScenario {
+        /**
+         * Replaces the network with a fully loaded one.
+         */
+        @Setup(Level.Invocation)
+        public void load() {
+            operation("load").apply(0);
+        }
+    }
+
+    /**
+     * Adds every person to an empty network.
+     *
+     * @param scenario the scenario
+     * @param sink     consumes the network
+     */
+    @Benchmark
+    public void addPeople(Empty scenario, Blackhole sink) {
+        sink.consume(scenario.operation("addPeople").apply(0));
+    }
+
+    /**
+     * Adds every friendship to a network holding everyone.
+     *
+     * @param scenario the scenario
+     * @param sink     consumes the network
+     */
+    @Benchmark
+    public void addFriendships(People scenario, Blackhole sink) {
+        sink.consume(scenario.operation("addFriendships").apply(0));
+    }
+
+    /**
+     * Removes 500 people, or everyone in smaller graphs, from a loaded
+     * network.
+     *
+     * @param scenario the scenario
+     * @param sink     consumes the network
+     */
+    @Benchmark
+    public void removePeople(Loaded scenario, Blackhole sink) {
+        sink.consume(scenario.operation("removePeople").apply(0));
+    }
+}
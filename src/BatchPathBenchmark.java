@@ -0,0 +1,114 @@
+import java.util.*;
+
+/**
+ * Compares answering "how far is this person from each of these people" with
+ * one {@link SocialNetworkGraph#findShortestPath(String, String)} call per
+ * target against a single batch search, and a top-down BFS against the
+ * direction-optimizing one of {@link FrontierSearch}. Every batch distance is
+ * checked against the length of the single-pair path.
+ */
+public class BatchPathBenchmark {
+    private static final int TARGETS = 200;
+    private static final int ROUNDS = 5;
+    private static final int ALL_PAIRS_PEOPLE = 10_000;
+
+    /**
+     * Runs the comparison on Barabasi-Albert and Erdos-Renyi graphs, then
+     * lists all pairs within one and two hops on a smaller graph.
+     *
+     * @param args optional number of people, 100000 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        compare("barabasi-albert", n, SyntheticGraphs.barabasiAlbert(n, 5, 42));
+        compare("erdos-renyi", n, SyntheticGraphs.erdosRenyi(n, 10, 42));
+
+        // Every pair is listed, so keep this graph small
+        SocialNetworkGraph graph = build(ALL_PAIRS_PEOPLE,
+                SyntheticGraphs.barabasiAlbert(ALL_PAIRS_PEOPLE, 5, 42));
+        for (int hops = 1; hops <= 2; hops++) {
+            long begin = System.nanoTime();
+            long pairs = 0;
+            for (Map<Person, Integer> reached : graph.findAllWithinHops(hops).values()) {
+                pairs += reached.size();
+            }
+            System.out.printf("barabasi-albert, %d people: %d pairs within %d hops in %.0f ms%n",
+                    ALL_PAIRS_PEOPLE, pairs, hops, (System.nanoTime() - begin) / 1e6);
+        }
+    }
+
+    private static SocialNetworkGraph build(int n, int[] edges) {
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        Random random = new Random(7);
+        for (int u = 0; u < n; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 18 + u % 60, SyntheticGraphs.hobbies(random));
+        }
+        for (int i = 0; i < edges.length; i += 2) {
+            graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+        }
+        return graph;
+    }
+
+    private static void compare(String model, int n, int[] edges) {
+        SocialNetworkGraph graph = build(n, edges);
+        Random random = new Random(11);
+        System.out.printf("%s, %d people, %d friendships%n", model, n, edges.length / 2);
+
+        String source = SyntheticGraphs.name(random.nextInt(n));
+        List<String> targets = new ArrayList<>();
+        for (int i = 0; i < TARGETS; i++) {
+            targets.add(SyntheticGraphs.name(random.nextInt(n)));
+        }
+
+        // One round of single-pair searches is long enough to time
+        long begin = System.nanoTime();
+        Map<Person, Integer> pairwise = new HashMap<>();
+        for (String target : targets) {
+            Optional<List<Person>> path = graph.findShortestPath(source, target);
+            if (path.isPresent()) {
+                pairwise.put(graph.getPerson(target), path.get().size() - 1);
+            }
+        }
+        long pairNanos = System.nanoTime() - begin;
+
+        long batchNanos = Long.MAX_VALUE;
+        int mismatches = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            begin = System.nanoTime();
+            Map<Person, Integer> batch = graph.findDistances(Collections.singletonList(source), targets);
+            batchNanos = Math.min(batchNanos, System.nanoTime() - begin);
+            if (!batch.equals(pairwise)) {
+                mismatches++;
+            }
+        }
+        System.out.printf("  %d targets: %.1f ms pair by pair, %.1f ms in one batch (%.0fx), %d mismatches%n",
+                TARGETS, pairNanos / 1e6, batchNanos / 1e6, (double) pairNanos / batchNanos, mismatches);
+
+        // Full traversals from the source on a prepared snapshot
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        int start = 0;
+        while (!snapshot.person(start).getName().equals(source)) {
+            start++;
+        }
+        FrontierSearch topDown = new FrontierSearch(snapshot, false);
+        FrontierSearch optimizing = new FrontierSearch(snapshot, true);
+        long topDownNanos = Long.MAX_VALUE;
+        long optimizingNanos = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            begin = System.nanoTime();
+            topDown.search(new int[] { start }, null, Integer.MAX_VALUE);
+            topDownNanos = Math.min(topDownNanos, System.nanoTime() - begin);
+            begin = System.nanoTime();
+            optimizing.search(new int[] { start }, null, Integer.MAX_VALUE);
+            optimizingNanos = Math.min(optimizingNanos, System.nanoTime() - begin);
+        }
+        for (int v = 0; v < snapshot.vertexCount(); v++) {
+            if (topDown.distance(v) != optimizing.distance(v)) {
+                mismatches++;
+            }
+        }
+        System.out.printf("  full BFS: top-down %.2f ms, %d edges; direction-optimizing %.2f ms, %d edges, "
+                + "%d bottom-up levels, %d mismatches%n", topDownNanos / 1e6, topDown.edgesScanned(),
+                optimizingNanos / 1e6, optimizing.edgesScanned(), optimizing.bottomUpLevels(), mismatches);
+    }
+}
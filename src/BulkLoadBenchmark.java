@@ -0,0 +1,81 @@
+import java.util.*;
+
+/**
+ * Measures the throughput of {@link SocialNetworkGraph#addPeople(Collection)}
+ * and {@link SocialNetworkGraph#addFriendships(Iterable)} on a generated
+ * random graph. The friendships are generated on the fly, so only the graph
+ * itself has to fit in memory.
+ */
+public class BulkLoadBenchmark {
+    private static final List<List<String>> HOBBY_SETS = Arrays.asList(
+            Arrays.asList("reading", "hiking"), Arrays.asList("swimming", "cooking"),
+            Arrays.asList("painting", "running"), Arrays.asList("cycling", "reading", "swimming"));
+
+    /**
+     * Loads the generated graph and prints records per second for both phases.
+     *
+     * @param args optional number of people and number of friendships
+     */
+    public static void main(String[] args) {
+        int peopleCount = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long friendshipCount = args.length > 1 ? Long.parseLong(args[1]) : 10_000_000L;
+
+        String[] names = new String[peopleCount];
+        List<Person> batch = new ArrayList<>(peopleCount);
+        for (int i = 0; i < peopleCount; i++) {
+            names[i] = "Person " + i;
+            batch.add(new Person(names[i], 18 + i % 60, HOBBY_SETS.get(i % HOBBY_SETS.size())));
+        }
+
+        SocialNetworkGraph network = new SocialNetworkGraph();
+        long start = System.nanoTime();
+        int addedPeople = network.addPeople(batch);
+        long peopleNanos = System.nanoTime() - start;
+        batch = null;
+
+        start = System.nanoTime();
+        int addedFriendships = network.addFriendships(randomPairs(names, friendshipCount, 42));
+        long friendshipNanos = System.nanoTime() - start;
+
+        report("People", addedPeople, peopleNanos);
+        report("Friendships", addedFriendships, friendshipNanos);
+        report("Total", addedPeople + addedFriendships, peopleNanos + friendshipNanos);
+    }
+
+    /**
+     * Returns a generator of random pairs of distinct names.
+     *
+     * @param names the names to pick from
+     * @param count the number of pairs
+     * @param seed  the random seed
+     * @return the pairs, generated while iterating
+     */
+    static Iterable<String[]> randomPairs(String[] names, long count, long seed) {
+        return () -> new Iterator<String[]>() {
+            private final Random random = new Random(seed);
+            private long produced;
+
+            @Override
+            public boolean hasNext() {
+                return produced < count;
+            }
+
+            @Override
+            public String[] next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                produced++;
+                int a = random.nextInt(names.length);
+                int b = random.nextInt(names.length - 1);
+                return new String[] { names[a], names[b < a ? b : b + 1] };
+            }
+        };
+    }
+
+    private static void report(String label, long records, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%s: %d records in %.2f s (%.0f records/sec)%n", label, records, seconds,
+                records / seconds);
+    }
+}
@@ -0,0 +1,334 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Ranks the people of a {@link GraphSnapshot} by influence on a fork/join
+ * pool, with PageRank and with sampled betweenness centrality.
+ *
+ * <p>PageRank iterates over primitive arrays. Each iteration first divides
+ * every rank by the degree of its vertex, then lets every vertex pull the
+ * shares of its neighbors; both passes are split into vertex ranges, and the
+ * sums they reduce are added in a fixed order, so the result does not depend
+ * on the number of threads. Iteration stops when the ranks move less than a
+ * threshold in total.
+ *
+ * <p>Betweenness is estimated with Brandes' algorithm from a random sample of
+ * source vertices, scaled up to the whole graph. The sources are split into
+ * one chunk per worker, and each chunk reuses one set of arrays for all of
+ * its searches, so the memory grows with the number of workers, not with the
+ * number of sources.
+ */
+public class CentralityAnalyzer {
+    private static final int VERTEX_GRAIN = 4096;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new CentralityAnalyzer object on the common pool.
+     */
+    public CentralityAnalyzer() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new CentralityAnalyzer object.
+     *
+     * @param pool the pool running the work
+     */
+    public CentralityAnalyzer(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Computes the PageRank of every vertex. A vertex without friends spreads
+     * its rank over everyone, so the ranks always sum to 1.
+     *
+     * @param snapshot      the graph to analyze
+     * @param damping       the probability of following a friendship rather
+     *                      than jumping to a random person, usually 0.85
+     * @param tolerance     the total change of the ranks below which the
+     *                      iteration stops
+     * @param maxIterations the most iterations to run
+     * @return the ranks
+     */
+    public CentralityResult pageRank(GraphSnapshot snapshot, double damping, double tolerance, int maxIterations) {
+        int n = snapshot.vertexCount();
+        double[] rank = new double[n];
+        double[] next = new double[n];
+        double[] share = new double[n];
+        Arrays.fill(rank, 1.0 / n);
+        int iterations = 0;
+        while (iterations < maxIterations && n > 0) {
+            iterations++;
+            double dangling = pool.invoke(new ShareTask(snapshot, rank, share, 0, n));
+            double base = (1 - damping) / n + damping * dangling / n;
+            double change = pool.invoke(new PullTask(snapshot, share, rank, next, base, damping, 0, n));
+            double[] swap = rank;
+            rank = next;
+            next = swap;
+            if (change < tolerance) {
+                break;
+            }
+        }
+        return new CentralityResult(snapshot, rank, iterations);
+    }
+
+    /**
+     * Estimates the betweenness centrality of every vertex: the number of
+     * pairs of other people whose shortest paths run through it, split
+     * evenly between paths of equal length. The searches start from a sample
+     * of the vertices and their counts are scaled by the vertex count over
+     * the sample size; with a sample as large as the graph the result is
+     * exact.
+     *
+     * @param snapshot the graph to analyze
+     * @param samples  the number of source vertices to search from
+     * @param seed     the seed that picks the sources
+     * @return the estimated betweenness
+     */
+    public CentralityResult betweenness(GraphSnapshot snapshot, int samples, long seed) {
+        int n = snapshot.vertexCount();
+        int[] sources = sampleSources(n, samples, seed);
+        if (sources.length == 0) {
+            return new CentralityResult(snapshot, new double[n], 0);
+        }
+        int chunk = (sources.length + pool.getParallelism() - 1) / pool.getParallelism();
+        double[] scores = pool.invoke(new BrandesTask(snapshot, sources, chunk, 0, sources.length));
+
+        // Each pair is found from both ends when every vertex is a source
+        double scale = (double) n / sources.length / 2;
+        for (int v = 0; v < n; v++) {
+            scores[v] *= scale;
+        }
+        return new CentralityResult(snapshot, scores, sources.length);
+    }
+
+    /**
+     * Picks distinct vertices at random with a partial Fisher-Yates shuffle.
+     */
+    private static int[] sampleSources(int n, int samples, long seed) {
+        int count = Math.max(0, Math.min(samples, n));
+        int[] vertices = new int[n];
+        for (int v = 0; v < n; v++) {
+            vertices[v] = v;
+        }
+        Random random = new Random(seed);
+        for (int i = 0; i < count; i++) {
+            int j = i + random.nextInt(n - i);
+            int swap = vertices[i];
+            vertices[i] = vertices[j];
+            vertices[j] = swap;
+        }
+        return Arrays.copyOf(vertices, count);
+    }
+
+    /**
+     * Divides the rank of every vertex in a range by its degree, and returns
+     * the total rank of the vertices without friends.
+     */
+    private static class ShareTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot snapshot;
+        private final double[] rank;
+        private final double[] share;
+        private final int from;
+        private final int to;
+
+        ShareTask(GraphSnapshot snapshot, double[] rank, double[] share, int from, int to) {
+            this.snapshot = snapshot;
+            this.rank = rank;
+            this.share = share;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > VERTEX_GRAIN) {
+                int mid = (from + to) >>> 1;
+                ShareTask left = new ShareTask(snapshot, rank, share, from, mid);
+                ShareTask right = new ShareTask(snapshot, rank, share, mid, to);
+                invokeAll(left, right);
+                return left.join() + right.join();
+            }
+            double dangling = 0;
+            for (int u = from; u < to; u++) {
+                int degree = snapshot.degree(u);
+                if (degree == 0) {
+                    share[u] = 0;
+                    dangling += rank[u];
+                } else {
+                    share[u] = rank[u] / degree;
+                }
+            }
+            return dangling;
+        }
+    }
+
+    /**
+     * Computes the next rank of every vertex in a range from the shares of
+     * its neighbors, and returns the total change from the current ranks.
+     */
+    private static class PullTask extends RecursiveTask<Double> {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot snapshot;
+        private final double[] share;
+        private final double[] rank;
+        private final double[] next;
+        private final double base;
+        private final double damping;
+        private final int from;
+        private final int to;
+
+        PullTask(GraphSnapshot snapshot, double[] share, double[] rank, double[] next, double base, double damping,
+                int from, int to) {
+            this.snapshot = snapshot;
+            this.share = share;
+            this.rank = rank;
+            this.next = next;
+            this.base = base;
+            this.damping = damping;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Double compute() {
+            if (to - from > VERTEX_GRAIN) {
+                int mid = (from + to) >>> 1;
+                PullTask left = new PullTask(snapshot, share, rank, next, base, damping, from, mid);
+                PullTask right = new PullTask(snapshot, share, rank, next, base, damping, mid, to);
+                invokeAll(left, right);
+                return left.join() + right.join();
+            }
+            int[] targets = snapshot.targets();
+            double change = 0;
+            for (int v = from; v < to; v++) {
+                double sum = 0;
+                int end = snapshot.offset(v) + snapshot.degree(v);
+                for (int i = snapshot.offset(v); i < end; i++) {
+                    sum += share[targets[i]];
+                }
+                next[v] = base + damping * sum;
+                change += Math.abs(next[v] - rank[v]);
+            }
+            return change;
+        }
+    }
+
+    /**
+     * Runs Brandes' algorithm from a range of sources and returns the summed
+     * dependencies of every vertex. Ranges of at most one chunk run serially
+     * on one set of arrays.
+     */
+    private static class BrandesTask extends RecursiveTask<double[]> {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot snapshot;
+        private final int[] sources;
+        private final int chunk;
+        private final int from;
+        private final int to;
+
+        BrandesTask(GraphSnapshot snapshot, int[] sources, int chunk, int from, int to) {
+            this.snapshot = snapshot;
+            this.sources = sources;
+            this.chunk = chunk;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected double[] compute() {
+            if (to - from > chunk) {
+                int mid = (from + to) >>> 1;
+                BrandesTask left = new BrandesTask(snapshot, sources, chunk, from, mid);
+                BrandesTask right = new BrandesTask(snapshot, sources, chunk, mid, to);
+                invokeAll(left, right);
+                double[] scores = left.join();
+                double[] other = right.join();
+                for (int v = 0; v < scores.length; v++) {
+                    scores[v] += other[v];
+                }
+                return scores;
+            }
+            int n = snapshot.vertexCount();
+            int[] targets = snapshot.targets();
+            double[] scores = new double[n];
+            int[] distance = new int[n];
+            double[] paths = new double[n];
+            double[] dependency = new double[n];
+            // Vertices in the order the search reached them
+            int[] order = new int[n];
+            Arrays.fill(distance, -1);
+            for (int s = from; s < to; s++) {
+                search(snapshot, sources[s], distance, paths, dependency, order, scores);
+            }
+            return scores;
+        }
+    }
+
+    /**
+     * Runs one search of Brandes' algorithm and adds the dependencies of every
+     * vertex on the source to its score. The arrays must be reset on entry,
+     * and are reset again on return, touching only the vertices reached.
+     *
+     * @param snapshot   the graph
+     * @param source     the source vertex
+     * @param distance   the distance of every vertex, -1 if not reached
+     * @param paths      the number of shortest paths to every vertex
+     * @param dependency the dependency of the source on every vertex
+     * @param order      receives the vertices in the order they are reached
+     * @param scores     the scores to add to
+     */
+    private static void search(GraphSnapshot snapshot, int source, int[] distance, double[] paths,
+            double[] dependency, int[] order, double[] scores) {
+        int[] targets = snapshot.targets();
+        int head = 0;
+        int tail = 0;
+        order[tail++] = source;
+        distance[source] = 0;
+        paths[source] = 1;
+        while (head < tail) {
+            int current = order[head++];
+            int next = distance[current] + 1;
+            int end = snapshot.offset(current) + snapshot.degree(current);
+            for (int i = snapshot.offset(current); i < end; i++) {
+                int neighbor = targets[i];
+                if (distance[neighbor] < 0) {
+                    distance[neighbor] = next;
+                    order[tail++] = neighbor;
+                }
+                if (distance[neighbor] == next) {
+                    paths[neighbor] += paths[current];
+                }
+            }
+        }
+
+        // Farthest first, pass each vertex's dependency to the neighbors one
+        // step closer to the source
+        for (int k = tail - 1; k > 0; k--) {
+            int w = order[k];
+            int previous = distance[w] - 1;
+            double perPath = (1 + dependency[w]) / paths[w];
+            int end = snapshot.offset(w) + snapshot.degree(w);
+            for (int i = snapshot.offset(w); i < end; i++) {
+                int v = targets[i];
+                if (distance[v] == previous) {
+                    dependency[v] += paths[v] * perPath;
+                }
+            }
+            scores[w] += dependency[w];
+        }
+
+        // Reset only what this search touched
+        for (int k = 0; k < tail; k++) {
+            int v = order[k];
+            distance[v] = -1;
+            paths[v] = 0;
+            dependency[v] = 0;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Times PageRank and sampled betweenness on a Barabasi-Albert graph of 1M
+ * people and 5M friendships, 10M neighbor entries, on pools of 1 thread up
+ * to one thread per core. The betweenness rows also report how many of the
+ * ten most central people each sample size shares with the largest sample.
+ */
+public class CentralityBenchmark {
+    private static final int[] SAMPLES = { 4, 16, 64 };
+    private static final int TOP = 10;
+
+    /**
+     * Builds the graph and prints the time of each analysis per pool size.
+     *
+     * @param args optional number of people and friendships per new person,
+     *             1000000 and 5 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        int perVertex = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int[] edges = SyntheticGraphs.barabasiAlbert(n, perVertex, 42);
+        Random random = new Random(42);
+        List<Person> batch = new ArrayList<>(n);
+        for (int u = 0; u < n; u++) {
+            batch.add(new Person(SyntheticGraphs.name(u), 18 + u % 60, SyntheticGraphs.hobbies(random)));
+        }
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        graph.addPeople(batch);
+        batch = null;
+        graph.addFriendships(() -> new Iterator<String[]>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < edges.length;
+            }
+
+            @Override
+            public String[] next() {
+                String[] pair = { SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]) };
+                i += 2;
+                return pair;
+            }
+        });
+        long start = System.nanoTime();
+        GraphSnapshot snapshot = GraphSnapshot.of(graph);
+        System.out.printf("%d people, %d neighbor entries, snapshot in %.0f ms%n", snapshot.vertexCount(),
+                snapshot.edgeEntries(), (System.nanoTime() - start) / 1e6);
+        // Only the snapshot is analyzed; collect the graph so that the
+        // collector does not walk it during the measurements
+        graph = null;
+        System.gc();
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threads = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) {
+            threads.add(t);
+        }
+        threads.add(cores);
+
+        System.out.printf("%-24s %8s %12s %12s%n", "analysis", "threads", "ms", "top-" + TOP);
+        for (int t : threads) {
+            ForkJoinPool pool = new ForkJoinPool(t);
+            CentralityAnalyzer analyzer = new CentralityAnalyzer(pool);
+            // One run to warm up, one measured
+            analyzer.pageRank(snapshot, 0.85, 1e-6, 100);
+            start = System.nanoTime();
+            CentralityResult ranks = analyzer.pageRank(snapshot, 0.85, 1e-6, 100);
+            System.out.printf("%-24s %8d %12.0f %12s%n", "pagerank (" + ranks.getIterations() + " iterations)", t,
+                    (System.nanoTime() - start) / 1e6, "");
+
+            List<List<Person>> tops = new ArrayList<>();
+            double[] millis = new double[SAMPLES.length];
+            for (int i = 0; i < SAMPLES.length; i++) {
+                start = System.nanoTime();
+                tops.add(analyzer.betweenness(snapshot, SAMPLES[i], 42).top(TOP));
+                millis[i] = (System.nanoTime() - start) / 1e6;
+            }
+            Set<Person> reference = new HashSet<>(tops.get(SAMPLES.length - 1));
+            for (int i = 0; i < SAMPLES.length; i++) {
+                Set<Person> shared = new HashSet<>(tops.get(i));
+                shared.retainAll(reference);
+                System.out.printf("%-24s %8d %12.0f %12d%n", "betweenness (" + SAMPLES[i] + " sources)", t,
+                        millis[i], shared.size());
+            }
+            pool.shutdown();
+        }
+    }
+}
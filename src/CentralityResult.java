@@ -0,0 +1,104 @@
+import java.util.*;
+
+/**
+ * A centrality score for every person of a {@link GraphSnapshot}, as computed
+ * by {@link CentralityAnalyzer}. Higher scores mean more influence.
+ */
+public class CentralityResult {
+    private final GraphSnapshot snapshot;
+    private final double[] scores;
+    private final int iterations;
+    // Vertex of every person id in the snapshot, -1 for ids it does not hold
+    private final int[] vertexOf;
+
+    /**
+     * Constructs a new CentralityResult object.
+     *
+     * @param snapshot   the analyzed graph
+     * @param scores     the score of every vertex
+     * @param iterations the number of iterations or samples the scores took
+     */
+    CentralityResult(GraphSnapshot snapshot, double[] scores, int iterations) {
+        this.snapshot = snapshot;
+        this.scores = scores;
+        this.iterations = iterations;
+        int idLimit = 0;
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            idLimit = Math.max(idLimit, snapshot.person(u).getId() + 1);
+        }
+        vertexOf = new int[idLimit];
+        Arrays.fill(vertexOf, -1);
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            vertexOf[snapshot.person(u).getId()] = u;
+        }
+    }
+
+    /**
+     * Returns the score of a person.
+     *
+     * @param person the person
+     * @return the score, or 0 if the person was not in the graph
+     */
+    public double getScore(Person person) {
+        int id = person.getId();
+        if (id < 0 || id >= vertexOf.length || vertexOf[id] < 0 || snapshot.person(vertexOf[id]) != person) {
+            return 0;
+        }
+        return scores[vertexOf[id]];
+    }
+
+    /**
+     * Returns the number of PageRank iterations run, or the number of sources
+     * betweenness was sampled from.
+     *
+     * @return the iterations or samples
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the people with the highest scores.
+     *
+     * @param count the number of people wanted
+     * @return up to count people, highest score first and by name on ties
+     */
+    public List<Person> top(int count) {
+        Comparator<Integer> best = (a, b) -> {
+            int byScore = Double.compare(scores[b], scores[a]);
+            return byScore != 0 ? byScore : snapshot.person(a).getName().compareTo(snapshot.person(b).getName());
+        };
+        // Bounded heap with the worst of the best on top
+        PriorityQueue<Integer> heap = new PriorityQueue<>(Math.max(1, count + 1), best.reversed());
+        for (int u = 0; u < scores.length && count > 0; u++) {
+            heap.add(u);
+            if (heap.size() > count) {
+                heap.poll();
+            }
+        }
+        List<Integer> vertices = new ArrayList<>(heap);
+        vertices.sort(best);
+        List<Person> top = new ArrayList<>();
+        for (int u : vertices) {
+            top.add(snapshot.person(u));
+        }
+        return top;
+    }
+
+    /**
+     * Returns a string representation of the result.
+     *
+     * @return the number of people scored and the five highest scores
+     */
+    @Override
+    public String toString() {
+        StringBuilder best = new StringBuilder();
+        for (Person person : top(5)) {
+            if (best.length() > 0) {
+                best.append(", ");
+            }
+            best.append(String.format("%s=%.4g", person.getName(), getScore(person)));
+        }
+        return scores.length + " people scored, best: " + best;
+    }
+}
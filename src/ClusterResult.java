@@ -0,0 +1,68 @@
+import java.util.*;
+
+/**
+ * The clusters of a social network: groups of people connected to each other
+ * through chains of friendships, with nobody connected to a person outside
+ * their own group.
+ */
+public class ClusterResult {
+    private final List<List<Person>> clusters;
+
+    /**
+     * Constructs a new ClusterResult object.
+     *
+     * @param clusters the members of every cluster
+     */
+    public ClusterResult(List<List<Person>> clusters) {
+        this.clusters = Collections.unmodifiableList(clusters);
+    }
+
+    /**
+     * Returns the members of every cluster, in the order the clusters were
+     * found.
+     *
+     * @return the clusters
+     */
+    public List<List<Person>> getClusters() {
+        return clusters;
+    }
+
+    /**
+     * Returns the number of clusters.
+     *
+     * @return the number of clusters
+     */
+    public int count() {
+        return clusters.size();
+    }
+
+    /**
+     * Returns the number of people in the largest cluster.
+     *
+     * @return the size of the largest cluster, or 0 if there are no people
+     */
+    public int largestClusterSize() {
+        int largest = 0;
+        for (List<Person> cluster : clusters) {
+            largest = Math.max(largest, cluster.size());
+        }
+        return largest;
+    }
+
+    /**
+     * Returns a string representation of the clusters.
+     *
+     * @return the number of clusters and their sizes
+     */
+    @Override
+    public String toString() {
+        StringBuilder sizes = new StringBuilder();
+        for (List<Person> cluster : clusters) {
+            if (sizes.length() > 0) {
+                sizes.append(", ");
+            }
+            sizes.append(cluster.size());
+        }
+        return clusters.size() + " clusters of sizes [" + sizes + "]";
+    }
+}
@@ -0,0 +1,277 @@
+import java.util.*;
+
+/**
+ * Undirected adjacency store over dense int vertex ids. Edges live in a
+ * compressed sparse row (CSR) layout made of two primitive arrays; edges added
+ * after the last compaction go to a small per-vertex delta buffer that is
+ * merged back into the CSR arrays once it grows too large. Every CSR row and
+ * every delta buffer is kept sorted, so edge lookups are binary searches and
+ * building a vertex of degree d costs O(d log d) comparisons, not O(d^2).
+ */
+public class CompactAdjacency {
+    private static final int MIN_COMPACTION_ENTRIES = 1024;
+    private static final int ARRAY_HEADER_BYTES = 16;
+    private static final int REFERENCE_BYTES = 4;
+
+    private int vertexCount;
+
+    // Compressed rows: the neighbors of u are targets[offsets[u] .. offsets[u] + baseDegree[u]), sorted
+    private int[] offsets = new int[1];
+    private int[] targets = new int[0];
+    private int[] baseDegree = new int[0];
+
+    // Entries added since the last compaction, sorted per vertex
+    private int[][] delta = new int[0][];
+    private int[] deltaDegree = new int[0];
+    private int deltaEntries;
+
+    private int edgeCount;
+    private double compactionRatio = 0.25;
+
+    /**
+     * Adds a new vertex without any edges.
+     *
+     * @return the id of the new vertex
+     */
+    public int addVertex() {
+        if (vertexCount == baseDegree.length) {
+            int capacity = Math.max(16, vertexCount * 2);
+            baseDegree = Arrays.copyOf(baseDegree, capacity);
+            delta = Arrays.copyOf(delta, capacity);
+            deltaDegree = Arrays.copyOf(deltaDegree, capacity);
+        }
+        return vertexCount++;
+    }
+
+    /**
+     * Returns the number of vertices ever added.
+     *
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return vertexCount;
+    }
+
+    /**
+     * Returns the number of undirected edges.
+     *
+     * @return the number of edges
+     */
+    public int edgeCount() {
+        return edgeCount;
+    }
+
+    /**
+     * Returns the number of neighbors of a vertex.
+     *
+     * @param u the vertex
+     * @return the degree of the vertex
+     */
+    public int degree(int u) {
+        return baseDegree[u] + deltaDegree[u];
+    }
+
+    /**
+     * Returns the i-th neighbor of a vertex, where 0 &lt;= i &lt; degree(u).
+     * The compacted neighbors come first, in increasing order, followed by
+     * the neighbors added since, also in increasing order.
+     *
+     * @param u the vertex
+     * @param i the index of the neighbor
+     * @return the id of the neighbor
+     */
+    public int neighbor(int u, int i) {
+        int base = baseDegree[u];
+        return i < base ? targets[offsets[u] + i] : delta[u][i - base];
+    }
+
+    /**
+     * Checks whether two vertices are adjacent.
+     *
+     * @param u the first vertex
+     * @param v the second vertex
+     * @return true if the edge exists
+     */
+    public boolean hasEdge(int u, int v) {
+        return indexOf(u, v) >= 0;
+    }
+
+    /**
+     * Adds an undirected edge between two vertices.
+     *
+     * @param u the first vertex
+     * @param v the second vertex
+     * @return true if the edge was added, false if it already existed
+     */
+    public boolean addEdge(int u, int v) {
+        if (u == v || hasEdge(u, v)) {
+            return false;
+        }
+        insertDelta(u, v);
+        insertDelta(v, u);
+        edgeCount++;
+        if (deltaEntries > Math.max(MIN_COMPACTION_ENTRIES, compactionRatio * targets.length)) {
+            compact();
+        }
+        return true;
+    }
+
+    /**
+     * Removes an undirected edge between two vertices.
+     *
+     * @param u the first vertex
+     * @param v the second vertex
+     * @return true if the edge was removed, false if it did not exist
+     */
+    public boolean removeEdge(int u, int v) {
+        if (!removeEntry(u, v)) {
+            return false;
+        }
+        removeEntry(v, u);
+        edgeCount--;
+        return true;
+    }
+
+    /**
+     * Removes every edge of a vertex. The vertex id stays allocated.
+     *
+     * @param u the vertex
+     */
+    public void isolate(int u) {
+        while (degree(u) > 0) {
+            removeEdge(u, neighbor(u, degree(u) - 1));
+        }
+    }
+
+    /**
+     * Merges the delta buffer into freshly built CSR arrays.
+     */
+    public void compact() {
+        int[] newOffsets = new int[vertexCount + 1];
+        for (int u = 0; u < vertexCount; u++) {
+            newOffsets[u + 1] = newOffsets[u] + degree(u);
+        }
+        int[] newTargets = new int[newOffsets[vertexCount]];
+        for (int u = 0; u < vertexCount; u++) {
+            // Merge the sorted row with the sorted delta buffer
+            int base = baseDegree[u];
+            int added = deltaDegree[u];
+            int i = 0;
+            int j = 0;
+            int at = newOffsets[u];
+            while (i < base || j < added) {
+                if (j == added || (i < base && targets[offsets[u] + i] < delta[u][j])) {
+                    newTargets[at++] = targets[offsets[u] + i++];
+                } else {
+                    newTargets[at++] = delta[u][j++];
+                }
+            }
+        }
+        for (int u = 0; u < vertexCount; u++) {
+            baseDegree[u] = degree(u);
+            delta[u] = null;
+            deltaDegree[u] = 0;
+        }
+        offsets = newOffsets;
+        targets = newTargets;
+        deltaEntries = 0;
+    }
+
+    /**
+     * Sets the size of the delta buffer, relative to the CSR arrays, that
+     * triggers a compaction.
+     *
+     * @param compactionRatio the ratio of delta entries to CSR entries
+     */
+    public void setCompactionRatio(double compactionRatio) {
+        if (compactionRatio <= 0) {
+            throw new IllegalArgumentException("Compaction ratio must be positive.");
+        }
+        this.compactionRatio = compactionRatio;
+    }
+
+    /**
+     * Estimates the heap footprint of this store, assuming compressed
+     * references and 16-byte array headers.
+     *
+     * @return the estimated size in bytes
+     */
+    public long memoryBytes() {
+        long bytes = intArrayBytes(offsets.length) + intArrayBytes(targets.length)
+                + intArrayBytes(baseDegree.length) + intArrayBytes(deltaDegree.length)
+                + ARRAY_HEADER_BYTES + (long) REFERENCE_BYTES * delta.length;
+        for (int u = 0; u < vertexCount; u++) {
+            if (delta[u] != null) {
+                bytes += intArrayBytes(delta[u].length);
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Returns the estimated number of bytes spent per undirected edge.
+     *
+     * @return the bytes per edge, or 0 if there are no edges
+     */
+    public double bytesPerEdge() {
+        return edgeCount == 0 ? 0 : (double) memoryBytes() / edgeCount;
+    }
+
+    private static long intArrayBytes(int length) {
+        return ARRAY_HEADER_BYTES + 4L * length;
+    }
+
+    private int indexOf(int u, int v) {
+        // Vertices added since the last compaction have no row yet
+        int base = baseDegree[u];
+        if (base > 0) {
+            int i = Arrays.binarySearch(targets, offsets[u], offsets[u] + base, v);
+            if (i >= 0) {
+                return i - offsets[u];
+            }
+        }
+        if (deltaDegree[u] == 0) {
+            return -1;
+        }
+        int i = Arrays.binarySearch(delta[u], 0, deltaDegree[u], v);
+        return i >= 0 ? base + i : -1;
+    }
+
+    private void insertDelta(int u, int v) {
+        int[] entries = delta[u];
+        if (entries == null) {
+            entries = new int[4];
+            delta[u] = entries;
+        } else if (deltaDegree[u] == entries.length) {
+            entries = Arrays.copyOf(entries, entries.length * 2);
+            delta[u] = entries;
+        }
+        // Shift the larger entries up to keep the buffer sorted
+        int at = -Arrays.binarySearch(entries, 0, deltaDegree[u], v) - 1;
+        System.arraycopy(entries, at, entries, at + 1, deltaDegree[u] - at);
+        entries[at] = v;
+        deltaDegree[u]++;
+        deltaEntries++;
+    }
+
+    private boolean removeEntry(int u, int v) {
+        int i = indexOf(u, v);
+        if (i < 0) {
+            return false;
+        }
+        // Shift the larger entries down to keep the row sorted; a compacted
+        // row leaves its last slot unused until the next compaction
+        int base = baseDegree[u];
+        if (i < base) {
+            int start = offsets[u];
+            System.arraycopy(targets, start + i + 1, targets, start + i, base - i - 1);
+            baseDegree[u]--;
+        } else {
+            int j = i - base;
+            System.arraycopy(delta[u], j + 1, delta[u], j, deltaDegree[u] - j - 1);
+            deltaDegree[u]--;
+            deltaEntries--;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,238 @@
+import java.util.*;
+
+/**
+ * Social network backend that interns every person to a dense int id and keeps
+ * the friendships in a {@link CompactAdjacency}. It behaves like
+ * {@link SocialNetworkGraph} but stores each friendship as two primitive ints
+ * instead of boxed references in per-person lists.
+ */
+public class CompactSocialNetworkGraph implements SocialNetwork {
+    Map<String, Integer> ids = new HashMap<>();
+    List<Person> persons = new ArrayList<>();
+    CompactAdjacency adjacency = new CompactAdjacency();
+    HobbyIndex hobbyIndex = new HobbyIndex();
+
+    @Override
+    public boolean addPerson(String name, int age, List<String> hobbies) {
+        if (ids.containsKey(name)) {
+            return false;
+        }
+
+        // Intern the new person to the next free id
+        Person newPerson = new Person(name, age, hobbies);
+        int id = adjacency.addVertex();
+        newPerson.id = id;
+        persons.add(newPerson);
+        ids.put(name, id);
+        hobbyIndex.add(newPerson);
+        return true;
+    }
+
+    @Override
+    public boolean removePerson(String name) {
+        Integer id = ids.remove(name);
+        if (id == null) {
+            return false;
+        }
+        // The id is not reused, so the slot is simply cleared
+        hobbyIndex.remove(persons.get(id));
+        persons.set(id, null);
+        adjacency.isolate(id);
+        return true;
+    }
+
+    @Override
+    public boolean addFriendship(String name1, String name2) {
+        Integer id1 = ids.get(name1);
+        Integer id2 = ids.get(name2);
+        return id1 != null && id2 != null && adjacency.addEdge(id1, id2);
+    }
+
+    @Override
+    public boolean removeFriendship(String name1, String name2) {
+        Integer id1 = ids.get(name1);
+        Integer id2 = ids.get(name2);
+        return id1 != null && id2 != null && adjacency.removeEdge(id1, id2);
+    }
+
+    @Override
+    public Person getPerson(String name) {
+        Integer id = ids.get(name);
+        return id != null ? persons.get(id) : null;
+    }
+
+    /**
+     * Performs a breadth-first search (BFS) from the start vertex and appends
+     * every vertex reached to the cluster.
+     *
+     * @param start   the starting vertex
+     * @param visited the visited vertices
+     * @param queue   scratch space of at least vertexCount ints
+     * @param cluster the list of people in the current cluster
+     */
+    private void bfs(int start, BitSet visited, int[] queue, List<Person> cluster) {
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        visited.set(start);
+
+        while (head < tail) {
+            int current = queue[head++];
+            cluster.add(persons.get(current));
+
+            int degree = adjacency.degree(current);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = adjacency.neighbor(current, i);
+                if (!visited.get(neighbor)) {
+                    visited.set(neighbor);
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+    }
+
+    @Override
+    public Optional<List<Person>> findShortestPath(String startName, String endName) {
+        Integer start = ids.get(startName);
+        Integer end = ids.get(endName);
+        if (start == null || end == null) {
+            return Optional.empty();
+        }
+
+        // prev[v] is the vertex v was discovered from, -1 while undiscovered
+        int n = adjacency.vertexCount();
+        int[] prev = new int[n];
+        Arrays.fill(prev, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        prev[start] = start;
+
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == end) {
+                return Optional.of(tracePath(start, end, prev));
+            }
+
+            int degree = adjacency.degree(current);
+            for (int i = 0; i < degree; i++) {
+                int neighbor = adjacency.neighbor(current, i);
+                if (prev[neighbor] < 0) {
+                    prev[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+
+        return Optional.empty();
+    }
+
+    /**
+     * Traces the shortest path from start to end vertex.
+     *
+     * @param start the starting vertex
+     * @param end   the ending vertex
+     * @param prev  the predecessor of every discovered vertex
+     * @return the people on the path, from start to end
+     */
+    private List<Person> tracePath(int start, int end, int[] prev) {
+        List<Person> path = new ArrayList<>();
+        for (int at = end; at != start; at = prev[at]) {
+            path.add(persons.get(at));
+        }
+        path.add(persons.get(start));
+        Collections.reverse(path);
+        return Collections.unmodifiableList(path);
+    }
+
+    @Override
+    public ClusterResult countClusters() {
+        int n = adjacency.vertexCount();
+        BitSet visited = new BitSet(n);
+        int[] queue = new int[n];
+        List<List<Person>> clusters = new ArrayList<>();
+
+        for (int id = 0; id < n; id++) {
+            if (persons.get(id) != null && !visited.get(id)) {
+                List<Person> cluster = new ArrayList<>();
+                bfs(id, visited, queue, cluster);
+                clusters.add(cluster);
+            }
+        }
+        return new ClusterResult(clusters);
+    }
+
+    @Override
+    public List<Suggestion> suggestFriends(String name, int maxSuggestions) {
+        Integer id = ids.get(name);
+        if (id == null) {
+            return Collections.emptyList();
+        }
+        Person person = persons.get(id);
+
+        // Count mutual friends over the friends of friends; the sorted rows
+        // make it cheap to skip people who are already friends
+        Map<Integer, int[]> commonFriends = new HashMap<>();
+        int degree = adjacency.degree(id);
+        for (int i = 0; i < degree; i++) {
+            int friend = adjacency.neighbor(id, i);
+            int friendDegree = adjacency.degree(friend);
+            for (int j = 0; j < friendDegree; j++) {
+                int candidate = adjacency.neighbor(friend, j);
+                if (candidate != id && !adjacency.hasEdge(id, candidate)) {
+                    int[] count = commonFriends.get(candidate);
+                    if (count == null) {
+                        commonFriends.put(candidate, new int[] { 1 });
+                    } else {
+                        count[0]++;
+                    }
+                }
+            }
+        }
+
+        // Keep only the best maxSuggestions candidates, worst on top of the heap;
+        // the hobby index only yields people sharing at least one hobby
+        Map<Person, int[]> sharing = hobbyIndex.countSharing(person);
+        int limit = Math.min(maxSuggestions, commonFriends.size() + sharing.size());
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, Suggestion.BEST_FIRST.reversed());
+        for (Map.Entry<Integer, int[]> candidate : commonFriends.entrySet()) {
+            Person potentialFriend = persons.get(candidate.getKey());
+            SocialNetworkGraph.offer(best, limit, potentialFriend, candidate.getValue()[0],
+                    hobbyIndex.countCommon(person, potentialFriend));
+        }
+
+        // Include people with common hobbies even if they have no mutual friends
+        for (Map.Entry<Person, int[]> candidate : sharing.entrySet()) {
+            int other = candidate.getKey().id;
+            if (!adjacency.hasEdge(id, other) && !commonFriends.containsKey(other)) {
+                SocialNetworkGraph.offer(best, limit, candidate.getKey(), 0, candidate.getValue()[0]);
+            }
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(Suggestion.BEST_FIRST);
+        return suggestions;
+    }
+
+    /**
+     * Returns the number of people in the network.
+     *
+     * @return the number of people
+     */
+    public int personCount() {
+        return ids.size();
+    }
+
+    /**
+     * Returns the adjacency store backing this graph.
+     *
+     * @return the adjacency store
+     */
+    public CompactAdjacency getAdjacency() {
+        return adjacency;
+    }
+}
@@ -0,0 +1,111 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Stress check for {@link ConcurrentSocialNetworkGraph}. Writer threads add
+ * and remove friendships and people at random while reader threads run
+ * queries and checker threads verify, under the pair locks, that every
+ * friendship is recorded in both directions. The process exits with status 1
+ * if any check fails.
+ */
+public class ConcurrentGraphStress {
+
+    /**
+     * Runs the stress check.
+     *
+     * @param args optional duration in seconds, number of people and number of
+     *             writer threads
+     * @throws InterruptedException if interrupted while waiting for the workers
+     */
+    public static void main(String[] args) throws InterruptedException {
+        int seconds = args.length > 0 ? Integer.parseInt(args[0]) : 5;
+        int peopleCount = args.length > 1 ? Integer.parseInt(args[1]) : 500;
+        int writers = args.length > 2 ? Integer.parseInt(args[2])
+                : Math.max(4, Runtime.getRuntime().availableProcessors());
+
+        ConcurrentSocialNetworkGraph network = new ConcurrentSocialNetworkGraph();
+        String[] names = new String[peopleCount];
+        for (int i = 0; i < peopleCount; i++) {
+            names[i] = "Person " + i;
+            network.addPerson(names[i], 20 + i % 40, Arrays.asList("reading", "hiking"));
+        }
+
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+        AtomicLong writes = new AtomicLong();
+        AtomicLong reads = new AtomicLong();
+        AtomicLong checks = new AtomicLong();
+        AtomicLong violations = new AtomicLong();
+        List<Thread> threads = new ArrayList<>();
+
+        for (int w = 0; w < writers; w++) {
+            long seed = w;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                while (System.nanoTime() < deadline) {
+                    String name1 = names[random.nextInt(peopleCount)];
+                    String name2 = names[random.nextInt(peopleCount)];
+                    int op = random.nextInt(100);
+                    if (op < 55) {
+                        network.addFriendship(name1, name2);
+                    } else if (op < 95) {
+                        network.removeFriendship(name1, name2);
+                    } else if (op < 98) {
+                        network.removePerson(name1);
+                    } else {
+                        network.addPerson(name1, 30, Arrays.asList("cooking"));
+                    }
+                    writes.incrementAndGet();
+                }
+            }));
+        }
+        for (int r = 0; r < 2; r++) {
+            long seed = 1000 + r;
+            threads.add(new Thread(() -> {
+                Random random = new Random(seed);
+                while (System.nanoTime() < deadline) {
+                    String name = names[random.nextInt(peopleCount)];
+                    if (random.nextBoolean()) {
+                        network.findShortestPath(name, names[random.nextInt(peopleCount)]);
+                    } else {
+                        network.suggestFriends(name, 5);
+                    }
+                    reads.incrementAndGet();
+                }
+            }));
+        }
+        threads.add(new Thread(() -> {
+            while (System.nanoTime() < deadline) {
+                if (!network.isSymmetric()) {
+                    violations.incrementAndGet();
+                }
+                checks.incrementAndGet();
+            }
+        }));
+
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Once quiet, no friendship may point at a removed person either
+        boolean symmetric = network.isSymmetric();
+        boolean noDangling = true;
+        for (Map.Entry<Person, Set<Person>> entry : network.friendships.entrySet()) {
+            for (Person friend : entry.getValue()) {
+                if (network.people.get(friend.getName()) != friend) {
+                    noDangling = false;
+                }
+            }
+        }
+
+        System.out.println("Writes: " + writes + ", reads: " + reads + ", symmetry checks: " + checks);
+        System.out.println("Violations during run: " + violations + ", symmetric at end: " + symmetric
+                + ", no dangling friendships: " + noDangling);
+        if (violations.get() > 0 || !symmetric || !noDangling) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,341 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Thread-safe social network backend for mixed read and write traffic.
+ * People and friend sets live in concurrent hash maps. Writers that change a
+ * friendship lock the two people involved through a fixed array of lock
+ * stripes, always in stripe order, so both directions of an edge change
+ * atomically with respect to other writers. Read queries take no locks at
+ * all: they traverse the concurrent sets and see a weakly consistent view of
+ * the network while writes continue.
+ */
+public class ConcurrentSocialNetworkGraph implements SocialNetwork {
+    private static final int STRIPES = 256;
+
+    final ConcurrentMap<String, Person> people = new ConcurrentHashMap<>();
+    final ConcurrentMap<Person, Set<Person>> friendships = new ConcurrentHashMap<>();
+    // The people who have each hobby, so suggestions never scan everyone
+    final ConcurrentMap<String, Set<Person>> hobbyMembers = new ConcurrentHashMap<>();
+    private final ReentrantLock[] locks = new ReentrantLock[STRIPES];
+    private final AtomicInteger nextId = new AtomicInteger();
+
+    /**
+     * Constructs an empty ConcurrentSocialNetworkGraph object.
+     */
+    public ConcurrentSocialNetworkGraph() {
+        for (int i = 0; i < STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    @Override
+    public boolean addPerson(String name, int age, List<String> hobbies) {
+        Person newPerson = new Person(name, age, hobbies);
+        newPerson.id = nextId.getAndIncrement();
+
+        // The friend set must exist before the person becomes visible by name
+        friendships.put(newPerson, ConcurrentHashMap.newKeySet());
+        Person existing = people.putIfAbsent(name, newPerson);
+        if (existing != null) {
+            friendships.remove(newPerson);
+            return false;
+        }
+        for (String hobby : newPerson.getHobbies()) {
+            hobbyMembers.computeIfAbsent(hobby, h -> ConcurrentHashMap.newKeySet()).add(newPerson);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean removePerson(String name) {
+        Person person = people.get(name);
+        if (person == null) {
+            return false;
+        }
+
+        // Unpublish the person under its own stripe; addFriendship checks the
+        // same condition under the same lock, so no new friendship can form
+        ReentrantLock lock = lockFor(person);
+        lock.lock();
+        boolean removed;
+        try {
+            removed = people.remove(name, person);
+        } finally {
+            lock.unlock();
+        }
+        if (!removed) {
+            return false;
+        }
+        for (String hobby : person.getHobbies()) {
+            Set<Person> members = hobbyMembers.get(hobby);
+            if (members != null) {
+                members.remove(person);
+            }
+        }
+
+        // Drop the remaining friendships one pair at a time
+        Set<Person> friends = friendships.get(person);
+        for (Person friend : friends) {
+            lockPair(person, friend);
+            try {
+                friends.remove(friend);
+                Set<Person> friendFriends = friendships.get(friend);
+                if (friendFriends != null) {
+                    friendFriends.remove(person);
+                }
+            } finally {
+                unlockPair(person, friend);
+            }
+        }
+        friendships.remove(person);
+        return true;
+    }
+
+    @Override
+    public boolean addFriendship(String name1, String name2) {
+        Person person1 = people.get(name1);
+        Person person2 = people.get(name2);
+        if (person1 == null || person2 == null || person1.equals(person2)) {
+            return false;
+        }
+
+        boolean added;
+        lockPair(person1, person2);
+        try {
+            // Either person may have been removed since the lookup
+            if (!isLive(person1) || !isLive(person2)) {
+                return false;
+            }
+            added = friendships.get(person1).add(person2);
+            if (added) {
+                friendships.get(person2).add(person1);
+            }
+        } finally {
+            unlockPair(person1, person2);
+        }
+        return added;
+    }
+
+    @Override
+    public boolean removeFriendship(String name1, String name2) {
+        Person person1 = people.get(name1);
+        Person person2 = people.get(name2);
+        if (person1 == null || person2 == null) {
+            return false;
+        }
+
+        boolean removed = false;
+        lockPair(person1, person2);
+        try {
+            Set<Person> friends1 = friendships.get(person1);
+            Set<Person> friends2 = friendships.get(person2);
+            if (friends1 != null && friends2 != null && friends1.remove(person2)) {
+                friends2.remove(person1);
+                removed = true;
+            }
+        } finally {
+            unlockPair(person1, person2);
+        }
+        return removed;
+    }
+
+    @Override
+    public Person getPerson(String name) {
+        return people.get(name);
+    }
+
+    @Override
+    public Optional<List<Person>> findShortestPath(String startName, String endName) {
+        Person start = people.get(startName);
+        Person end = people.get(endName);
+        if (start == null || end == null) {
+            return Optional.empty();
+        }
+
+        Deque<Person> queue = new ArrayDeque<>();
+        Map<Person, Person> prev = new HashMap<>();
+        queue.add(start);
+        prev.put(start, start);
+        while (!queue.isEmpty()) {
+            Person current = queue.poll();
+            if (current.equals(end)) {
+                List<Person> path = new ArrayList<>();
+                for (Person at = end; !at.equals(start); at = prev.get(at)) {
+                    path.add(at);
+                }
+                path.add(start);
+                Collections.reverse(path);
+                return Optional.of(Collections.unmodifiableList(path));
+            }
+            for (Person neighbor : friendsOf(current)) {
+                if (!prev.containsKey(neighbor)) {
+                    prev.put(neighbor, current);
+                    queue.add(neighbor);
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public ClusterResult countClusters() {
+        Set<Person> visited = new HashSet<>();
+        List<List<Person>> clusters = new ArrayList<>();
+        for (Person person : people.values()) {
+            if (visited.add(person)) {
+                List<Person> cluster = new ArrayList<>();
+                Deque<Person> queue = new ArrayDeque<>();
+                queue.add(person);
+                while (!queue.isEmpty()) {
+                    Person current = queue.poll();
+                    cluster.add(current);
+                    for (Person neighbor : friendsOf(current)) {
+                        if (visited.add(neighbor)) {
+                            queue.add(neighbor);
+                        }
+                    }
+                }
+                clusters.add(cluster);
+            }
+        }
+
+        return new ClusterResult(clusters);
+    }
+
+    @Override
+    public List<Suggestion> suggestFriends(String name, int maxSuggestions) {
+        Person person = people.get(name);
+        if (person == null) {
+            return Collections.emptyList();
+        }
+        Set<Person> friends = friendsOf(person);
+
+        // Count mutual friends in one pass over the friends of friends
+        Map<Person, int[]> mutualCounts = new HashMap<>();
+        for (Person friend : friends) {
+            for (Person potentialFriend : friendsOf(friend)) {
+                if (!potentialFriend.equals(person) && !friends.contains(potentialFriend)) {
+                    mutualCounts.computeIfAbsent(potentialFriend, p -> new int[1])[0]++;
+                }
+            }
+        }
+
+        // Count common hobbies over the members of the person's hobbies only;
+        // a member being removed may still be listed, so check it is live
+        Map<Person, int[]> sharing = new HashMap<>();
+        for (String hobby : new HashSet<>(person.getHobbies())) {
+            for (Person member : hobbyMembers.getOrDefault(hobby, Collections.emptySet())) {
+                if (!member.equals(person) && !friends.contains(member) && isLive(member)) {
+                    sharing.computeIfAbsent(member, p -> new int[1])[0]++;
+                }
+            }
+        }
+
+        // Keep only the best maxSuggestions candidates, worst on top of the heap
+        int limit = Math.min(maxSuggestions, mutualCounts.size() + sharing.size());
+        if (limit <= 0) {
+            return new ArrayList<>();
+        }
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(limit + 1, Suggestion.BEST_FIRST.reversed());
+        for (Map.Entry<Person, int[]> candidate : mutualCounts.entrySet()) {
+            int[] common = sharing.get(candidate.getKey());
+            SocialNetworkGraph.offer(best, limit, candidate.getKey(), candidate.getValue()[0],
+                    common == null ? 0 : common[0]);
+        }
+
+        // Include people with common hobbies even if they have no mutual friends
+        for (Map.Entry<Person, int[]> candidate : sharing.entrySet()) {
+            if (!mutualCounts.containsKey(candidate.getKey())) {
+                SocialNetworkGraph.offer(best, limit, candidate.getKey(), 0, candidate.getValue()[0]);
+            }
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(Suggestion.BEST_FIRST);
+        return suggestions;
+    }
+
+    /**
+     * Checks, while holding both people's locks, that a friendship is recorded
+     * in both directions or in neither.
+     *
+     * @param person1 the first person
+     * @param person2 the second person
+     * @return true if the two friend sets agree
+     */
+    boolean isSymmetric(Person person1, Person person2) {
+        lockPair(person1, person2);
+        try {
+            return friendsOf(person1).contains(person2) == friendsOf(person2).contains(person1);
+        } finally {
+            unlockPair(person1, person2);
+        }
+    }
+
+    /**
+     * Checks every recorded friendship for its reverse direction. Each pair is
+     * checked under its locks, so the result is exact even while writers run.
+     *
+     * @return true if every friendship is recorded in both directions
+     */
+    public boolean isSymmetric() {
+        for (Map.Entry<Person, Set<Person>> entry : friendships.entrySet()) {
+            for (Person friend : entry.getValue()) {
+                if (!isSymmetric(entry.getKey(), friend)) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the number of people in the network.
+     *
+     * @return the number of people
+     */
+    public int personCount() {
+        return people.size();
+    }
+
+    private Set<Person> friendsOf(Person person) {
+        Set<Person> friends = friendships.get(person);
+        return friends != null ? friends : Collections.emptySet();
+    }
+
+    private boolean isLive(Person person) {
+        return people.get(person.getName()) == person;
+    }
+
+    private ReentrantLock lockFor(Person person) {
+        return locks[Math.floorMod(person.getId(), STRIPES)];
+    }
+
+    /**
+     * Locks the stripes of two people, lower stripe first, so that writers
+     * locking overlapping pairs can never deadlock.
+     *
+     * @param person1 the first person
+     * @param person2 the second person
+     */
+    private void lockPair(Person person1, Person person2) {
+        int stripe1 = Math.floorMod(person1.getId(), STRIPES);
+        int stripe2 = Math.floorMod(person2.getId(), STRIPES);
+        locks[Math.min(stripe1, stripe2)].lock();
+        if (stripe1 != stripe2) {
+            locks[Math.max(stripe1, stripe2)].lock();
+        }
+    }
+
+    private void unlockPair(Person person1, Person person2) {
+        int stripe1 = Math.floorMod(person1.getId(), STRIPES);
+        int stripe2 = Math.floorMod(person2.getId(), STRIPES);
+        if (stripe1 != stripe2) {
+            locks[Math.max(stripe1, stripe2)].unlock();
+        }
+        locks[Math.min(stripe1, stripe2)].unlock();
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Streaming reader for comma- or whitespace-separated text files. The file is
+ * read through a {@link FileChannel} into one reusable buffer and every line
+ * is split by scanning its bytes once, recording where each field starts and
+ * ends; a field only becomes a String when asked for, and numbers are parsed
+ * straight from the bytes. Memory use is the buffer, which only grows for a
+ * line longer than itself.
+ *
+ * <p>Fields may be enclosed in double quotes, inside which separators and
+ * line breaks are kept and a doubled quote stands for one quote. Lines that
+ * start with '#' and blank lines are skipped.
+ */
+class CsvReader implements Closeable {
+    private final FileChannel channel;
+    private final boolean whitespace;
+    private byte[] buffer = new byte[1 << 20];
+    private int start;
+    private int limit;
+    private boolean endOfInput;
+    private long lineNumber;
+
+    // Field bounds of the current line, as offsets into the buffer
+    private int[] fieldStarts = new int[8];
+    private int[] fieldEnds = new int[8];
+    private boolean[] quoted = new boolean[8];
+    private int fieldCount;
+
+    /**
+     * Opens a file for reading.
+     *
+     * @param file       the file
+     * @param whitespace true to split on runs of spaces and tabs as well as
+     *                   commas, false to split on commas only
+     * @throws IOException if the file cannot be opened
+     */
+    CsvReader(Path file, boolean whitespace) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.READ);
+        this.whitespace = whitespace;
+    }
+
+    /**
+     * Advances to the next line holding data.
+     *
+     * @return false at the end of the file
+     * @throws IOException if reading fails
+     */
+    boolean nextLine() throws IOException {
+        while (true) {
+            int end = findLineEnd();
+            if (end < 0) {
+                return false;
+            }
+            lineNumber++;
+            int lineStart = start;
+            start = end < limit ? end + 1 : end;
+            int lineEnd = end > lineStart && buffer[end - 1] == '\r' ? end - 1 : end;
+            if (lineEnd > lineStart && buffer[lineStart] != '#') {
+                split(lineStart, lineEnd);
+                if (fieldCount > 0) {
+                    return true;
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the number of the current line, counting from 1.
+     *
+     * @return the line number
+     */
+    long lineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Returns the number of fields on the current line.
+     *
+     * @return the number of fields
+     */
+    int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Decodes a field of the current line.
+     *
+     * @param i the index of the field
+     * @return the field, without enclosing quotes
+     */
+    String field(int i) {
+        int from = fieldStarts[i];
+        int to = fieldEnds[i];
+        if (quoted[i]) {
+            // Drop the second quote of every doubled quote
+            int write = from;
+            for (int read = from; read < to; read++) {
+                buffer[write++] = buffer[read];
+                if (buffer[read] == '"') {
+                    read++;
+                }
+            }
+            fieldEnds[i] = write;
+            quoted[i] = false;
+            to = write;
+        }
+        return decode(buffer, from, to);
+    }
+
+    /**
+     * Parses a field of the current line as a decimal integer.
+     *
+     * @param i the index of the field
+     * @return the value
+     * @throws NumberFormatException if the field is not an integer
+     */
+    int intField(int i) {
+        int from = fieldStarts[i];
+        int to = fieldEnds[i];
+        boolean negative = from < to && buffer[from] == '-';
+        if (negative) {
+            from++;
+        }
+        if (from == to || to - from > 10) {
+            throw new NumberFormatException("Not an integer on line " + lineNumber);
+        }
+        long value = 0;
+        for (int k = from; k < to; k++) {
+            int digit = buffer[k] - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("Not an integer on line " + lineNumber);
+            }
+            value = value * 10 + digit;
+        }
+        value = negative ? -value : value;
+        if (value != (int) value) {
+            throw new NumberFormatException("Integer out of range on line " + lineNumber);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Splits a field of the current line further at a separator byte, for
+     * lists stored inside one field. Spaces around every part are dropped and
+     * empty parts are skipped.
+     *
+     * @param i         the index of the field
+     * @param separator the separator
+     * @return the parts
+     */
+    List<String> listField(int i, char separator) {
+        String value = field(i);
+        List<String> parts = new ArrayList<>();
+        int from = 0;
+        while (from <= value.length()) {
+            int to = value.indexOf(separator, from);
+            if (to < 0) {
+                to = value.length();
+            }
+            String part = value.substring(from, to).trim();
+            if (!part.isEmpty()) {
+                parts.add(part);
+            }
+            from = to + 1;
+        }
+        return parts;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /**
+     * Finds the end of the line starting at start, reading more of the file
+     * as needed. Line breaks inside quotes do not end the line.
+     *
+     * @return the offset of the line break, limit for a last line without
+     *         one, or -1 at the end of the file
+     */
+    private int findLineEnd() throws IOException {
+        int scan = start;
+        boolean inQuotes = false;
+        while (true) {
+            while (scan < limit) {
+                byte b = buffer[scan];
+                if (b == '"') {
+                    inQuotes = !inQuotes;
+                } else if (b == '\n' && !inQuotes) {
+                    return scan;
+                }
+                scan++;
+            }
+            if (endOfInput) {
+                return start < limit ? limit : -1;
+            }
+            int scanned = scan - start;
+            fill();
+            scan = start + scanned;
+        }
+    }
+
+    /**
+     * Moves the unread bytes to the front of the buffer, growing it if they
+     * fill it, and reads more of the file behind them.
+     */
+    private void fill() throws IOException {
+        int remaining = limit - start;
+        if (remaining == buffer.length) {
+            buffer = Arrays.copyOf(buffer, 2 * buffer.length);
+        }
+        System.arraycopy(buffer, start, buffer, 0, remaining);
+        start = 0;
+        limit = remaining;
+        ByteBuffer target = ByteBuffer.wrap(buffer, limit, buffer.length - limit);
+        int read = channel.read(target);
+        if (read < 0) {
+            endOfInput = true;
+        } else {
+            limit += read;
+        }
+    }
+
+    private void split(int from, int to) {
+        fieldCount = 0;
+        int i = from;
+        while (i < to) {
+            if (whitespace) {
+                while (i < to && (buffer[i] == ' ' || buffer[i] == '\t')) {
+                    i++;
+                }
+                if (i == to) {
+                    break;
+                }
+            }
+
+            int fieldStart;
+            int fieldEnd;
+            boolean isQuoted = buffer[i] == '"';
+            if (isQuoted) {
+                fieldStart = ++i;
+                while (i < to && !(buffer[i] == '"' && (i + 1 == to || buffer[i + 1] != '"'))) {
+                    i += buffer[i] == '"' ? 2 : 1;
+                }
+                fieldEnd = i;
+                i++;
+                while (i < to && !isSeparator(buffer[i])) {
+                    i++;
+                }
+            } else {
+                fieldStart = i;
+                while (i < to && !isSeparator(buffer[i])) {
+                    i++;
+                }
+                fieldEnd = i;
+            }
+            addField(fieldStart, fieldEnd, isQuoted);
+
+            if (whitespace) {
+                while (i < to && (buffer[i] == ' ' || buffer[i] == '\t')) {
+                    i++;
+                }
+            }
+            if (i < to && buffer[i] == ',') {
+                i++;
+                if (i == to) {
+                    // A trailing comma ends with an empty field
+                    addField(to, to, false);
+                }
+            }
+        }
+    }
+
+    private boolean isSeparator(byte b) {
+        return b == ',' || (whitespace && (b == ' ' || b == '\t'));
+    }
+
+    private void addField(int from, int to, boolean isQuoted) {
+        if (fieldCount == fieldStarts.length) {
+            fieldStarts = Arrays.copyOf(fieldStarts, 2 * fieldCount);
+            fieldEnds = Arrays.copyOf(fieldEnds, 2 * fieldCount);
+            quoted = Arrays.copyOf(quoted, 2 * fieldCount);
+        }
+        fieldStarts[fieldCount] = from;
+        fieldEnds[fieldCount] = to;
+        quoted[fieldCount] = isQuoted;
+        fieldCount++;
+    }
+
+    /**
+     * Decodes UTF-8 bytes, taking the cheaper Latin-1 path for pure ASCII.
+     */
+    private static String decode(byte[] bytes, int from, int to) {
+        for (int k = from; k < to; k++) {
+            if (bytes[k] < 0) {
+                return new String(bytes, from, to - from, StandardCharsets.UTF_8);
+            }
+        }
+        return new String(bytes, from, to - from, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,109 @@
+import java.util.*;
+
+/**
+ * Disjoint-set (union-find) structure over dense int ids, using path
+ * compression and union by rank so that every operation runs in amortized
+ * O(&alpha;(n)) time.
+ */
+public class DisjointSet {
+    private int[] parent;
+    private byte[] rank;
+    private int size;
+    private int setCount;
+
+    /**
+     * Constructs an empty DisjointSet object.
+     */
+    public DisjointSet() {
+        this(16);
+    }
+
+    /**
+     * Constructs an empty DisjointSet object with room for the given number of
+     * elements.
+     *
+     * @param capacity the initial capacity
+     */
+    public DisjointSet(int capacity) {
+        parent = new int[Math.max(1, capacity)];
+        rank = new byte[parent.length];
+    }
+
+    /**
+     * Adds a new element in a set of its own.
+     *
+     * @return the id of the new element
+     */
+    public int add() {
+        if (size == parent.length) {
+            parent = Arrays.copyOf(parent, size * 2);
+            rank = Arrays.copyOf(rank, size * 2);
+        }
+        parent[size] = size;
+        setCount++;
+        return size++;
+    }
+
+    /**
+     * Returns the representative of the set containing an element.
+     *
+     * @param x the element
+     * @return the representative element
+     */
+    public int find(int x) {
+        int root = x;
+        while (parent[root] != root) {
+            root = parent[root];
+        }
+        // Point every element on the way directly at the root
+        while (parent[x] != root) {
+            int next = parent[x];
+            parent[x] = root;
+            x = next;
+        }
+        return root;
+    }
+
+    /**
+     * Merges the sets containing two elements.
+     *
+     * @param a the first element
+     * @param b the second element
+     * @return true if the sets were merged, false if they were already the same
+     */
+    public boolean union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return false;
+        }
+        if (rank[rootA] < rank[rootB]) {
+            parent[rootA] = rootB;
+        } else if (rank[rootA] > rank[rootB]) {
+            parent[rootB] = rootA;
+        } else {
+            parent[rootB] = rootA;
+            rank[rootA]++;
+        }
+        setCount--;
+        return true;
+    }
+
+    /**
+     * Returns the number of elements.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of disjoint sets.
+     *
+     * @return the number of sets
+     */
+    public int setCount() {
+        return setCount;
+    }
+}
@@ -0,0 +1,186 @@
+import java.util.*;
+
+/**
+ * Bottom-k sketches of the friend sets of a {@link SocialNetworkGraph}: a
+ * fixed-size uniform sample of every person's friends, kept up to date as
+ * friendships change, from which mutual friends can be estimated in time
+ * that does not depend on how many friends anyone has.
+ *
+ * <p>Every friend id is hashed with a bijective mixing function salted with
+ * the owner's id, and a person's sketch keeps the k friends with the
+ * smallest hashes, sorted by hash. The salt makes the sketches of different
+ * people independent samples, so a candidate that one hub's sketch misses
+ * can still be found through another. A sketch of a person with at most k
+ * friends holds all of them.
+ *
+ * <p>Adding a friend is an insertion into a sorted array of k entries.
+ * Removing one only costs more when the removed friend was in the sketch and
+ * the person has more than k friends, in which case the sketch is rebuilt
+ * from the friend set; that happens with probability k over the number of
+ * friends, so the expected cost stays proportional to k.
+ */
+class FriendSketches {
+    private final int size;
+    // Sketch of every person id: (hash << 32 | friend id), ascending
+    private long[][] keys = new long[16][];
+    private int[] counts = new int[16];
+
+    /**
+     * Constructs a new FriendSketches object.
+     *
+     * @param size the number of friends kept per person, k
+     */
+    FriendSketches(int size) {
+        if (size <= 0) {
+            throw new IllegalArgumentException("Sketch size must be positive: " + size);
+        }
+        this.size = size;
+    }
+
+    /**
+     * Returns the number of friends kept per person.
+     *
+     * @return k
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Returns the sort key of a friend in a person's sketch: the friend's
+     * salted hash, then the id. The hash is the finalizer of MurmurHash3, a
+     * bijection, so keys of different friends never tie.
+     */
+    private static long key(int id, int friendId) {
+        int h = friendId ^ id * 0x9e3779b9;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        h *= 0xc2b2ae35;
+        h ^= h >>> 16;
+        return (h & 0xffffffffL) << 32 | (friendId & 0xffffffffL);
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= keys.length) {
+            int grown = Math.max(id + 1, keys.length * 2);
+            keys = Arrays.copyOf(keys, grown);
+            counts = Arrays.copyOf(counts, grown);
+        }
+    }
+
+    /**
+     * Adds a friend to a person's sketch if it is among the k smallest.
+     *
+     * @param id       the person
+     * @param friendId the new friend
+     */
+    void add(int id, int friendId) {
+        ensureCapacity(id);
+        long[] sketch = keys[id];
+        if (sketch == null) {
+            sketch = new long[Math.min(size, 4)];
+            keys[id] = sketch;
+        }
+        int count = counts[id];
+        long key = key(id, friendId);
+        if (count == size && key >= sketch[count - 1]) {
+            return;
+        }
+        if (count == sketch.length && count < size) {
+            sketch = Arrays.copyOf(sketch, Math.min(size, count * 2));
+            keys[id] = sketch;
+        }
+
+        // Insertion into the sorted prefix, dropping the largest key if full
+        int at = count < size ? count : count - 1;
+        while (at > 0 && sketch[at - 1] > key) {
+            sketch[at] = sketch[at - 1];
+            at--;
+        }
+        sketch[at] = key;
+        if (count < size) {
+            counts[id] = count + 1;
+        }
+    }
+
+    /**
+     * Removes a friend from a person's sketch, refilling it from the friend
+     * set if the person has more friends than the sketch can hold.
+     *
+     * @param id       the person
+     * @param friendId the former friend
+     * @param friends  the friends of the person after the removal
+     */
+    void remove(int id, int friendId, Collection<Person> friends) {
+        if (id >= keys.length || keys[id] == null) {
+            return;
+        }
+        long[] sketch = keys[id];
+        int count = counts[id];
+        int at = Arrays.binarySearch(sketch, 0, count, key(id, friendId));
+        if (at < 0) {
+            return;
+        }
+        if (friends.size() < count) {
+            // The sketch held every friend; just close the gap
+            System.arraycopy(sketch, at + 1, sketch, at, count - at - 1);
+            counts[id] = count - 1;
+            return;
+        }
+        rebuild(id, friends);
+    }
+
+    /**
+     * Replaces a person's sketch with the k smallest keys of a friend set.
+     *
+     * @param id      the person
+     * @param friends the friends of the person
+     */
+    void rebuild(int id, Collection<Person> friends) {
+        ensureCapacity(id);
+        long[] all = new long[friends.size()];
+        int i = 0;
+        for (Person friend : friends) {
+            all[i++] = key(id, friend.getId());
+        }
+        Arrays.sort(all);
+        int count = Math.min(size, all.length);
+        keys[id] = Arrays.copyOf(all, Math.max(count, 1));
+        counts[id] = count;
+    }
+
+    /**
+     * Drops the sketch of a removed person.
+     *
+     * @param id the person
+     */
+    void clear(int id) {
+        if (id < keys.length) {
+            keys[id] = null;
+            counts[id] = 0;
+        }
+    }
+
+    /**
+     * Returns the number of friends in a person's sketch.
+     *
+     * @param id the person
+     * @return min(k, number of friends)
+     */
+    int sampleSize(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Returns one friend from a person's sketch. The friends of a sketch are
+     * a uniform random sample of the friend set, fixed by the hash function.
+     *
+     * @param id the person
+     * @param i  the position, below {@link #sampleSize(int)}
+     * @return the friend id
+     */
+    int sample(int id, int i) {
+        return (int) keys[id][i];
+    }
+}
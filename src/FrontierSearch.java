@@ -0,0 +1,302 @@
+import java.util.*;
+
+/**
+ * Breadth-first search over a {@link GraphSnapshot} that answers many
+ * distance queries with one traversal. A search may start from several
+ * sources at once, in which case every distance is measured from the nearest
+ * source, and may stop early, either once every target has been reached or
+ * once a hop limit has been exhausted.
+ *
+ * <p>The search is direction-optimizing: while the frontier is small it
+ * expands top-down, scanning the friends of every frontier vertex, and once
+ * the friends of the frontier outnumber a fraction of the edges still
+ * unexplored it switches to bottom-up, where every unreached vertex looks for
+ * any friend on the frontier and stops at the first one. On the wide middle
+ * levels of a social graph most unreached vertices find such a friend
+ * quickly, so bottom-up levels scan far fewer edges. The search switches back
+ * to top-down when the frontier shrinks again.
+ *
+ * <p>One instance can run any number of searches on the same snapshot; each
+ * search only clears the vertices the previous one reached. An instance is
+ * not thread-safe.
+ */
+public class FrontierSearch {
+    // Go bottom-up once the frontier's edges exceed 1/ALPHA of the unexplored
+    // edges, and back top-down once the frontier holds under 1/BETA of the
+    // vertices; the values of Beamer, Asanovic and Patterson
+    private static final int ALPHA = 14;
+    private static final int BETA = 24;
+
+    private final GraphSnapshot snapshot;
+    private final int[] targets;
+    private final boolean directionOptimizing;
+    private final int[] distance;
+    private final int[] parent;
+    // Reached vertices in BFS order; every level is a contiguous range
+    private final int[] queue;
+    private final BitSet wanted;
+    private int reached;
+    private long edgesScanned;
+    private int bottomUpLevels;
+
+    /**
+     * Constructs a new FrontierSearch object that switches direction as the
+     * frontier grows and shrinks.
+     *
+     * @param snapshot the graph to search
+     */
+    public FrontierSearch(GraphSnapshot snapshot) {
+        this(snapshot, true);
+    }
+
+    /**
+     * Constructs a new FrontierSearch object.
+     *
+     * @param snapshot            the graph to search
+     * @param directionOptimizing true to switch to bottom-up levels on large
+     *                            frontiers, false to always expand top-down
+     */
+    public FrontierSearch(GraphSnapshot snapshot, boolean directionOptimizing) {
+        this.snapshot = snapshot;
+        this.targets = snapshot.targets();
+        this.directionOptimizing = directionOptimizing;
+        int n = snapshot.vertexCount();
+        this.distance = new int[n];
+        this.parent = new int[n];
+        this.queue = new int[n];
+        this.wanted = new BitSet(n);
+        Arrays.fill(distance, -1);
+    }
+
+    /**
+     * Runs a search, discarding the results of the previous one.
+     *
+     * @param sources        the vertices to start from, at distance 0
+     * @param targetVertices the vertices to reach, or null to reach
+     *                       everything within the hop limit
+     * @param maxHops        the largest distance to explore, or
+     *                       {@link Integer#MAX_VALUE} for no limit
+     */
+    public void search(int[] sources, int[] targetVertices, int maxHops) {
+        clear();
+        int pending = 0;
+        if (targetVertices != null) {
+            for (int t : targetVertices) {
+                if (!wanted.get(t)) {
+                    wanted.set(t);
+                    pending++;
+                }
+            }
+        }
+
+        for (int s : sources) {
+            if (distance[s] < 0) {
+                distance[s] = 0;
+                parent[s] = s;
+                queue[reached++] = s;
+                if (wanted.get(s)) {
+                    wanted.clear(s);
+                    pending--;
+                }
+            }
+        }
+        if (targetVertices != null && pending == 0) {
+            return;
+        }
+
+        // Friend entries of the vertices not reached yet, for the switch test
+        long unexploredEdges = snapshot.edgeEntries();
+        long frontierEdges = 0;
+        for (int i = 0; i < reached; i++) {
+            frontierEdges += snapshot.degree(queue[i]);
+        }
+        unexploredEdges -= frontierEdges;
+
+        int levelStart = 0;
+        boolean bottomUp = false;
+        for (int level = 0; level < maxHops && levelStart < reached; level++) {
+            int levelEnd = reached;
+            int frontierSize = levelEnd - levelStart;
+            if (directionOptimizing) {
+                if (!bottomUp && frontierEdges > unexploredEdges / ALPHA) {
+                    bottomUp = true;
+                } else if (bottomUp && frontierSize < snapshot.vertexCount() / BETA) {
+                    bottomUp = false;
+                }
+            }
+
+            if (bottomUp) {
+                bottomUpLevels++;
+                pending = expandBottomUp(level, pending);
+            } else {
+                pending = expandTopDown(levelStart, levelEnd, pending);
+            }
+            if (targetVertices != null && pending == 0) {
+                return;
+            }
+
+            frontierEdges = 0;
+            for (int i = levelEnd; i < reached; i++) {
+                frontierEdges += snapshot.degree(queue[i]);
+            }
+            unexploredEdges -= frontierEdges;
+            levelStart = levelEnd;
+        }
+    }
+
+    /**
+     * Expands one level by scanning the friends of every frontier vertex.
+     *
+     * @return the number of targets still to reach
+     */
+    private int expandTopDown(int levelStart, int levelEnd, int pending) {
+        for (int i = levelStart; i < levelEnd; i++) {
+            int u = queue[i];
+            int next = distance[u] + 1;
+            int end = snapshot.offset(u) + snapshot.degree(u);
+            for (int e = snapshot.offset(u); e < end; e++) {
+                int v = targets[e];
+                if (distance[v] < 0) {
+                    distance[v] = next;
+                    parent[v] = u;
+                    queue[reached++] = v;
+                    if (wanted.get(v)) {
+                        wanted.clear(v);
+                        // A BFS distance is final once assigned
+                        if (--pending == 0) {
+                            edgesScanned += e + 1 - snapshot.offset(u);
+                            return 0;
+                        }
+                    }
+                }
+            }
+            edgesScanned += end - snapshot.offset(u);
+        }
+        return pending;
+    }
+
+    /**
+     * Expands one level by letting every unreached vertex look for a friend
+     * on the frontier, which is the set of vertices at the given level.
+     *
+     * @return the number of targets still to reach
+     */
+    private int expandBottomUp(int level, int pending) {
+        int n = snapshot.vertexCount();
+        for (int v = 0; v < n; v++) {
+            if (distance[v] >= 0) {
+                continue;
+            }
+            int start = snapshot.offset(v);
+            int end = start + snapshot.degree(v);
+            for (int e = start; e < end; e++) {
+                int u = targets[e];
+                if (distance[u] == level) {
+                    distance[v] = level + 1;
+                    parent[v] = u;
+                    queue[reached++] = v;
+                    end = e + 1;
+                    if (wanted.get(v)) {
+                        wanted.clear(v);
+                        pending--;
+                    }
+                    break;
+                }
+            }
+            edgesScanned += end - start;
+        }
+        // Unlike top-down, the level must be completed: vertices reached in it
+        // are only told apart from the frontier by their distance
+        return pending;
+    }
+
+    /**
+     * Resets the vertices reached by the previous search.
+     */
+    private void clear() {
+        for (int i = 0; i < reached; i++) {
+            distance[queue[i]] = -1;
+        }
+        wanted.clear();
+        reached = 0;
+        edgesScanned = 0;
+        bottomUpLevels = 0;
+    }
+
+    /**
+     * Returns the distance of a vertex from the nearest source.
+     *
+     * @param v the vertex
+     * @return the number of hops, or -1 if the last search did not reach it
+     */
+    public int distance(int v) {
+        return distance[v];
+    }
+
+    /**
+     * Returns the vertex a reached vertex was discovered from.
+     *
+     * @param v a reached vertex
+     * @return the previous vertex on a shortest path, or v itself for a source
+     */
+    public int parent(int v) {
+        return parent[v];
+    }
+
+    /**
+     * Returns the vertices on a shortest path from the nearest source to a
+     * reached vertex.
+     *
+     * @param v a reached vertex
+     * @return the people on the path, from the source to v
+     */
+    public List<Person> path(int v) {
+        List<Person> path = new ArrayList<>(distance[v] + 1);
+        path.add(snapshot.person(v));
+        while (parent[v] != v) {
+            v = parent[v];
+            path.add(snapshot.person(v));
+        }
+        Collections.reverse(path);
+        return Collections.unmodifiableList(path);
+    }
+
+    /**
+     * Returns the number of vertices the last search reached, sources
+     * included.
+     *
+     * @return the number of reached vertices
+     */
+    public int reachedCount() {
+        return reached;
+    }
+
+    /**
+     * Returns a vertex reached by the last search, in the order the search
+     * reached them.
+     *
+     * @param i the position, below {@link #reachedCount()}
+     * @return the vertex
+     */
+    public int reachedVertex(int i) {
+        return queue[i];
+    }
+
+    /**
+     * Returns the number of friend entries the last search scanned.
+     *
+     * @return the number of scanned edge entries
+     */
+    public long edgesScanned() {
+        return edgesScanned;
+    }
+
+    /**
+     * Returns the number of levels the last search expanded bottom-up.
+     *
+     * @return the number of bottom-up levels
+     */
+    public int bottomUpLevels() {
+        return bottomUpLevels;
+    }
+}
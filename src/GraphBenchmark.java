@@ -0,0 +1,244 @@
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.util.*;
+
+/**
+ * Benchmarks every operation of a {@link SocialNetwork} on the synthetic
+ * graphs of {@link SyntheticGraphs}: Erdos-Renyi, Barabasi-Albert and
+ * community-structured graphs at several sizes. Each graph is built from
+ * scratch in every iteration; the first iterations only warm up the JIT and
+ * the rest are measured.
+ *
+ * <p>For each operation the benchmark reports throughput, the latency
+ * percentiles of single calls and the bytes allocated per call, read from the
+ * per-thread allocation counter of HotSpot. The operations return their
+ * results without printing, so no console output is measured.
+ */
+public class GraphBenchmark {
+    private static final int AVERAGE_DEGREE = 10;
+    private static final int COMMUNITIES = 50;
+    private static final double MIXING = 0.05;
+    private static final int QUERIES = 500;
+    private static final int CLUSTER_RUNS = 5;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int WARMUP_ITERATIONS = 1;
+    private static final String[] MODELS = { "erdos-renyi", "barabasi-albert", "communities" };
+    private static final String[] OPERATIONS = { "addPerson", "addFriendship", "findShortestPath",
+            "suggestFriends", "countClusters", "removePerson" };
+
+    /**
+     * Runs every operation on every model and size and prints one line per
+     * operation.
+     *
+     * @param args optional {@code --compact} or {@code --concurrent} to pick
+     *             the backend as in {@link Main}, followed by optional comma
+     *             separated sizes and the number of measured iterations
+     */
+    public static void main(String[] args) {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        boolean compact = options.remove("--compact");
+        boolean concurrent = options.remove("--concurrent");
+        String sizes = options.size() > 0 ? options.get(0) : "1000,10000,100000";
+        int iterations = options.size() > 1 ? Integer.parseInt(options.get(1)) : 3;
+
+        PrintStream out = System.out;
+        out.printf("%-16s %8s %-17s %9s %12s %10s %10s %10s %10s %12s%n", "model", "people", "operation", "ops",
+                "ops/s", "p50 us", "p90 us", "p99 us", "max us", "bytes/op");
+
+        for (String model : MODELS) {
+            for (String size : sizes.split(",")) {
+                int n = Integer.parseInt(size.trim());
+                int[] edges = generate(model, n);
+                Measurement[] measurements = new Measurement[OPERATIONS.length];
+                for (int i = 0; i < measurements.length; i++) {
+                    measurements[i] = new Measurement();
+                }
+
+                for (int iteration = 0; iteration < WARMUP_ITERATIONS + iterations; iteration++) {
+                    SocialNetwork network = compact ? new CompactSocialNetworkGraph()
+                            : concurrent ? new ConcurrentSocialNetworkGraph()
+                            : new SocialNetworkGraph();
+                    run(network, n, edges, iteration, iteration >= WARMUP_ITERATIONS, measurements);
+                }
+
+                for (int i = 0; i < OPERATIONS.length; i++) {
+                    measurements[i].print(out, model, n, OPERATIONS[i]);
+                }
+            }
+        }
+    }
+
+    private static int[] generate(String model, int n) {
+        switch (model) {
+            case "erdos-renyi":
+                return SyntheticGraphs.erdosRenyi(n, AVERAGE_DEGREE, 42);
+            case "barabasi-albert":
+                return SyntheticGraphs.barabasiAlbert(n, AVERAGE_DEGREE / 2, 42);
+            default:
+                return SyntheticGraphs.communities(n, COMMUNITIES, AVERAGE_DEGREE, MIXING, 42);
+        }
+    }
+
+    /**
+     * Builds one graph and runs every operation on it in turn. Names, hobbies
+     * and query pairs are prepared up front so that only the operations
+     * themselves are timed and counted as allocating.
+     */
+    private static void run(SocialNetwork network, int n, int[] edges, int iteration, boolean measured,
+            Measurement[] measurements) {
+        Random random = new Random(iteration);
+        String[] names = new String[n];
+        List<List<String>> hobbies = new ArrayList<>(n);
+        for (int u = 0; u < n; u++) {
+            names[u] = SyntheticGraphs.name(u);
+            hobbies.add(SyntheticGraphs.hobbies(random));
+        }
+        // Fewer queries on large graphs, where every traversal visits them whole
+        int queries = (int) Math.min(Math.min(QUERIES, n), 10_000_000L / n);
+        int[] sources = new int[queries];
+        int[] targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(n);
+            targets[i] = random.nextInt(n);
+        }
+        // People to remove, each at most once
+        int[] removals = Arrays.copyOf(shuffledVertices(n, random), queries);
+
+        Measurement m = start(measurements[0], measured, n);
+        for (int u = 0; u < n; u++) {
+            long begin = System.nanoTime();
+            network.addPerson(names[u], 18 + u % 60, hobbies.get(u));
+            m.record(System.nanoTime() - begin);
+        }
+        m.stop();
+
+        m = start(measurements[1], measured, edges.length / 2);
+        for (int i = 0; i < edges.length; i += 2) {
+            long begin = System.nanoTime();
+            network.addFriendship(names[edges[i]], names[edges[i + 1]]);
+            m.record(System.nanoTime() - begin);
+        }
+        m.stop();
+
+        m = start(measurements[2], measured, queries);
+        for (int i = 0; i < queries; i++) {
+            long begin = System.nanoTime();
+            network.findShortestPath(names[sources[i]], names[targets[i]]);
+            m.record(System.nanoTime() - begin);
+        }
+        m.stop();
+
+        m = start(measurements[3], measured, queries);
+        for (int i = 0; i < queries; i++) {
+            long begin = System.nanoTime();
+            network.suggestFriends(names[sources[i]], MAX_SUGGESTIONS);
+            m.record(System.nanoTime() - begin);
+        }
+        m.stop();
+
+        m = start(measurements[4], measured, CLUSTER_RUNS);
+        for (int i = 0; i < CLUSTER_RUNS; i++) {
+            long begin = System.nanoTime();
+            network.countClusters();
+            m.record(System.nanoTime() - begin);
+        }
+        m.stop();
+
+        m = start(measurements[5], measured, queries);
+        for (int i = 0; i < queries; i++) {
+            long begin = System.nanoTime();
+            network.removePerson(names[removals[i]]);
+            m.record(System.nanoTime() - begin);
+        }
+        m.stop();
+    }
+
+    private static int[] shuffledVertices(int n, Random random) {
+        int[] vertices = new int[n];
+        for (int u = 0; u < n; u++) {
+            vertices[u] = u;
+        }
+        for (int u = n - 1; u > 0; u--) {
+            int v = random.nextInt(u + 1);
+            int swap = vertices[u];
+            vertices[u] = vertices[v];
+            vertices[v] = swap;
+        }
+        return vertices;
+    }
+
+    /**
+     * Returns the measurement to record into, or a throwaway one during
+     * warmup, after making room for the calls about to be recorded.
+     */
+    private static Measurement start(Measurement measurement, boolean measured, int calls) {
+        Measurement m = measured ? measurement : new Measurement();
+        m.start(calls);
+        return m;
+    }
+
+    /**
+     * Returns the bytes allocated so far by the current thread, or -1 if the
+     * JVM does not count them.
+     */
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threads instanceof com.sun.management.ThreadMXBean) {
+            com.sun.management.ThreadMXBean counting = (com.sun.management.ThreadMXBean) threads;
+            if (counting.isThreadAllocatedMemorySupported() && counting.isThreadAllocatedMemoryEnabled()) {
+                return counting.getThreadAllocatedBytes(Thread.currentThread().getId());
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Latencies, total time and allocation of one operation, summed over the
+     * measured iterations.
+     */
+    private static class Measurement {
+        private long[] latencies = new long[0];
+        private int count;
+        private long totalNanos;
+        private long allocated;
+        private boolean allocationCounted = true;
+        private long startNanos;
+        private long startAllocated;
+
+        void start(int calls) {
+            if (count + calls > latencies.length) {
+                latencies = Arrays.copyOf(latencies, count + calls);
+            }
+            startAllocated = allocatedBytes();
+            startNanos = System.nanoTime();
+        }
+
+        void record(long nanos) {
+            latencies[count++] = nanos;
+        }
+
+        void stop() {
+            totalNanos += System.nanoTime() - startNanos;
+            long endAllocated = allocatedBytes();
+            if (startAllocated < 0 || endAllocated < 0) {
+                allocationCounted = false;
+            }
+            allocated += endAllocated - startAllocated;
+        }
+
+        void print(PrintStream out, String model, int n, String operation) {
+            long[] sorted = Arrays.copyOf(latencies, count);
+            Arrays.sort(sorted);
+            String bytesPerCall = allocationCounted ? String.format("%12.0f", (double) allocated / count)
+                    : String.format("%12s", "n/a");
+            out.printf("%-16s %8d %-17s %9d %12.0f %10.1f %10.1f %10.1f %10.1f %s%n", model, n, operation, count,
+                    count / (totalNanos / 1e9), percentile(sorted, 0.50) / 1e3, percentile(sorted, 0.90) / 1e3,
+                    percentile(sorted, 0.99) / 1e3, sorted[count - 1] / 1e3, bytesPerCall);
+        }
+
+        private static long percentile(long[] sorted, double fraction) {
+            int index = (int) Math.ceil(fraction * sorted.length) - 1;
+            return sorted[Math.max(0, index)];
+        }
+    }
+}
@@ -0,0 +1,133 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.zip.*;
+
+/**
+ * Compact binary checkpoint of a {@link SocialNetworkGraph}. Hobbies are
+ * stored once in a string table and referenced by index, and friend lists are
+ * stored as vertex indices in the original order of every friend set, so a
+ * restored graph answers queries exactly like the one that was saved. The
+ * file ends with a CRC32 of everything before it, and records the sequence
+ * number of the last mutation it contains so the mutation log can be replayed
+ * from there.
+ */
+class GraphCheckpoint {
+    private static final int MAGIC = 0x534E4350;
+    private static final int VERSION = 1;
+
+    private GraphCheckpoint() {
+    }
+
+    /**
+     * Writes a view of the graph to a file and forces it to disk.
+     *
+     * @param version  the view to write
+     * @param sequence the sequence number of the last mutation in the view
+     * @param file     the file to write
+     * @return the number of people and friendships written
+     * @throws IOException if writing fails
+     */
+    static long write(GraphVersion version, long sequence, Path file) throws IOException {
+        List<Person> people = version.people();
+        // Vertex index of every person id in the view
+        Map<Person, Integer> index = new HashMap<>();
+        Map<String, Integer> hobbyIds = new LinkedHashMap<>();
+        for (Person person : people) {
+            index.put(person, index.size());
+            for (String hobby : person.getHobbies()) {
+                hobbyIds.putIfAbsent(hobby, hobbyIds.size());
+            }
+        }
+
+        long friendEntries = 0;
+        try (FileOutputStream fileOut = new FileOutputStream(file.toFile())) {
+            CheckedOutputStream checked = new CheckedOutputStream(
+                    new BufferedOutputStream(fileOut, 64 * 1024), new CRC32());
+            DataOutputStream out = new DataOutputStream(checked);
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sequence);
+
+            out.writeInt(hobbyIds.size());
+            for (String hobby : hobbyIds.keySet()) {
+                out.writeUTF(hobby);
+            }
+            out.writeInt(people.size());
+            for (Person person : people) {
+                out.writeUTF(person.getName());
+                out.writeInt(person.getAge());
+                out.writeInt(person.getHobbies().size());
+                for (String hobby : person.getHobbies()) {
+                    out.writeInt(hobbyIds.get(hobby));
+                }
+            }
+            for (Person person : people) {
+                Set<Person> friends = version.friendsOf(person);
+                out.writeInt(friends.size());
+                friendEntries += friends.size();
+                for (Person friend : friends) {
+                    out.writeInt(index.get(friend));
+                }
+            }
+
+            out.writeLong(checked.getChecksum().getValue());
+            out.flush();
+            fileOut.getFD().sync();
+        }
+        return people.size() + friendEntries / 2;
+    }
+
+    /**
+     * Loads a checkpoint into an empty graph.
+     *
+     * @param file  the checkpoint file
+     * @param graph the graph to fill
+     * @return the sequence number of the last mutation in the checkpoint
+     * @throws IOException if reading fails or the file is corrupt
+     */
+    static long read(Path file, SocialNetworkGraph graph) throws IOException {
+        try (InputStream fileIn = Files.newInputStream(file)) {
+            CheckedInputStream checked = new CheckedInputStream(
+                    new BufferedInputStream(fileIn, 64 * 1024), new CRC32());
+            DataInputStream in = new DataInputStream(checked);
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Not a graph checkpoint: " + file);
+            }
+            long sequence = in.readLong();
+
+            String[] hobbies = new String[in.readInt()];
+            for (int i = 0; i < hobbies.length; i++) {
+                hobbies[i] = in.readUTF();
+            }
+            int n = in.readInt();
+            List<Person> people = new ArrayList<>(n);
+            for (int u = 0; u < n; u++) {
+                String name = in.readUTF();
+                int age = in.readInt();
+                String[] personHobbies = new String[in.readInt()];
+                for (int i = 0; i < personHobbies.length; i++) {
+                    personHobbies[i] = hobbies[in.readInt()];
+                }
+                people.add(new Person(name, age, Arrays.asList(personHobbies)));
+            }
+            graph.addPeople(people);
+
+            List<Person> friends = new ArrayList<>();
+            for (int u = 0; u < n; u++) {
+                int degree = in.readInt();
+                friends.clear();
+                for (int i = 0; i < degree; i++) {
+                    friends.add(people.get(in.readInt()));
+                }
+                graph.restoreFriends(people.get(u), friends);
+            }
+
+            long expected = checked.getChecksum().getValue();
+            if (in.readLong() != expected) {
+                throw new IOException("Corrupt graph checkpoint: " + file);
+            }
+            return sequence;
+        }
+    }
+}
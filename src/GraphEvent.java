@@ -0,0 +1,85 @@
+import java.util.*;
+
+/**
+ * One entry of the time-ordered change log kept by a
+ * {@link SocialNetworkGraph} while history tracking is on.
+ */
+public class GraphEvent {
+
+    /**
+     * The kinds of change. Removing a person also ends all of their
+     * friendships; those endings are not logged separately.
+     */
+    public enum Type {
+        PERSON_ADDED, PERSON_REMOVED, FRIENDSHIP_ADDED, FRIENDSHIP_REMOVED
+    }
+
+    private final Type type;
+    private final long time;
+    private final String name1;
+    private final String name2;
+
+    /**
+     * Constructs a new GraphEvent object.
+     *
+     * @param type  the kind of change
+     * @param time  the time of the change in milliseconds since the epoch, or
+     *              {@link Long#MIN_VALUE} if it was made without a timestamp
+     * @param name1 the name of the person, or of the first friend
+     * @param name2 the name of the second friend, or null for a person event
+     */
+    GraphEvent(Type type, long time, String name1, String name2) {
+        this.type = type;
+        this.time = time;
+        this.name1 = name1;
+        this.name2 = name2;
+    }
+
+    /**
+     * Returns the kind of change.
+     *
+     * @return the type
+     */
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * Returns the time of the change.
+     *
+     * @return the time, or null if the change was made before any timestamp
+     *         was given
+     */
+    public Date getTime() {
+        return time == Long.MIN_VALUE ? null : new Date(time);
+    }
+
+    /**
+     * Returns the name of the person, or of the first friend.
+     *
+     * @return the first name
+     */
+    public String getName1() {
+        return name1;
+    }
+
+    /**
+     * Returns the name of the second friend.
+     *
+     * @return the second name, or null for a person event
+     */
+    public String getName2() {
+        return name2;
+    }
+
+    /**
+     * Returns a string representation of the event.
+     *
+     * @return a string representation of the event
+     */
+    @Override
+    public String toString() {
+        Date date = getTime();
+        return (date != null ? date + " " : "") + type + " " + name1 + (name2 != null ? " " + name2 : "");
+    }
+}
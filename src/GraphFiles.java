@@ -0,0 +1,200 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Imports and exports a {@link SocialNetworkGraph} as plain text files.
+ *
+ * <p>A person file is CSV with one person per line: name, age, and the
+ * hobbies separated by semicolons, for example
+ * {@code "Doe, John",25,reading;hiking}. A first line whose age is not a
+ * number is taken as a header. Hobbies themselves cannot contain semicolons.
+ *
+ * <p>A friendship file holds one pair of names per line. The two names are
+ * separated by a comma, or by spaces or tabs as in the SNAP edge lists, where
+ * people are usually plain numbers and there is no person file at all.
+ *
+ * <p>In both formats lines starting with '#' are comments. Files are streamed
+ * through {@link CsvReader} and fed to the graph in fixed-size batches, so
+ * importing needs no memory beyond the graph itself and one batch.
+ */
+public class GraphFiles {
+    private static final int BATCH_SIZE = 65_536;
+
+    private GraphFiles() {
+    }
+
+    /**
+     * Adds the people of a person file to a graph. People whose name is
+     * already taken are skipped.
+     *
+     * @param file  the person file
+     * @param graph the graph to add to
+     * @return the number of people added
+     * @throws IOException if reading fails or a line is malformed
+     */
+    public static int readPeople(Path file, SocialNetworkGraph graph) throws IOException {
+        int added = 0;
+        List<Person> batch = new ArrayList<>(BATCH_SIZE);
+        boolean firstLine = true;
+        try (CsvReader reader = new CsvReader(file, false)) {
+            while (reader.nextLine()) {
+                boolean header = firstLine;
+                firstLine = false;
+                if (reader.fieldCount() < 2) {
+                    throw new IOException("Expected name and age on line " + reader.lineNumber() + " of " + file);
+                }
+                int age;
+                try {
+                    age = reader.intField(1);
+                } catch (NumberFormatException e) {
+                    if (header) {
+                        continue;
+                    }
+                    throw new IOException("Invalid age on line " + reader.lineNumber() + " of " + file);
+                }
+                List<String> hobbies = reader.fieldCount() > 2 ? reader.listField(2, ';')
+                        : Collections.emptyList();
+                batch.add(new Person(reader.field(0), age, hobbies));
+                if (batch.size() == BATCH_SIZE) {
+                    added += graph.addPeople(batch);
+                    batch.clear();
+                }
+            }
+        }
+        return added + graph.addPeople(batch);
+    }
+
+    /**
+     * Adds the friendships of a friendship file to a graph. Pairs naming the
+     * same person twice or people who are already friends are skipped.
+     *
+     * @param file          the friendship file
+     * @param graph         the graph to add to
+     * @param createMissing true to add every unknown name as a person with
+     *                      age 0 and no hobbies, false to skip pairs naming an
+     *                      unknown person
+     * @return the number of friendships added
+     * @throws IOException if reading fails or a line is malformed
+     */
+    public static long readFriendships(Path file, SocialNetworkGraph graph, boolean createMissing)
+            throws IOException {
+        long added = 0;
+        String[][] pairs = new String[BATCH_SIZE][];
+        int count = 0;
+        List<Person> missing = new ArrayList<>();
+        Set<String> missingNames = new HashSet<>();
+        try (CsvReader reader = new CsvReader(file, true)) {
+            while (reader.nextLine()) {
+                if (reader.fieldCount() < 2) {
+                    throw new IOException("Expected two names on line " + reader.lineNumber() + " of " + file);
+                }
+                String[] pair = { reader.field(0), reader.field(1) };
+                if (createMissing) {
+                    for (String name : pair) {
+                        if (!graph.people.containsKey(name) && missingNames.add(name)) {
+                            missing.add(new Person(name, 0, Collections.emptyList()));
+                        }
+                    }
+                }
+                pairs[count++] = pair;
+                if (count == BATCH_SIZE) {
+                    added += flush(graph, pairs, count, missing, missingNames);
+                    count = 0;
+                }
+            }
+        }
+        return added + flush(graph, pairs, count, missing, missingNames);
+    }
+
+    /**
+     * Writes every person of a graph to a person file.
+     *
+     * @param graph the graph
+     * @param file  the file to write
+     * @throws IOException if writing fails
+     */
+    public static void writePeople(SocialNetworkGraph graph, Path file) throws IOException {
+        try (Writer out = newWriter(file)) {
+            out.write("# name,age,hobbies\n");
+            Iterator<Person> people = graph.people.values().iterator();
+            while (people.hasNext()) {
+                Person person = people.next();
+                writeField(out, person.getName());
+                out.write(',');
+                out.write(Integer.toString(person.getAge()));
+                out.write(',');
+                if (!person.getHobbies().isEmpty()) {
+                    writeField(out, String.join(";", person.getHobbies()));
+                }
+                out.write('\n');
+            }
+        }
+    }
+
+    /**
+     * Writes every friendship of a graph once to a friendship file, as comma
+     * separated pairs. A friendship of a person with themselves is left out,
+     * since importing skips it anyway.
+     *
+     * @param graph the graph
+     * @param file  the file to write
+     * @throws IOException if writing fails
+     */
+    public static void writeFriendships(SocialNetworkGraph graph, Path file) throws IOException {
+        try (Writer out = newWriter(file)) {
+            out.write("# name1,name2\n");
+            Iterator<Map.Entry<Person, Set<Person>>> entries = graph.friendships.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Person, Set<Person>> entry = entries.next();
+                Person person = entry.getKey();
+                for (Person friend : entry.getValue()) {
+                    // Each friendship once, from the person with the smaller id
+                    if (person.getId() < friend.getId()) {
+                        writeField(out, person.getName());
+                        out.write(',');
+                        writeField(out, friend.getName());
+                        out.write('\n');
+                    }
+                }
+            }
+        }
+    }
+
+    private static long flush(SocialNetworkGraph graph, String[][] pairs, int count, List<Person> missing,
+            Set<String> missingNames) {
+        if (!missing.isEmpty()) {
+            graph.addPeople(missing);
+            missing.clear();
+            missingNames.clear();
+        }
+        return graph.addFriendships(Arrays.asList(pairs).subList(0, count));
+    }
+
+    private static Writer newWriter(Path file) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file), StandardCharsets.UTF_8),
+                1 << 16);
+    }
+
+    /**
+     * Writes a field, quoting it if it holds a separator, a quote or a line
+     * break, starts with '#' or whitespace, or is empty.
+     */
+    private static void writeField(Writer out, String value) throws IOException {
+        boolean needsQuotes = value.isEmpty() || value.charAt(0) == '#'
+                || Character.isWhitespace(value.charAt(0))
+                || Character.isWhitespace(value.charAt(value.length() - 1));
+        for (int i = 0; i < value.length() && !needsQuotes; i++) {
+            char c = value.charAt(i);
+            needsQuotes = c == ',' || c == '"' || c == '\n' || c == '\r' || c == ' ' || c == '\t';
+        }
+        if (!needsQuotes) {
+            out.write(value);
+            return;
+        }
+        out.write('"');
+        out.write(value.replace("\"", "\"\""));
+        out.write('"');
+    }
+}
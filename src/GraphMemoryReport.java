@@ -0,0 +1,70 @@
+import java.util.*;
+
+/**
+ * Measures the heap used per friendship by the {@link SocialNetworkGraph} and
+ * {@link CompactSocialNetworkGraph} backends on the same random graph.
+ */
+public class GraphMemoryReport {
+
+    /**
+     * Builds a random graph in both backends and prints the measured memory
+     * per edge.
+     *
+     * @param args optional number of people and number of friendships
+     */
+    public static void main(String[] args) {
+        int people = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int friendships = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        System.out.println("Graph: " + people + " people, " + friendships + " friendships");
+        report("SocialNetworkGraph", new SocialNetworkGraph(), people, friendships);
+        CompactSocialNetworkGraph compact = new CompactSocialNetworkGraph();
+        report("CompactSocialNetworkGraph", compact, people, friendships);
+
+        CompactAdjacency adjacency = compact.getAdjacency();
+        adjacency.compact();
+        System.out.printf("CompactAdjacency estimate after compaction: %.1f bytes/edge%n",
+                adjacency.bytesPerEdge());
+    }
+
+    /**
+     * Loads the random graph into a backend and prints the heap growth per
+     * edge, measured against a baseline holding only the person names.
+     *
+     * @param label       the name printed for the backend
+     * @param network     the empty backend to fill
+     * @param people      the number of people
+     * @param friendships the number of friendships
+     */
+    private static void report(String label, SocialNetwork network, int people, int friendships) {
+        String[] names = new String[people];
+        for (int i = 0; i < people; i++) {
+            names[i] = "Person " + i;
+        }
+        List<String> hobbies = Arrays.asList("reading", "hiking");
+
+        long before = usedHeap();
+        for (int i = 0; i < people; i++) {
+            network.addPerson(names[i], 20 + i % 40, hobbies);
+        }
+        long afterPeople = usedHeap();
+        Random random = new Random(42);
+        for (int i = 0; i < friendships; i++) {
+            int a = random.nextInt(people);
+            int b = random.nextInt(people - 1);
+            network.addFriendship(names[a], names[b < a ? b : b + 1]);
+        }
+        long afterEdges = usedHeap();
+        System.out.printf("%s: %.1f bytes/person, %.1f bytes/edge%n", label,
+                (double) (afterPeople - before) / people,
+                (double) (afterEdges - afterPeople) / friendships);
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
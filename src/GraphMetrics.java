@@ -0,0 +1,55 @@
+/**
+ * Receives measurements from the operations of a {@link SocialNetworkGraph}.
+ * The graph calls these methods on the thread running the operation, inside
+ * every call, so implementations must be cheap and must not call back into
+ * the graph. {@link RecordingGraphMetrics} keeps histograms of everything and
+ * publishes them over JMX.
+ */
+public interface GraphMetrics {
+
+    /**
+     * The operations that are measured.
+     */
+    enum Operation {
+        ADD_PERSON, REMOVE_PERSON, ADD_FRIENDSHIP, REMOVE_FRIENDSHIP, FIND_SHORTEST_PATH, COUNT_CLUSTERS,
+        SUGGEST_FRIENDS
+    }
+
+    /**
+     * Returns how often an operation is timed. Reading the clock twice costs
+     * about as much as the cheapest mutations, so those are better timed on a
+     * sample of the calls, while every query can be timed.
+     *
+     * @param operation the operation
+     * @return 1 to time every call, n to time one call in n
+     */
+    int samplingInterval(Operation operation);
+
+    /**
+     * Records that an operation finished.
+     *
+     * @param operation the operation
+     * @param nanos     the time the timed call took, in nanoseconds
+     * @param calls     the number of calls the timed call stands for: itself
+     *                  and the untimed calls since the previous timed one
+     */
+    void operationCompleted(Operation operation, long nanos, int calls);
+
+    /**
+     * Records how much of the graph a query walked: the people whose friends
+     * it visited and the friendships it followed.
+     *
+     * @param operation       the query
+     * @param verticesVisited the number of people expanded
+     * @param edgesVisited    the number of friend entries scanned
+     */
+    void traversalCompleted(Operation operation, int verticesVisited, long edgesVisited);
+
+    /**
+     * Records how many candidates a friend suggestion scored before keeping
+     * the best ones.
+     *
+     * @param candidates the number of candidates
+     */
+    void candidatesScored(int candidates);
+}
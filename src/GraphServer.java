@@ -0,0 +1,323 @@
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+
+/**
+ * Serves a {@link SocialNetwork} over TCP with a line protocol. Every request
+ * is one line of tab-separated fields starting with a command, and gets one
+ * response line: {@code OK} followed by the result fields, or {@code ERR}
+ * followed by a message. The commands are
+ * <ul>
+ * <li>{@code ADD_PERSON name age hobby1,hobby2,...}</li>
+ * <li>{@code REMOVE_PERSON name}</li>
+ * <li>{@code ADD_FRIENDSHIP name1 name2}</li>
+ * <li>{@code REMOVE_FRIENDSHIP name1 name2}</li>
+ * <li>{@code PATH start end}, answered with the names on the path</li>
+ * <li>{@code SUGGEST name max}, answered with the number of suggestions and
+ * then name, score, mutual friends and common hobbies of each; max is
+ * between 1 and {@value #MAX_SUGGESTIONS}</li>
+ * <li>{@code CLUSTERS}, answered with the number of clusters and the size of
+ * each</li>
+ * <li>{@code PING}</li>
+ * </ul>
+ *
+ * <p>Each connection is handled on its own virtual thread when the JVM has
+ * them, and on a cached thread pool otherwise. Clients may pipeline: all the
+ * requests that have already arrived on a connection are run as one batch,
+ * under one acquisition of the graph lock, and their responses go out in one
+ * write. The lock serializes batches from different connections unless the
+ * network is a {@link ConcurrentSocialNetworkGraph}, which needs none. A
+ * request that fails in any other way is answered with {@code ERR} as well,
+ * so it cannot end the connection.
+ */
+public class GraphServer implements Closeable {
+    private static final int MAX_BATCH = 256;
+    private static final long ACCEPT_BACKOFF_MILLIS = 100;
+    /**
+     * The largest number of suggestions one SUGGEST request may ask for.
+     */
+    public static final int MAX_SUGGESTIONS = 1000;
+
+    private final SocialNetwork network;
+    private final Lock lock;
+    private final ServerSocket serverSocket;
+    private final ExecutorService connections;
+    private final boolean virtualThreads;
+    private final Set<Socket> openSockets = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new GraphServer object and starts accepting connections.
+     *
+     * @param network the network to serve
+     * @param port    the port to listen on, or 0 for any free port
+     * @throws IOException if the port cannot be bound
+     */
+    public GraphServer(SocialNetwork network, int port) throws IOException {
+        this.network = network;
+        this.lock = network instanceof ConcurrentSocialNetworkGraph ? null : new ReentrantLock(true);
+        this.serverSocket = new ServerSocket(port);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.connections = virtual != null ? virtual : Executors.newCachedThreadPool();
+        this.acceptor = new Thread(this::acceptLoop, "graph-server-acceptor");
+        acceptor.start();
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the port
+     */
+    public int getPort() {
+        return serverSocket.getLocalPort();
+    }
+
+    /**
+     * Indicates whether connections are handled on virtual threads.
+     *
+     * @return true on a JVM with virtual threads
+     */
+    public boolean usesVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * Waits until the server is closed.
+     *
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void awaitClose() throws InterruptedException {
+        acceptor.join();
+    }
+
+    /**
+     * Stops accepting connections, closes the open ones and waits for their
+     * handlers to finish.
+     *
+     * @throws IOException if the listening socket cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        serverSocket.close();
+        for (Socket socket : openSockets) {
+            socket.close();
+        }
+        connections.shutdown();
+        try {
+            connections.awaitTermination(10, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Looks up {@code Executors.newVirtualThreadPerTaskExecutor()} by
+     * reflection, so the server still compiles and runs on JVMs without
+     * virtual threads.
+     *
+     * @return the executor, or null if the JVM has no virtual threads
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | UnsupportedOperationException e) {
+            return null;
+        }
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            Socket accepted = null;
+            try {
+                Socket socket = serverSocket.accept();
+                accepted = socket;
+                socket.setTcpNoDelay(true);
+                openSockets.add(socket);
+                connections.execute(() -> serve(socket));
+            } catch (IOException | RejectedExecutionException e) {
+                // Closing the server socket ends the loop
+                if (closed) {
+                    return;
+                }
+                if (accepted != null) {
+                    openSockets.remove(accepted);
+                    try {
+                        accepted.close();
+                    } catch (IOException closeFailure) {
+                        // The connection is being dropped anyway
+                    }
+                }
+
+                // A failure such as running out of file descriptors lasts a
+                // while, so back off instead of retrying at once
+                System.err.println("Error while accepting a connection: " + e);
+                try {
+                    Thread.sleep(ACCEPT_BACKOFF_MILLIS);
+                } catch (InterruptedException interrupted) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Answers the requests of one connection until the client hangs up.
+     */
+    private void serve(Socket socket) {
+        try (Socket s = socket;
+                BufferedReader in = new BufferedReader(
+                        new InputStreamReader(s.getInputStream(), StandardCharsets.UTF_8), 1 << 16);
+                Writer out = new BufferedWriter(
+                        new OutputStreamWriter(s.getOutputStream(), StandardCharsets.UTF_8), 1 << 16)) {
+            List<String> batch = new ArrayList<>();
+            List<String> responses = new ArrayList<>();
+            String line;
+            while ((line = in.readLine()) != null) {
+                // Take every request that has already arrived, without blocking
+                batch.add(line);
+                while (batch.size() < MAX_BATCH && in.ready() && (line = in.readLine()) != null) {
+                    batch.add(line);
+                }
+
+                if (lock != null) {
+                    lock.lock();
+                }
+                try {
+                    for (String request : batch) {
+                        responses.add(execute(request));
+                    }
+                } finally {
+                    if (lock != null) {
+                        lock.unlock();
+                    }
+                }
+
+                for (String response : responses) {
+                    out.write(response);
+                    out.write('\n');
+                }
+                out.flush();
+                batch.clear();
+                responses.clear();
+            }
+        } catch (IOException e) {
+            // The client went away; nothing to answer
+        } finally {
+            openSockets.remove(socket);
+        }
+    }
+
+    /**
+     * Runs one request against the network.
+     *
+     * @param request the request line
+     * @return the response line
+     */
+    String execute(String request) {
+        String[] fields = request.split("\t", -1);
+        try {
+            switch (fields[0]) {
+                case "ADD_PERSON":
+                    expect(fields, 4, "ADD_PERSON name age hobbies");
+                    List<String> hobbies = fields[3].isEmpty() ? Collections.emptyList()
+                            : Arrays.asList(fields[3].split(","));
+                    return network.addPerson(fields[1], Integer.parseInt(fields[2]), hobbies) ? "OK"
+                            : "ERR Person already exists";
+                case "REMOVE_PERSON":
+                    expect(fields, 2, "REMOVE_PERSON name");
+                    return network.removePerson(fields[1]) ? "OK" : "ERR Person not found";
+                case "ADD_FRIENDSHIP":
+                    expect(fields, 3, "ADD_FRIENDSHIP name1 name2");
+                    if (network.addFriendship(fields[1], fields[2])) {
+                        return "OK";
+                    }
+                    return bothExist(fields[1], fields[2]) ? "ERR Persons are already friends"
+                            : "ERR One or both persons not found";
+                case "REMOVE_FRIENDSHIP":
+                    expect(fields, 3, "REMOVE_FRIENDSHIP name1 name2");
+                    if (network.removeFriendship(fields[1], fields[2])) {
+                        return "OK";
+                    }
+                    return bothExist(fields[1], fields[2]) ? "ERR Friendship does not exist"
+                            : "ERR One or both persons not found";
+                case "PATH":
+                    expect(fields, 3, "PATH start end");
+                    return path(fields[1], fields[2]);
+                case "SUGGEST":
+                    expect(fields, 3, "SUGGEST name max");
+                    int max = Integer.parseInt(fields[2]);
+                    if (max <= 0 || max > MAX_SUGGESTIONS) {
+                        return "ERR Maximum suggestions must be between 1 and " + MAX_SUGGESTIONS;
+                    }
+                    return suggestions(fields[1], max);
+                case "CLUSTERS":
+                    return clusters();
+                case "PING":
+                    return "OK";
+                default:
+                    return "ERR Unknown command " + fields[0];
+            }
+        } catch (NumberFormatException e) {
+            return "ERR Invalid number";
+        } catch (IllegalArgumentException | UnsupportedOperationException e) {
+            return "ERR " + e.getMessage();
+        } catch (RuntimeException e) {
+            // A bug behind one request must not take the connection down
+            return "ERR Internal error: " + e.getClass().getName();
+        }
+    }
+
+    private static void expect(String[] fields, int count, String usage) {
+        if (fields.length != count) {
+            throw new IllegalArgumentException("Usage: " + usage);
+        }
+    }
+
+    private boolean bothExist(String name1, String name2) {
+        return network.getPerson(name1) != null && network.getPerson(name2) != null;
+    }
+
+    private String path(String startName, String endName) {
+        Optional<List<Person>> path = network.findShortestPath(startName, endName);
+        if (!path.isPresent()) {
+            return bothExist(startName, endName) ? "ERR No path found" : "ERR One or both persons not found";
+        }
+        StringBuilder response = new StringBuilder("OK");
+        for (Person person : path.get()) {
+            response.append('\t').append(person.getName());
+        }
+        return response.toString();
+    }
+
+    private String suggestions(String name, int maxSuggestions) {
+        if (network.getPerson(name) == null) {
+            return "ERR Person not found";
+        }
+        List<Suggestion> suggestions = network.suggestFriends(name, maxSuggestions);
+        StringBuilder response = new StringBuilder("OK\t").append(suggestions.size());
+        for (Suggestion suggestion : suggestions) {
+            response.append('\t').append(suggestion.getPerson().getName()).append('\t')
+                    .append(suggestion.getScore()).append('\t').append(suggestion.getMutualFriends())
+                    .append('\t').append(suggestion.getCommonHobbies());
+        }
+        return response.toString();
+    }
+
+    private String clusters() {
+        List<List<Person>> clusters = network.countClusters().getClusters();
+        StringBuilder response = new StringBuilder("OK\t").append(clusters.size());
+        for (List<Person> cluster : clusters) {
+            response.append('\t').append(cluster.size());
+        }
+        return response.toString();
+    }
+}
@@ -0,0 +1,119 @@
+import java.util.*;
+
+/**
+ * Read-only copy of a {@link SocialNetworkGraph} in compressed sparse row
+ * form. Vertices are numbered in the iteration order of the graph's people and
+ * every neighbor list keeps the order of the live friend set, so traversals
+ * over the snapshot visit people in the same order as traversals over the
+ * graph itself; copies renumbered by {@link VertexReordering} give up that
+ * order for locality. The arrays are never modified after construction, which
+ * makes a snapshot safe to share between threads.
+ */
+public class GraphSnapshot {
+    private final Person[] vertices;
+    private final int[] offsets;
+    private final int[] targets;
+
+    /**
+     * Constructs a new GraphSnapshot object from prepared arrays.
+     *
+     * @param vertices the person of every vertex id
+     * @param offsets  the start of every neighbor list in targets, with one
+     *                 extra trailing entry
+     * @param targets  the concatenated neighbor lists
+     */
+    GraphSnapshot(Person[] vertices, int[] offsets, int[] targets) {
+        this.vertices = vertices;
+        this.offsets = offsets;
+        this.targets = targets;
+    }
+
+    /**
+     * Copies the current state of a graph.
+     *
+     * @param graph the graph to copy
+     * @return the snapshot
+     */
+    public static GraphSnapshot of(SocialNetworkGraph graph) {
+        int n = graph.people.size();
+        Person[] vertices = new Person[n];
+        // Vertex of every person id in the graph
+        int[] index = new int[graph.personsById.size()];
+        int u = 0;
+        for (Person person : graph.people.values()) {
+            vertices[u] = person;
+            index[person.getId()] = u++;
+        }
+
+        int[] offsets = new int[n + 1];
+        for (u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + graph.friendships.get(vertices[u]).size();
+        }
+        int[] targets = new int[offsets[n]];
+        for (u = 0; u < n; u++) {
+            int i = offsets[u];
+            for (Person friend : graph.friendships.get(vertices[u])) {
+                targets[i++] = index[friend.getId()];
+            }
+        }
+        return new GraphSnapshot(vertices, offsets, targets);
+    }
+
+    /**
+     * Returns the number of vertices.
+     *
+     * @return the number of vertices
+     */
+    public int vertexCount() {
+        return vertices.length;
+    }
+
+    /**
+     * Returns the number of neighbor entries, twice the number of friendships.
+     *
+     * @return the number of directed edge entries
+     */
+    public int edgeEntries() {
+        return targets.length;
+    }
+
+    /**
+     * Returns the person of a vertex.
+     *
+     * @param u the vertex
+     * @return the person
+     */
+    public Person person(int u) {
+        return vertices[u];
+    }
+
+    /**
+     * Returns the number of neighbors of a vertex.
+     *
+     * @param u the vertex
+     * @return the degree of the vertex
+     */
+    public int degree(int u) {
+        return offsets[u + 1] - offsets[u];
+    }
+
+    /**
+     * Returns the index in {@link #targets()} where the neighbors of a vertex
+     * start.
+     *
+     * @param u the vertex
+     * @return the start offset
+     */
+    public int offset(int u) {
+        return offsets[u];
+    }
+
+    /**
+     * Returns the concatenated neighbor lists. The array must not be modified.
+     *
+     * @return the neighbor array
+     */
+    int[] targets() {
+        return targets;
+    }
+}
@@ -0,0 +1,307 @@
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Durable home of a {@link SocialNetworkGraph} in a directory. Every
+ * successful mutation of the graph is appended to a {@link MutationLog}, and
+ * every so many mutations the whole graph is written to a compact
+ * {@link GraphCheckpoint}. Opening the directory again loads the latest
+ * checkpoint and replays only the part of the log written after it.
+ *
+ * <p>The directory holds {@code checkpoint.bin} and log segments named after
+ * the sequence number of their first record. A checkpoint starts on the
+ * writing thread by opening a {@link GraphVersion} and switching to a new log
+ * segment, both constant-time; the view is then written out on a background
+ * thread while the graph keeps changing. Segments are deleted once a
+ * checkpoint covering them is safely on disk.
+ */
+public class GraphStore implements Closeable {
+    private static final String CHECKPOINT = "checkpoint.bin";
+    private static final String CHECKPOINT_TEMP = "checkpoint.tmp";
+    private static final String LOG_PREFIX = "mutations-";
+    private static final String LOG_SUFFIX = ".log";
+
+    private final Path directory;
+    private final SocialNetworkGraph graph;
+    private final int groupSize;
+    private final long maxDelayMillis;
+    private MutationLog log;
+    // Sequence number of the first record in the current segment
+    private long logFirstSequence;
+    private int checkpointInterval = 100_000;
+    private int sinceCheckpoint;
+    // People and friendships in the last checkpoint written
+    private volatile long checkpointSize;
+
+    private final ExecutorService checkpointer = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "graph-checkpointer");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private Future<?> pendingCheckpoint;
+
+    private GraphStore(Path directory, SocialNetworkGraph graph, int groupSize, long maxDelayMillis) {
+        this.directory = directory;
+        this.graph = graph;
+        this.groupSize = groupSize;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    /**
+     * Opens a store with the default group commit of 1024 records or 10
+     * milliseconds, whichever comes first.
+     *
+     * @param directory the directory of the store, created if missing
+     * @return the store
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static GraphStore open(Path directory) throws IOException {
+        return open(directory, 1024, 10);
+    }
+
+    /**
+     * Opens a store, recovering the graph from its checkpoint and log.
+     *
+     * @param directory      the directory of the store, created if missing
+     * @param groupSize      the number of log records forced to disk together
+     * @param maxDelayMillis the longest time a log record may wait to be forced
+     * @return the store
+     * @throws IOException if the directory cannot be read or written
+     */
+    public static GraphStore open(Path directory, int groupSize, long maxDelayMillis) throws IOException {
+        Files.createDirectories(directory);
+        Files.deleteIfExists(directory.resolve(CHECKPOINT_TEMP));
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        long sequence = 0;
+        Path checkpoint = directory.resolve(CHECKPOINT);
+        if (Files.exists(checkpoint)) {
+            sequence = GraphCheckpoint.read(checkpoint, graph);
+        }
+        for (Path segment : segments(directory)) {
+            sequence = Math.max(sequence, MutationLog.replay(segment, sequence, graph));
+        }
+
+        // Segments starting past the last record hold nothing valid
+        for (Path segment : segments(directory)) {
+            if (firstSequence(segment) > sequence) {
+                Files.delete(segment);
+            }
+        }
+
+        // Start a fresh segment; the replayed ones stay until the next checkpoint
+        GraphStore store = new GraphStore(directory, graph, groupSize, maxDelayMillis);
+        store.log = store.newSegment(sequence);
+        graph.store = store;
+        return store;
+    }
+
+    /**
+     * Returns the graph kept by this store. All of its mutations are logged.
+     *
+     * @return the graph
+     */
+    public SocialNetworkGraph getGraph() {
+        return graph;
+    }
+
+    /**
+     * Sets how many mutations may be logged before a checkpoint is started.
+     * Checkpoints are further spaced out to at least the size of the previous
+     * checkpoint, so writing them costs constant time per mutation however
+     * large the graph grows, and replaying the log never takes much longer
+     * than loading the checkpoint.
+     *
+     * @param checkpointInterval the least number of mutations between
+     *                           checkpoints
+     */
+    public void setCheckpointInterval(int checkpointInterval) {
+        this.checkpointInterval = checkpointInterval;
+    }
+
+    /**
+     * Returns the sequence number of the last mutation logged.
+     *
+     * @return the last sequence number
+     */
+    public long lastSequence() {
+        return log.lastSequence();
+    }
+
+    /**
+     * Waits until every mutation logged so far is on disk.
+     *
+     * @throws IOException if writing the log fails
+     */
+    public void sync() throws IOException {
+        log.sync();
+    }
+
+    /**
+     * Writes a checkpoint of the current graph and waits until it is on disk.
+     *
+     * @throws IOException if writing the checkpoint fails
+     */
+    public void checkpoint() throws IOException {
+        awaitCheckpoint();
+        startCheckpoint();
+        awaitCheckpoint();
+    }
+
+    /**
+     * Waits for a running checkpoint, forces the log and closes the store.
+     * The graph stays usable but is no longer logged.
+     *
+     * @throws IOException if writing the log or the checkpoint fails
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            awaitCheckpoint();
+        } finally {
+            graph.store = null;
+            checkpointer.shutdown();
+            log.close();
+        }
+    }
+
+    void logAddPerson(Person person) {
+        beforeLogging();
+        log.appendAddPerson(person);
+    }
+
+    void logRemovePerson(String name) {
+        beforeLogging();
+        log.appendRemovePerson(name);
+    }
+
+    void logAddFriendship(String name1, String name2) {
+        beforeLogging();
+        log.appendFriendship(MutationLog.ADD_FRIENDSHIP, name1, name2);
+    }
+
+    void logRemoveFriendship(String name1, String name2) {
+        beforeLogging();
+        log.appendFriendship(MutationLog.REMOVE_FRIENDSHIP, name1, name2);
+    }
+
+    /**
+     * Starts a checkpoint once enough mutations have been logged and the
+     * previous checkpoint has finished. Mutations are logged before they are
+     * applied, so this runs before the next record is appended: only there do
+     * the graph and the log agree.
+     */
+    private void beforeLogging() {
+        boolean due = sinceCheckpoint >= Math.max(checkpointInterval, checkpointSize);
+        if (due && (pendingCheckpoint == null || pendingCheckpoint.isDone())) {
+            try {
+                // Surfaces a failure of the previous checkpoint
+                awaitCheckpoint();
+                startCheckpoint();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        sinceCheckpoint++;
+    }
+
+    /**
+     * Opens a view and switches to a new log segment on the calling thread,
+     * then writes the view out in the background.
+     */
+    private void startCheckpoint() throws IOException {
+        GraphVersion version = graph.snapshot();
+        long sequence = log.lastSequence();
+        // An empty segment already starts right after the checkpoint
+        MutationLog previous = sequence >= logFirstSequence ? log : null;
+        if (previous != null) {
+            log = newSegment(sequence);
+        }
+        sinceCheckpoint = 0;
+
+        pendingCheckpoint = checkpointer.submit(() -> {
+            try {
+                if (previous != null) {
+                    previous.close();
+                }
+                Path temp = directory.resolve(CHECKPOINT_TEMP);
+                checkpointSize = GraphCheckpoint.write(version, sequence, temp);
+                Files.move(temp, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory();
+
+                // Every record in the older segments is now in the checkpoint
+                for (Path segment : segments(directory)) {
+                    if (firstSequence(segment) <= sequence) {
+                        Files.delete(segment);
+                    }
+                }
+            } finally {
+                version.close();
+            }
+            return null;
+        });
+    }
+
+    private void awaitCheckpoint() throws IOException {
+        if (pendingCheckpoint == null) {
+            return;
+        }
+        try {
+            pendingCheckpoint.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while writing a checkpoint.");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Checkpoint failed.", cause);
+        } finally {
+            pendingCheckpoint = null;
+        }
+    }
+
+    private MutationLog newSegment(long lastSequence) throws IOException {
+        Path file = directory.resolve(String.format("%s%020d%s", LOG_PREFIX, lastSequence + 1, LOG_SUFFIX));
+        MutationLog segment = new MutationLog(file, lastSequence, groupSize, maxDelayMillis);
+        logFirstSequence = lastSequence + 1;
+        syncDirectory();
+        return segment;
+    }
+
+    /**
+     * Forces the directory entries, so a created or renamed file survives a
+     * crash. Not every platform can open a directory; there it is skipped.
+     */
+    private void syncDirectory() throws IOException {
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (UnsupportedOperationException | AccessDeniedException e) {
+            // Directory sync is not available on this platform
+        }
+    }
+
+    /**
+     * Lists the log segments of a directory in sequence order.
+     */
+    private static List<Path> segments(Path directory) throws IOException {
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, LOG_PREFIX + "*" + LOG_SUFFIX)) {
+            for (Path segment : stream) {
+                segments.add(segment);
+            }
+        }
+        // Zero-padded names sort in sequence order
+        Collections.sort(segments);
+        return segments;
+    }
+
+    private static long firstSequence(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(LOG_PREFIX.length(), name.length() - LOG_SUFFIX.length()));
+    }
+}
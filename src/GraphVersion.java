@@ -0,0 +1,216 @@
+import java.util.*;
+
+/**
+ * Point-in-time view of a {@link SocialNetworkGraph}, opened with
+ * {@link SocialNetworkGraph#snapshot()}. Opening a view costs the same no
+ * matter how large the graph is; the graph pays instead by copying a friend
+ * set the first time it changes while a view is open. A view never changes
+ * after it is opened and may be read from any thread, so long-running
+ * analytics can run on it while the live graph keeps accepting writes.
+ *
+ * <p>Close the view when done so the graph can stop keeping old friend sets.
+ */
+public class GraphVersion implements AutoCloseable {
+    private final VersionedAdjacency store;
+    private final long epoch;
+    private final VersionedAdjacency.Cell[][] chunks;
+    private final int idLimit;
+    private Map<String, Person> peopleByName;
+    private volatile boolean closed;
+
+    /**
+     * Constructs a new GraphVersion object.
+     *
+     * @param store   the history the view reads from
+     * @param epoch   the epoch the view was taken in
+     * @param chunks  the cells at the time the view was taken
+     * @param idLimit the number of person ids handed out at that time
+     */
+    GraphVersion(VersionedAdjacency store, long epoch, VersionedAdjacency.Cell[][] chunks, int idLimit) {
+        this.store = store;
+        this.epoch = epoch;
+        this.chunks = chunks;
+        this.idLimit = idLimit;
+    }
+
+    /**
+     * Returns the epoch the view was taken in. Later views have larger epochs.
+     *
+     * @return the epoch
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * Returns the people in the network at the time of the view, by id.
+     *
+     * @return the people
+     */
+    public List<Person> people() {
+        List<Person> people = new ArrayList<>();
+        for (int id = 0; id < idLimit; id++) {
+            VersionedAdjacency.Cell cell = VersionedAdjacency.cell(chunks, id);
+            if (isVisible(cell)) {
+                people.add(cell.person);
+            }
+        }
+        return people;
+    }
+
+    /**
+     * Looks up a person by name. The first lookup builds a name index.
+     *
+     * @param name the name of the person
+     * @return the person, or null if nobody had that name at the time of the view
+     */
+    public synchronized Person getPerson(String name) {
+        if (peopleByName == null) {
+            peopleByName = new HashMap<>();
+            for (Person person : people()) {
+                peopleByName.put(person.getName(), person);
+            }
+        }
+        return peopleByName.get(name);
+    }
+
+    /**
+     * Returns the friends of a person at the time of the view.
+     *
+     * @param person the person
+     * @return an unmodifiable view of the friends, empty if the person was not
+     *         in the network
+     */
+    public Set<Person> friendsOf(Person person) {
+        int id = person.getId();
+        if (id < 0 || id >= idLimit) {
+            return Collections.emptySet();
+        }
+        VersionedAdjacency.Cell cell = VersionedAdjacency.cell(chunks, id);
+        if (cell.person != person || !isVisible(cell)) {
+            return Collections.emptySet();
+        }
+        return Collections.unmodifiableSet(VersionedAdjacency.friendsAt(cell, epoch));
+    }
+
+    /**
+     * Finds the shortest path between two people using BFS.
+     *
+     * @param startName the name of the starting person
+     * @param endName   the name of the ending person
+     * @return the path and the number of expanded vertices, or null if one or
+     *         both persons were not in the network
+     */
+    public PathResult findShortestPath(String startName, String endName) {
+        Person start = getPerson(startName);
+        Person end = getPerson(endName);
+        if (start == null || end == null) {
+            return null;
+        }
+
+        int[] prev = new int[idLimit];
+        Arrays.fill(prev, -1);
+        int[] queue = new int[idLimit];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start.getId();
+        prev[start.getId()] = start.getId();
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == end.getId()) {
+                List<Person> path = new ArrayList<>();
+                for (int at = current; at != start.getId(); at = prev[at]) {
+                    path.add(VersionedAdjacency.cell(chunks, at).person);
+                }
+                path.add(start);
+                Collections.reverse(path);
+                return new PathResult(path, head);
+            }
+            for (Person neighbor : VersionedAdjacency.friendsAt(VersionedAdjacency.cell(chunks, current), epoch)) {
+                if (prev[neighbor.getId()] < 0) {
+                    prev[neighbor.getId()] = current;
+                    queue[tail++] = neighbor.getId();
+                }
+            }
+        }
+        return new PathResult(new ArrayList<>(), head);
+    }
+
+    /**
+     * Finds every cluster at the time of the view.
+     *
+     * @return the clusters, each listing its members in BFS order
+     */
+    public List<List<Person>> findClusters() {
+        BitSet visited = new BitSet(idLimit);
+        int[] queue = new int[idLimit];
+        List<List<Person>> clusters = new ArrayList<>();
+        for (Person person : people()) {
+            if (visited.get(person.getId())) {
+                continue;
+            }
+            List<Person> cluster = new ArrayList<>();
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = person.getId();
+            visited.set(person.getId());
+            while (head < tail) {
+                VersionedAdjacency.Cell cell = VersionedAdjacency.cell(chunks, queue[head++]);
+                cluster.add(cell.person);
+                for (Person neighbor : VersionedAdjacency.friendsAt(cell, epoch)) {
+                    if (!visited.get(neighbor.getId())) {
+                        visited.set(neighbor.getId());
+                        queue[tail++] = neighbor.getId();
+                    }
+                }
+            }
+            clusters.add(cluster);
+        }
+        return clusters;
+    }
+
+    /**
+     * Copies the view into compressed sparse row form, for example to run
+     * {@link ParallelClusterFinder} on it.
+     *
+     * @return the copy
+     */
+    public GraphSnapshot toGraphSnapshot() {
+        List<Person> people = people();
+        int n = people.size();
+        int[] index = new int[idLimit];
+        for (int u = 0; u < n; u++) {
+            index[people.get(u).getId()] = u;
+        }
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = offsets[u] + friendsOf(people.get(u)).size();
+        }
+        int[] targets = new int[offsets[n]];
+        for (int u = 0; u < n; u++) {
+            int i = offsets[u];
+            for (Person friend : friendsOf(people.get(u))) {
+                targets[i++] = index[friend.getId()];
+            }
+        }
+        return new GraphSnapshot(people.toArray(new Person[0]), offsets, targets);
+    }
+
+    /**
+     * Releases the view. Using it afterwards is not allowed.
+     */
+    @Override
+    public void close() {
+        if (!closed) {
+            closed = true;
+            store.close(epoch);
+        }
+    }
+
+    private boolean isVisible(VersionedAdjacency.Cell cell) {
+        if (closed) {
+            throw new IllegalStateException("Snapshot is closed.");
+        }
+        return cell.addedEpoch <= epoch && cell.removedEpoch > epoch;
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.*;
+import java.util.function.*;
+
+/**
+ * One benchmark scenario: a backend, a synthetic graph model and a size,
+ * with the names, hobbies and query pairs prepared up front. The JMH
+ * benchmarks of the Maven build run its operations; JMH only accepts
+ * benchmarks in a named package, which cannot refer to the classes of this
+ * one, so the operations are handed out as JDK functional interfaces and
+ * looked up once, by name, when a benchmark is set up.
+ */
+public class GraphWorkload {
+    private static final int AVERAGE_DEGREE = 10;
+    private static final int COMMUNITIES = 50;
+    private static final double MIXING = 0.05;
+    private static final int QUERIES = 500;
+    private static final int MAX_SUGGESTIONS = 10;
+
+    private final String backend;
+    private final int people;
+    private final int[] edges;
+    private final String[] names;
+    private final List<List<String>> hobbies;
+    private final int[] sources;
+    private final int[] targets;
+    private final int[] removals;
+    private SocialNetwork network;
+
+    /**
+     * Constructs a new GraphWorkload object and generates its graph.
+     *
+     * @param backend "default", "compact" or "concurrent", picking the
+     *                backend as in {@link Main}
+     * @param model   "erdos-renyi", "barabasi-albert" or "communities"
+     * @param people  the number of people
+     */
+    public GraphWorkload(String backend, String model, int people) {
+        if (!Arrays.asList("default", "compact", "concurrent").contains(backend)) {
+            throw new IllegalArgumentException("Unknown backend: " + backend);
+        }
+        this.backend = backend;
+        this.people = people;
+        switch (model) {
+            case "erdos-renyi":
+                edges = SyntheticGraphs.erdosRenyi(people, AVERAGE_DEGREE, 42);
+                break;
+            case "barabasi-albert":
+                edges = SyntheticGraphs.barabasiAlbert(people, AVERAGE_DEGREE / 2, 42);
+                break;
+            case "communities":
+                edges = SyntheticGraphs.communities(people, COMMUNITIES, AVERAGE_DEGREE, MIXING, 42);
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown graph model: " + model);
+        }
+        Random random = new Random(42);
+        names = new String[people];
+        hobbies = new ArrayList<>(people);
+        for (int u = 0; u < people; u++) {
+            names[u] = SyntheticGraphs.name(u);
+            hobbies.add(SyntheticGraphs.hobbies(random));
+        }
+        int queries = Math.min(QUERIES, people);
+        sources = new int[queries];
+        targets = new int[queries];
+        for (int i = 0; i < queries; i++) {
+            sources[i] = random.nextInt(people);
+            targets[i] = random.nextInt(people);
+        }
+        // People to remove, each at most once
+        removals = new int[queries];
+        for (int i = 0, u = random.nextInt(people); i < queries; i++, u = (u + 1) % people) {
+            removals[i] = u;
+        }
+        reset();
+    }
+
+    /**
+     * Returns the operations of this workload by name. Each takes a query
+     * number, used modulo the number of prepared queries by the queries and
+     * ignored by the others, and returns its result so that the caller can
+     * consume it:
+     * <ul>
+     * <li>"reset" replaces the network with an empty one;</li>
+     * <li>"addPeople" adds every person;</li>
+     * <li>"addFriendships" adds every friendship of the model;</li>
+     * <li>"load" resets the network and adds everyone and every
+     * friendship;</li>
+     * <li>"removePeople" removes a fixed set of people;</li>
+     * <li>"findShortestPath", "suggestFriends" and "countClusters" run one
+     * query.</li>
+     * </ul>
+     *
+     * @return the operations
+     */
+    public Map<String, IntFunction<Object>> operations() {
+        Map<String, IntFunction<Object>> operations = new HashMap<>();
+        operations.put("reset", i -> reset());
+        operations.put("addPeople", i -> addPeople());
+        operations.put("addFriendships", i -> addFriendships());
+        operations.put("load", i -> {
+            reset();
+            addPeople();
+            return addFriendships();
+        });
+        operations.put("removePeople", i -> removePeople());
+        operations.put("findShortestPath", i -> {
+            int query = i % sources.length;
+            return network.findShortestPath(names[sources[query]], names[targets[query]]);
+        });
+        operations.put("suggestFriends", i -> network.suggestFriends(names[sources[i % sources.length]],
+                MAX_SUGGESTIONS));
+        operations.put("countClusters", i -> network.countClusters());
+        return operations;
+    }
+
+    private SocialNetwork reset() {
+        network = backend.equals("compact") ? new CompactSocialNetworkGraph()
+                : backend.equals("concurrent") ? new ConcurrentSocialNetworkGraph()
+                : new SocialNetworkGraph();
+        return network;
+    }
+
+    private SocialNetwork addPeople() {
+        for (int u = 0; u < people; u++) {
+            network.addPerson(names[u], 18 + u % 60, hobbies.get(u));
+        }
+        return network;
+    }
+
+    private SocialNetwork addFriendships() {
+        for (int i = 0; i < edges.length; i += 2) {
+            network.addFriendship(names[edges[i]], names[edges[i + 1]]);
+        }
+        return network;
+    }
+
+    private SocialNetwork removePeople() {
+        for (int u : removals) {
+            network.removePerson(names[u]);
+        }
+        return network;
+    }
+}
@@ -0,0 +1,121 @@
+import java.util.*;
+
+/**
+ * Inverted index from hobbies to the people who have them. Hobby strings are
+ * interned to dense int ids and every person's hobbies are kept as a bitset of
+ * those ids, so overlaps are counted without comparing strings.
+ */
+public class HobbyIndex {
+    private final Map<String, Integer> hobbyIds = new HashMap<>();
+    private final List<Set<Person>> members = new ArrayList<>();
+    private final Map<Person, BitSet> hobbySets = new HashMap<>();
+
+    /**
+     * Indexes the hobbies of a person.
+     *
+     * @param person the person to add
+     */
+    public void add(Person person) {
+        BitSet bits = new BitSet();
+        for (String hobby : person.getHobbies()) {
+            Integer id = hobbyIds.get(hobby);
+            if (id == null) {
+                id = members.size();
+                hobbyIds.put(hobby, id);
+                members.add(new LinkedHashSet<>());
+            }
+            bits.set(id);
+            members.get(id).add(person);
+        }
+        hobbySets.put(person, bits);
+    }
+
+    /**
+     * Removes a person from the index. Hobby ids stay interned.
+     *
+     * @param person the person to remove
+     */
+    public void remove(Person person) {
+        BitSet bits = hobbySets.remove(person);
+        if (bits == null) {
+            return;
+        }
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            members.get(id).remove(person);
+        }
+    }
+
+    /**
+     * Returns the hobby bitset of an indexed person.
+     *
+     * @param person the person
+     * @return the bitset of hobby ids, or null if the person is not indexed
+     */
+    public BitSet hobbiesOf(Person person) {
+        return hobbySets.get(person);
+    }
+
+    /**
+     * Counts the common hobbies of two indexed people.
+     *
+     * @param person1 the first person
+     * @param person2 the second person
+     * @return the number of common hobbies
+     */
+    public int countCommon(Person person1, Person person2) {
+        BitSet bits1 = hobbySets.get(person1);
+        BitSet bits2 = hobbySets.get(person2);
+        if (bits1 == null || bits2 == null) {
+            return 0;
+        }
+        int common = 0;
+        for (int id = bits1.nextSetBit(0); id >= 0; id = bits1.nextSetBit(id + 1)) {
+            if (bits2.get(id)) {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Counts, for everyone who shares at least one hobby with a person, how
+     * many hobbies they share. Only the members of that person's hobbies are
+     * visited.
+     *
+     * @param person the person
+     * @return the number of common hobbies per other person, in the order the
+     *         people were first reached
+     */
+    public Map<Person, int[]> countSharing(Person person) {
+        Map<Person, int[]> counts = new LinkedHashMap<>();
+        BitSet bits = hobbySets.get(person);
+        if (bits == null) {
+            return counts;
+        }
+        for (int id = bits.nextSetBit(0); id >= 0; id = bits.nextSetBit(id + 1)) {
+            for (Person member : members.get(id)) {
+                if (member == person) {
+                    continue;
+                }
+                int[] count = counts.get(member);
+                if (count == null) {
+                    counts.put(member, new int[] { 1 });
+                } else {
+                    count[0]++;
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns the people who have a given hobby.
+     *
+     * @param hobby the hobby
+     * @return an unmodifiable view of the members, empty if nobody has it
+     */
+    public Set<Person> membersOf(String hobby) {
+        Integer id = hobbyIds.get(hobby);
+        return id == null ? Collections.emptySet() : Collections.unmodifiableSet(members.get(id));
+    }
+}
@@ -0,0 +1,68 @@
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Measures {@link GraphFiles#readFriendships(Path, SocialNetworkGraph, boolean)}
+ * on a generated SNAP-style edge list of numbered people. Parsing alone is
+ * timed separately from the full import, since the graph inserts, not the
+ * parser, bound how fast a large file loads.
+ */
+public class ImportBenchmark {
+
+    /**
+     * Writes the edge list, then parses and imports it.
+     *
+     * @param args optional number of people and number of friendships
+     * @throws IOException if the temporary file cannot be written
+     */
+    public static void main(String[] args) throws IOException {
+        int peopleCount = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        long friendshipCount = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000L;
+
+        Path file = Files.createTempFile("edges", ".txt");
+        try {
+            long start = System.nanoTime();
+            Random random = new Random(42);
+            try (Writer out = new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(file),
+                    StandardCharsets.UTF_8), 1 << 16)) {
+                out.write("# Generated edge list\n");
+                for (long i = 0; i < friendshipCount; i++) {
+                    out.write(Integer.toString(random.nextInt(peopleCount)));
+                    out.write('\t');
+                    out.write(Integer.toString(random.nextInt(peopleCount)));
+                    out.write('\n');
+                }
+            }
+            report("Write", friendshipCount, Files.size(file), System.nanoTime() - start);
+
+            // Parse only: split every line and decode both names
+            start = System.nanoTime();
+            long lines = 0;
+            long checksum = 0;
+            try (CsvReader reader = new CsvReader(file, true)) {
+                while (reader.nextLine()) {
+                    checksum += reader.field(0).length() + reader.field(1).length();
+                    lines++;
+                }
+            }
+            report("Parse", lines, Files.size(file), System.nanoTime() - start);
+
+            SocialNetworkGraph network = new SocialNetworkGraph();
+            start = System.nanoTime();
+            long added = GraphFiles.readFriendships(file, network, true);
+            report("Import", lines, Files.size(file), System.nanoTime() - start);
+            System.out.println("People created: " + network.people.size() + ", friendships added: " + added
+                    + " (checksum " + checksum + ")");
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    private static void report(String label, long lines, long bytes, long nanos) {
+        double seconds = nanos / 1e9;
+        System.out.printf("%s: %d lines in %.2f s (%.0f lines/sec, %.1f MB/sec)%n", label, lines, seconds,
+                lines / seconds, bytes / 1e6 / seconds);
+    }
+}
@@ -0,0 +1,144 @@
+import java.util.concurrent.atomic.*;
+
+/**
+ * Histogram of non-negative long values in logarithmic buckets, in the manner
+ * of HdrHistogram: every power of two is split into 32 linear sub-buckets, so
+ * any recorded value is known to within about 3% while the whole range of a
+ * long fits in under 2,000 counters. Recording takes two atomic additions and
+ * never allocates, so it can sit on the hot path of every operation; it is
+ * safe for concurrent recorders and readers, and readers see every count that
+ * was recorded before they started.
+ */
+public class LogHistogram {
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+    private static final AtomicLongFieldUpdater<LogHistogram> MAX =
+            AtomicLongFieldUpdater.newUpdater(LogHistogram.class, "max");
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong sum = new AtomicLong();
+    private volatile long max;
+
+    /**
+     * Records a value.
+     *
+     * @param value the value; negative values are recorded as 0
+     */
+    public void record(long value) {
+        record(value, 1);
+    }
+
+    /**
+     * Records a value several times, for a sample that stands for a number of
+     * values that were not measured.
+     *
+     * @param value the value; negative values are recorded as 0
+     * @param times the number of times
+     */
+    public void record(long value, int times) {
+        if (value < 0) {
+            value = 0;
+        }
+        counts.addAndGet(bucketOf(value), times);
+        sum.addAndGet(value * times);
+        // Most values are not a new maximum, so the common case is one read
+        long currentMax;
+        while (value > (currentMax = max)) {
+            if (MAX.compareAndSet(this, currentMax, value)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * Returns the number of recorded values.
+     *
+     * @return the count
+     */
+    public long count() {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            total += counts.get(i);
+        }
+        return total;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     *
+     * @return the mean, or 0 if nothing was recorded
+     */
+    public double mean() {
+        long total = count();
+        return total == 0 ? 0 : (double) sum.get() / total;
+    }
+
+    /**
+     * Returns the largest recorded value.
+     *
+     * @return the maximum, or 0 if nothing was recorded
+     */
+    public long max() {
+        return max;
+    }
+
+    /**
+     * Returns the value below or at which a given fraction of the recorded
+     * values lie, rounded up to the top of its bucket.
+     *
+     * @param percentile the percentile, from 0 to 100
+     * @return the value, or 0 if nothing was recorded
+     */
+    public long percentile(double percentile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(highestValueOf(i), max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Forgets every recorded value. Values recorded while resetting may or
+     * may not survive.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        sum.set(0);
+        max = 0;
+    }
+
+    private static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // The top bit selects the power of two, the next five bits the sub-bucket
+        int exponent = 63 - Long.numberOfLeadingZeros(value);
+        int subBucket = (int) (value >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+        return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+    }
+
+    private static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = bucket / SUB_BUCKETS - 1;
+        long lowest = (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+        return lowest + (1L << shift) - 1;
+    }
+}
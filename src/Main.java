@@ -1,3 +1,5 @@
+import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.*;
@@ -10,62 +12,71 @@ public class Main {
     /**
      * Main method to run the Social Network Analysis application.
      *
-     * @param args command line arguments
+     * @param args command line arguments; pass {@code --compact} to use the
+     *             int-indexed {@link CompactSocialNetworkGraph} backend or
+     *             {@code --concurrent} for the thread-safe
+     *             {@link ConcurrentSocialNetworkGraph}; pass
+     *             {@code --data <directory>} to keep the network in a
+     *             {@link GraphStore} that survives restarts; pass
+     *             {@code --people <file>} and {@code --friendships <file>}
+     *             to load a network with {@link GraphFiles} instead of the
+     *             demonstration data; pass {@code --serve <port>} to serve the
+     *             network with a {@link GraphServer} instead of the menu
      * @throws ParseException if the date parsing fails
+     * @throws IOException    if the data directory cannot be read or written
      */
-    public static void main(String[] args) throws ParseException {
-        SocialNetworkGraph network = new SocialNetworkGraph();
+    public static void main(String[] args) throws ParseException, IOException {
+        List<String> options = Arrays.asList(args);
+        String dataDirectory = optionValue(options, "--data");
+        String peopleFile = optionValue(options, "--people");
+        String friendshipsFile = optionValue(options, "--friendships");
+        GraphStore store = dataDirectory != null ? GraphStore.open(Paths.get(dataDirectory)) : null;
+        SocialNetwork network = store != null ? store.getGraph()
+                : options.contains("--compact") ? new CompactSocialNetworkGraph()
+                : options.contains("--concurrent") ? new ConcurrentSocialNetworkGraph()
+                : new SocialNetworkGraph();
         Scanner scanner = new Scanner(System.in);
         SimpleDateFormat sdf = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
         int selection = -1;
 
-        // Adding some people for demonstration
-        network.addPerson("John Doe", 25, Arrays.asList("reading", "hiking", "cooking"));
-        network.addPerson("Jane Smith", 22, Arrays.asList("swimming", "cooking"));
-        network.addPerson("Alice Johnson", 27, Arrays.asList("hiking", "painting"));
-        network.addPerson("Bob Brown", 30, Arrays.asList("reading", "swimming"));
-        network.addPerson("Emily Davis", 28, Arrays.asList("running", "swimming"));
-        network.addPerson("Frank Wilson", 26, Arrays.asList("reading", "hiking"));
+        boolean importing = peopleFile != null || friendshipsFile != null;
+        String servePort = optionValue(options, "--serve");
+        if (!importing && servePort == null && network instanceof SocialNetworkGraph) {
+            // Keep the history so the menu can answer as of the timestamps it
+            // asks for; the server never stamps changes, so it keeps none
+            ((SocialNetworkGraph) network).setHistoryTracking(true);
+        }
+        if (importing) {
+            if (!(network instanceof SocialNetworkGraph)) {
+                System.out.println("Importing files needs the default backend.");
+                return;
+            }
+            SocialNetworkGraph graph = (SocialNetworkGraph) network;
+            int importedPeople = peopleFile != null ? GraphFiles.readPeople(Paths.get(peopleFile), graph) : 0;
+            long importedFriendships = friendshipsFile != null
+                    ? GraphFiles.readFriendships(Paths.get(friendshipsFile), graph, peopleFile == null)
+                    : 0;
+            System.out.println("Imported " + importedPeople + " people and " + importedFriendships
+                    + " friendships.");
+        } else if (store == null || store.lastSequence() == 0) {
+            // A data directory that already holds mutations has the demo data
+            addDemoData(network);
+        }
 
-        // Adding more people for comprehensive test
-        network.addPerson("George Martin", 29, Arrays.asList("cycling", "cooking"));
-        network.addPerson("Hannah White", 24, Arrays.asList("reading", "running"));
-        network.addPerson("Ian Clark", 31, Arrays.asList("swimming", "painting"));
-        network.addPerson("Julia Adams", 23, Arrays.asList("hiking", "running"));
-        network.addPerson("Kyle Baker", 32, Arrays.asList("reading", "cycling"));
-        network.addPerson("Laura Scott", 26, Arrays.asList("swimming", "hiking"));
-        network.addPerson("Mike Turner", 28, Arrays.asList("running", "painting"));
-        network.addPerson("Nina Evans", 30, Arrays.asList("cooking", "cycling"));
-        network.addPerson("Oscar Young", 27, Arrays.asList("reading", "swimming"));
-        network.addPerson("Paul Walker", 25, Arrays.asList("hiking", "running"));
-        network.addPerson("Rachel Hall", 29, Arrays.asList("painting", "cycling"));
+        if (servePort != null) {
+            serve(network, store, Integer.parseInt(servePort));
+            return;
+        }
 
-        // Adding friendships for demonstration
-        network.addFriendship("John Doe", "Jane Smith");
-        network.addFriendship("John Doe", "Alice Johnson");
-        network.addFriendship("Jane Smith", "Bob Brown");
-        network.addFriendship("Emily Davis", "Frank Wilson");
+        if (!importing) {
+            // Finding shortest path for demonstration
+            printShortestPath(network, "John Doe", "Bob Brown");
+            printShortestPath(network, "Emily Davis", "Laura Scott");
+            printShortestPath(network, "Mike Turner", "Paul Walker");
 
-        // Adding more friendships for comprehensive test
-        network.addFriendship("George Martin", "Hannah White");
-        network.addFriendship("Ian Clark", "Julia Adams");
-        network.addFriendship("Kyle Baker", "Laura Scott");
-        network.addFriendship("Mike Turner", "Nina Evans");
-        network.addFriendship("Oscar Young", "Paul Walker");
-        network.addFriendship("Rachel Hall", "George Martin");
-        network.addFriendship("Alice Johnson", "Hannah White");
-        network.addFriendship("Frank Wilson", "Kyle Baker");
-        network.addFriendship("Emily Davis", "Julia Adams");
-        network.addFriendship("Mike Turner", "Oscar Young");
-
-        // Finding shortest path for demonstration
-        network.findShortestPath("John Doe", "Bob Brown");
-        network.findShortestPath("Emily Davis", "Laura Scott");
-        network.findShortestPath("Mike Turner", "Paul Walker");
-        
-
-        // Counting clusters for demonstration
-        network.countClusters();
+            // Counting clusters for demonstration
+            printClusters(network);
+        }
 
         do {
             System.out.println("===== Social Network Analysis Menu =====");
@@ -88,7 +99,6 @@ public class Main {
                     int age;
                     List<String> hobbies;
                     String timestampStr;
-                    @SuppressWarnings("unused")
                     Date timestamp;
                     System.out.print("Enter name: ");
                     name = scanner.nextLine();
@@ -105,11 +115,12 @@ public class Main {
                         System.out.println("Invalid timestamp format.");
                         continue;
                     }
-                    network.addPerson(name, age, hobbies);
+                    if (advanceClock(network, timestamp)) {
+                        addPerson(network, name, age, hobbies);
+                    }
                 } else if (selection == 2) {
                     String name;
                     String timestampStr;
-                    @SuppressWarnings("unused")
                     Date timestamp;
                     System.out.print("Enter name of the person to remove: ");
                     name = scanner.nextLine();
@@ -121,11 +132,12 @@ public class Main {
                         System.out.println("Invalid timestamp format.");
                         continue;
                     }
-                    network.removePerson(name);
+                    if (advanceClock(network, timestamp)) {
+                        removePerson(network, name);
+                    }
                 } else if (selection == 3) {
                     String name1, name2;
                     String timestampStr1, timestampStr2;
-                    @SuppressWarnings("unused")
                     Date timestamp1, timestamp2;
                     System.out.print("Enter the name of the first person: ");
                     name1 = scanner.nextLine();
@@ -142,11 +154,13 @@ public class Main {
                         System.out.println("Invalid timestamp format.");
                         continue;
                     }
-                    network.addFriendship(name1, name2);
+                    // The friendship cannot start before either person's timestamp
+                    if (advanceClock(network, later(timestamp1, timestamp2))) {
+                        addFriendship(network, name1, name2);
+                    }
                 } else if (selection == 4) {
                     String name1, name2;
                     String timestampStr1, timestampStr2;
-                    @SuppressWarnings("unused")
                     Date timestamp1, timestamp2;
                     System.out.print("Enter the name of the first person: ");
                     name1 = scanner.nextLine();
@@ -164,11 +178,12 @@ public class Main {
                         System.out.println("Invalid timestamp format.");
                         continue;
                     }
-                    network.removeFriendship(name1, name2);
+                    if (advanceClock(network, later(timestamp1, timestamp2))) {
+                        removeFriendship(network, name1, name2);
+                    }
                 } else if (selection == 5) {
                     String startName, endName;
                     String startTimestampStr, endTimestampStr;
-                    @SuppressWarnings("unused")
                     Date startTimestamp, endTimestamp;
                     System.out.print("Enter the name of the starting person: ");
                     startName = scanner.nextLine();
@@ -186,11 +201,10 @@ public class Main {
                         System.out.println("Invalid timestamp format.");
                         continue;
                     }
-                    network.findShortestPath(startName, endName);
+                    printShortestPath(asOf(network, later(startTimestamp, endTimestamp)), startName, endName);
                 } else if (selection == 6) {
                     String name, timestampStr;
                     int maxSuggestions;
-                    @SuppressWarnings("unused")
                     Date timestamp;
                     System.out.print("Enter the name of the person: ");
                     name = scanner.nextLine();
@@ -205,9 +219,9 @@ public class Main {
                         System.out.println("Invalid timestamp format.");
                         continue;
                     }
-                    network.suggestFriends(name,  maxSuggestions);
+                    printSuggestions(asOf(network, timestamp), name, maxSuggestions);
                 } else if (selection == 7) {
-                    network.countClusters();
+                    printClusters(network);
                 } else if (selection == 8) {
                     System.out.println("Exiting...");
                 } else {
@@ -220,5 +234,281 @@ public class Main {
         } while (selection != 8);
 
         scanner.close();
+        if (store != null) {
+            store.close();
+        }
+    }
+
+    /**
+     * Serves the network until the JVM is stopped, then closes the server and
+     * the store.
+     *
+     * @param network the network to serve
+     * @param store   the store of the network, or null
+     * @param port    the port to listen on
+     * @throws IOException if the port cannot be bound
+     */
+    private static void serve(SocialNetwork network, GraphStore store, int port) throws IOException {
+        GraphServer server = new GraphServer(network, port);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+                if (store != null) {
+                    store.close();
+                }
+            } catch (IOException e) {
+                System.err.println("Error while stopping the server: " + e.getMessage());
+            }
+        }));
+        System.out.println("Serving on port " + server.getPort() + " with "
+                + (server.usesVirtualThreads() ? "virtual threads" : "a thread pool") + ".");
+        try {
+            server.awaitClose();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Returns the value following an option on the command line.
+     *
+     * @param options the command line arguments
+     * @param name    the option
+     * @return the value, or null if the option or its value is missing
+     */
+    private static String optionValue(List<String> options, String name) {
+        int index = options.indexOf(name);
+        return index >= 0 && index + 1 < options.size() ? options.get(index + 1) : null;
+    }
+
+    /**
+     * Stamps the following changes with a timestamp if the backend keeps
+     * time, and prints why not if the timestamp is out of order.
+     *
+     * @param network   the network
+     * @param timestamp the time of the next changes
+     * @return false if the timestamp is earlier than the last change
+     */
+    private static boolean advanceClock(SocialNetwork network, Date timestamp) {
+        if (!(network instanceof SocialNetworkGraph)) {
+            return true;
+        }
+        try {
+            ((SocialNetworkGraph) network).advanceClock(timestamp);
+            return true;
+        } catch (IllegalArgumentException e) {
+            System.out.println("Timestamp is earlier than the last change.");
+            return false;
+        }
+    }
+
+    /**
+     * Returns the network as it was at an instant if the backend keeps its
+     * history, or as it is now otherwise.
+     *
+     * @param network the network
+     * @param instant the instant
+     * @return the network to query
+     */
+    private static SocialNetwork asOf(SocialNetwork network, Date instant) {
+        if (network instanceof SocialNetworkGraph && ((SocialNetworkGraph) network).isHistoryTracking()) {
+            return ((SocialNetworkGraph) network).asOf(instant);
+        }
+        return network;
+    }
+
+    /**
+     * Returns the later of two timestamps.
+     *
+     * @param timestamp1 the first timestamp
+     * @param timestamp2 the second timestamp
+     * @return the later timestamp
+     */
+    private static Date later(Date timestamp1, Date timestamp2) {
+        return timestamp1.after(timestamp2) ? timestamp1 : timestamp2;
+    }
+
+    /**
+     * Adds a person and prints the outcome.
+     *
+     * @param network the network
+     * @param name    the name of the person
+     * @param age     the age of the person
+     * @param hobbies the hobbies of the person
+     */
+    private static void addPerson(SocialNetwork network, String name, int age, List<String> hobbies) {
+        if (network.addPerson(name, age, hobbies)) {
+            System.out.println("Person added: " + network.getPerson(name));
+        } else {
+            System.out.println("Person already exists: " + network.getPerson(name));
+        }
+    }
+
+    /**
+     * Removes a person and prints the outcome.
+     *
+     * @param network the network
+     * @param name    the name of the person to be removed
+     */
+    private static void removePerson(SocialNetwork network, String name) {
+        Person person = network.getPerson(name);
+        if (network.removePerson(name)) {
+            System.out.println("Person removed: " + person);
+        } else {
+            System.out.println("Person not found.");
+        }
+    }
+
+    /**
+     * Adds a friendship and prints the outcome.
+     *
+     * @param network the network
+     * @param name1   the name of the first person
+     * @param name2   the name of the second person
+     */
+    private static void addFriendship(SocialNetwork network, String name1, String name2) {
+        if (network.addFriendship(name1, name2)) {
+            System.out.println("Friendship added between " + name1 + " and " + name2);
+        } else if (network.getPerson(name1) == null || network.getPerson(name2) == null) {
+            System.out.println("One or both persons not found in the network.");
+        } else {
+            System.out.println("Persons are already friends.");
+        }
+    }
+
+    /**
+     * Removes a friendship and prints the outcome.
+     *
+     * @param network the network
+     * @param name1   the name of the first person
+     * @param name2   the name of the second person
+     */
+    private static void removeFriendship(SocialNetwork network, String name1, String name2) {
+        if (network.removeFriendship(name1, name2)) {
+            System.out.println("Friendship removed between " + name1 + " and " + name2);
+        } else if (network.getPerson(name1) == null || network.getPerson(name2) == null) {
+            System.out.println("One or both persons not found in the network.");
+        } else {
+            System.out.println("Friendship does not exist between " + name1 + " and " + name2);
+        }
+    }
+
+    /**
+     * Finds the shortest path between two people and prints it.
+     *
+     * @param network   the network
+     * @param startName the name of the starting person
+     * @param endName   the name of the ending person
+     */
+    private static void printShortestPath(SocialNetwork network, String startName, String endName) {
+        if (network.getPerson(startName) == null || network.getPerson(endName) == null) {
+            System.out.println("One or both persons not found in the network.");
+            return;
+        }
+        Optional<List<Person>> path = network.findShortestPath(startName, endName);
+        if (path.isPresent()) {
+            StringBuilder pathStr = new StringBuilder();
+            for (Person person : path.get()) {
+                if (pathStr.length() > 0) {
+                    pathStr.append(" -> ");
+                }
+                pathStr.append(person.getName());
+            }
+            System.out.println("Shortest path: " + pathStr);
+        } else {
+            System.out.println("No path found between " + startName + " and " + endName);
+        }
+    }
+
+    /**
+     * Finds the clusters of the network and prints every member of each. The
+     * backends find the clusters and their members in different orders, so
+     * both are printed in the order the people were added, which is the order
+     * of their ids in every backend.
+     *
+     * @param network the network
+     */
+    private static void printClusters(SocialNetwork network) {
+        List<List<Person>> clusters = new ArrayList<>();
+        for (List<Person> cluster : network.countClusters().getClusters()) {
+            List<Person> members = new ArrayList<>(cluster);
+            members.sort(Comparator.comparingInt(Person::getId));
+            clusters.add(members);
+        }
+        clusters.sort(Comparator.comparingInt(cluster -> cluster.get(0).getId()));
+        System.out.println("Number of clusters found: " + clusters.size());
+        for (int i = 0; i < clusters.size(); i++) {
+            System.out.println("Cluster " + (i + 1) + ":");
+            for (Person member : clusters.get(i)) {
+                System.out.println(member.getName());
+            }
+        }
+    }
+
+    /**
+     * Suggests friends for a person and prints the suggestions.
+     *
+     * @param network        the network
+     * @param name           the name of the person
+     * @param maxSuggestions the maximum number of friend suggestions
+     */
+    private static void printSuggestions(SocialNetwork network, String name, int maxSuggestions) {
+        if (network.getPerson(name) == null) {
+            System.out.println("Person not found.");
+            return;
+        }
+        List<Suggestion> suggestions = network.suggestFriends(name, maxSuggestions);
+        System.out.println("Suggested friends for " + name + ":");
+        for (Suggestion suggestion : suggestions) {
+            System.out.println(suggestion);
+        }
+        if (suggestions.isEmpty())
+            System.out.println("No suggestions found.");
+    }
+
+    /**
+     * Adds the demonstration people and friendships to a network.
+     *
+     * @param network the network to fill
+     */
+    private static void addDemoData(SocialNetwork network) {
+        // Adding some people for demonstration
+        addPerson(network, "John Doe", 25, Arrays.asList("reading", "hiking", "cooking"));
+        addPerson(network, "Jane Smith", 22, Arrays.asList("swimming", "cooking"));
+        addPerson(network, "Alice Johnson", 27, Arrays.asList("hiking", "painting"));
+        addPerson(network, "Bob Brown", 30, Arrays.asList("reading", "swimming"));
+        addPerson(network, "Emily Davis", 28, Arrays.asList("running", "swimming"));
+        addPerson(network, "Frank Wilson", 26, Arrays.asList("reading", "hiking"));
+
+        // Adding more people for comprehensive test
+        addPerson(network, "George Martin", 29, Arrays.asList("cycling", "cooking"));
+        addPerson(network, "Hannah White", 24, Arrays.asList("reading", "running"));
+        addPerson(network, "Ian Clark", 31, Arrays.asList("swimming", "painting"));
+        addPerson(network, "Julia Adams", 23, Arrays.asList("hiking", "running"));
+        addPerson(network, "Kyle Baker", 32, Arrays.asList("reading", "cycling"));
+        addPerson(network, "Laura Scott", 26, Arrays.asList("swimming", "hiking"));
+        addPerson(network, "Mike Turner", 28, Arrays.asList("running", "painting"));
+        addPerson(network, "Nina Evans", 30, Arrays.asList("cooking", "cycling"));
+        addPerson(network, "Oscar Young", 27, Arrays.asList("reading", "swimming"));
+        addPerson(network, "Paul Walker", 25, Arrays.asList("hiking", "running"));
+        addPerson(network, "Rachel Hall", 29, Arrays.asList("painting", "cycling"));
+
+        // Adding friendships for demonstration
+        addFriendship(network, "John Doe", "Jane Smith");
+        addFriendship(network, "John Doe", "Alice Johnson");
+        addFriendship(network, "Jane Smith", "Bob Brown");
+        addFriendship(network, "Emily Davis", "Frank Wilson");
+
+        // Adding more friendships for comprehensive test
+        addFriendship(network, "George Martin", "Hannah White");
+        addFriendship(network, "Ian Clark", "Julia Adams");
+        addFriendship(network, "Kyle Baker", "Laura Scott");
+        addFriendship(network, "Mike Turner", "Nina Evans");
+        addFriendship(network, "Oscar Young", "Paul Walker");
+        addFriendship(network, "Rachel Hall", "George Martin");
+        addFriendship(network, "Alice Johnson", "Hannah White");
+        addFriendship(network, "Frank Wilson", "Kyle Baker");
+        addFriendship(network, "Emily Davis", "Julia Adams");
+        addFriendship(network, "Mike Turner", "Oscar Young");
     }
 }
@@ -0,0 +1,486 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Read-only social network served straight from a memory-mapped file. The
+ * file holds the graph as flat int columns: a string table for names and
+ * hobbies, a fixed-width age column, the hobbies of every person and the
+ * members of every hobby, the friendships in compressed sparse row form, and
+ * the people sorted by name for binary search lookups. Opening the file only
+ * maps it, so no Person objects, maps or lists are built: startup takes
+ * milliseconds whatever the size of the graph, and processes that open the
+ * same file share one copy of it in the page cache.
+ *
+ * <p>Queries behave like those of {@link SocialNetworkGraph}. Every method
+ * that would change the network throws {@link UnsupportedOperationException}.
+ */
+public class MappedSocialNetworkGraph implements SocialNetwork {
+    private static final int MAGIC = 0x534E4D47;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 40;
+
+    private final int n;
+    private final int hobbyCount;
+    private final IntBuffer stringOffsets;
+    private final IntBuffer ages;
+    private final IntBuffer hobbyOffsets;
+    private final IntBuffer hobbies;
+    private final IntBuffer memberOffsets;
+    private final IntBuffer members;
+    private final IntBuffer offsets;
+    private final IntBuffer targets;
+    private final IntBuffer byName;
+    private final ByteBuffer strings;
+
+    /**
+     * Maps a file written by {@link #write(GraphSnapshot, Path)}.
+     *
+     * @param file the file to open
+     * @throws IOException if the file cannot be read or is not a mapped graph
+     */
+    public MappedSocialNetworkGraph(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC || header.getInt(4) != VERSION) {
+                throw new IOException("Not a mapped graph file: " + file);
+            }
+            n = header.getInt(8);
+            hobbyCount = header.getInt(12);
+            int hobbyEntries = header.getInt(16);
+            int memberEntries = header.getInt(20);
+            int edgeEntries = header.getInt(24);
+            long stringBytes = header.getLong(32);
+
+            long position = HEADER_BYTES;
+            stringOffsets = ints(channel, position, n + hobbyCount + 1);
+            position += 4L * (n + hobbyCount + 1);
+            ages = ints(channel, position, n);
+            position += 4L * n;
+            hobbyOffsets = ints(channel, position, n + 1);
+            position += 4L * (n + 1);
+            hobbies = ints(channel, position, hobbyEntries);
+            position += 4L * hobbyEntries;
+            memberOffsets = ints(channel, position, hobbyCount + 1);
+            position += 4L * (hobbyCount + 1);
+            members = ints(channel, position, memberEntries);
+            position += 4L * memberEntries;
+            offsets = ints(channel, position, n + 1);
+            position += 4L * (n + 1);
+            targets = ints(channel, position, edgeEntries);
+            position += 4L * edgeEntries;
+            byName = ints(channel, position, n);
+            position += 4L * n;
+            if (channel.size() != position + stringBytes) {
+                throw new IOException("Truncated mapped graph file: " + file);
+            }
+            strings = channel.map(FileChannel.MapMode.READ_ONLY, position, stringBytes);
+        }
+    }
+
+    /**
+     * Writes a snapshot in the mapped format. Vertex ids in the file are the
+     * vertex ids of the snapshot. The file is written next to its final name
+     * and renamed into place, so processes that still map an older version
+     * keep reading it unharmed.
+     *
+     * @param snapshot the snapshot to write
+     * @param file     the file to write
+     * @throws IOException if writing fails
+     */
+    public static void write(GraphSnapshot snapshot, Path file) throws IOException {
+        int n = snapshot.vertexCount();
+
+        // Number the distinct hobbies and collect the members of each
+        Map<String, Integer> hobbyIds = new LinkedHashMap<>();
+        int[] hobbyOffsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            List<String> personHobbies = snapshot.person(u).getHobbies();
+            for (String hobby : personHobbies) {
+                hobbyIds.putIfAbsent(hobby, hobbyIds.size());
+            }
+            hobbyOffsets[u + 1] = hobbyOffsets[u] + personHobbies.size();
+        }
+        int hobbyCount = hobbyIds.size();
+        int[] hobbies = new int[hobbyOffsets[n]];
+        int[] memberOffsets = new int[hobbyCount + 1];
+        for (int u = 0; u < n; u++) {
+            int i = hobbyOffsets[u];
+            for (String hobby : snapshot.person(u).getHobbies()) {
+                hobbies[i] = hobbyIds.get(hobby);
+                if (isFirst(hobbies, hobbyOffsets[u], i)) {
+                    memberOffsets[hobbies[i] + 1]++;
+                }
+                i++;
+            }
+        }
+        for (int h = 0; h < hobbyCount; h++) {
+            memberOffsets[h + 1] += memberOffsets[h];
+        }
+        // A person listing a hobby twice is still a single member of it
+        int[] members = new int[memberOffsets[hobbyCount]];
+        int[] fill = Arrays.copyOf(memberOffsets, hobbyCount);
+        for (int u = 0; u < n; u++) {
+            for (int i = hobbyOffsets[u]; i < hobbyOffsets[u + 1]; i++) {
+                if (isFirst(hobbies, hobbyOffsets[u], i)) {
+                    members[fill[hobbies[i]]++] = u;
+                }
+            }
+        }
+
+        // String table: the names of the vertices, then the hobbies
+        byte[][] encoded = new byte[n + hobbyCount][];
+        int[] ages = new int[n];
+        for (int u = 0; u < n; u++) {
+            encoded[u] = snapshot.person(u).getName().getBytes(StandardCharsets.UTF_8);
+            ages[u] = snapshot.person(u).getAge();
+        }
+        for (Map.Entry<String, Integer> hobby : hobbyIds.entrySet()) {
+            encoded[n + hobby.getValue()] = hobby.getKey().getBytes(StandardCharsets.UTF_8);
+        }
+        int[] stringOffsets = new int[encoded.length + 1];
+        for (int s = 0; s < encoded.length; s++) {
+            stringOffsets[s + 1] = Math.addExact(stringOffsets[s], encoded[s].length);
+        }
+
+        Integer[] sorted = new Integer[n];
+        for (int u = 0; u < n; u++) {
+            sorted[u] = u;
+        }
+        Arrays.sort(sorted, (a, b) -> Arrays.compareUnsigned(encoded[a], encoded[b]));
+        int[] byName = new int[n];
+        for (int u = 0; u < n; u++) {
+            byName[u] = sorted[u];
+        }
+
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            offsets[u + 1] = snapshot.offset(u) + snapshot.degree(u);
+        }
+
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(64 * 1024).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putInt(MAGIC).putInt(VERSION).putInt(n).putInt(hobbyCount).putInt(hobbies.length)
+                    .putInt(members.length).putInt(snapshot.edgeEntries()).putInt(0)
+                    .putLong(stringOffsets[encoded.length]);
+            putInts(channel, buffer, stringOffsets);
+            putInts(channel, buffer, ages);
+            putInts(channel, buffer, hobbyOffsets);
+            putInts(channel, buffer, hobbies);
+            putInts(channel, buffer, memberOffsets);
+            putInts(channel, buffer, members);
+            putInts(channel, buffer, offsets);
+            putInts(channel, buffer, snapshot.targets());
+            putInts(channel, buffer, byName);
+            for (byte[] string : encoded) {
+                if (buffer.remaining() < string.length) {
+                    drain(channel, buffer);
+                }
+                if (string.length > buffer.capacity()) {
+                    channel.write(ByteBuffer.wrap(string));
+                } else {
+                    buffer.put(string);
+                }
+            }
+            drain(channel, buffer);
+            channel.force(true);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    @Override
+    public boolean addPerson(String name, int age, List<String> hobbies) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only.");
+    }
+
+    @Override
+    public boolean removePerson(String name) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only.");
+    }
+
+    @Override
+    public boolean addFriendship(String name1, String name2) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only.");
+    }
+
+    @Override
+    public boolean removeFriendship(String name1, String name2) {
+        throw new UnsupportedOperationException("Mapped graphs are read-only.");
+    }
+
+    @Override
+    public Person getPerson(String name) {
+        int u = vertexOf(name);
+        return u >= 0 ? person(u) : null;
+    }
+
+    @Override
+    public Optional<List<Person>> findShortestPath(String startName, String endName) {
+        int start = vertexOf(startName);
+        int end = vertexOf(endName);
+        if (start < 0 || end < 0) {
+            return Optional.empty();
+        }
+
+        int[] prev = new int[n];
+        Arrays.fill(prev, -1);
+        int[] queue = new int[n];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        prev[start] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == end) {
+                List<Person> path = new ArrayList<>();
+                for (int at = end; at != start; at = prev[at]) {
+                    path.add(person(at));
+                }
+                path.add(person(start));
+                Collections.reverse(path);
+                return Optional.of(Collections.unmodifiableList(path));
+            }
+            for (int i = offsets.get(current); i < offsets.get(current + 1); i++) {
+                int neighbor = targets.get(i);
+                if (prev[neighbor] < 0) {
+                    prev[neighbor] = current;
+                    queue[tail++] = neighbor;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public ClusterResult countClusters() {
+        BitSet visited = new BitSet(n);
+        int[] queue = new int[n];
+        List<List<Person>> clusters = new ArrayList<>();
+        for (int u = 0; u < n; u++) {
+            if (visited.get(u)) {
+                continue;
+            }
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = u;
+            visited.set(u);
+            while (head < tail) {
+                int current = queue[head++];
+                for (int i = offsets.get(current); i < offsets.get(current + 1); i++) {
+                    int neighbor = targets.get(i);
+                    if (!visited.get(neighbor)) {
+                        visited.set(neighbor);
+                        queue[tail++] = neighbor;
+                    }
+                }
+            }
+            List<Person> cluster = new ArrayList<>(tail);
+            for (int i = 0; i < tail; i++) {
+                cluster.add(person(queue[i]));
+            }
+            clusters.add(cluster);
+        }
+        return new ClusterResult(clusters);
+    }
+
+    @Override
+    public List<Suggestion> suggestFriends(String name, int maxSuggestions) {
+        int id = vertexOf(name);
+        if (id < 0) {
+            return Collections.emptyList();
+        }
+
+        // Mark the person and the existing friends so they are never suggested
+        BitSet excluded = new BitSet(n);
+        excluded.set(id);
+        for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+            excluded.set(targets.get(i));
+        }
+
+        // Count mutual friends over the friends of friends and common hobbies
+        // over the members of each hobby, remembering who was touched
+        int[] commonFriends = new int[n];
+        int[] commonHobbies = new int[n];
+        int[] candidates = new int[16];
+        int candidateCount = 0;
+        for (int i = offsets.get(id); i < offsets.get(id + 1); i++) {
+            int friend = targets.get(i);
+            for (int j = offsets.get(friend); j < offsets.get(friend + 1); j++) {
+                int candidate = targets.get(j);
+                if (!excluded.get(candidate) && commonFriends[candidate]++ == 0) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, 2 * candidateCount);
+                    }
+                    candidates[candidateCount++] = candidate;
+                }
+            }
+        }
+        for (int i = hobbyOffsets.get(id); i < hobbyOffsets.get(id + 1); i++) {
+            int hobby = hobbies.get(i);
+            if (!isFirst(hobbies, hobbyOffsets.get(id), i)) {
+                continue;
+            }
+            for (int j = memberOffsets.get(hobby); j < memberOffsets.get(hobby + 1); j++) {
+                int candidate = members.get(j);
+                if (!excluded.get(candidate) && commonHobbies[candidate]++ == 0 && commonFriends[candidate] == 0) {
+                    if (candidateCount == candidates.length) {
+                        candidates = Arrays.copyOf(candidates, 2 * candidateCount);
+                    }
+                    candidates[candidateCount++] = candidate;
+                }
+            }
+        }
+
+        // Keep only the best maxSuggestions candidates, worst on top of the
+        // heap; a person is only built for a candidate that makes it in, and
+        // the heap never holds more than all the candidates
+        List<Suggestion> suggestions = new ArrayList<>();
+        if (maxSuggestions > 0) {
+            PriorityQueue<Suggestion> best = new PriorityQueue<>(Math.min(maxSuggestions, candidateCount) + 1,
+                    Suggestion.BEST_FIRST.reversed());
+            for (int i = 0; i < candidateCount; i++) {
+                int candidate = candidates[i];
+                if (best.size() == maxSuggestions) {
+                    Suggestion worst = best.peek();
+                    double score = Suggestion.score(commonFriends[candidate], commonHobbies[candidate]);
+                    int cmp = Double.compare(score, worst.getScore());
+                    if (cmp < 0 || (cmp == 0 && name(candidate).compareTo(worst.getPerson().getName()) >= 0)) {
+                        continue;
+                    }
+                    best.poll();
+                }
+                best.add(new Suggestion(person(candidate), commonFriends[candidate], commonHobbies[candidate]));
+            }
+            suggestions.addAll(best);
+            suggestions.sort(Suggestion.BEST_FIRST);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Returns the number of people in the network.
+     *
+     * @return the number of people
+     */
+    public int personCount() {
+        return n;
+    }
+
+    /**
+     * Builds the person of a vertex from the mapped columns.
+     *
+     * @param u the vertex
+     * @return a new Person object with the vertex as its id
+     */
+    public Person person(int u) {
+        List<String> personHobbies = new ArrayList<>();
+        for (int i = hobbyOffsets.get(u); i < hobbyOffsets.get(u + 1); i++) {
+            personHobbies.add(string(n + hobbies.get(i)));
+        }
+        Person person = new Person(name(u), ages.get(u), personHobbies);
+        person.id = u;
+        return person;
+    }
+
+    /**
+     * Finds the vertex of a person by binary search over the name index.
+     *
+     * @param name the name of the person
+     * @return the vertex, or -1 if nobody has that name
+     */
+    public int vertexOf(String name) {
+        byte[] key = name.getBytes(StandardCharsets.UTF_8);
+        int low = 0;
+        int high = n - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int vertex = byName.get(mid);
+            int cmp = compareString(vertex, key);
+            if (cmp < 0) {
+                low = mid + 1;
+            } else if (cmp > 0) {
+                high = mid - 1;
+            } else {
+                return vertex;
+            }
+        }
+        return -1;
+    }
+
+    private String name(int u) {
+        return string(u);
+    }
+
+    private String string(int s) {
+        int start = stringOffsets.get(s);
+        byte[] bytes = new byte[stringOffsets.get(s + 1) - start];
+        strings.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Compares a string in the table with a key, byte by byte as unsigned
+     * values, the order the name index is sorted in.
+     */
+    private int compareString(int s, byte[] key) {
+        int start = stringOffsets.get(s);
+        int length = stringOffsets.get(s + 1) - start;
+        int common = Math.min(length, key.length);
+        for (int i = 0; i < common; i++) {
+            int cmp = Byte.toUnsignedInt(strings.get(start + i)) - Byte.toUnsignedInt(key[i]);
+            if (cmp != 0) {
+                return cmp;
+            }
+        }
+        return length - key.length;
+    }
+
+    /**
+     * Checks whether a hobby entry is the first of its kind in a person's list.
+     */
+    private static boolean isFirst(int[] hobbies, int from, int i) {
+        for (int j = from; j < i; j++) {
+            if (hobbies[j] == hobbies[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isFirst(IntBuffer hobbies, int from, int i) {
+        for (int j = from; j < i; j++) {
+            if (hobbies.get(j) == hobbies.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static IntBuffer ints(FileChannel channel, long position, int count) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, position, 4L * count)
+                .order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+    }
+
+    private static void putInts(FileChannel channel, ByteBuffer buffer, int[] values) throws IOException {
+        for (int value : values) {
+            if (buffer.remaining() < 4) {
+                drain(channel, buffer);
+            }
+            buffer.putInt(value);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,97 @@
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Compares the startup of a replica from a {@link GraphStore} checkpoint,
+ * which rebuilds every object on the heap, with opening the same graph as a
+ * {@link MappedSocialNetworkGraph}. Reports the time to the first answered
+ * query and the heap each replica holds.
+ */
+public class MappedStartupReport {
+
+    /**
+     * Builds a random graph, saves it both ways and reopens it both ways.
+     *
+     * @param args optional number of people and number of friendships
+     * @throws IOException          if the temporary files cannot be written
+     * @throws InterruptedException if interrupted while measuring the heap
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int peopleCount = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        long friendshipCount = args.length > 1 ? Long.parseLong(args[1]) : 2_000_000L;
+
+        String[] names = new String[peopleCount];
+        for (int i = 0; i < peopleCount; i++) {
+            names[i] = "Person " + i;
+        }
+        Path directory = Files.createTempDirectory("mapped-startup");
+        Path storeDirectory = directory.resolve("store");
+        Path mappedFile = directory.resolve("graph.bin");
+        save(names, friendshipCount, storeDirectory, mappedFile);
+
+        // The mapped replica goes first so garbage left by the restore cannot skew it
+        long heapBefore = usedHeap();
+        long start = System.nanoTime();
+        MappedSocialNetworkGraph mapped = SocialNetworkGraph.openMapped(mappedFile);
+        mapped.findShortestPath(names[0], names[peopleCount - 1]);
+        long mappedNanos = System.nanoTime() - start;
+        long mappedHeap = usedHeap() - heapBefore;
+
+        heapBefore = usedHeap();
+        start = System.nanoTime();
+        GraphStore restored = GraphStore.open(storeDirectory);
+        restored.getGraph().findShortestPath(names[0], names[peopleCount - 1]);
+        long restoreNanos = System.nanoTime() - start;
+        long restoreHeap = usedHeap() - heapBefore;
+        restored.close();
+        restored = null;
+
+        System.out.printf("Checkpoint restore: %.1f ms to first query, %.1f MB heap (%d bytes on disk)%n",
+                restoreNanos / 1e6, restoreHeap / 1e6, Files.size(storeDirectory.resolve("checkpoint.bin")));
+        System.out.printf("Mapped open:        %.1f ms to first query, %.1f MB heap (%d bytes on disk)%n",
+                mappedNanos / 1e6, mappedHeap / 1e6, Files.size(mappedFile));
+        System.out.println("People in mapped graph: " + mapped.personCount());
+
+        Files.walk(directory).sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+
+    /**
+     * Builds the graph and writes it both ways. Kept in its own method so the
+     * graph is garbage by the time the replicas are measured.
+     */
+    private static void save(String[] names, long friendshipCount, Path storeDirectory, Path mappedFile)
+            throws IOException {
+        List<Person> batch = new ArrayList<>(names.length);
+        for (int i = 0; i < names.length; i++) {
+            batch.add(new Person(names[i], 18 + i % 60, Arrays.asList("reading", "hiking")));
+        }
+        try (GraphStore store = GraphStore.open(storeDirectory)) {
+            SocialNetworkGraph network = store.getGraph();
+            network.addPeople(batch);
+            network.addFriendships(BulkLoadBenchmark.randomPairs(names, friendshipCount, 42));
+            store.checkpoint();
+            network.exportMapped(mappedFile);
+        }
+    }
+
+    /**
+     * Collects garbage until the used heap stops shrinking, pausing between
+     * rounds so that objects released by background threads and reference
+     * processing that are still winding down are not counted.
+     */
+    private static long usedHeap() throws InterruptedException {
+        Runtime runtime = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 10; i++) {
+            System.gc();
+            Thread.sleep(200);
+            long now = runtime.totalMemory() - runtime.freeMemory();
+            if (now >= used) {
+                break;
+            }
+            used = now;
+        }
+        return used;
+    }
+}
@@ -0,0 +1,153 @@
+import java.util.*;
+import javax.management.JMException;
+
+/**
+ * Measures what turning on {@link RecordingGraphMetrics} costs. The same
+ * workload of mutations and queries runs on a Barabasi-Albert graph in
+ * alternating rounds with instrumentation off and on, and the best time per
+ * call of every operation in each mode is compared; the best round is the
+ * one least disturbed by the rest of the machine. The geometric mean of the
+ * slowdowns is checked against an overhead budget, since a single operation
+ * can move by several percent between runs even with nothing changed.
+ */
+public class MetricsOverheadBenchmark {
+    private static final double BUDGET_PERCENT = 5.0;
+    private static final int WARMUP_ROUNDS = 5;
+    private static final int MUTATIONS = 2_000;
+    private static final int SUGGESTIONS = 200;
+    private static final int PATHS = 20;
+    private static final String[] LABELS = { "addPerson", "removePerson", "addFriendship", "removeFriendship",
+            "suggestFriends", "findShortestPath" };
+
+    /**
+     * Runs the rounds and prints the overhead of every operation, followed by
+     * what the metrics recorded as published over JMX.
+     *
+     * @param args optional number of people and number of measured rounds per
+     *             mode
+     * @throws JMException if the metrics cannot be registered
+     */
+    public static void main(String[] args) throws JMException {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 25;
+
+        SocialNetworkGraph network = new SocialNetworkGraph();
+        String[] names = new String[n];
+        Random random = new Random(42);
+        for (int u = 0; u < n; u++) {
+            names[u] = SyntheticGraphs.name(u);
+            network.addPerson(names[u], 18 + u % 60, SyntheticGraphs.hobbies(random));
+        }
+        int[] edges = SyntheticGraphs.barabasiAlbert(n, 5, 42);
+        for (int i = 0; i < edges.length; i += 2) {
+            network.addFriendship(names[edges[i]], names[edges[i + 1]]);
+        }
+
+        RecordingGraphMetrics metrics = new RecordingGraphMetrics();
+        metrics.register("overhead-benchmark");
+        long[][] off = new long[LABELS.length][rounds];
+        long[][] on = new long[LABELS.length][rounds];
+        for (int round = -WARMUP_ROUNDS; round < rounds; round++) {
+            // Alternate which mode goes first so drift hurts neither
+            for (int pass = 0; pass < 2; pass++) {
+                boolean instrumented = (pass == 0) == (round % 2 == 0);
+                network.setMetrics(instrumented ? metrics : null);
+                long[] nanos = runRound(network, names, new Random(round + WARMUP_ROUNDS));
+                if (round >= 0) {
+                    for (int i = 0; i < LABELS.length; i++) {
+                        (instrumented ? on : off)[i][round] = nanos[i];
+                    }
+                }
+            }
+        }
+        network.setMetrics(null);
+
+        int[] calls = { MUTATIONS, MUTATIONS, MUTATIONS, MUTATIONS, SUGGESTIONS, PATHS };
+        double logSlowdown = 0;
+        System.out.printf("%-17s %12s %12s %10s%n", "operation", "off ns/op", "on ns/op", "overhead");
+        for (int i = 0; i < LABELS.length; i++) {
+            double offPerCall = (double) best(off[i]) / calls[i];
+            double onPerCall = (double) best(on[i]) / calls[i];
+            double overhead = 100 * (onPerCall - offPerCall) / offPerCall;
+            logSlowdown += Math.log(onPerCall / offPerCall);
+            System.out.printf("%-17s %12.0f %12.0f %9.1f%%%n", LABELS[i], offPerCall, onPerCall, overhead);
+        }
+        double overall = 100 * (Math.exp(logSlowdown / LABELS.length) - 1);
+        System.out.printf("Geometric mean overhead %.1f%%, budget of %.0f%% %s%n", overall, BUDGET_PERCENT,
+                overall <= BUDGET_PERCENT ? "met" : "exceeded");
+
+        System.out.println();
+        for (String summary : metrics.getOperationSummaries()) {
+            System.out.println(summary);
+        }
+        System.out.printf("Mean candidates per suggestion: %.1f, GC since start: %d ms in %d collections%n",
+                metrics.getMeanCandidates(), metrics.getGcMillisSinceReset(), metrics.getGcCountSinceReset());
+    }
+
+    /**
+     * Runs one round of the workload, leaving the graph as it found it.
+     *
+     * @return the total nanoseconds spent in each operation
+     */
+    private static long[] runRound(SocialNetworkGraph network, String[] names, Random random) {
+        long[] nanos = new long[LABELS.length];
+        List<String> hobbies = Arrays.asList("reading", "chess");
+        String[] temporary = new String[MUTATIONS];
+        for (int i = 0; i < MUTATIONS; i++) {
+            temporary[i] = "Temporary " + i;
+        }
+        String[][] pairs = new String[MUTATIONS][];
+        for (int i = 0; i < MUTATIONS; i++) {
+            pairs[i] = new String[] { names[random.nextInt(names.length)], names[random.nextInt(names.length)] };
+        }
+        boolean[] added = new boolean[MUTATIONS];
+
+        long start = System.nanoTime();
+        for (int i = 0; i < MUTATIONS; i++) {
+            network.addPerson(temporary[i], 30, hobbies);
+        }
+        nanos[0] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MUTATIONS; i++) {
+            network.removePerson(temporary[i]);
+        }
+        nanos[1] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < MUTATIONS; i++) {
+            added[i] = network.addFriendship(pairs[i][0], pairs[i][1]);
+        }
+        nanos[2] = System.nanoTime() - start;
+
+        // Only undo the friendships this round created
+        start = System.nanoTime();
+        for (int i = 0; i < MUTATIONS; i++) {
+            if (added[i]) {
+                network.removeFriendship(pairs[i][0], pairs[i][1]);
+            }
+        }
+        nanos[3] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < SUGGESTIONS; i++) {
+            network.suggestFriends(names[random.nextInt(names.length)], 10);
+        }
+        nanos[4] = System.nanoTime() - start;
+
+        start = System.nanoTime();
+        for (int i = 0; i < PATHS; i++) {
+            network.findShortestPath(names[random.nextInt(names.length)], names[random.nextInt(names.length)]);
+        }
+        nanos[5] = System.nanoTime() - start;
+        return nanos;
+    }
+
+    private static long best(long[] values) {
+        long best = Long.MAX_VALUE;
+        for (long value : values) {
+            best = Math.min(best, value);
+        }
+        return best;
+    }
+}
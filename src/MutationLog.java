@@ -0,0 +1,405 @@
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+
+/**
+ * Append-only log of the mutations of a {@link SocialNetworkGraph}, one file
+ * per log segment. Every record carries a sequence number, its length and a
+ * CRC32 checksum, so replay can skip records already covered by a checkpoint
+ * and stop cleanly at a record torn by a crash.
+ *
+ * <p>Appends only copy the record into a memory buffer. The buffer is written
+ * and forced to disk with a single fsync once it holds a group of records or
+ * once the oldest record in it has waited for the maximum delay, whichever
+ * comes first. A background thread does the writing, so while one group is
+ * being forced the writer keeps appending into a second buffer, and the next
+ * fsync covers everything that arrived in the meantime. A crash can lose the
+ * records not yet forced; call {@link #sync()} to wait until everything
+ * appended so far is durable.
+ */
+class MutationLog implements Closeable {
+    static final byte ADD_PERSON = 1;
+    static final byte REMOVE_PERSON = 2;
+    static final byte ADD_FRIENDSHIP = 3;
+    static final byte REMOVE_FRIENDSHIP = 4;
+
+    private static final int MAGIC = 0x534E574C;
+    private static final int HEADER_BYTES = 4;
+    private static final int RECORD_HEADER_BYTES = 8;
+    // Larger records are refused on append, so a larger length read back is corrupt
+    private static final int MAX_RECORD_BYTES = 16 * 1024 * 1024;
+    // Groups a writer may get ahead of the disk before it waits
+    private static final int BACKLOG_GROUPS = 8;
+
+    private final FileChannel channel;
+    private final int groupSize;
+    private final ScheduledExecutorService flusher;
+
+    // Records appended but not yet written, and the buffer to swap in while
+    // they are being forced; guarded by this
+    private ByteBuffer buffer = ByteBuffer.allocate(64 * 1024);
+    private ByteBuffer spare = ByteBuffer.allocate(64 * 1024);
+    private int pendingRecords;
+    private boolean flushRequested;
+    private long sequence;
+    private volatile long syncedSequence;
+    private IOException failure;
+
+    // Reused to encode one record at a time; guarded by this
+    private final ByteArrayOutputStream scratch = new ByteArrayOutputStream();
+    private final DataOutputStream record = new DataOutputStream(scratch);
+    private final CRC32 crc = new CRC32();
+
+    // Held while a group is written and forced, so groups reach the file in order
+    private final Object flushLock = new Object();
+
+    /**
+     * Creates a new, empty log segment.
+     *
+     * @param file           the file of the segment, which must not exist yet
+     * @param lastSequence   the sequence number of the last record before this
+     *                       segment
+     * @param groupSize      the number of records forced to disk together
+     * @param maxDelayMillis the longest time a record may wait to be forced
+     * @throws IOException if the file cannot be created
+     */
+    MutationLog(Path file, long lastSequence, int groupSize, long maxDelayMillis) throws IOException {
+        this.channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        this.groupSize = groupSize;
+        this.sequence = lastSequence;
+        this.syncedSequence = lastSequence;
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC);
+        header.flip();
+        while (header.hasRemaining()) {
+            channel.write(header);
+        }
+
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "mutation-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleWithFixedDelay(this::flushQuietly, maxDelayMillis, maxDelayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Appends the addition of a person.
+     *
+     * @param person the added person
+     * @return the sequence number of the record
+     */
+    long appendAddPerson(Person person) {
+        long recordSequence;
+        synchronized (this) {
+            try {
+                record.writeUTF(person.getName());
+                record.writeInt(person.getAge());
+                record.writeInt(person.getHobbies().size());
+                for (String hobby : person.getHobbies()) {
+                    record.writeUTF(hobby);
+                }
+            } catch (IOException e) {
+                scratch.reset();
+                throw new UncheckedIOException(e);
+            }
+            recordSequence = append(ADD_PERSON);
+        }
+        syncIfFull();
+        return recordSequence;
+    }
+
+    /**
+     * Appends the removal of a person.
+     *
+     * @param name the name of the removed person
+     * @return the sequence number of the record
+     */
+    long appendRemovePerson(String name) {
+        long recordSequence;
+        synchronized (this) {
+            try {
+                record.writeUTF(name);
+            } catch (IOException e) {
+                scratch.reset();
+                throw new UncheckedIOException(e);
+            }
+            recordSequence = append(REMOVE_PERSON);
+        }
+        syncIfFull();
+        return recordSequence;
+    }
+
+    /**
+     * Appends the addition or removal of a friendship.
+     *
+     * @param op    {@link #ADD_FRIENDSHIP} or {@link #REMOVE_FRIENDSHIP}
+     * @param name1 the name of the first person
+     * @param name2 the name of the second person
+     * @return the sequence number of the record
+     */
+    long appendFriendship(byte op, String name1, String name2) {
+        long recordSequence;
+        synchronized (this) {
+            try {
+                record.writeUTF(name1);
+                record.writeUTF(name2);
+            } catch (IOException e) {
+                scratch.reset();
+                throw new UncheckedIOException(e);
+            }
+            recordSequence = append(op);
+        }
+        syncIfFull();
+        return recordSequence;
+    }
+
+    /**
+     * Returns the sequence number of the last appended record.
+     *
+     * @return the last sequence number
+     */
+    synchronized long lastSequence() {
+        return sequence;
+    }
+
+    /**
+     * Returns the sequence number of the last record known to be on disk.
+     *
+     * @return the last durable sequence number
+     */
+    long syncedSequence() {
+        return syncedSequence;
+    }
+
+    /**
+     * Writes and forces every record appended so far.
+     *
+     * @throws IOException if writing fails
+     */
+    void sync() throws IOException {
+        synchronized (flushLock) {
+            ByteBuffer batch;
+            long upTo;
+            synchronized (this) {
+                if (failure != null) {
+                    throw failure;
+                }
+                if (buffer.position() == 0) {
+                    return;
+                }
+                batch = buffer;
+                buffer = spare;
+                spare = null;
+                upTo = sequence;
+                pendingRecords = 0;
+                flushRequested = false;
+            }
+
+            try {
+                batch.flip();
+                while (batch.hasRemaining()) {
+                    channel.write(batch);
+                }
+                channel.force(false);
+            } catch (IOException e) {
+                synchronized (this) {
+                    failure = e;
+                }
+                throw e;
+            }
+
+            synchronized (this) {
+                batch.clear();
+                spare = batch;
+            }
+            syncedSequence = upTo;
+        }
+    }
+
+    /**
+     * Forces the remaining records and closes the segment.
+     *
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void close() throws IOException {
+        flusher.shutdown();
+        try {
+            sync();
+        } finally {
+            channel.close();
+        }
+    }
+
+    /**
+     * Replays the records of a segment into a graph, skipping those covered by
+     * a checkpoint. A torn or corrupt record ends the segment: the file is
+     * truncated just before it so later appends start from a clean end. A
+     * record length that runs past the end of the file or over the largest
+     * record ever written is corrupt too, and is never allocated.
+     *
+     * @param file          the segment
+     * @param afterSequence the last sequence number already in the graph
+     * @param graph         the graph to apply the records to
+     * @return the sequence number of the last record read, or afterSequence
+     *         if the segment holds no newer record
+     * @throws IOException if reading fails
+     */
+    static long replay(Path file, long afterSequence, SocialNetworkGraph graph) throws IOException {
+        long last = afterSequence;
+        long validBytes = HEADER_BYTES;
+        long fileBytes = Files.size(file);
+        CRC32 checksum = new CRC32();
+        try (DataInputStream in = new DataInputStream(
+                new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a mutation log: " + file);
+            }
+            while (true) {
+                int length = in.readInt();
+                int expected = in.readInt();
+                if (length < 9 || length > MAX_RECORD_BYTES
+                        || length > fileBytes - validBytes - RECORD_HEADER_BYTES) {
+                    break;
+                }
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+                checksum.reset();
+                checksum.update(payload);
+                if ((int) checksum.getValue() != expected) {
+                    break;
+                }
+
+                DataInputStream fields = new DataInputStream(new ByteArrayInputStream(payload));
+                long recordSequence = fields.readLong();
+                byte op = fields.readByte();
+                if (recordSequence > afterSequence) {
+                    apply(op, fields, graph);
+                    last = recordSequence;
+                }
+                validBytes += RECORD_HEADER_BYTES + length;
+            }
+        } catch (EOFException e) {
+            // The last record was cut short by a crash
+        }
+
+        if (fileBytes > validBytes) {
+            try (FileChannel truncate = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                truncate.truncate(validBytes);
+                truncate.force(true);
+            }
+        }
+        return last;
+    }
+
+    private static void apply(byte op, DataInputStream fields, SocialNetworkGraph graph) throws IOException {
+        if (op == ADD_PERSON) {
+            String name = fields.readUTF();
+            int age = fields.readInt();
+            int hobbyCount = fields.readInt();
+            List<String> hobbies = new ArrayList<>(hobbyCount);
+            for (int i = 0; i < hobbyCount; i++) {
+                hobbies.add(fields.readUTF());
+            }
+            graph.addPeople(Collections.singletonList(new Person(name, age, hobbies)));
+        } else if (op == REMOVE_PERSON) {
+            graph.deletePerson(fields.readUTF());
+        } else if (op == ADD_FRIENDSHIP || op == REMOVE_FRIENDSHIP) {
+            Person person1 = graph.people.get(fields.readUTF());
+            Person person2 = graph.people.get(fields.readUTF());
+            if (person1 == null || person2 == null) {
+                throw new IOException("Mutation log refers to an unknown person.");
+            }
+            if (op == ADD_FRIENDSHIP) {
+                graph.linkFriends(person1, person2);
+            } else {
+                graph.unlinkFriends(person1, person2);
+            }
+        } else {
+            throw new IOException("Unknown mutation type: " + op);
+        }
+    }
+
+    /**
+     * Frames the record encoded in the scratch stream and adds it to the
+     * buffer. Called while holding this.
+     */
+    private long append(byte op) {
+        byte[] fields = scratch.toByteArray();
+        scratch.reset();
+        if (failure != null) {
+            throw new UncheckedIOException(failure);
+        }
+        if (9 + fields.length > MAX_RECORD_BYTES) {
+            throw new IllegalArgumentException("Mutation is too large to log.");
+        }
+
+        long recordSequence = ++sequence;
+        int length = 9 + fields.length;
+        ensureRoom(RECORD_HEADER_BYTES + length);
+        int start = buffer.position();
+        buffer.putInt(length);
+        buffer.putInt(0);
+        buffer.putLong(recordSequence);
+        buffer.put(op);
+        buffer.put(fields);
+
+        // Checksum the payload in place and fill in the reserved slot
+        crc.reset();
+        crc.update(buffer.array(), start + RECORD_HEADER_BYTES, length);
+        buffer.putInt(start + 4, (int) crc.getValue());
+
+        pendingRecords++;
+        return recordSequence;
+    }
+
+    private void ensureRoom(int bytes) {
+        if (buffer.remaining() < bytes) {
+            ByteBuffer grown = ByteBuffer.allocate(Math.max(2 * buffer.capacity(), buffer.position() + bytes));
+            buffer.flip();
+            grown.put(buffer);
+            buffer = grown;
+        }
+    }
+
+    /**
+     * Hands a full group to the flusher thread, so the writer keeps appending
+     * while it is forced; everything appended meanwhile joins the next group.
+     * Only a writer that gets far ahead of the disk waits for a flush itself.
+     * Called without holding this, so the flusher can finish a group it has
+     * started.
+     */
+    private void syncIfFull() {
+        boolean full;
+        boolean backlogged;
+        synchronized (this) {
+            full = pendingRecords >= groupSize && !flushRequested;
+            backlogged = pendingRecords >= BACKLOG_GROUPS * groupSize;
+            if (full) {
+                flushRequested = true;
+            }
+        }
+        if (backlogged) {
+            try {
+                sync();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        } else if (full) {
+            flusher.execute(this::flushQuietly);
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            sync();
+        } catch (IOException e) {
+            // Kept in failure and reported by the next append
+        }
+    }
+}
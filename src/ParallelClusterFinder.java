@@ -0,0 +1,231 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Finds the connected components of a {@link GraphSnapshot} on a fork/join
+ * pool. Components are first labelled with a lock-free union-find that
+ * processes vertex ranges in parallel, then each component is listed by its
+ * own BFS, again spread over the pool.
+ *
+ * <p>The output matches the serial BFS in {@link SocialNetworkGraph}: the
+ * union-find always hangs the larger root under the smaller one, so every
+ * component is rooted at its first vertex in snapshot order, which is the
+ * person the serial scan would start that cluster from.
+ */
+public class ParallelClusterFinder {
+    private static final int VERTEX_GRAIN = 4096;
+    private static final int COMPONENT_GRAIN = 64;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new ParallelClusterFinder object on the common pool.
+     */
+    public ParallelClusterFinder() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new ParallelClusterFinder object.
+     *
+     * @param pool the pool running the work
+     */
+    public ParallelClusterFinder(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Lists the clusters of a snapshot.
+     *
+     * @param snapshot the graph to analyze
+     * @return the clusters, ordered by their first person in snapshot order,
+     *         each listing its members in BFS order
+     */
+    public List<List<Person>> findClusters(GraphSnapshot snapshot) {
+        int n = snapshot.vertexCount();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n);
+        for (int u = 0; u < n; u++) {
+            parent.set(u, u);
+        }
+        pool.invoke(new UnionTask(snapshot, parent, 0, n));
+
+        // Roots are the smallest vertex of every component
+        int[] roots = new int[n];
+        int rootCount = 0;
+        for (int u = 0; u < n; u++) {
+            if (find(parent, u) == u) {
+                roots[rootCount++] = u;
+            }
+        }
+
+        @SuppressWarnings({ "unchecked", "rawtypes" })
+        List<Person>[] clusters = new List[rootCount];
+        pool.invoke(new ListTask(snapshot, roots, clusters, new boolean[n], 0, rootCount));
+        return Arrays.asList(clusters);
+    }
+
+    /**
+     * Returns the root of a vertex, halving the path on the way.
+     *
+     * @param parent the union-find parents
+     * @param x      the vertex
+     * @return the root
+     */
+    private static int find(AtomicIntegerArray parent, int x) {
+        int p;
+        while ((p = parent.get(x)) != x) {
+            int grandparent = parent.get(p);
+            parent.compareAndSet(x, p, grandparent);
+            x = p;
+        }
+        return x;
+    }
+
+    /**
+     * Merges the components of two vertices, hanging the larger root under the
+     * smaller one. Retries if another thread moved either root first.
+     *
+     * @param parent the union-find parents
+     * @param a      the first vertex
+     * @param b      the second vertex
+     */
+    private static void union(AtomicIntegerArray parent, int a, int b) {
+        while (true) {
+            int rootA = find(parent, a);
+            int rootB = find(parent, b);
+            if (rootA == rootB) {
+                return;
+            }
+            int high = Math.max(rootA, rootB);
+            int low = Math.min(rootA, rootB);
+            if (parent.compareAndSet(high, high, low)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Unions every edge of a range of vertices.
+     */
+    private static class UnionTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot snapshot;
+        private final AtomicIntegerArray parent;
+        private final int from;
+        private final int to;
+
+        UnionTask(GraphSnapshot snapshot, AtomicIntegerArray parent, int from, int to) {
+            this.snapshot = snapshot;
+            this.parent = parent;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > VERTEX_GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new UnionTask(snapshot, parent, from, mid),
+                        new UnionTask(snapshot, parent, mid, to));
+                return;
+            }
+            int[] targets = snapshot.targets();
+            for (int u = from; u < to; u++) {
+                int end = snapshot.offset(u) + snapshot.degree(u);
+                for (int i = snapshot.offset(u); i < end; i++) {
+                    // Each friendship is stored twice; union it once
+                    if (targets[i] > u) {
+                        union(parent, u, targets[i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Lists the members of a range of components with one BFS per component.
+     * Components never share vertices, so the visited flags need no locking.
+     */
+    private static class ListTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final GraphSnapshot snapshot;
+        private final int[] roots;
+        private final List<Person>[] clusters;
+        private final boolean[] visited;
+        private final int from;
+        private final int to;
+
+        ListTask(GraphSnapshot snapshot, int[] roots, List<Person>[] clusters, boolean[] visited,
+                int from, int to) {
+            this.snapshot = snapshot;
+            this.roots = roots;
+            this.clusters = clusters;
+            this.visited = visited;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > COMPONENT_GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new ListTask(snapshot, roots, clusters, visited, from, mid),
+                        new ListTask(snapshot, roots, clusters, visited, mid, to));
+                return;
+            }
+            int[] targets = snapshot.targets();
+            IntQueue queue = new IntQueue();
+            for (int c = from; c < to; c++) {
+                List<Person> cluster = new ArrayList<>();
+                queue.clear();
+                queue.add(roots[c]);
+                visited[roots[c]] = true;
+                while (!queue.isEmpty()) {
+                    int current = queue.poll();
+                    cluster.add(snapshot.person(current));
+                    int end = snapshot.offset(current) + snapshot.degree(current);
+                    for (int i = snapshot.offset(current); i < end; i++) {
+                        int neighbor = targets[i];
+                        if (!visited[neighbor]) {
+                            visited[neighbor] = true;
+                            queue.add(neighbor);
+                        }
+                    }
+                }
+                clusters[c] = cluster;
+            }
+        }
+    }
+
+    /**
+     * Growable FIFO queue of ints that is reused across components.
+     */
+    private static class IntQueue {
+        private int[] items = new int[16];
+        private int head;
+        private int tail;
+
+        void add(int value) {
+            if (tail == items.length) {
+                items = Arrays.copyOf(items, items.length * 2);
+            }
+            items[tail++] = value;
+        }
+
+        int poll() {
+            return items[head++];
+        }
+
+        boolean isEmpty() {
+            return head == tail;
+        }
+
+        void clear() {
+            head = 0;
+            tail = 0;
+        }
+    }
+}
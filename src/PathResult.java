@@ -0,0 +1,75 @@
+import java.util.*;
+
+/**
+ * The outcome of a shortest path search: the path itself and how many
+ * vertices the search expanded to find it.
+ */
+public class PathResult {
+    private final List<Person> path;
+    private final int expandedVertices;
+
+    /**
+     * Constructs a new PathResult object.
+     *
+     * @param path             the people on the path from start to end, or an
+     *                         empty list if no path exists
+     * @param expandedVertices the number of vertices whose friends were visited
+     */
+    public PathResult(List<Person> path, int expandedVertices) {
+        this.path = Collections.unmodifiableList(path);
+        this.expandedVertices = expandedVertices;
+    }
+
+    /**
+     * Returns the people on the path, from the start person to the end person.
+     *
+     * @return the path, empty if no path exists
+     */
+    public List<Person> getPath() {
+        return path;
+    }
+
+    /**
+     * Indicates whether a path was found.
+     *
+     * @return true if the two people are connected
+     */
+    public boolean isFound() {
+        return !path.isEmpty();
+    }
+
+    /**
+     * Returns the number of friendships on the path.
+     *
+     * @return the path length, or -1 if no path exists
+     */
+    public int length() {
+        return path.size() - 1;
+    }
+
+    /**
+     * Returns the number of vertices expanded by the search.
+     *
+     * @return the number of expanded vertices
+     */
+    public int getExpandedVertices() {
+        return expandedVertices;
+    }
+
+    /**
+     * Returns the path as names joined by arrows.
+     *
+     * @return a string representation of the path
+     */
+    @Override
+    public String toString() {
+        StringBuilder pathStr = new StringBuilder();
+        for (Person person : path) {
+            if (pathStr.length() > 0) {
+                pathStr.append(" -> ");
+            }
+            pathStr.append(person.getName());
+        }
+        return pathStr.toString();
+    }
+}
@@ -8,6 +8,8 @@ public class Person {
     int age;
     List<String> hobbies;
     Date timestamp;
+    // Dense id assigned by the graph that holds this person, -1 until then
+    int id = -1;
 
     /**
      * Constructs a new Person object.
@@ -35,7 +37,9 @@ public class Person {
     }
 
     /**
-     * Indicates whether some other object is "equal to" this one.
+     * Indicates whether some other object is "equal to" this one. People are
+     * equal when they have the same id, which the graph makes unique per name.
+     * A person that has not been added to a graph yet is only equal to itself.
      *
      * @param obj the reference object with which to compare
      * @return true if this object is the same as the obj argument; false otherwise
@@ -49,7 +53,26 @@ public class Person {
             return false;
         }
         Person other = (Person) obj;
-        return name.equals(other.name) /* && age == other.age && hobbies.equals(other.hobbies) && timestamp.equals(other.timestamp)*/;
+        return id >= 0 && id == other.id;
+    }
+
+    /**
+     * Returns a hash code consistent with {@link #equals(Object)}.
+     *
+     * @return the id of the person, or the identity hash code if it has none
+     */
+    @Override
+    public int hashCode() {
+        return id >= 0 ? id : System.identityHashCode(this);
+    }
+
+    /**
+     * Returns the id assigned by the graph holding this person.
+     *
+     * @return the id, or -1 if the person has not been added to a graph
+     */
+    public int getId() {
+        return id;
     }
 
     /**
@@ -79,4 +102,13 @@ public class Person {
         return hobbies;
     }
 
+    /**
+     * Returns the time the person was added to the network.
+     *
+     * @return the time, or null if the person was added without a timestamp
+     */
+    public Date getTimestamp() {
+        return timestamp;
+    }
+
 }
@@ -0,0 +1,203 @@
+import java.util.*;
+
+/**
+ * Size-bounded LRU cache of friend suggestions keyed by person and number of
+ * suggestions. The graph invalidates entries precisely when a change can
+ * alter a cached result; see {@link SocialNetworkGraph} for the rules.
+ */
+public class RecommendationCache {
+    private final int maxEntries;
+    private final LinkedHashMap<Key, List<Suggestion>> entries;
+    // Cached suggestion counts per person, so a person is invalidated without a scan
+    private final Map<Person, Set<Integer>> keysByPerson = new HashMap<>();
+
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long invalidations;
+
+    /**
+     * Constructs a new RecommendationCache object.
+     *
+     * @param maxEntries the maximum number of cached results
+     */
+    public RecommendationCache(int maxEntries) {
+        if (maxEntries <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive.");
+        }
+        this.maxEntries = maxEntries;
+        this.entries = new LinkedHashMap<Key, List<Suggestion>>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, List<Suggestion>> eldest) {
+                if (size() <= RecommendationCache.this.maxEntries) {
+                    return false;
+                }
+                forgetKey(eldest.getKey());
+                evictions++;
+                return true;
+            }
+        };
+    }
+
+    /**
+     * Returns a cached result and marks it as recently used.
+     *
+     * @param person         the person the suggestions are for
+     * @param maxSuggestions the number of suggestions requested
+     * @return the cached suggestions, or null on a miss
+     */
+    public List<Suggestion> get(Person person, int maxSuggestions) {
+        List<Suggestion> suggestions = entries.get(new Key(person, maxSuggestions));
+        if (suggestions == null) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return suggestions;
+    }
+
+    /**
+     * Stores a result, evicting the least recently used one if the cache is
+     * full.
+     *
+     * @param person         the person the suggestions are for
+     * @param maxSuggestions the number of suggestions requested
+     * @param suggestions    the suggestions to cache; must not be modified
+     *                       afterwards
+     */
+    public void put(Person person, int maxSuggestions, List<Suggestion> suggestions) {
+        keysByPerson.computeIfAbsent(person, p -> new HashSet<>()).add(maxSuggestions);
+        entries.put(new Key(person, maxSuggestions), suggestions);
+    }
+
+    /**
+     * Drops every cached result for a person.
+     *
+     * @param person the person whose results are stale
+     */
+    public void invalidate(Person person) {
+        Set<Integer> counts = keysByPerson.remove(person);
+        if (counts == null) {
+            return;
+        }
+        for (int maxSuggestions : counts) {
+            entries.remove(new Key(person, maxSuggestions));
+            invalidations++;
+        }
+    }
+
+    /**
+     * Drops every cached result for a group of people.
+     *
+     * @param persons the people whose results are stale
+     */
+    public void invalidateAll(Collection<Person> persons) {
+        for (Person person : persons) {
+            invalidate(person);
+        }
+    }
+
+    /**
+     * Drops every cached result.
+     */
+    public void clear() {
+        invalidations += entries.size();
+        entries.clear();
+        keysByPerson.clear();
+    }
+
+    /**
+     * Returns the number of cached results.
+     *
+     * @return the number of entries
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Returns the number of lookups answered from the cache.
+     *
+     * @return the number of hits
+     */
+    public long getHits() {
+        return hits;
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     *
+     * @return the number of misses
+     */
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * Returns the number of results dropped to make room for newer ones.
+     *
+     * @return the number of evictions
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+
+    /**
+     * Returns the number of results dropped because the graph changed.
+     *
+     * @return the number of invalidations
+     */
+    public long getInvalidations() {
+        return invalidations;
+    }
+
+    /**
+     * Returns a summary of the cache counters.
+     *
+     * @return a string representation of the cache
+     */
+    @Override
+    public String toString() {
+        return "RecommendationCache (Size: " + entries.size() + "/" + maxEntries + ", Hits: " + hits
+                + ", Misses: " + misses + ", Evictions: " + evictions + ", Invalidations: " + invalidations + ")";
+    }
+
+    private void forgetKey(Key key) {
+        Set<Integer> counts = keysByPerson.get(key.person);
+        if (counts != null) {
+            counts.remove(key.maxSuggestions);
+            if (counts.isEmpty()) {
+                keysByPerson.remove(key.person);
+            }
+        }
+    }
+
+    /**
+     * Cache key made of a person and a number of suggestions.
+     */
+    private static class Key {
+        final Person person;
+        final int maxSuggestions;
+
+        Key(Person person, int maxSuggestions) {
+            this.person = person;
+            this.maxSuggestions = maxSuggestions;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return person.equals(other.person) && maxSuggestions == other.maxSuggestions;
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * person.hashCode() + maxSuggestions;
+        }
+    }
+}
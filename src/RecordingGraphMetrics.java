@@ -0,0 +1,217 @@
+import java.lang.management.*;
+import javax.management.*;
+
+/**
+ * {@link GraphMetrics} that keeps a {@link LogHistogram} of the latency of
+ * every operation, of the people and friendships each query walked, and of
+ * the candidates each friend suggestion scored. The histograms can be read
+ * directly or through JMX once {@link #register(String)} has been called.
+ *
+ * <p>Queries are timed on every call. The four mutations take well under a
+ * microsecond, so by default only one call in 64 is timed and stands for the
+ * untimed calls before it: their percentiles become estimates from the sample
+ * and their call counts lag by the calls since the last timed one.
+ */
+public class RecordingGraphMetrics implements GraphMetrics, RecordingGraphMetricsMBean {
+    private static final GraphMetrics.Operation[] OPERATIONS = GraphMetrics.Operation.values();
+    private static final int DEFAULT_MUTATION_SAMPLING = 64;
+
+    private final int mutationSampling;
+    private final LogHistogram[] latencies = newHistograms();
+    private final LogHistogram[] verticesVisited = newHistograms();
+    private final LogHistogram[] edgesVisited = newHistograms();
+    private final LogHistogram candidates = new LogHistogram();
+    private volatile long gcMillisAtReset;
+    private volatile long gcCountAtReset;
+
+    /**
+     * Constructs a new RecordingGraphMetrics object that times one mutation
+     * in 64 and every query.
+     */
+    public RecordingGraphMetrics() {
+        this(DEFAULT_MUTATION_SAMPLING);
+    }
+
+    /**
+     * Constructs a new RecordingGraphMetrics object.
+     *
+     * @param mutationSampling time one mutation in this many, 1 for all
+     */
+    public RecordingGraphMetrics(int mutationSampling) {
+        if (mutationSampling <= 0) {
+            throw new IllegalArgumentException("Sampling interval must be positive.");
+        }
+        this.mutationSampling = mutationSampling;
+        gcMillisAtReset = gcMillis();
+        gcCountAtReset = gcCount();
+    }
+
+    @Override
+    public int samplingInterval(Operation operation) {
+        switch (operation) {
+            case ADD_PERSON:
+            case REMOVE_PERSON:
+            case ADD_FRIENDSHIP:
+            case REMOVE_FRIENDSHIP:
+                return mutationSampling;
+            default:
+                return 1;
+        }
+    }
+
+    @Override
+    public void operationCompleted(Operation operation, long nanos, int calls) {
+        latencies[operation.ordinal()].record(nanos, calls);
+    }
+
+    @Override
+    public void traversalCompleted(Operation operation, int vertices, long edges) {
+        verticesVisited[operation.ordinal()].record(vertices);
+        edgesVisited[operation.ordinal()].record(edges);
+    }
+
+    @Override
+    public void candidatesScored(int count) {
+        candidates.record(count);
+    }
+
+    /**
+     * Returns the latencies of an operation.
+     *
+     * @param operation the operation
+     * @return the histogram, in nanoseconds
+     */
+    public LogHistogram latency(Operation operation) {
+        return latencies[operation.ordinal()];
+    }
+
+    /**
+     * Returns the numbers of people a query expanded.
+     *
+     * @param operation the query
+     * @return the histogram
+     */
+    public LogHistogram verticesVisited(Operation operation) {
+        return verticesVisited[operation.ordinal()];
+    }
+
+    /**
+     * Returns the numbers of friend entries a query scanned.
+     *
+     * @param operation the query
+     * @return the histogram
+     */
+    public LogHistogram edgesVisited(Operation operation) {
+        return edgesVisited[operation.ordinal()];
+    }
+
+    /**
+     * Returns the numbers of candidates scored by friend suggestions.
+     *
+     * @return the histogram
+     */
+    public LogHistogram candidates() {
+        return candidates;
+    }
+
+    /**
+     * Publishes these metrics on the platform MBean server.
+     *
+     * @param name the name that tells this graph apart from others
+     * @return the name it was registered under
+     * @throws JMException if the name is malformed or already taken
+     */
+    public ObjectName register(String name) throws JMException {
+        ObjectName objectName = new ObjectName("SocialNetwork:type=GraphMetrics,name=" + ObjectName.quote(name));
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+        return objectName;
+    }
+
+    @Override
+    public String[] getOperationSummaries() {
+        String[] summaries = new String[OPERATIONS.length];
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            LogHistogram latency = latencies[i];
+            String summary = String.format("%s: %d calls, p50 %.1f us, p99 %.1f us, max %.1f us", OPERATIONS[i],
+                    latency.count(), latency.percentile(50) / 1e3, latency.percentile(99) / 1e3,
+                    latency.max() / 1e3);
+            if (verticesVisited[i].count() > 0) {
+                summary += String.format(", %.1f people and %.1f friendships visited per call",
+                        verticesVisited[i].mean(), edgesVisited[i].mean());
+            }
+            summaries[i] = summary;
+        }
+        return summaries;
+    }
+
+    @Override
+    public long getOperationCount(String operation) {
+        return latencies[Operation.valueOf(operation).ordinal()].count();
+    }
+
+    @Override
+    public double getLatencyMicros(String operation, double percentile) {
+        return latencies[Operation.valueOf(operation).ordinal()].percentile(percentile) / 1e3;
+    }
+
+    @Override
+    public double getMeanVerticesVisited(String operation) {
+        return verticesVisited[Operation.valueOf(operation).ordinal()].mean();
+    }
+
+    @Override
+    public double getMeanEdgesVisited(String operation) {
+        return edgesVisited[Operation.valueOf(operation).ordinal()].mean();
+    }
+
+    @Override
+    public double getMeanCandidates() {
+        return candidates.mean();
+    }
+
+    @Override
+    public long getGcMillisSinceReset() {
+        return gcMillis() - gcMillisAtReset;
+    }
+
+    @Override
+    public long getGcCountSinceReset() {
+        return gcCount() - gcCountAtReset;
+    }
+
+    @Override
+    public void reset() {
+        for (int i = 0; i < OPERATIONS.length; i++) {
+            latencies[i].reset();
+            verticesVisited[i].reset();
+            edgesVisited[i].reset();
+        }
+        candidates.reset();
+        gcMillisAtReset = gcMillis();
+        gcCountAtReset = gcCount();
+    }
+
+    private static LogHistogram[] newHistograms() {
+        LogHistogram[] histograms = new LogHistogram[OPERATIONS.length];
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LogHistogram();
+        }
+        return histograms;
+    }
+
+    private static long gcMillis() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionTime());
+        }
+        return total;
+    }
+
+    private static long gcCount() {
+        long total = 0;
+        for (GarbageCollectorMXBean collector : ManagementFactory.getGarbageCollectorMXBeans()) {
+            total += Math.max(0, collector.getCollectionCount());
+        }
+        return total;
+    }
+}
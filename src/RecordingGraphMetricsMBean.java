@@ -0,0 +1,75 @@
+/**
+ * Management interface of {@link RecordingGraphMetrics}, as seen in JConsole
+ * or any other JMX client. Operations are named as in
+ * {@link GraphMetrics.Operation}, for example {@code FIND_SHORTEST_PATH}.
+ */
+public interface RecordingGraphMetricsMBean {
+
+    /**
+     * Returns one line per operation with its call count, latency percentiles
+     * and the average amount of the graph it walked.
+     *
+     * @return the summaries
+     */
+    String[] getOperationSummaries();
+
+    /**
+     * Returns the number of calls of an operation.
+     *
+     * @param operation the name of the operation
+     * @return the number of calls since the last reset
+     */
+    long getOperationCount(String operation);
+
+    /**
+     * Returns a latency percentile of an operation.
+     *
+     * @param operation  the name of the operation
+     * @param percentile the percentile, from 0 to 100
+     * @return the latency, in microseconds
+     */
+    double getLatencyMicros(String operation, double percentile);
+
+    /**
+     * Returns the average number of people a query expanded.
+     *
+     * @param operation the name of the query
+     * @return the average per call
+     */
+    double getMeanVerticesVisited(String operation);
+
+    /**
+     * Returns the average number of friend entries a query scanned.
+     *
+     * @param operation the name of the query
+     * @return the average per call
+     */
+    double getMeanEdgesVisited(String operation);
+
+    /**
+     * Returns the average number of candidates scored per friend suggestion.
+     *
+     * @return the average per suggestion that was not served from a cache
+     */
+    double getMeanCandidates();
+
+    /**
+     * Returns the time the garbage collectors spent since the last reset, to
+     * compare with the latencies.
+     *
+     * @return the collection time, in milliseconds
+     */
+    long getGcMillisSinceReset();
+
+    /**
+     * Returns the number of garbage collections since the last reset.
+     *
+     * @return the number of collections
+     */
+    long getGcCountSinceReset();
+
+    /**
+     * Forgets everything recorded so far.
+     */
+    void reset();
+}
@@ -0,0 +1,153 @@
+import java.util.*;
+
+/**
+ * Measures how renumbering the vertices of a {@link GraphSnapshot} with
+ * {@link VertexReordering} changes the speed of traversals, on graphs of 1M
+ * people and 10M neighbor entries, far larger than the processor caches.
+ * The people are numbered at random first. For each numbering it reports
+ * the average log2 of the gap between the numbers of two friends, the time
+ * to renumber, and the time of three traversals whose speed is dominated by
+ * cache misses: a BFS over every component, PageRank and triangle counting.
+ * The live graph's own BFS over Person objects, as run by
+ * {@link SocialNetworkGraph#countClusters()}, is the first row.
+ */
+public class ReorderingBenchmark {
+    private static final int ROUNDS = 3;
+
+    /**
+     * Builds the graphs and prints the timings of every numbering.
+     *
+     * @param args optional number of people, 1000000 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        System.out.printf("%-12s %-22s %10s %10s %10s %10s %10s%n", "graph", "numbering", "log2 gap", "reorder ms",
+                "bfs ms", "rank ms", "tri ms");
+        run("barabasi", SyntheticGraphs.barabasiAlbert(n, 5, 42), n);
+        run("communities", SyntheticGraphs.communities(n, n / 100, 10, 0.1, 42), n);
+    }
+
+    private static void run(String graphName, int[] generated, int n) {
+        Random random = new Random(42);
+        // Number the people at random, as if they had joined in an order
+        // unrelated to who their friends are
+        int[] label = new int[n];
+        for (int u = 0; u < n; u++) {
+            label[u] = u;
+        }
+        for (int u = n - 1; u > 0; u--) {
+            int v = random.nextInt(u + 1);
+            int swap = label[u];
+            label[u] = label[v];
+            label[v] = swap;
+        }
+        int[] edges = new int[generated.length];
+        for (int i = 0; i < edges.length; i++) {
+            edges[i] = label[generated[i]];
+        }
+        List<Person> batch = new ArrayList<>(n);
+        for (int u = 0; u < n; u++) {
+            batch.add(new Person(SyntheticGraphs.name(u), 18 + u % 60, SyntheticGraphs.hobbies(random)));
+        }
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        graph.addPeople(batch);
+        batch = null;
+        graph.addFriendships(() -> new Iterator<String[]>() {
+            private int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < edges.length;
+            }
+
+            @Override
+            public String[] next() {
+                String[] pair = { SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]) };
+                i += 2;
+                return pair;
+            }
+        });
+
+        double liveMillis = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = System.nanoTime();
+            graph.countClusters();
+            liveMillis = (System.nanoTime() - start) / 1e6;
+        }
+        System.out.printf("%-12s %-22s %10s %10s %10.0f %10s %10s%n", graphName, "live graph", "", "", liveMillis, "",
+                "");
+
+        GraphSnapshot original = GraphSnapshot.of(graph);
+        // Only snapshots are measured from here on; collect the graph so that
+        // the collector does not walk it during the measurements
+        graph = null;
+        System.gc();
+        measure(graphName, "people order", original, 0);
+        for (VertexReordering.Order order : VertexReordering.Order.values()) {
+            GraphSnapshot reordered = null;
+            double reorderMillis = 0;
+            for (int round = 0; round < ROUNDS; round++) {
+                reordered = null;
+                long start = System.nanoTime();
+                reordered = VertexReordering.reorder(original, order);
+                reorderMillis = (System.nanoTime() - start) / 1e6;
+            }
+            measure(graphName, order.toString().toLowerCase(), reordered, reorderMillis);
+        }
+    }
+
+    private static void measure(String label, String numbering, GraphSnapshot snapshot, double reorderMillis) {
+        double bfsMillis = 0;
+        double pageRankMillis = 0;
+        double triangleMillis = 0;
+        CentralityAnalyzer analyzer = new CentralityAnalyzer();
+        TriangleCounter counter = new TriangleCounter();
+        for (int round = 0; round < ROUNDS; round++) {
+            // The last round is measured, the others warm up
+            long start = System.nanoTime();
+            traverse(snapshot);
+            bfsMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            analyzer.pageRank(snapshot, 0.85, 1e-6, 100);
+            pageRankMillis = (System.nanoTime() - start) / 1e6;
+            start = System.nanoTime();
+            counter.count(snapshot);
+            triangleMillis = (System.nanoTime() - start) / 1e6;
+        }
+        System.out.printf("%-12s %-22s %10.1f %10.0f %10.0f %10.0f %10.0f%n", label, numbering,
+                VertexReordering.averageLogGap(snapshot), reorderMillis, bfsMillis, pageRankMillis, triangleMillis);
+    }
+
+    /**
+     * Runs a BFS from every vertex not reached yet, as the cluster search
+     * does, and returns the number of components.
+     */
+    private static int traverse(GraphSnapshot snapshot) {
+        int n = snapshot.vertexCount();
+        int[] targets = snapshot.targets();
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        int components = 0;
+        for (int s = 0; s < n; s++) {
+            if (visited[s]) {
+                continue;
+            }
+            components++;
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = s;
+            visited[s] = true;
+            while (head < tail) {
+                int current = queue[head++];
+                int end = snapshot.offset(current) + snapshot.degree(current);
+                for (int i = snapshot.offset(current); i < end; i++) {
+                    if (!visited[targets[i]]) {
+                        visited[targets[i]] = true;
+                        queue[tail++] = targets[i];
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
@@ -0,0 +1,203 @@
+import java.io.*;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Measures the requests per second and tail latency of a {@link GraphServer}
+ * on localhost. The generator starts a server on a free port, fills it with a
+ * Barabasi-Albert graph through the protocol itself, and then runs a fixed
+ * mix of requests from several client connections: 40% suggestions, 25% new
+ * friendships, 25% removed friendships and 10% shortest paths.
+ *
+ * <p>Each connection keeps a window of pipelined requests in flight: it
+ * writes the whole window, flushes once, and then reads the responses. The
+ * latency of a request runs from the flush that sent it to the arrival of its
+ * response, so it includes the time spent queued behind the requests ahead of
+ * it in the window.
+ */
+public class ServerLoadGenerator {
+    private static final int EDGES_PER_PERSON = 5;
+    private static final int MAX_SUGGESTIONS = 10;
+    private static final int WARMUP_SECONDS = 2;
+
+    /**
+     * Runs the load and prints the throughput and latency percentiles.
+     *
+     * @param args optional {@code --concurrent} to serve a
+     *             {@link ConcurrentSocialNetworkGraph} rather than a
+     *             {@link SocialNetworkGraph}, followed by optional number of
+     *             connections, pipeline depth, seconds to measure and number
+     *             of people
+     * @throws Exception if the server cannot be started or a connection fails
+     */
+    public static void main(String[] args) throws Exception {
+        List<String> options = new ArrayList<>(Arrays.asList(args));
+        boolean concurrent = options.remove("--concurrent");
+        int connections = options.size() > 0 ? Integer.parseInt(options.get(0)) : 16;
+        int depth = options.size() > 1 ? Integer.parseInt(options.get(1)) : 16;
+        int seconds = options.size() > 2 ? Integer.parseInt(options.get(2)) : 10;
+        int people = options.size() > 3 ? Integer.parseInt(options.get(3)) : 10_000;
+
+        SocialNetwork network = concurrent ? new ConcurrentSocialNetworkGraph() : new SocialNetworkGraph();
+        try (GraphServer server = new GraphServer(network, 0)) {
+            System.out.println("Server on port " + server.getPort() + " with "
+                    + (server.usesVirtualThreads() ? "virtual threads" : "a thread pool") + ", "
+                    + network.getClass().getSimpleName());
+
+            long loadStart = System.nanoTime();
+            int loaded = populate(server.getPort(), people);
+            System.out.printf("Loaded %d people and %d requests in %.1f s%n", people, loaded,
+                    (System.nanoTime() - loadStart) / 1e9);
+
+            run(server.getPort(), connections, depth, WARMUP_SECONDS, people, null);
+            LogHistogram latencies = new LogHistogram();
+            long measureStart = System.nanoTime();
+            long requests = run(server.getPort(), connections, depth, seconds, people, latencies);
+            double elapsed = (System.nanoTime() - measureStart) / 1e9;
+
+            System.out.printf("%d connections, pipeline depth %d, %d requests in %.1f s%n", connections, depth,
+                    requests, elapsed);
+            System.out.printf("%.0f requests/s, latency us: p50 %.0f, p90 %.0f, p99 %.0f, p99.9 %.0f, max %.0f%n",
+                    requests / elapsed, latencies.percentile(50) / 1e3, latencies.percentile(90) / 1e3,
+                    latencies.percentile(99) / 1e3, latencies.percentile(99.9) / 1e3, latencies.max() / 1e3);
+        }
+    }
+
+    /**
+     * Adds the people and friendships of a Barabasi-Albert graph over one
+     * connection, pipelining in large windows.
+     *
+     * @return the number of requests sent
+     */
+    private static int populate(int port, int people) throws IOException {
+        Random random = new Random(42);
+        List<String> requests = new ArrayList<>();
+        for (int u = 0; u < people; u++) {
+            requests.add("ADD_PERSON\t" + SyntheticGraphs.name(u) + "\t" + (18 + u % 60) + "\t"
+                    + String.join(",", SyntheticGraphs.hobbies(random)));
+        }
+        int[] edges = SyntheticGraphs.barabasiAlbert(people, EDGES_PER_PERSON, 42);
+        for (int i = 0; i < edges.length; i += 2) {
+            requests.add("ADD_FRIENDSHIP\t" + SyntheticGraphs.name(edges[i]) + "\t"
+                    + SyntheticGraphs.name(edges[i + 1]));
+        }
+
+        try (Connection connection = new Connection(port)) {
+            for (int start = 0; start < requests.size(); start += 1024) {
+                List<String> window = requests.subList(start, Math.min(requests.size(), start + 1024));
+                for (String request : window) {
+                    connection.send(request);
+                }
+                connection.flush();
+                for (int i = 0; i < window.size(); i++) {
+                    connection.receive();
+                }
+            }
+        }
+        return requests.size();
+    }
+
+    /**
+     * Runs the request mix from several connections for a while.
+     *
+     * @param latencies where to record latencies, or null during warmup
+     * @return the number of requests answered
+     */
+    private static long run(int port, int connections, int depth, int seconds, int people,
+            LogHistogram latencies) throws Exception {
+        long deadline = System.nanoTime() + seconds * 1_000_000_000L;
+        AtomicLong answered = new AtomicLong();
+        List<Thread> clients = new ArrayList<>();
+        Exception[] failure = new Exception[1];
+        for (int c = 0; c < connections; c++) {
+            Random random = new Random(c);
+            Thread client = new Thread(() -> {
+                try (Connection connection = new Connection(port)) {
+                    while (System.nanoTime() < deadline) {
+                        for (int i = 0; i < depth; i++) {
+                            connection.send(nextRequest(random, people));
+                        }
+                        connection.flush();
+                        long sent = System.nanoTime();
+                        for (int i = 0; i < depth; i++) {
+                            connection.receive();
+                            if (latencies != null) {
+                                latencies.record(System.nanoTime() - sent);
+                            }
+                        }
+                        answered.addAndGet(depth);
+                    }
+                } catch (IOException e) {
+                    synchronized (failure) {
+                        failure[0] = e;
+                    }
+                }
+            }, "load-client-" + c);
+            clients.add(client);
+            client.start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        if (failure[0] != null) {
+            throw failure[0];
+        }
+        return answered.get();
+    }
+
+    private static String nextRequest(Random random, int people) {
+        String a = SyntheticGraphs.name(random.nextInt(people));
+        String b = SyntheticGraphs.name(random.nextInt(people));
+        int kind = random.nextInt(100);
+        if (kind < 40) {
+            return "SUGGEST\t" + a + "\t" + MAX_SUGGESTIONS;
+        } else if (kind < 65) {
+            return "ADD_FRIENDSHIP\t" + a + "\t" + b;
+        } else if (kind < 90) {
+            return "REMOVE_FRIENDSHIP\t" + a + "\t" + b;
+        }
+        return "PATH\t" + a + "\t" + b;
+    }
+
+    /**
+     * A client connection to the server.
+     */
+    private static class Connection implements Closeable {
+        private final Socket socket;
+        private final BufferedReader in;
+        private final Writer out;
+
+        Connection(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setTcpNoDelay(true);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8),
+                    1 << 16);
+            out = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8),
+                    1 << 16);
+        }
+
+        void send(String request) throws IOException {
+            out.write(request);
+            out.write('\n');
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+
+        String receive() throws IOException {
+            String response = in.readLine();
+            if (response == null) {
+                throw new EOFException("Server closed the connection");
+            }
+            return response;
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+}
@@ -0,0 +1,157 @@
+import java.util.*;
+
+/**
+ * Compares exact mutual friend counts with estimates from friend sketches of
+ * several sizes on a Barabasi-Albert graph, whose hubs have thousands of
+ * friends. For pairs of people two hops apart, and for pairs of hubs, it
+ * reports the mean relative error and the time per pair. For friend
+ * suggestions it reports the time per call and the share of the
+ * approximate top ten whose exact score reaches the exact tenth best, so
+ * that swapping people with equal scores does not count as a miss.
+ */
+public class SketchAccuracyBenchmark {
+    private static final int[] SKETCH_SIZES = { 16, 64, 256 };
+    private static final int PAIRS = 20_000;
+    private static final int HUBS = 200;
+    private static final int SUGGESTIONS = 300;
+    private static final int TOP = 10;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Builds the graph and prints the accuracy and speed of each sketch size.
+     *
+     * @param args optional number of people and friendships per new person,
+     *             20000 and 50 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int perVertex = args.length > 1 ? Integer.parseInt(args[1]) : 50;
+        int[] edges = SyntheticGraphs.barabasiAlbert(n, perVertex, 42);
+        Random random = new Random(42);
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        for (int u = 0; u < n; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 18 + u % 60, SyntheticGraphs.hobbies(random));
+        }
+        for (int i = 0; i < edges.length; i += 2) {
+            graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+        }
+
+        // Pairs two hops apart: a random person and a friend of a random friend
+        String[][] twoHops = new String[2][PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            String name = SyntheticGraphs.name(random.nextInt(n));
+            List<Person> friends = new ArrayList<>(graph.friendships.get(graph.getPerson(name)));
+            Person friend = friends.get(random.nextInt(friends.size()));
+            List<Person> friendsOfFriend = new ArrayList<>(graph.friendships.get(friend));
+            twoHops[0][i] = name;
+            twoHops[1][i] = friendsOfFriend.get(random.nextInt(friendsOfFriend.size())).getName();
+        }
+        // Pairs of the people with the most friends
+        List<Person> byDegree = new ArrayList<>(graph.friendships.keySet());
+        byDegree.sort((a, b) -> graph.friendships.get(b).size() - graph.friendships.get(a).size());
+        String[][] hubs = new String[2][PAIRS];
+        for (int i = 0; i < PAIRS; i++) {
+            hubs[0][i] = byDegree.get(random.nextInt(HUBS)).getName();
+            hubs[1][i] = byDegree.get(random.nextInt(HUBS)).getName();
+        }
+        System.out.printf("%d people, %d friendships, %d to %d friends among the top %d%n", n, edges.length / 2,
+                graph.friendships.get(byDegree.get(HUBS - 1)).size(), graph.friendships.get(byDegree.get(0)).size(),
+                HUBS);
+        String[] sources = new String[SUGGESTIONS];
+        for (int i = 0; i < SUGGESTIONS; i++) {
+            sources[i] = SyntheticGraphs.name(random.nextInt(n));
+        }
+
+        int[] exactTwoHops = new int[PAIRS];
+        int[] exactHubs = new int[PAIRS];
+        double twoHopNanos = timeExact(graph, twoHops, exactTwoHops);
+        double hubNanos = timeExact(graph, hubs, exactHubs);
+        double[] tenthBest = new double[SUGGESTIONS];
+        double suggestMicros = timeSuggestions(graph, sources, tenthBest, null);
+
+        System.out.printf("%-8s %13s %13s %13s %13s %13s %13s%n", "sketch", "2-hop err %", "2-hop ns",
+                "hub err %", "hub ns", "suggest us", "top-" + TOP + " hit");
+        System.out.printf("%-8s %13.1f %13.0f %13.1f %13.0f %13.1f %13.2f%n", "exact", 0.0, twoHopNanos, 0.0,
+                hubNanos, suggestMicros, 1.0);
+        for (int size : SKETCH_SIZES) {
+            graph.setApproximateScoring(size);
+            double[] twoHop = timeEstimates(graph, twoHops, exactTwoHops);
+            double[] hub = timeEstimates(graph, hubs, exactHubs);
+            double[] hits = new double[1];
+            suggestMicros = timeSuggestions(graph, sources, tenthBest, hits);
+            System.out.printf("%-8d %13.1f %13.0f %13.1f %13.0f %13.1f %13.2f%n", size, twoHop[0], twoHop[1],
+                    hub[0], hub[1], suggestMicros, hits[0]);
+        }
+        graph.setApproximateScoring(0);
+    }
+
+    private static double timeExact(SocialNetworkGraph graph, String[][] pairs, int[] counts) {
+        double nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            long begin = System.nanoTime();
+            for (int i = 0; i < counts.length; i++) {
+                counts[i] = graph.countMutualFriends(pairs[0][i], pairs[1][i]);
+            }
+            nanos = (double) (System.nanoTime() - begin) / counts.length;
+        }
+        return nanos;
+    }
+
+    /**
+     * Returns the mean relative error in percent and the time per pair.
+     */
+    private static double[] timeEstimates(SocialNetworkGraph graph, String[][] pairs, int[] exact) {
+        double error = 0;
+        double nanos = 0;
+        for (int round = 0; round < ROUNDS; round++) {
+            error = 0;
+            long begin = System.nanoTime();
+            for (int i = 0; i < exact.length; i++) {
+                double estimate = graph.estimateMutualFriends(pairs[0][i], pairs[1][i]);
+                error += Math.abs(estimate - exact[i]) / Math.max(1, exact[i]);
+            }
+            nanos = (double) (System.nanoTime() - begin) / exact.length;
+        }
+        return new double[] { 100 * error / exact.length, nanos };
+    }
+
+    /**
+     * Times the suggestions for every source. Exact runs record the tenth
+     * best score of every source; approximate runs pass hits, which receives
+     * the share of suggestions whose exact score reaches it.
+     */
+    private static double timeSuggestions(SocialNetworkGraph graph, String[] sources, double[] tenthBest,
+            double[] hits) {
+        double micros = 0;
+        List<List<Suggestion>> results = new ArrayList<>();
+        for (int round = 0; round < ROUNDS; round++) {
+            results.clear();
+            long begin = System.nanoTime();
+            for (String source : sources) {
+                results.add(graph.suggestFriends(source, TOP));
+            }
+            micros = (System.nanoTime() - begin) / 1e3 / sources.length;
+        }
+        int good = 0;
+        int total = 0;
+        for (int i = 0; i < sources.length; i++) {
+            List<Suggestion> suggestions = results.get(i);
+            if (hits == null) {
+                tenthBest[i] = suggestions.isEmpty() ? 0 : suggestions.get(suggestions.size() - 1).getScore();
+                continue;
+            }
+            for (Suggestion suggestion : suggestions) {
+                double exactScore = graph.countMutualFriends(sources[i], suggestion.getPerson().getName())
+                        + suggestion.getCommonHobbies() / 2.0;
+                if (exactScore >= tenthBest[i]) {
+                    good++;
+                }
+                total++;
+            }
+        }
+        if (hits != null) {
+            hits[0] = total == 0 ? 1 : (double) good / total;
+        }
+        return micros;
+    }
+}
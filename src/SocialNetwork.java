@@ -0,0 +1,86 @@
+import java.util.*;
+
+/**
+ * Common operations of a social network backend. Callers such as {@link Main}
+ * can switch between implementations without changing how they use the graph.
+ * No operation prints anything; every outcome is returned to the caller.
+ */
+public interface SocialNetwork {
+
+    /**
+     * Adds a person to the social network.
+     *
+     * @param name    the name of the person
+     * @param age     the age of the person
+     * @param hobbies the hobbies of the person
+     * @return true if the person was added, false if the name is taken
+     */
+    boolean addPerson(String name, int age, List<String> hobbies);
+
+    /**
+     * Removes a person from the social network.
+     *
+     * @param name the name of the person to be removed
+     * @return true if the person was removed, false if not found
+     */
+    boolean removePerson(String name);
+
+    /**
+     * Adds a friendship between two people in the social network. A person
+     * cannot befriend themselves: every backend rejects a friendship whose two
+     * names are the same.
+     *
+     * @param name1 the name of the first person
+     * @param name2 the name of the second person
+     * @return true if the friendship was added, false if a person was not
+     *         found, the two names are the same person or the two are
+     *         already friends
+     */
+    boolean addFriendship(String name1, String name2);
+
+    /**
+     * Removes a friendship between two people in the social network.
+     *
+     * @param name1 the name of the first person
+     * @param name2 the name of the second person
+     * @return true if the friendship was removed, false if a person was not
+     *         found or the two are not friends
+     */
+    boolean removeFriendship(String name1, String name2);
+
+    /**
+     * Returns the person with the given name.
+     *
+     * @param name the name of the person
+     * @return the person, or null if not found
+     */
+    Person getPerson(String name);
+
+    /**
+     * Finds the shortest path between two people.
+     *
+     * @param startName the name of the starting person
+     * @param endName   the name of the ending person
+     * @return the people on the path from start to end, or empty if a person
+     *         was not found or the two are not connected
+     */
+    Optional<List<Person>> findShortestPath(String startName, String endName);
+
+    /**
+     * Finds the clusters of the social network.
+     *
+     * @return the clusters
+     */
+    ClusterResult countClusters();
+
+    /**
+     * Suggests friends for a given person based on mutual friends and common
+     * hobbies.
+     *
+     * @param name           the name of the person
+     * @param maxSuggestions the maximum number of friend suggestions
+     * @return the suggestions, best first, or an empty list if the person was
+     *         not found
+     */
+    List<Suggestion> suggestFriends(String name, int maxSuggestions);
+}
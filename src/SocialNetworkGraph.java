@@ -1,12 +1,62 @@
+import java.io.IOException;
+import java.nio.file.Path;
 import java.util.*;
 
 /**
  * This class represents a social network graph where each person is a node and
  * friendships are edges.
  */
-public class SocialNetworkGraph {
+public class SocialNetworkGraph implements SocialNetwork {
+    private static final double PAGE_RANK_DAMPING = 0.85;
+    private static final double PAGE_RANK_TOLERANCE = 1e-6;
+    private static final int PAGE_RANK_MAX_ITERATIONS = 100;
+    private static final long BETWEENNESS_SEED = 42;
+
     Map<String, Person> people = new HashMap<>();
-    Map<Person, List<Person>> friendships = new HashMap<>();
+    // Insertion-ordered sets give constant-time membership checks and removals
+    // while keeping friends in the order they were added
+    Map<Person, Set<Person>> friendships = new HashMap<>();
+    // Person of every id handed out so far, null once that person is removed
+    List<Person> personsById = new ArrayList<>();
+    boolean bidirectionalSearch = false;
+    boolean parallelClustering = false;
+    // Numbering of the snapshots that centrality and triangles run on, null
+    // to keep the iteration order of the people
+    VertexReordering.Order snapshotOrder = null;
+
+    // Connected components over person ids, kept up to date on additions and
+    // rebuilt lazily on the first query after a removal
+    DisjointSet clusters = new DisjointSet();
+    boolean clustersStale = false;
+
+    HobbyIndex hobbyIndex = new HobbyIndex();
+    // Copy-on-write history of the friend sets for open snapshots
+    VersionedAdjacency versions = new VersionedAdjacency();
+    RecommendationCache recommendationCache = null;
+    // Durable log of the mutations, null unless the graph was opened from a store
+    GraphStore store = null;
+    // Receiver of latencies and traversal sizes, null while instrumentation is off
+    GraphMetrics metrics = null;
+    // Per operation: time one call in this many, and calls since the last timed one
+    int[] samplingIntervals = new int[GraphMetrics.Operation.values().length];
+    int[] untimedCalls = new int[GraphMetrics.Operation.values().length];
+    // Time stamped on changes, in milliseconds; Long.MIN_VALUE until a
+    // timestamp is given
+    long clock = Long.MIN_VALUE;
+    // Time-stamped friend lists and change log, null while history tracking is off
+    TemporalAdjacency history = null;
+    // Bottom-k friend sketches for approximate scoring, null while it is off
+    FriendSketches sketches = null;
+    // Triangle counts kept up to date on every change, null while triangle
+    // tracking is off, and recounted on the next query after a restore
+    TriangleIndex triangles = null;
+    boolean trianglesStale = false;
+    // Snapshot searched by the distance queries, the vertex of every person id
+    // in it and the search reused over it; built on the first query after a
+    // change, null until then
+    GraphSnapshot searchSnapshot = null;
+    int[] searchVertexOf = null;
+    FrontierSearch frontierSearch = null;
 
     /**
      * Adds a person to the social network.
@@ -14,46 +64,219 @@ public class SocialNetworkGraph {
      * @param name    the name of the person
      * @param age     the age of the person
      * @param hobbies the hobbies of the person
+     * @return true if the person was added, false if the name is taken
      */
-    public void addPerson(String name, int age, List<String> hobbies) {
-        Person newPerson = new Person(name, age, hobbies);
-        String key = name;
+    public boolean addPerson(String name, int age, List<String> hobbies) {
+        long startNanos = startTiming(GraphMetrics.Operation.ADD_PERSON);
 
         // Check for duplicate entry
-        Iterator<Person> iterator = people.values().iterator();
+        boolean added = !people.containsKey(name);
+        if (added) {
+            // Add the new person to the network
+            Person newPerson = new Person(name, age, hobbies);
+            insertPerson(newPerson);
+            if (recommendationCache != null) {
+                // A new person can only show up as a hobby-only suggestion
+                recommendationCache.invalidateAll(hobbyIndex.countSharing(newPerson).keySet());
+            }
+        }
+        completed(GraphMetrics.Operation.ADD_PERSON, startNanos);
+        return added;
+    }
+
+    /**
+     * Adds a person known not to be in the network yet to every structure
+     * keyed by person.
+     *
+     * @param newPerson the person to add
+     */
+    private void insertPerson(Person newPerson) {
+        if (store != null) {
+            store.logAddPerson(newPerson);
+        }
+        newPerson.id = personsById.size();
+        if (clock != Long.MIN_VALUE) {
+            newPerson.timestamp = new Date(clock);
+        }
+        personsById.add(newPerson);
+        searchSnapshot = null;
+        Set<Person> friends = new LinkedHashSet<>();
+        people.put(newPerson.getName(), newPerson);
+        friendships.put(newPerson, friends);
+        versions.add(newPerson, friends);
+        hobbyIndex.add(newPerson);
+        clusters.add();
+        if (history != null) {
+            history.addPerson(newPerson, clock);
+        }
+    }
+
+    /**
+     * Adds a batch of people without printing anything. People whose name is
+     * already in the network, or earlier in the same batch, are skipped. The
+     * maps are grown once for the whole batch instead of rehashing step by
+     * step, and cached suggestions are dropped once at the end.
+     *
+     * @param batch the people to add
+     * @return the number of people added
+     */
+    public int addPeople(Collection<Person> batch) {
+        ensureCapacity(people.size() + batch.size());
+        int added = 0;
+        Iterator<Person> iterator = batch.iterator();
         while (iterator.hasNext()) {
-            Person person = iterator.next();
-            if (person.equals(newPerson)) {
-                System.out.println("Person already exists: " + person);
-                return;
+            Person newPerson = iterator.next();
+            if (!people.containsKey(newPerson.getName())) {
+                if (newPerson.id >= 0) {
+                    // Already numbered by another graph; ids are per graph
+                    newPerson = new Person(newPerson.getName(), newPerson.getAge(), newPerson.getHobbies());
+                }
+                insertPerson(newPerson);
+                added++;
             }
         }
+        if (added > 0 && recommendationCache != null) {
+            recommendationCache.clear();
+        }
+        return added;
+    }
 
-        // Add the new person to the network
-        people.put(key, newPerson);
-        friendships.put(newPerson, new ArrayList<>());
-        System.out.println("Person added: " + newPerson);
+    /**
+     * Adds a stream of friendships without printing anything. Each friendship
+     * is a pair of names; pairs naming an unknown person, the same person
+     * twice, or people who are already friends are skipped. The adjacency is
+     * built in a single pass over the input, so the friendships may come from
+     * a generator or a file reader and never need to be held in memory at once.
+     *
+     * @param pairs the pairs of names to connect
+     * @return the number of friendships added
+     */
+    public int addFriendships(Iterable<String[]> pairs) {
+        int added = 0;
+        Iterator<String[]> iterator = pairs.iterator();
+        while (iterator.hasNext()) {
+            String[] pair = iterator.next();
+            Person person1 = people.get(pair[0]);
+            Person person2 = people.get(pair[1]);
+            if (person1 != null && person2 != null && person1 != person2 && linkFriends(person1, person2)) {
+                added++;
+            }
+        }
+        if (added > 0 && recommendationCache != null) {
+            recommendationCache.clear();
+        }
+        return added;
+    }
+
+    /**
+     * Grows the maps keyed by person so they can hold the given number of
+     * people without rehashing.
+     *
+     * @param expectedPeople the number of people expected
+     */
+    private void ensureCapacity(int expectedPeople) {
+        int capacity = (int) Math.min(Integer.MAX_VALUE, (long) (expectedPeople / 0.75f) + 1);
+        if (expectedPeople > 2 * people.size()) {
+            Map<String, Person> grownPeople = new HashMap<>(capacity);
+            grownPeople.putAll(people);
+            people = grownPeople;
+            Map<Person, Set<Person>> grownFriendships = new HashMap<>(capacity);
+            grownFriendships.putAll(friendships);
+            friendships = grownFriendships;
+        }
+    }
+
+    /**
+     * Connects two people in both directions and records the union in the
+     * cluster structure.
+     *
+     * @param person1 the first person
+     * @param person2 the second person
+     * @return true if the friendship is new
+     */
+    boolean linkFriends(Person person1, Person person2) {
+        if (friendships.get(person1).contains(person2)) {
+            return false;
+        }
+        if (store != null) {
+            store.logAddFriendship(person1.getName(), person2.getName());
+        }
+        friendsForWrite(person1).add(person2);
+        friendsForWrite(person2).add(person1);
+        if (!clustersStale) {
+            clusters.union(person1.id, person2.id);
+        }
+        if (sketches != null) {
+            sketches.add(person1.id, person2.id);
+            if (person1 != person2) {
+                sketches.add(person2.id, person1.id);
+            }
+        }
+        if (triangles != null) {
+            triangles.link(person1, person2, friendships.get(person1), friendships.get(person2));
+        }
+        if (history != null) {
+            history.link(person1.id, person2.id, clock);
+        }
+        return true;
     }
 
     /**
      * Removes a person from the social network.
      *
      * @param name the name of the person to be removed
-     * 
+     * @return true if the person was removed, false if not found
      */
-    public void removePerson(String name) {
-        Person person = people.remove(name);
-        if (person != null) {
-            friendships.remove(person);
-            Iterator<List<Person>> iterator = friendships.values().iterator();
-            while (iterator.hasNext()) {
-                List<Person> friends = iterator.next();
-                friends.remove(person);
+    public boolean removePerson(String name) {
+        long startNanos = startTiming(GraphMetrics.Operation.REMOVE_PERSON);
+        boolean removed = deletePerson(name) != null;
+        completed(GraphMetrics.Operation.REMOVE_PERSON, startNanos);
+        return removed;
+    }
+
+    /**
+     * Removes a person and all of their friendships.
+     *
+     * @param name the name of the person to be removed
+     * @return the removed person, or null if nobody has that name
+     */
+    Person deletePerson(String name) {
+        Person person = people.get(name);
+        if (person == null) {
+            return null;
+        }
+        if (store != null) {
+            store.logRemovePerson(name);
+        }
+        people.remove(name);
+        searchSnapshot = null;
+        invalidateTwoHops(person);
+        // Only the removed person's friends can reference them
+        if (triangles != null) {
+            triangles.removePerson(person, friendships.get(person), friendships);
+        }
+        Set<Person> friends = friendships.remove(person);
+        Iterator<Person> iterator = friends.iterator();
+        while (iterator.hasNext()) {
+            Person friend = iterator.next();
+            if (friend != person) {
+                friendsForWrite(friend).remove(person);
+                if (sketches != null) {
+                    sketches.remove(friend.id, person.id, friendships.get(friend));
+                }
             }
-            System.out.println("Person removed: " + person);
-        } else {
-            System.out.println("Person not found.");
         }
+        if (sketches != null) {
+            sketches.clear(person.id);
+        }
+        personsById.set(person.id, null);
+        versions.remove(person);
+        clustersStale = true;
+        hobbyIndex.remove(person);
+        if (history != null) {
+            history.removePerson(person, clock);
+        }
+        return person;
     }
 
     /**
@@ -62,26 +285,24 @@ public class SocialNetworkGraph {
      * @param name1 the name of the first person
      * 
      * @param name2 the name of the second person
-     * 
+     * @return true if the friendship was added, false if a person was not
+     *         found, the two names are the same person or the two are
+     *         already friends
      */
-    public void addFriendship(String name1, String name2) {
+    public boolean addFriendship(String name1, String name2) {
+        long startNanos = startTiming(GraphMetrics.Operation.ADD_FRIENDSHIP);
         Person person1 = people.get(name1);
         Person person2 = people.get(name2);
-        if (person1 != null && person2 != null) {
-            List<Person> person1Friends = friendships.get(person1);
-            List<Person> person2Friends = friendships.get(person2);
-            if (!person1Friends.contains(person2) && !person2Friends.contains(person1)) {
-                person1Friends.add(person2);
-                person2Friends.add(person1);
-                System.out.println("Friendship added between " + person1.getName() + " and " + person2.getName());
-            } else {
-                System.out.println("Persons are already friends.");
-            }
-        } else {
-            System.out.println("One or both persons not found in the network.");
+        boolean added = false;
+        // A person cannot befriend themselves, as in the other backends
+        if (person1 != null && person2 != null && !person1.equals(person2)
+                && !friendships.get(person1).contains(person2) && !friendships.get(person2).contains(person1)) {
+            invalidateEndpoints(person1, person2);
+            added = linkFriends(person1, person2);
         }
+        completed(GraphMetrics.Operation.ADD_FRIENDSHIP, startNanos);
+        return added;
     }
-    
 
     /**
      * Removes a friendship between two people in the social network.
@@ -89,24 +310,575 @@ public class SocialNetworkGraph {
      * @param name1 the name of the first person
      * 
      * @param name2 the name of the second person
-     * 
+     * @return true if the friendship was removed, false if a person was not
+     *         found or the two are not friends
      */
-    public void removeFriendship(String name1, String name2) {
+    public boolean removeFriendship(String name1, String name2) {
+        long startNanos = startTiming(GraphMetrics.Operation.REMOVE_FRIENDSHIP);
         Person person1 = people.get(name1);
         Person person2 = people.get(name2);
-        if (person1 != null && person2 != null) {
-            List<Person> friends1 = friendships.get(person1);
-            List<Person> friends2 = friendships.get(person2);
-            if (friends1 != null && friends2 != null && friends1.contains(person2) && friends2.contains(person1)) {
-                friends1.remove(person2);
-                friends2.remove(person1);
-                System.out.println("Friendship removed between " + person1.getName() + " and " + person2.getName());
-            } else {
-                System.out.println("Friendship does not exist between " + person1.getName() + " and " + person2.getName());
+        boolean removed = person1 != null && person2 != null && unlinkFriends(person1, person2);
+        completed(GraphMetrics.Operation.REMOVE_FRIENDSHIP, startNanos);
+        return removed;
+    }
+
+    /**
+     * Returns the person with the given name.
+     *
+     * @param name the name of the person
+     * @return the person, or null if not found
+     */
+    public Person getPerson(String name) {
+        return people.get(name);
+    }
+
+    /**
+     * Disconnects two people in both directions.
+     *
+     * @param person1 the first person
+     * @param person2 the second person
+     * @return true if the two people were friends
+     */
+    boolean unlinkFriends(Person person1, Person person2) {
+        Set<Person> friends1 = friendships.get(person1);
+        Set<Person> friends2 = friendships.get(person2);
+        if (friends1 == null || friends2 == null || !friends1.contains(person2) || !friends2.contains(person1)) {
+            return false;
+        }
+        if (store != null) {
+            store.logRemoveFriendship(person1.getName(), person2.getName());
+        }
+        invalidateEndpoints(person1, person2);
+        friendsForWrite(person1).remove(person2);
+        friendsForWrite(person2).remove(person1);
+        clustersStale = true;
+        if (sketches != null) {
+            sketches.remove(person1.id, person2.id, friendships.get(person1));
+            if (person1 != person2) {
+                sketches.remove(person2.id, person1.id, friendships.get(person2));
             }
+        }
+        if (triangles != null) {
+            triangles.unlink(person1, person2, friendships.get(person1), friendships.get(person2));
+        }
+        if (history != null) {
+            history.unlink(person1.id, person2.id, clock);
+        }
+        return true;
+    }
+
+    /**
+     * Appends to the friend set of a person without touching the reverse
+     * direction, for restoring a checkpoint that lists every friend set in
+     * full and in its original order.
+     *
+     * @param person  the person
+     * @param friends the friends to append, in order
+     */
+    void restoreFriends(Person person, Collection<Person> friends) {
+        friendsForWrite(person).addAll(friends);
+        clustersStale = true;
+        if (sketches != null) {
+            sketches.rebuild(person.id, friendships.get(person));
+        }
+        // Friend sets are restored one direction at a time
+        trianglesStale = true;
+    }
+
+    /**
+     * Returns the friend set of a person for modification. While snapshots are
+     * open, the set they may be reading is left alone and replaced by a copy.
+     *
+     * @param person the person whose friends are about to change
+     * @return the set to modify
+     */
+    private Set<Person> friendsForWrite(Person person) {
+        searchSnapshot = null;
+        Set<Person> live = friendships.get(person);
+        Set<Person> writable = versions.forWrite(person, live);
+        if (writable != live) {
+            friendships.put(person, writable);
+        }
+        return writable;
+    }
+
+    /**
+     * Opens a point-in-time view of the network. The cost does not depend on
+     * the size of the network, and the view stays unchanged while this graph
+     * keeps changing. It must be opened from the thread that changes the
+     * graph but may then be read from any thread.
+     *
+     * @return the view; close it when done
+     */
+    public GraphVersion snapshot() {
+        return versions.open();
+    }
+
+    /**
+     * Writes the network in the memory-mapped format read by
+     * {@link #openMapped(Path)}.
+     *
+     * @param file the file to write
+     * @throws IOException if writing fails
+     */
+    public void exportMapped(Path file) throws IOException {
+        MappedSocialNetworkGraph.write(GraphSnapshot.of(this), file);
+    }
+
+    /**
+     * Opens a file written by {@link #exportMapped(Path)} as a read-only
+     * network that is queried in place, without loading it into the heap.
+     *
+     * @param file the file to open
+     * @return the read-only network
+     * @throws IOException if the file cannot be read or is not a mapped graph
+     */
+    public static MappedSocialNetworkGraph openMapped(Path file) throws IOException {
+        return new MappedSocialNetworkGraph(file);
+    }
+
+    /**
+     * Invalidates the cached suggestions that a friendship change between two
+     * people can alter. The suggestions for a person depend only on their
+     * friends and their friends' friends, so the change matters to the two
+     * people themselves and to everyone who is a friend of either of them.
+     * Approximate scoring also reads the sketch of every candidate, so a
+     * change alters the scores of everyone within two hops of either person;
+     * finding them all costs what the sketches avoid, so the whole cache is
+     * dropped instead.
+     *
+     * @param person1 the first person
+     * @param person2 the second person
+     */
+    private void invalidateEndpoints(Person person1, Person person2) {
+        if (recommendationCache == null) {
+            return;
+        }
+        if (sketches != null) {
+            recommendationCache.clear();
+            return;
+        }
+        recommendationCache.invalidate(person1);
+        recommendationCache.invalidate(person2);
+        recommendationCache.invalidateAll(friendships.get(person1));
+        recommendationCache.invalidateAll(friendships.get(person2));
+    }
+
+    /**
+     * Invalidates the cached suggestions that removing a person can alter:
+     * everyone within two hops, who may have had the person as a friend or a
+     * friend of a friend, and everyone sharing a hobby with them. With
+     * approximate scoring the sketches of the friends change too, which
+     * reaches a hop further, so the whole cache is dropped as in
+     * {@link #invalidateEndpoints(Person, Person)}.
+     *
+     * @param person the person being removed
+     */
+    private void invalidateTwoHops(Person person) {
+        if (recommendationCache == null) {
+            return;
+        }
+        if (sketches != null) {
+            recommendationCache.clear();
+            return;
+        }
+        recommendationCache.invalidate(person);
+        Iterator<Person> friendIterator = friendships.get(person).iterator();
+        while (friendIterator.hasNext()) {
+            Person friend = friendIterator.next();
+            recommendationCache.invalidate(friend);
+            recommendationCache.invalidateAll(friendships.get(friend));
+        }
+        recommendationCache.invalidateAll(hobbyIndex.countSharing(person).keySet());
+    }
+
+    /**
+     * Enables or disables caching of {@link #recommendFriends(String, int)}
+     * results.
+     *
+     * @param recommendationCache the cache to use, or null to disable caching
+     */
+    public void setRecommendationCache(RecommendationCache recommendationCache) {
+        this.recommendationCache = recommendationCache;
+    }
+
+    /**
+     * Returns the cache of friend suggestions.
+     *
+     * @return the cache, or null if caching is disabled
+     */
+    public RecommendationCache getRecommendationCache() {
+        return recommendationCache;
+    }
+
+    /**
+     * Turns approximate scoring of friend suggestions on or off. While it is
+     * on, every person keeps a sketch of their friends, updated on every
+     * change, and {@link #suggestFriends(String, int)} estimates mutual
+     * friends by walking through the sketched friends of sketched friends
+     * instead of every friend of every friend. Common hobbies are still
+     * counted exactly. Larger sketches are more accurate, cost more memory
+     * and make suggestions slower.
+     *
+     * @param sketchSize the number of friends sketched per person, or 0 to
+     *                   count mutual friends exactly
+     */
+    public void setApproximateScoring(int sketchSize) {
+        if (sketchSize <= 0) {
+            sketches = null;
         } else {
-            System.out.println("One or both persons not found in the network.");
+            sketches = new FriendSketches(sketchSize);
+            Iterator<Map.Entry<Person, Set<Person>>> entries = friendships.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Person, Set<Person>> entry = entries.next();
+                sketches.rebuild(entry.getKey().id, entry.getValue());
+            }
+        }
+        if (recommendationCache != null) {
+            // Cached suggestions were scored in the other mode
+            recommendationCache.clear();
+        }
+    }
+
+    /**
+     * Counts the mutual friends of two people exactly, by looking up every
+     * friend of the person with fewer friends among the friends of the other.
+     *
+     * @param name1 the name of the first person
+     * @param name2 the name of the second person
+     * @return the number of mutual friends, or 0 if a person is not in the
+     *         network
+     */
+    public int countMutualFriends(String name1, String name2) {
+        Person person1 = people.get(name1);
+        Person person2 = people.get(name2);
+        if (person1 == null || person2 == null) {
+            return 0;
+        }
+        Set<Person> friends1 = friendships.get(person1);
+        Set<Person> friends2 = friendships.get(person2);
+        if (friends1.size() > friends2.size()) {
+            Set<Person> swap = friends1;
+            friends1 = friends2;
+            friends2 = swap;
+        }
+        int common = 0;
+        for (Person friend : friends1) {
+            if (friends2.contains(friend)) {
+                common++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Estimates the mutual friends of two people in time that depends only
+     * on the sketch size, by looking up the sketched friends of the person
+     * with fewer friends among the friends of the other. The estimate is
+     * exact if that person has no more friends than a sketch holds.
+     *
+     * @param name1 the name of the first person
+     * @param name2 the name of the second person
+     * @return the estimated number of mutual friends, or 0 if a person is not
+     *         in the network
+     * @throws IllegalStateException if approximate scoring is off
+     */
+    public double estimateMutualFriends(String name1, String name2) {
+        if (sketches == null) {
+            throw new IllegalStateException("Approximate scoring is off.");
+        }
+        Person person1 = people.get(name1);
+        Person person2 = people.get(name2);
+        if (person1 == null || person2 == null) {
+            return 0;
+        }
+        return estimateCommon(person1, person2);
+    }
+
+    private double estimateCommon(Person person1, Person person2) {
+        Set<Person> friends1 = friendships.get(person1);
+        Set<Person> friends2 = friendships.get(person2);
+        if (friends1.size() > friends2.size()) {
+            Person swap = person1;
+            person1 = person2;
+            person2 = swap;
+            Set<Person> swapFriends = friends1;
+            friends1 = friends2;
+            friends2 = swapFriends;
+        }
+        int sampled = sketches.sampleSize(person1.id);
+        if (sampled == 0) {
+            return 0;
+        }
+        int hits = 0;
+        for (int i = 0; i < sampled; i++) {
+            if (friends2.contains(personsById.get(sketches.sample(person1.id, i)))) {
+                hits++;
+            }
+        }
+        return (double) hits * friends1.size() / sampled;
+    }
+
+    /**
+     * Sets the time stamped on the following changes: on new people as their
+     * {@link Person#getTimestamp() timestamp}, and on every change in the
+     * history while history tracking is on. Changes made before any timestamp
+     * is given have none, and count as present since the beginning of time.
+     *
+     * @param timestamp the time of the next changes
+     * @throws IllegalArgumentException if the time is earlier than the last
+     *                                  time given, since the history is kept
+     *                                  in time order
+     */
+    public void advanceClock(Date timestamp) {
+        if (timestamp.getTime() < clock) {
+            throw new IllegalArgumentException("Timestamp " + timestamp + " is earlier than the last change.");
+        }
+        clock = timestamp.getTime();
+    }
+
+    /**
+     * Turns history tracking on or off. While it is on, every change is
+     * recorded with the time set by {@link #advanceClock(Date)}, so that the
+     * network can be queried as of any instant with {@link #asOf(Date)}. The
+     * people and friendships present when tracking starts count as present
+     * since the beginning of time; turning tracking off drops the history.
+     * The history keeps every friendship that ever existed and every change
+     * until {@link #forgetHistoryBefore(Date)} discards the old ones, so
+     * tracking is off by default.
+     *
+     * @param historyTracking true to record the history
+     */
+    public void setHistoryTracking(boolean historyTracking) {
+        if (!historyTracking) {
+            history = null;
+            return;
+        }
+        if (history != null) {
+            return;
+        }
+        history = new TemporalAdjacency();
+        for (int id = 0; id < personsById.size(); id++) {
+            history.seedPerson(id, personsById.get(id));
+        }
+        // Each friend set in full gives both directions, in their live order
+        Iterator<Map.Entry<Person, Set<Person>>> entries = friendships.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Person, Set<Person>> entry = entries.next();
+            for (Person friend : entry.getValue()) {
+                history.seedFriend(entry.getKey().id, friend.id);
+            }
+        }
+    }
+
+    /**
+     * Indicates whether the history is being recorded.
+     *
+     * @return true if history tracking is on
+     */
+    public boolean isHistoryTracking() {
+        return history != null;
+    }
+
+    /**
+     * Discards the part of the history that no query at or after a horizon
+     * can see: the friendships that ended by then and the changes made
+     * before then. Views as of earlier instants can no longer be opened, and
+     * {@link #getHistory(Date, Date)} no longer lists those changes. Calling
+     * this now and then bounds the history by what happened since the
+     * horizon rather than since tracking started.
+     *
+     * @param horizon the earliest instant to keep answering for
+     * @throws IllegalStateException if history tracking is off
+     */
+    public void forgetHistoryBefore(Date horizon) {
+        if (history == null) {
+            throw new IllegalStateException("History tracking is off.");
         }
+        history.forget(horizon.getTime());
+    }
+
+    /**
+     * Opens a read-only view of the network as it was at an instant, without
+     * copying anything. The view sees every change stamped at or before the
+     * instant.
+     *
+     * @param instant the instant
+     * @return the view
+     * @throws IllegalStateException    if history tracking is off
+     * @throws IllegalArgumentException if the instant is before the horizon
+     *                                  of {@link #forgetHistoryBefore(Date)}
+     */
+    public TemporalView asOf(Date instant) {
+        if (history == null) {
+            throw new IllegalStateException("History tracking is off.");
+        }
+        if (instant.getTime() < history.horizon()) {
+            throw new IllegalArgumentException("The history before " + new Date(history.horizon())
+                    + " was forgotten.");
+        }
+        return new TemporalView(history, instant.getTime());
+    }
+
+    /**
+     * Returns the changes recorded in a time range, in the order they were
+     * made. Changes made before any timestamp was given are only included if
+     * the range is open at the start.
+     *
+     * @param from the start of the range, inclusive, or null for no limit
+     * @param to   the end of the range, exclusive, or null for no limit
+     * @return the changes
+     * @throws IllegalStateException if history tracking is off
+     */
+    public List<GraphEvent> getHistory(Date from, Date to) {
+        if (history == null) {
+            throw new IllegalStateException("History tracking is off.");
+        }
+        return history.events(from != null ? from.getTime() : Long.MIN_VALUE,
+                to != null ? to.getTime() : Long.MAX_VALUE);
+    }
+
+    /**
+     * Turns instrumentation of the operations on or off. While it is off the
+     * operations do not even read the clock.
+     *
+     * @param metrics the receiver of the measurements, or null to turn
+     *                instrumentation off
+     */
+    public void setMetrics(GraphMetrics metrics) {
+        this.metrics = metrics;
+        if (metrics != null) {
+            for (GraphMetrics.Operation operation : GraphMetrics.Operation.values()) {
+                samplingIntervals[operation.ordinal()] = Math.max(1, metrics.samplingInterval(operation));
+            }
+        }
+        Arrays.fill(untimedCalls, 0);
+    }
+
+    /**
+     * Returns the receiver of the measurements.
+     *
+     * @return the receiver, or null if instrumentation is off
+     */
+    public GraphMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Decides whether to time a call that is about to start, counting it
+     * either way.
+     *
+     * @param operation the operation
+     * @return the current value of {@link System#nanoTime()} if the call is
+     *         timed, or 0 if it is not
+     */
+    private long startTiming(GraphMetrics.Operation operation) {
+        if (metrics == null || ++untimedCalls[operation.ordinal()] < samplingIntervals[operation.ordinal()]) {
+            return 0;
+        }
+        return System.nanoTime();
+    }
+
+    /**
+     * Reports the latency of a timed call, on behalf of the untimed calls
+     * since the previous one as well.
+     *
+     * @param operation  the operation
+     * @param startNanos the value returned by {@link #startTiming}
+     */
+    private void completed(GraphMetrics.Operation operation, long startNanos) {
+        if (startNanos != 0 && metrics != null) {
+            int calls = untimedCalls[operation.ordinal()];
+            untimedCalls[operation.ordinal()] = 0;
+            metrics.operationCompleted(operation, System.nanoTime() - startNanos, calls);
+        }
+    }
+
+    /**
+     * Reports the size of a traversal.
+     *
+     * @param operation the query
+     * @param vertices  the number of people expanded
+     * @param edges     the number of friend entries scanned
+     */
+    private void traversed(GraphMetrics.Operation operation, int vertices, long edges) {
+        if (metrics != null) {
+            metrics.traversalCompleted(operation, vertices, edges);
+        }
+    }
+
+    /**
+     * Rebuilds the connected components from scratch if a removal has
+     * invalidated them. Several removals in a row cost a single rebuild.
+     */
+    private void refreshClusters() {
+        if (!clustersStale) {
+            return;
+        }
+        // Removed ids stay in the structure as isolated singletons
+        clusters = new DisjointSet(personsById.size());
+        for (int i = 0; i < personsById.size(); i++) {
+            clusters.add();
+        }
+
+        // Union every friendship once, from the person with the smaller id
+        Iterator<Map.Entry<Person, Set<Person>>> entries = friendships.entrySet().iterator();
+        while (entries.hasNext()) {
+            Map.Entry<Person, Set<Person>> entry = entries.next();
+            int id = entry.getKey().id;
+            Iterator<Person> friends = entry.getValue().iterator();
+            while (friends.hasNext()) {
+                int friendId = friends.next().id;
+                if (id < friendId) {
+                    clusters.union(id, friendId);
+                }
+            }
+        }
+        clustersStale = false;
+    }
+
+    /**
+     * Checks whether two people are in the same cluster.
+     *
+     * @param name1 the name of the first person
+     * @param name2 the name of the second person
+     * @return true if both people exist and are connected through friendships
+     */
+    public boolean sameCluster(String name1, String name2) {
+        Person person1 = people.get(name1);
+        Person person2 = people.get(name2);
+        if (person1 == null || person2 == null) {
+            return false;
+        }
+        refreshClusters();
+        return clusters.find(person1.id) == clusters.find(person2.id);
+    }
+
+    /**
+     * Returns the id of the cluster a person belongs to. Ids are only
+     * meaningful for comparison until the network changes.
+     *
+     * @param name the name of the person
+     * @return the cluster id, or -1 if the person is not in the network
+     */
+    public int clusterOf(String name) {
+        Person person = people.get(name);
+        if (person == null) {
+            return -1;
+        }
+        refreshClusters();
+        return clusters.find(person.id);
+    }
+
+    /**
+     * Returns the number of clusters without listing their members.
+     *
+     * @return the number of clusters
+     */
+    public int clusterCount() {
+        refreshClusters();
+        // Every removed id is a singleton set of its own
+        return clusters.setCount() - (personsById.size() - people.size());
     }
 
     /**
@@ -114,41 +886,47 @@ public class SocialNetworkGraph {
      * start person.
      *
      * @param start   the starting person
-     * @param visited the set of visited people
+     * @param visited the ids of visited people
+     * @param queue   scratch space for the ids of queued people, with room for
+     *                every id
      * @param cluster the list of people in the current cluster
+     * @return the number of friend entries scanned
      */
-    private void bfs(Person start, Set<Person> visited, List<Person> cluster) {
+    private long bfs(Person start, BitSet visited, int[] queue, List<Person> cluster) {
         // Initialize the queue with the start person
-        Queue<Person> queue = new LinkedList<>();
-        queue.add(start);
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start.id;
 
         // Mark the start person as visited
-        visited.add(start);
+        visited.set(start.id);
+        long edges = 0;
 
         // Continue the BFS until the queue is empty
-        while (!queue.isEmpty()) {
+        while (head < tail) {
             // Dequeue the next person in the queue
-            Person current = queue.poll();
+            Person current = personsById.get(queue[head++]);
 
             // Add the current person to the cluster
             cluster.add(current);
 
             // Get the list of neighbors (friends) for the current person
-            List<Person> neighbors = friendships.get(current);
+            Set<Person> neighbors = friendships.get(current);
+            edges += neighbors.size();
 
             // Iterate through the neighbors
-            int i = 0;
-            while (i < neighbors.size()) {
-                Person neighbor = neighbors.get(i);
+            Iterator<Person> iterator = neighbors.iterator();
+            while (iterator.hasNext()) {
+                Person neighbor = iterator.next();
 
                 // If the neighbor has not been visited, mark it as visited and enqueue it
-                if (!visited.contains(neighbor)) {
-                    queue.add(neighbor);
-                    visited.add(neighbor);
+                if (!visited.get(neighbor.id)) {
+                    queue[tail++] = neighbor.id;
+                    visited.set(neighbor.id);
                 }
-                i++;
             }
         }
+        return edges;
     }
 
     /**
@@ -157,221 +935,592 @@ public class SocialNetworkGraph {
      * @param startName the name of the starting person
      * 
      * @param endName   the name of the ending person
-     * 
+     * @return the people on the path from start to end, or empty if a person
+     *         was not found or the two are not connected
+     */
+    public Optional<List<Person>> findShortestPath(String startName, String endName) {
+        long startNanos = startTiming(GraphMetrics.Operation.FIND_SHORTEST_PATH);
+        Optional<List<Person>> path = searchShortestPath(startName, endName);
+        completed(GraphMetrics.Operation.FIND_SHORTEST_PATH, startNanos);
+        return path;
+    }
+
+    /**
+     * Runs the search of {@link #findShortestPath(String, String)}.
+     *
+     * @param startName the name of the starting person
+     * @param endName   the name of the ending person
+     * @return the path, or empty if there is none
      */
-    public void findShortestPath(String startName, String endName) {
+    private Optional<List<Person>> searchShortestPath(String startName, String endName) {
         // Retrieve the starting and ending persons from the people map
         Person start = people.get(startName);
         Person end = people.get(endName);
 
         // Check if both persons exist in the network
         if (start == null || end == null) {
-            System.out.println("One or both persons not found in the network.");
-            return;
+            return Optional.empty();
         }
 
-        // Initialize the queue for BFS and add the start person to it
-        Queue<Person> queue = new LinkedList<>();
-        queue.add(start);
+        if (bidirectionalSearch) {
+            PathResult result = findShortestPathBidirectional(startName, endName);
+            return result.isFound() ? Optional.of(result.getPath()) : Optional.empty();
+        }
 
-        // Initialize the map to track the previous person in the path
-        Map<Person, Person> prev = new HashMap<>();
+        // Initialize the queue of ids for BFS and add the start person to it
+        int[] queue = new int[personsById.size()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start.id;
 
-        // Initialize the set of visited persons and mark the start person as visited
-        Set<Person> visited = new HashSet<>();
-        visited.add(start);
+        // Track the id of the previous person in the path; -1 marks people not
+        // visited yet and the start person points at itself
+        int[] prev = new int[personsById.size()];
+        Arrays.fill(prev, -1);
+        prev[start.id] = start.id;
+        long edges = 0;
 
         // Continue the BFS until the queue is empty
-        while (!queue.isEmpty()) {
+        while (head < tail) {
             // Dequeue the next person in the queue
-            Person current = queue.poll();
+            Person current = personsById.get(queue[head++]);
 
             // Check if the current person is the end person
             if (current.equals(end)) {
-                // Print the shortest path from start to end
-                printPath(start, end, prev);
-                return;
+                // Trace the shortest path from start to end
+                traversed(GraphMetrics.Operation.FIND_SHORTEST_PATH, head - 1, edges);
+                return Optional.of(tracePath(start, end, prev));
             }
 
             // Get the list of neighbors (friends) for the current person
-            List<Person> neighbors = friendships.get(current);
+            Set<Person> neighbors = friendships.get(current);
+            edges += neighbors.size();
 
             // Iterate through the neighbors
-            int i = 0;
-            while (i < neighbors.size()) {
-                Person neighbor = neighbors.get(i);
-
-                // If the neighbor has not been visited, mark it as visited, enqueue it, and
-                // update the previous map
-                if (!visited.contains(neighbor)) {
-                    queue.add(neighbor);
-                    visited.add(neighbor);
-                    prev.put(neighbor, current);
+            Iterator<Person> iterator = neighbors.iterator();
+            while (iterator.hasNext()) {
+                Person neighbor = iterator.next();
+
+                // If the neighbor has not been visited, enqueue it and record
+                // where it was reached from
+                if (prev[neighbor.id] < 0) {
+                    queue[tail++] = neighbor.id;
+                    prev[neighbor.id] = current.id;
                 }
-                i++;
             }
         }
 
-        // If no path is found, print a message indicating so
-        System.out.println("No path found between " + startName + " and " + endName);
+        // The two persons are not connected
+        traversed(GraphMetrics.Operation.FIND_SHORTEST_PATH, head, edges);
+        return Optional.empty();
+    }
+
+    /**
+     * Finds the shortest path between two people with a bidirectional BFS. The
+     * search grows one frontier from each end, always expanding the smaller
+     * one, and stops as soon as the two frontiers meet.
+     *
+     * @param startName the name of the starting person
+     * @param endName   the name of the ending person
+     * @return the path and the number of expanded vertices, or null if one or
+     *         both persons are not in the network
+     */
+    public PathResult findShortestPathBidirectional(String startName, String endName) {
+        Person start = people.get(startName);
+        Person end = people.get(endName);
+        if (start == null || end == null) {
+            return null;
+        }
+        if (start.equals(end)) {
+            return new PathResult(Collections.singletonList(start), 0);
+        }
+
+        // Each side records, by id, the person every reached person came from;
+        // -1 marks people not reached yet and each root points at itself
+        int[] forwardPrev = new int[personsById.size()];
+        int[] backwardPrev = new int[personsById.size()];
+        Arrays.fill(forwardPrev, -1);
+        Arrays.fill(backwardPrev, -1);
+        forwardPrev[start.id] = start.id;
+        backwardPrev[end.id] = end.id;
+        List<Person> forwardFrontier = new ArrayList<>();
+        List<Person> backwardFrontier = new ArrayList<>();
+        forwardFrontier.add(start);
+        backwardFrontier.add(end);
+
+        int expanded = 0;
+        long edges = 0;
+        Person meeting = null;
+        while (meeting == null && !forwardFrontier.isEmpty() && !backwardFrontier.isEmpty()) {
+            // Expand the smaller frontier by one full level
+            boolean forward = forwardFrontier.size() <= backwardFrontier.size();
+            List<Person> frontier = forward ? forwardFrontier : backwardFrontier;
+            int[] ownPrev = forward ? forwardPrev : backwardPrev;
+            int[] otherPrev = forward ? backwardPrev : forwardPrev;
+            List<Person> next = new ArrayList<>();
+
+            Iterator<Person> frontierIterator = frontier.iterator();
+            while (meeting == null && frontierIterator.hasNext()) {
+                Person current = frontierIterator.next();
+                expanded++;
+                Set<Person> neighbors = friendships.get(current);
+                edges += neighbors.size();
+                Iterator<Person> iterator = neighbors.iterator();
+                while (iterator.hasNext()) {
+                    Person neighbor = iterator.next();
+                    if (ownPrev[neighbor.id] >= 0) {
+                        continue;
+                    }
+                    ownPrev[neighbor.id] = current.id;
+                    // The first meeting is on a shortest path, since every
+                    // shorter connection would have met on an earlier level
+                    if (otherPrev[neighbor.id] >= 0) {
+                        meeting = neighbor;
+                        break;
+                    }
+                    next.add(neighbor);
+                }
+            }
+
+            if (forward) {
+                forwardFrontier = next;
+            } else {
+                backwardFrontier = next;
+            }
+        }
+
+        List<Person> path = new ArrayList<>();
+        if (meeting != null) {
+            // Walk back to the start, then forward from the meeting point to the end
+            int at = meeting.id;
+            path.add(meeting);
+            while (at != start.id) {
+                at = forwardPrev[at];
+                path.add(personsById.get(at));
+            }
+            Collections.reverse(path);
+            at = meeting.id;
+            while (at != end.id) {
+                at = backwardPrev[at];
+                path.add(personsById.get(at));
+            }
+        }
+        traversed(GraphMetrics.Operation.FIND_SHORTEST_PATH, expanded, edges);
+        return new PathResult(path, expanded);
     }
 
     /**
-     * Prints the shortest path from start to end person.
+     * Selects the search used by {@link #findShortestPath(String, String)}.
+     *
+     * @param bidirectionalSearch true to search from both ends at once, false
+     *                            for a plain BFS from the starting person
+     */
+    public void setBidirectionalSearch(boolean bidirectionalSearch) {
+        this.bidirectionalSearch = bidirectionalSearch;
+    }
+
+    /**
+     * Traces the shortest path from start to end person.
      *
      * @param start the starting person
      * @param end   the ending person
-     * @param prev  the map of previous nodes in the path
+     * @param prev  the id of the previous person of every visited id
+     * @return the people on the path, from start to end
      */
-    private void printPath(Person start, Person end, Map<Person, Person> prev) {
-        // Create a list to store the path and a StringBuilder for the path string
+    private List<Person> tracePath(Person start, Person end, int[] prev) {
+        // Create a list to store the path
         List<Person> path = new ArrayList<>();
-        StringBuilder pathStr = new StringBuilder();
 
-        // Trace back from the end person to the start person using the prev map
-        for (Person at = end; at != null; at = prev.get(at)) {
-            path.add(at);
+        // Trace back from the end person to the start person using the prev ids
+        int at = end.id;
+        path.add(end);
+        while (at != start.id) {
+            at = prev[at];
+            path.add(personsById.get(at));
         }
 
         // Reverse the path list to get the correct order from start to end
         Collections.reverse(path);
+        return Collections.unmodifiableList(path);
+    }
 
-        // Create an iterator to traverse the path list
-        Iterator<Person> iterator = path.iterator();
-        while (iterator.hasNext()) {
-            Person person = iterator.next();
+    /**
+     * Finds the distances from one or more people to many others with a
+     * single {@link FrontierSearch}, which stops as soon as every target has
+     * been reached. With several sources, each distance is measured from the
+     * nearest of them. The search runs on a {@link GraphSnapshot} that is
+     * copied on the first distance query after a change, which costs about
+     * one full traversal, and reused until the next change; on a graph that
+     * keeps changing between queries, {@link #findShortestPath(String, String)}
+     * is cheaper for a single pair.
+     *
+     * @param sourceNames the names of the people to measure from
+     * @param targetNames the names of the people to measure to
+     * @return the distance of every reachable target, in the order of the
+     *         target names; unknown and unreachable people are left out
+     */
+    public Map<Person, Integer> findDistances(Collection<String> sourceNames, Collection<String> targetNames) {
+        Map<Person, Integer> distances = new LinkedHashMap<>();
+        GraphSnapshot snapshot = searchSnapshot();
+        int[] sources = vertices(sourceNames);
+        int[] targets = vertices(targetNames);
+        if (sources.length == 0 || targets.length == 0) {
+            return distances;
+        }
 
-            // Add a separator " -> " if this is not the first person in the path
-            if (pathStr.length() > 0) {
-                pathStr.append(" -> ");
+        FrontierSearch search = frontierSearch;
+        search.search(sources, targets, Integer.MAX_VALUE);
+        for (int t : targets) {
+            if (search.distance(t) >= 0) {
+                distances.put(snapshot.person(t), search.distance(t));
             }
+        }
+        return distances;
+    }
 
-            // Append the person's name to the path string
-            pathStr.append(person.getName());
+    /**
+     * Finds the shortest paths from one person to many others with a single
+     * {@link FrontierSearch}, which stops as soon as every target has been
+     * reached. The search runs on the same snapshot as
+     * {@link #findDistances(Collection, Collection)}.
+     *
+     * @param startName the name of the starting person
+     * @param endNames  the names of the ending people
+     * @return the path to every reachable end person, from the start person,
+     *         in the order of the end names; unknown and unreachable people
+     *         are left out
+     */
+    public Map<Person, List<Person>> findShortestPaths(String startName, Collection<String> endNames) {
+        Map<Person, List<Person>> paths = new LinkedHashMap<>();
+        GraphSnapshot snapshot = searchSnapshot();
+        int[] sources = vertices(Collections.singletonList(startName));
+        int[] targets = vertices(endNames);
+        if (sources.length == 0 || targets.length == 0) {
+            return paths;
         }
 
-        // Print the shortest path
-        System.out.println("Shortest path: " + pathStr.toString());
+        FrontierSearch search = frontierSearch;
+        search.search(sources, targets, Integer.MAX_VALUE);
+        for (int t : targets) {
+            if (search.distance(t) >= 0) {
+                paths.put(snapshot.person(t), search.path(t));
+            }
+        }
+        return paths;
     }
 
     /**
-     * Calculates the friendship score between two people.
+     * Finds everyone within a number of hops of a person. The search runs on
+     * the same snapshot as {@link #findDistances(Collection, Collection)} and
+     * only touches the people it reaches.
      *
-     * @param person          the person
-     * @param potentialFriend the potential friend
-     * @return the friendship score
+     * @param name    the name of the person
+     * @param maxHops the largest distance to include
+     * @return the distance of every other person within reach, nearest first,
+     *         or an empty map if the person is not in the network
      */
-    private double calculateFriendshipScore(Person person, Person potentialFriend) {
-        int commonFriends = 0; // Initialize count of mutual friends
-        int commonHobbies = 0; // Initialize count of common hobbies
+    public Map<Person, Integer> findWithinHops(String name, int maxHops) {
+        Map<Person, Integer> distances = new LinkedHashMap<>();
+        Person person = people.get(name);
+        if (person == null) {
+            return distances;
+        }
+        GraphSnapshot snapshot = searchSnapshot();
+        FrontierSearch search = frontierSearch;
+        search.search(new int[] { searchVertexOf[person.id] }, null, maxHops);
+        collectReached(snapshot, search, distances);
+        return distances;
+    }
 
-        // Get the list of friends of the person
-        List<Person> friends = friendships.get(person);
-        int i = 0;
+    /**
+     * Finds, for every person, everyone within a number of hops. All the
+     * searches share one snapshot and one {@link FrontierSearch}, and each
+     * only touches the vertices it reaches, so the cost follows the size of
+     * the neighborhoods rather than the size of the network. The result holds
+     * every pair within reach twice, once from each end, and can be large for
+     * more than two hops.
+     *
+     * @param maxHops the largest distance to include
+     * @return for every person in network order, the distance of every other
+     *         person within reach, nearest first
+     */
+    public Map<Person, Map<Person, Integer>> findAllWithinHops(int maxHops) {
+        Map<Person, Map<Person, Integer>> all = new LinkedHashMap<>();
+        GraphSnapshot snapshot = searchSnapshot();
+        FrontierSearch search = frontierSearch;
+        int[] source = new int[1];
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            source[0] = u;
+            search.search(source, null, maxHops);
+            Map<Person, Integer> distances = new LinkedHashMap<>();
+            collectReached(snapshot, search, distances);
+            all.put(snapshot.person(u), distances);
+        }
+        return all;
+    }
 
-        // Iterate through the list of friends to count mutual friends
-        while (i < friends.size()) {
-            Person friend = friends.get(i);
-            if (friendships.get(potentialFriend).contains(friend)) {
-                commonFriends++; // Increment mutual friends count if the potential friend also has this friend
+    /**
+     * Copies the people reached by a search, except its sources, with their
+     * distances.
+     */
+    private static void collectReached(GraphSnapshot snapshot, FrontierSearch search,
+            Map<Person, Integer> distances) {
+        for (int i = 0; i < search.reachedCount(); i++) {
+            int v = search.reachedVertex(i);
+            if (search.distance(v) > 0) {
+                distances.put(snapshot.person(v), search.distance(v));
             }
-            i++;
         }
+    }
 
-        // Get the list of hobbies of the person
-        List<String> hobbies = person.getHobbies();
-        i = 0;
-
-        // Iterate through the list of hobbies to count common hobbies
-        while (i < hobbies.size()) {
-            String hobby = hobbies.get(i);
-            if (potentialFriend.getHobbies().contains(hobby)) {
-                commonHobbies++; // Increment common hobbies count if the potential friend also has this hobby
+    /**
+     * Returns the snapshot the distance queries search, copying the graph if
+     * it changed since the last query, together with the vertex of every
+     * person id and a search over it.
+     *
+     * @return the snapshot
+     */
+    private GraphSnapshot searchSnapshot() {
+        if (searchSnapshot == null) {
+            GraphSnapshot snapshot = GraphSnapshot.of(this);
+            // Removed ids map to nothing meaningful
+            int[] vertexOf = new int[personsById.size()];
+            for (int u = 0; u < snapshot.vertexCount(); u++) {
+                vertexOf[snapshot.person(u).id] = u;
             }
-            i++;
+            searchVertexOf = vertexOf;
+            frontierSearch = new FrontierSearch(snapshot);
+            searchSnapshot = snapshot;
         }
-
-        // Calculate the friendship score as the sum of mutual friends and half the
-        // number of common hobbies
-        return commonFriends + 0.5 * commonHobbies;
+        return searchSnapshot;
     }
 
     /**
-     * Counts the mutual friends between two people.
-     *
-     * @param person          the person
-     * @param potentialFriend the potential friend
-     * @return the number of mutual friends
+     * Looks up the vertices of people by name in the search snapshot,
+     * skipping unknown names.
      */
-    private int countCommonFriends(Person person, Person potentialFriend) {
-        int commonFriends = 0;
-        List<Person> friends = friendships.get(person);
-        int i = 0;
-        while (i < friends.size()) {
-            Person friend = friends.get(i);
-            if (friendships.get(potentialFriend).contains(friend)) {
-                commonFriends++;
+    private int[] vertices(Collection<String> names) {
+        int[] vertices = new int[names.size()];
+        int count = 0;
+        for (String name : names) {
+            Person person = people.get(name);
+            if (person != null) {
+                vertices[count++] = searchVertexOf[person.id];
             }
-            i++;
         }
-        return commonFriends;
+        return Arrays.copyOf(vertices, count);
     }
 
     /**
-     * Counts the common hobbies between two people.
+     * Finds the clusters of the social network.
      *
-     * @param person          the person
-     * @param potentialFriend the potential friend
-     * @return the number of common hobbies
+     * @return the clusters
      */
-    private int countCommonHobbies(Person person, Person potentialFriend) {
-        int commonHobbies = 0;
-        List<String> hobbies = person.getHobbies();
-        int i = 0;
-        while (i < hobbies.size()) {
-            String hobby = hobbies.get(i);
-            if (potentialFriend.getHobbies().contains(hobby)) {
-                commonHobbies++;
-            }
-            i++;
+    public ClusterResult countClusters() {
+        long startNanos = startTiming(GraphMetrics.Operation.COUNT_CLUSTERS);
+
+        // Lists of people, one per cluster
+        List<List<Person>> clusterList;
+        if (parallelClustering) {
+            GraphSnapshot snapshot = GraphSnapshot.of(this);
+            clusterList = new ParallelClusterFinder().findClusters(snapshot);
+            traversed(GraphMetrics.Operation.COUNT_CLUSTERS, snapshot.vertexCount(), snapshot.edgeEntries());
+        } else {
+            clusterList = findClusters();
         }
-        return commonHobbies;
+        completed(GraphMetrics.Operation.COUNT_CLUSTERS, startNanos);
+        return new ClusterResult(clusterList);
     }
 
     /**
-     * Counts the number of clusters in the social network.
+     * Finds every cluster with a BFS from each person not yet visited.
+     *
+     * @return the clusters, each listing its members in BFS order
      */
-    public void countClusters() {
-        int clusters = 0; // Counter for the number of clusters
-        Set<Person> visited = new HashSet<>(); // Set to keep track of visited persons   
-        Map<Integer, List<Person>> clusterMap = new HashMap<>(); // Map to store clusters
+    private List<List<Person>> findClusters() {
+        BitSet visited = new BitSet(personsById.size()); // Ids of visited persons
+        int[] queue = new int[personsById.size()]; // BFS queue shared by all clusters
+        List<List<Person>> clusterList = new ArrayList<>(); // List to store clusters
+        long edges = 0; // Friend entries scanned by all the searches
 
         // Iterator to go through all persons in the network
         Iterator<Person> iterator = people.values().iterator();
         while (iterator.hasNext()) {
             Person person = iterator.next();
-            if (!visited.contains(person)) { // If the person has not been visited
+            if (!visited.get(person.id)) { // If the person has not been visited
                 List<Person> cluster = new ArrayList<>(); // Create a new cluster
-                bfs(person, visited, cluster); // Perform BFS to find all persons in the cluster
-                clusterMap.put(clusters++, cluster); // Add the cluster to the map and increment the cluster count
+                edges += bfs(person, visited, queue, cluster); // Perform BFS to find all persons in the cluster
+                clusterList.add(cluster); // Add the cluster to the list
             }
         }
+        traversed(GraphMetrics.Operation.COUNT_CLUSTERS, people.size(), edges);
+        return clusterList;
+    }
 
-        // Print the number of clusters found
-        System.out.println("Number of clusters found: " + clusters);
+    /**
+     * Selects how {@link #countClusters()} computes the clusters. Both modes
+     * produce the same clusters in the same order.
+     *
+     * @param parallelClustering true to label components on the fork/join
+     *                           common pool over a {@link GraphSnapshot}, false
+     *                           for a single-threaded BFS over the live graph
+     */
+    public void setParallelClustering(boolean parallelClustering) {
+        this.parallelClustering = parallelClustering;
+    }
 
-        // Iterator to go through all clusters in the clusterMap
-        Iterator<Map.Entry<Integer, List<Person>>> clusterIterator = clusterMap.entrySet().iterator();
-        while (clusterIterator.hasNext()) {
-            Map.Entry<Integer, List<Person>> entry = clusterIterator.next();
-            System.out.println("Cluster " + (entry.getKey() + 1) + ":"); // Print the cluster number
+    /**
+     * Selects how the snapshots that {@link #rankByPageRank()},
+     * {@link #estimateBetweenness(int)} and {@link #countTriangles()} run on
+     * are numbered. Renumbering costs about as much as a few traversals of
+     * the graph, and pays off on graphs too large for the processor caches,
+     * where it lets those analyses read mostly neighboring memory. The
+     * results are the same in every order, except that betweenness samples
+     * different people.
+     *
+     * @param snapshotOrder the order to renumber the people in, or null to
+     *                      keep the iteration order of the people
+     */
+    public void setSnapshotOrder(VertexReordering.Order snapshotOrder) {
+        this.snapshotOrder = snapshotOrder;
+    }
 
-            // Iterator to go through all persons in the current cluster
-            Iterator<Person> personIterator = entry.getValue().iterator();
-            while (personIterator.hasNext()) {
-                System.out.println(personIterator.next().getName()); // Print the name of each person in the cluster
-            }
+    /**
+     * Copies the graph for the analyses that do not depend on the order of
+     * the people, in the order selected by
+     * {@link #setSnapshotOrder(VertexReordering.Order)}.
+     *
+     * @return the snapshot
+     */
+    private GraphSnapshot analysisSnapshot() {
+        GraphSnapshot snapshot = GraphSnapshot.of(this);
+        return snapshotOrder != null ? VertexReordering.reorder(snapshot, snapshotOrder) : snapshot;
+    }
+
+    /**
+     * Ranks the people by PageRank: how likely a random walk along the
+     * friendships, jumping to a random person now and then, is to be at each
+     * person. Runs on the fork/join common pool over a {@link GraphSnapshot}.
+     *
+     * @return the ranks, which sum to 1
+     */
+    public CentralityResult rankByPageRank() {
+        return new CentralityAnalyzer().pageRank(analysisSnapshot(), PAGE_RANK_DAMPING, PAGE_RANK_TOLERANCE,
+                PAGE_RANK_MAX_ITERATIONS);
+    }
+
+    /**
+     * Estimates how many shortest paths between other people run through each
+     * person, from searches that start at a sample of the people. Runs on the
+     * fork/join common pool over a {@link GraphSnapshot}. The sample is always
+     * drawn with the same seed, so repeated calls on an unchanged graph agree.
+     *
+     * @param samples the number of people to search from; more are slower
+     *                and more accurate, and the number of people gives the
+     *                exact betweenness
+     * @return the estimated betweenness
+     */
+    public CentralityResult estimateBetweenness(int samples) {
+        return new CentralityAnalyzer().betweenness(analysisSnapshot(), samples, BETWEENNESS_SEED);
+    }
+
+    /**
+     * Counts the triangles of the network, in total and per person: sets of
+     * three people who are all friends with each other. Runs on the fork/join
+     * common pool over a {@link GraphSnapshot}.
+     *
+     * @return the counts and clustering coefficients
+     */
+    public TriangleResult countTriangles() {
+        return new TriangleCounter().count(analysisSnapshot());
+    }
+
+    /**
+     * Turns incremental triangle counting on or off. While it is on, the
+     * triangle count of everyone is kept up to date on every change, at the
+     * cost of intersecting the friend sets of the two people on every
+     * friendship added or removed, so that {@link #getTriangleCount()},
+     * {@link #getTriangleCount(String)} and
+     * {@link #getClusteringCoefficient(String)} answer in constant time.
+     *
+     * @param triangleTracking true to count triangles as friendships change
+     */
+    public void setTriangleTracking(boolean triangleTracking) {
+        if (triangleTracking) {
+            recountTriangles();
+        } else {
+            triangles = null;
+        }
+    }
+
+    /**
+     * Checks whether triangles are counted as friendships change.
+     *
+     * @return true if triangle tracking is on
+     */
+    public boolean isTriangleTracking() {
+        return triangles != null;
+    }
+
+    private void recountTriangles() {
+        GraphSnapshot snapshot = analysisSnapshot();
+        triangles = new TriangleIndex(snapshot, new TriangleCounter().count(snapshot));
+        trianglesStale = false;
+    }
+
+    private TriangleIndex trackedTriangles() {
+        if (triangles == null) {
+            throw new IllegalStateException("Triangle tracking is off.");
+        }
+        if (trianglesStale) {
+            recountTriangles();
         }
+        return triangles;
+    }
+
+    /**
+     * Returns the number of triangles in the network.
+     *
+     * @return the number of triangles
+     * @throws IllegalStateException if triangle tracking is off
+     */
+    public long getTriangleCount() {
+        return trackedTriangles().total();
+    }
+
+    /**
+     * Returns the number of triangles a person is part of: the number of
+     * pairs of their friends who are friends with each other.
+     *
+     * @param name the name of the person
+     * @return the number of triangles, or 0 if the person is not in the
+     *         network
+     * @throws IllegalStateException if triangle tracking is off
+     */
+    public long getTriangleCount(String name) {
+        TriangleIndex index = trackedTriangles();
+        Person person = people.get(name);
+        return person != null ? index.count(person.id) : 0;
+    }
+
+    /**
+     * Returns the local clustering coefficient of a person: the share of the
+     * pairs of their friends who are friends with each other.
+     *
+     * @param name the name of the person
+     * @return the coefficient between 0 and 1, or 0 if the person has fewer
+     *         than two friends or is not in the network
+     * @throws IllegalStateException if triangle tracking is off
+     */
+    public double getClusteringCoefficient(String name) {
+        TriangleIndex index = trackedTriangles();
+        Person person = people.get(name);
+        if (person == null) {
+            return 0;
+        }
+        Set<Person> friends = friendships.get(person);
+        int degree = friends.size() - (friends.contains(person) ? 1 : 0);
+        return TriangleResult.coefficient(index.count(person.id), degree);
     }
 
     /**
@@ -379,80 +1528,187 @@ public class SocialNetworkGraph {
      * hobbies.
      *
      * @param name           the name of the person
-     * 
      * @param maxSuggestions the maximum number of friend suggestions
+     * @return the suggestions, best first, or an empty list if the person was
+     *         not found
      */
-    public void suggestFriends(String name, int maxSuggestions) {
-        Person person = people.get(name); // Retrieve the person based on name and timestamp
-        // Maps to store suggestion scores, mutual friends, and common hobbies
-        Map<Person, Double> suggestionScores = new HashMap<>();
-        Map<Person, Integer> commonFriendsMap = new HashMap<>();
-        Map<Person, Integer> commonHobbiesMap = new HashMap<>();
+    public List<Suggestion> suggestFriends(String name, int maxSuggestions) {
+        long startNanos = startTiming(GraphMetrics.Operation.SUGGEST_FRIENDS);
+        List<Suggestion> suggestions = recommendFriends(name, maxSuggestions);
+        completed(GraphMetrics.Operation.SUGGEST_FRIENDS, startNanos);
+        // An unknown person has no suggestions
+        return suggestions != null ? suggestions : Collections.emptyList();
+    }
 
-        if (person == null) { // Check if the person exists in the network
-            System.out.println("Person not found.");
-            return;
+    /**
+     * Computes the best friend suggestions for a given person. Friends of
+     * friends are scored by the number of mutual friends plus half the number
+     * of common hobbies; people with common hobbies but no mutual friends are
+     * scored by the hobbies alone.
+     *
+     * @param name           the name of the person
+     * @param maxSuggestions the maximum number of friend suggestions
+     * @return the suggestions, best first, or null if the person is not in the
+     *         network; cached results are unmodifiable
+     */
+    public List<Suggestion> recommendFriends(String name, int maxSuggestions) {
+        Person person = people.get(name);
+        if (person == null) {
+            return null;
+        }
+        if (maxSuggestions <= 0) {
+            return new ArrayList<>();
         }
+        if (recommendationCache != null) {
+            List<Suggestion> cached = recommendationCache.get(person, maxSuggestions);
+            if (cached != null) {
+                return cached;
+            }
+        }
+        Set<Person> friends = friendships.get(person);
 
-        // Get the list of friends for the person
-        List<Person> friends = friendships.get(person);
-        int i = 0;
-        // Iterate through the person's friends
-        while (i < friends.size()) {
-            Person friend = friends.get(i);
-            // Get the list of potential friends (friends of friends)
-            List<Person> potentialFriends = friendships.get(friend);
-            int j = 0;
-            // Iterate through the potential friends
-            while (j < potentialFriends.size()) {
-                Person potentialFriend = potentialFriends.get(j);
-                // Check if the potential friend is not the person and is not already a friend
-                if (!potentialFriend.equals(person) && !friendships.get(person).contains(potentialFriend)) {
-                    double score = calculateFriendshipScore(person, potentialFriend); // Calculate the friendship score
-                    suggestionScores.put(potentialFriend, score);
-
-                    // Track mutual friends and common hobbies
-                    commonFriendsMap.put(potentialFriend, countCommonFriends(person, potentialFriend));
-                    commonHobbiesMap.put(potentialFriend, countCommonHobbies(person, potentialFriend));
+        Map<Person, int[]> mutualCounts = new HashMap<>();
+        long edges = 0;
+        if (sketches != null) {
+            edges = estimateMutualCounts(person, friends, maxSuggestions, mutualCounts);
+        } else {
+            // Count mutual friends in one pass over the friends of friends: a
+            // candidate reached through k different friends has k mutual friends
+            Iterator<Person> friendIterator = friends.iterator();
+            while (friendIterator.hasNext()) {
+                Set<Person> friendsOfFriend = friendships.get(friendIterator.next());
+                edges += friendsOfFriend.size();
+                Iterator<Person> potentialIterator = friendsOfFriend.iterator();
+                while (potentialIterator.hasNext()) {
+                    Person potentialFriend = potentialIterator.next();
+                    if (potentialFriend != person && !friends.contains(potentialFriend)) {
+                        int[] count = mutualCounts.get(potentialFriend);
+                        if (count == null) {
+                            mutualCounts.put(potentialFriend, new int[] { 1 });
+                        } else {
+                            count[0]++;
+                        }
+                    }
                 }
-                j++;
             }
-            i++;
         }
 
-        // Include people with common hobbies even if they have no mutual friends
-        Iterator<Person> iterator = people.values().iterator();
-        while (iterator.hasNext()) {
-            Person potentialFriend = iterator.next();
-            if (!potentialFriend.equals(person) && !friendships.get(person).contains(potentialFriend)) {
-                if (!suggestionScores.containsKey(potentialFriend)) {
-                    int commonHobbies = countCommonHobbies(person, potentialFriend);
-                    if (commonHobbies > 0) {
-                        suggestionScores.put(potentialFriend, 0.5 * commonHobbies);
-                        commonFriendsMap.put(potentialFriend, 0);
-                        commonHobbiesMap.put(potentialFriend, commonHobbies);
+        // Keep only the best maxSuggestions candidates, worst on top of the heap;
+        // the heap never holds more than all the candidates, however large the limit
+        Map<Person, int[]> hobbyCounts = hobbyIndex.countSharing(person);
+        int capacity = (int) Math.min(maxSuggestions, (long) mutualCounts.size() + hobbyCounts.size()) + 1;
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(capacity, Suggestion.BEST_FIRST.reversed());
+        Iterator<Map.Entry<Person, int[]>> candidates = mutualCounts.entrySet().iterator();
+        while (candidates.hasNext()) {
+            Map.Entry<Person, int[]> candidate = candidates.next();
+            offer(best, maxSuggestions, candidate.getKey(), candidate.getValue()[0],
+                    hobbyIndex.countCommon(person, candidate.getKey()));
+        }
+
+        // Include people with common hobbies even if they have no mutual friends;
+        // the hobby index only yields people sharing at least one hobby
+        int candidateCount = mutualCounts.size();
+        Iterator<Map.Entry<Person, int[]>> sharing = hobbyCounts.entrySet().iterator();
+        while (sharing.hasNext()) {
+            Map.Entry<Person, int[]> candidate = sharing.next();
+            Person potentialFriend = candidate.getKey();
+            if (!friends.contains(potentialFriend) && !mutualCounts.containsKey(potentialFriend)) {
+                offer(best, maxSuggestions, potentialFriend, 0, candidate.getValue()[0]);
+                candidateCount++;
+            }
+        }
+        if (metrics != null) {
+            metrics.traversalCompleted(GraphMetrics.Operation.SUGGEST_FRIENDS, friends.size(), edges);
+            metrics.candidatesScored(candidateCount);
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(Suggestion.BEST_FIRST);
+        if (recommendationCache != null) {
+            suggestions = Collections.unmodifiableList(suggestions);
+            recommendationCache.put(person, maxSuggestions, suggestions);
+        }
+        return suggestions;
+    }
+
+    /**
+     * Estimates the mutual friends of every candidate by walking two hops
+     * through the sketches instead of the friend sets: a sample of the
+     * person's friends, then a sample of the friends of each. Every sampled
+     * friend through whom a candidate is reached is a distinct mutual friend,
+     * so the counts of the walk are lower bounds. The candidates reached most
+     * often are then estimated again pair by pair, which is exact for people
+     * with no more friends than a sketch holds. The work depends on the
+     * sketch size only, not on how many friends anyone has.
+     *
+     * @param person         the person to suggest friends for
+     * @param friends        the friends of the person
+     * @param maxSuggestions the number of suggestions wanted
+     * @param mutualCounts   receives the estimated count of every candidate
+     * @return the number of sketch entries scanned
+     */
+    private long estimateMutualCounts(Person person, Set<Person> friends, int maxSuggestions,
+            Map<Person, int[]> mutualCounts) {
+        long scanned = 0;
+        int sampledFriends = sketches.sampleSize(person.id);
+        for (int i = 0; i < sampledFriends; i++) {
+            int friendId = sketches.sample(person.id, i);
+            int sampledCandidates = sketches.sampleSize(friendId);
+            scanned += sampledCandidates;
+            for (int j = 0; j < sampledCandidates; j++) {
+                Person candidate = personsById.get(sketches.sample(friendId, j));
+                if (candidate != person && !friends.contains(candidate)) {
+                    int[] count = mutualCounts.get(candidate);
+                    if (count == null) {
+                        mutualCounts.put(candidate, new int[] { 1 });
+                    } else {
+                        count[0]++;
                     }
                 }
             }
         }
 
-        // Convert the suggestions map to a list and sort it based on the scores
-        List<Map.Entry<Person, Double>> suggestions = new ArrayList<>(suggestionScores.entrySet());
-        suggestions.sort((a, b) -> Double.compare(b.getValue(), a.getValue()));
-
-        // Print the suggested friends
-        System.out.println("Suggested friends for " + name + ":");
-        i = 0;
-        while (i < Math.min(maxSuggestions, suggestions.size())) {
-            Person suggestedFriend = suggestions.get(i).getKey();
-            double score = suggestions.get(i).getValue();
-            int commonFriends = commonFriendsMap.get(suggestedFriend);
-            int commonHobbies = commonHobbiesMap.get(suggestedFriend);
-            System.out.println(suggestedFriend.getName() + " (Score: " + score + ", " + commonFriends
-                    + " mutual friends, " + commonHobbies + " common hobbies)");
-            i++;
-        }
-        if(i == 0)
-            System.out.println("No suggestions found.");
+        // Take a closer look at the candidates reached most often
+        // The heap never holds more than all the candidates, however large the limit
+        int closer = (int) Math.min(4L * maxSuggestions, mutualCounts.size());
+        PriorityQueue<Map.Entry<Person, int[]>> best = new PriorityQueue<>(closer + 1,
+                (a, b) -> Integer.compare(a.getValue()[0], b.getValue()[0]));
+        for (Map.Entry<Person, int[]> candidate : mutualCounts.entrySet()) {
+            best.add(candidate);
+            if (best.size() > closer) {
+                best.poll();
+            }
+        }
+        for (Map.Entry<Person, int[]> candidate : best) {
+            int[] count = candidate.getValue();
+            count[0] = Math.max(count[0], (int) Math.round(estimateCommon(person, candidate.getKey())));
+            scanned += Math.min(sketches.size(), Math.min(friends.size(), friendships.get(candidate.getKey()).size()));
+        }
+        return scanned;
+    }
+
+    /**
+     * Adds a candidate to a bounded heap of suggestions if it beats the worst
+     * suggestion kept so far. The suggestion object is only created when the
+     * candidate is kept.
+     *
+     * @param best          the heap, ordered worst first
+     * @param limit         the maximum size of the heap
+     * @param person        the candidate
+     * @param mutualFriends the number of mutual friends
+     * @param commonHobbies the number of common hobbies
+     */
+    static void offer(PriorityQueue<Suggestion> best, int limit, Person person, int mutualFriends,
+            int commonHobbies) {
+        if (best.size() == limit) {
+            Suggestion worst = best.peek();
+            double score = Suggestion.score(mutualFriends, commonHobbies);
+            int cmp = Double.compare(score, worst.getScore());
+            if (cmp < 0 || (cmp == 0 && person.getName().compareTo(worst.getPerson().getName()) >= 0)) {
+                return;
+            }
+            best.poll();
+        }
+        best.add(new Suggestion(person, mutualFriends, commonHobbies));
     }
 }
@@ -0,0 +1,93 @@
+import java.util.*;
+
+/**
+ * A suggested friend together with the numbers behind the suggestion.
+ */
+public class Suggestion {
+    /**
+     * Orders suggestions from the best to the worst: by descending score, then
+     * by name so that ties come out in a stable order.
+     */
+    public static final Comparator<Suggestion> BEST_FIRST = (a, b) -> {
+        int byScore = Double.compare(b.score, a.score);
+        return byScore != 0 ? byScore : a.person.getName().compareTo(b.person.getName());
+    };
+
+    private final Person person;
+    private final int mutualFriends;
+    private final int commonHobbies;
+    private final double score;
+
+    /**
+     * Constructs a new Suggestion object. The score is the number of mutual
+     * friends plus half the number of common hobbies.
+     *
+     * @param person        the suggested person
+     * @param mutualFriends the number of mutual friends
+     * @param commonHobbies the number of common hobbies
+     */
+    public Suggestion(Person person, int mutualFriends, int commonHobbies) {
+        this.person = person;
+        this.mutualFriends = mutualFriends;
+        this.commonHobbies = commonHobbies;
+        this.score = score(mutualFriends, commonHobbies);
+    }
+
+    /**
+     * Calculates the friendship score for the given counts.
+     *
+     * @param mutualFriends the number of mutual friends
+     * @param commonHobbies the number of common hobbies
+     * @return the friendship score
+     */
+    public static double score(int mutualFriends, int commonHobbies) {
+        return mutualFriends + 0.5 * commonHobbies;
+    }
+
+    /**
+     * Returns the suggested person.
+     *
+     * @return the suggested person
+     */
+    public Person getPerson() {
+        return person;
+    }
+
+    /**
+     * Returns the number of mutual friends.
+     *
+     * @return the number of mutual friends
+     */
+    public int getMutualFriends() {
+        return mutualFriends;
+    }
+
+    /**
+     * Returns the number of common hobbies.
+     *
+     * @return the number of common hobbies
+     */
+    public int getCommonHobbies() {
+        return commonHobbies;
+    }
+
+    /**
+     * Returns the friendship score.
+     *
+     * @return the friendship score
+     */
+    public double getScore() {
+        return score;
+    }
+
+    /**
+     * Returns a string representation of the suggestion.
+     *
+     * @return a string representation of the suggestion
+     */
+    @Override
+    public String toString() {
+        return person.getName() + " (Score: " + score + ", " + mutualFriends + " mutual friends, "
+                + commonHobbies + " common hobbies)";
+    }
+}
@@ -0,0 +1,137 @@
+import java.util.*;
+
+/**
+ * Generators of random social graphs for benchmarks. Every generator returns
+ * its friendships as a flat array of vertex pairs, {@code edges[2 * i]} and
+ * {@code edges[2 * i + 1]} being the two ends of friendship i, and is fully
+ * determined by its seed. Pairs may repeat; a graph simply skips duplicates.
+ */
+class SyntheticGraphs {
+    static final List<String> HOBBIES = Arrays.asList("reading", "hiking", "cooking", "swimming", "painting",
+            "running", "cycling", "chess", "gaming", "music", "dancing", "gardening", "photography", "travel",
+            "yoga", "climbing", "fishing", "writing", "movies", "baking");
+
+    private SyntheticGraphs() {
+    }
+
+    /**
+     * Erdos-Renyi graph: friendships between uniformly random pairs, giving a
+     * narrow, Poisson-shaped degree distribution.
+     *
+     * @param n             the number of vertices
+     * @param averageDegree the average number of friends per vertex
+     * @param seed          the random seed
+     * @return the friendships as vertex pairs
+     */
+    static int[] erdosRenyi(int n, int averageDegree, long seed) {
+        Random random = new Random(seed);
+        int m = (int) ((long) n * averageDegree / 2);
+        int[] edges = new int[2 * m];
+        for (int i = 0; i < m; i++) {
+            int a = random.nextInt(n);
+            int b = random.nextInt(n - 1);
+            edges[2 * i] = a;
+            edges[2 * i + 1] = b < a ? b : b + 1;
+        }
+        return edges;
+    }
+
+    /**
+     * Barabasi-Albert graph: every new vertex befriends existing vertices with
+     * probability proportional to their degree, giving the power-law degree
+     * distribution of real social networks, with a few very popular people.
+     *
+     * @param n              the number of vertices
+     * @param edgesPerVertex the number of friendships each new vertex makes
+     * @param seed           the random seed
+     * @return the friendships as vertex pairs
+     */
+    static int[] barabasiAlbert(int n, int edgesPerVertex, long seed) {
+        Random random = new Random(seed);
+        int core = Math.min(n, edgesPerVertex + 1);
+        int m = core * (core - 1) / 2 + (n - core) * edgesPerVertex;
+        int[] edges = new int[2 * m];
+        int count = 0;
+
+        // Start from a small clique, then attach by picking a random end of a
+        // random existing friendship, which favours vertices by their degree
+        for (int a = 0; a < core; a++) {
+            for (int b = a + 1; b < core; b++) {
+                edges[count++] = a;
+                edges[count++] = b;
+            }
+        }
+        for (int v = core; v < n; v++) {
+            int existing = count;
+            for (int i = 0; i < edgesPerVertex; i++) {
+                edges[count++] = v;
+                edges[count++] = edges[random.nextInt(existing)];
+            }
+        }
+        return edges;
+    }
+
+    /**
+     * Community-structured graph: vertices are split into equal communities
+     * and each friendship stays inside the community of its first end unless
+     * it is one of the mixing fraction that crosses to a random vertex.
+     *
+     * @param n             the number of vertices
+     * @param communities   the number of communities
+     * @param averageDegree the average number of friends per vertex
+     * @param mixing        the fraction of friendships between communities
+     * @param seed          the random seed
+     * @return the friendships as vertex pairs
+     */
+    static int[] communities(int n, int communities, int averageDegree, double mixing, long seed) {
+        Random random = new Random(seed);
+        int size = Math.max(2, n / communities);
+        int m = (int) ((long) n * averageDegree / 2);
+        int[] edges = new int[2 * m];
+        for (int i = 0; i < m; i++) {
+            int a = random.nextInt(n);
+            int b;
+            if (random.nextDouble() < mixing) {
+                b = random.nextInt(n);
+            } else {
+                int first = a / size * size;
+                int last = Math.min(n, first + size);
+                b = first + random.nextInt(last - first);
+            }
+            if (b == a) {
+                b = (a + 1) % n;
+            }
+            edges[2 * i] = a;
+            edges[2 * i + 1] = b;
+        }
+        return edges;
+    }
+
+    /**
+     * Returns the name of a vertex.
+     *
+     * @param u the vertex
+     * @return the name
+     */
+    static String name(int u) {
+        return "Person " + u;
+    }
+
+    /**
+     * Picks one to three random hobbies.
+     *
+     * @param random the source of randomness
+     * @return the hobbies
+     */
+    static List<String> hobbies(Random random) {
+        int count = 1 + random.nextInt(3);
+        List<String> hobbies = new ArrayList<>(count);
+        while (hobbies.size() < count) {
+            String hobby = HOBBIES.get(random.nextInt(HOBBIES.size()));
+            if (!hobbies.contains(hobby)) {
+                hobbies.add(hobby);
+            }
+        }
+        return hobbies;
+    }
+}
@@ -0,0 +1,432 @@
+import java.util.*;
+
+/**
+ * Time-stamped history of the people and friendships of a
+ * {@link SocialNetworkGraph}, from which {@link TemporalView} answers queries
+ * as of any instant.
+ *
+ * <p>Every person id keeps its lifetime and a friend list holding every
+ * friendship the person ever had, as the friend id and the half-open
+ * interval of time it lasted. Changes arrive in time order, so each list is
+ * sorted by start time: the friendships that may exist at an instant are the
+ * prefix that a binary search finds, and only their end times remain to be
+ * checked. A view therefore costs nothing to open and reads no more than the
+ * friendships that started before its instant. The open friendships are also
+ * indexed by their two ends, so ending one does not scan the history of
+ * either person. Ids are never reused; a name that is removed and added again
+ * gets a new id, chained to the old one.
+ *
+ * <p>Every change is also appended to a log, in time order. Nothing is
+ * dropped until {@link #forget(long)} is called with a horizon: friendships
+ * that ended by then and changes made before then are discarded, and the
+ * history can no longer be queried before the horizon. Only the thread that
+ * changes the graph may use this class.
+ */
+class TemporalAdjacency {
+    // Start of the people and friendships that predate tracking
+    static final long ALWAYS = Long.MIN_VALUE;
+    static final long NEVER = Long.MAX_VALUE;
+
+    private Person[] persons = new Person[16];
+    private long[] addedAt = new long[16];
+    private long[] removedAt = new long[16];
+    // Earlier id with the same name, or -1
+    private int[] previous = new int[16];
+    private Edges[] edges = new Edges[16];
+    private int idLimit;
+    // Latest id of every name ever added
+    private final Map<String, Integer> latestIds = new HashMap<>();
+    // Ids of everyone who ever had a hobby, for hobby-only suggestions
+    private final Map<String, IdList> hobbyMembers = new HashMap<>();
+    // Index in the friend list of the person of every open friendship, by
+    // the key of the person and the friend
+    private final Map<Long, Integer> open = new HashMap<>();
+    // Earliest instant the history still describes
+    private long horizon = ALWAYS;
+
+    // The change log as parallel arrays
+    private long[] eventTimes = new long[64];
+    private GraphEvent.Type[] eventTypes = new GraphEvent.Type[64];
+    private int[] eventIds1 = new int[64];
+    private int[] eventIds2 = new int[64];
+    private int eventCount;
+
+    /**
+     * Friendships of one person, sorted by start time.
+     */
+    static final class Edges {
+        int[] friends = new int[4];
+        long[] since = new long[4];
+        long[] until = new long[4];
+        int size;
+
+        void add(int friend, long time) {
+            if (size == friends.length) {
+                friends = Arrays.copyOf(friends, size * 2);
+                since = Arrays.copyOf(since, size * 2);
+                until = Arrays.copyOf(until, size * 2);
+            }
+            friends[size] = friend;
+            since[size] = time;
+            until[size] = NEVER;
+            size++;
+        }
+
+        /**
+         * Returns the number of friendships that started at or before an
+         * instant.
+         */
+        int startedBy(long instant) {
+            int low = 0;
+            int high = size;
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (since[mid] <= instant) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * A growable list of ids.
+     */
+    static final class IdList {
+        int[] ids = new int[8];
+        int size;
+
+        void add(int id) {
+            if (size == ids.length) {
+                ids = Arrays.copyOf(ids, size * 2);
+            }
+            ids[size++] = id;
+        }
+    }
+
+    /**
+     * Records a person present before tracking started, or an empty slot for
+     * an id whose person was already removed. Ids must come in order.
+     *
+     * @param id     the id
+     * @param person the person, or null for a removed id
+     */
+    void seedPerson(int id, Person person) {
+        if (person == null) {
+            ensureCapacity(id);
+            addedAt[id] = NEVER;
+            removedAt[id] = NEVER;
+            previous[id] = -1;
+            edges[id] = new Edges();
+            idLimit = id + 1;
+        } else {
+            register(person, ALWAYS);
+        }
+    }
+
+    /**
+     * Records one direction of a friendship present before tracking started.
+     *
+     * @param id       the person
+     * @param friendId the friend
+     */
+    void seedFriend(int id, int friendId) {
+        start(id, friendId, ALWAYS);
+    }
+
+    /**
+     * Records a new person, whose id must be the next free id.
+     *
+     * @param person the person
+     * @param time   the time of the change
+     */
+    void addPerson(Person person, long time) {
+        register(person, time);
+        log(time, GraphEvent.Type.PERSON_ADDED, person.getId(), -1);
+    }
+
+    private void register(Person person, long time) {
+        int id = person.getId();
+        ensureCapacity(id);
+        persons[id] = person;
+        addedAt[id] = time;
+        removedAt[id] = NEVER;
+        Integer earlier = latestIds.put(person.getName(), id);
+        previous[id] = earlier != null ? earlier : -1;
+        edges[id] = new Edges();
+        idLimit = id + 1;
+        for (String hobby : new HashSet<>(person.getHobbies())) {
+            hobbyMembers.computeIfAbsent(hobby, h -> new IdList()).add(id);
+        }
+    }
+
+    /**
+     * Records the removal of a person, which ends all of their friendships.
+     *
+     * @param person the person
+     * @param time   the time of the change
+     */
+    void removePerson(Person person, long time) {
+        int id = person.getId();
+        removedAt[id] = time;
+        Edges own = edges[id];
+        for (int i = 0; i < own.size; i++) {
+            if (own.until[i] == NEVER) {
+                end(id, own.friends[i], time);
+                if (own.friends[i] != id) {
+                    end(own.friends[i], id, time);
+                }
+            }
+        }
+        log(time, GraphEvent.Type.PERSON_REMOVED, id, -1);
+    }
+
+    /**
+     * Records a new friendship.
+     *
+     * @param id1  the first person
+     * @param id2  the second person
+     * @param time the time of the change
+     */
+    void link(int id1, int id2, long time) {
+        start(id1, id2, time);
+        if (id1 != id2) {
+            start(id2, id1, time);
+        }
+        log(time, GraphEvent.Type.FRIENDSHIP_ADDED, id1, id2);
+    }
+
+    /**
+     * Records the end of a friendship.
+     *
+     * @param id1  the first person
+     * @param id2  the second person
+     * @param time the time of the change
+     */
+    void unlink(int id1, int id2, long time) {
+        end(id1, id2, time);
+        if (id1 != id2) {
+            end(id2, id1, time);
+        }
+        log(time, GraphEvent.Type.FRIENDSHIP_REMOVED, id1, id2);
+    }
+
+    /**
+     * Opens a friendship of a person with a friend and indexes it.
+     */
+    private void start(int id, int friendId, long time) {
+        Edges list = edges[id];
+        open.put(key(id, friendId), list.size);
+        list.add(friendId, time);
+    }
+
+    /**
+     * Ends the open friendship of a person with a friend. A person may have
+     * been friends with the same friend several times before, so the open one
+     * is looked up in the index rather than by friend.
+     */
+    private void end(int id, int friendId, long time) {
+        Integer i = open.remove(key(id, friendId));
+        if (i != null) {
+            edges[id].until[i] = time;
+        }
+    }
+
+    private static long key(int id, int friendId) {
+        return (long) id << 32 | friendId;
+    }
+
+    /**
+     * Discards what no query at or after a horizon can see: the friendships
+     * that ended by then, the changes made before then, and the hobbies of
+     * the people removed by then. Forgetting an earlier horizon than before
+     * does nothing.
+     *
+     * @param instant the horizon
+     */
+    void forget(long instant) {
+        if (instant <= horizon) {
+            return;
+        }
+        horizon = instant;
+        for (int id = 0; id < idLimit; id++) {
+            Edges list = edges[id];
+            int kept = 0;
+            for (int i = 0; i < list.size; i++) {
+                if (list.until[i] > instant) {
+                    // Sliding keeps the list sorted by start time
+                    list.friends[kept] = list.friends[i];
+                    list.since[kept] = list.since[i];
+                    list.until[kept] = list.until[i];
+                    if (list.until[kept] == NEVER) {
+                        open.put(key(id, list.friends[kept]), kept);
+                    }
+                    kept++;
+                }
+            }
+            if (kept < list.size) {
+                list.size = kept;
+                list.friends = Arrays.copyOf(list.friends, Math.max(4, kept));
+                list.since = Arrays.copyOf(list.since, Math.max(4, kept));
+                list.until = Arrays.copyOf(list.until, Math.max(4, kept));
+            }
+        }
+        for (IdList members : hobbyMembers.values()) {
+            int kept = 0;
+            for (int i = 0; i < members.size; i++) {
+                if (removedAt[members.ids[i]] > instant) {
+                    members.ids[kept++] = members.ids[i];
+                }
+            }
+            members.size = kept;
+        }
+
+        // First event to keep; the times are sorted
+        int first = firstEvent(instant);
+        eventCount -= first;
+        System.arraycopy(eventTimes, first, eventTimes, 0, eventCount);
+        System.arraycopy(eventTypes, first, eventTypes, 0, eventCount);
+        System.arraycopy(eventIds1, first, eventIds1, 0, eventCount);
+        System.arraycopy(eventIds2, first, eventIds2, 0, eventCount);
+        Arrays.fill(eventTypes, eventCount, eventCount + first, null);
+    }
+
+    /**
+     * Returns the earliest instant the history still describes.
+     *
+     * @return the horizon of the last {@link #forget(long)}, or
+     *         {@link #ALWAYS} if nothing was forgotten
+     */
+    long horizon() {
+        return horizon;
+    }
+
+    private void log(long time, GraphEvent.Type type, int id1, int id2) {
+        if (eventCount == eventTimes.length) {
+            int grown = eventCount * 2;
+            eventTimes = Arrays.copyOf(eventTimes, grown);
+            eventTypes = Arrays.copyOf(eventTypes, grown);
+            eventIds1 = Arrays.copyOf(eventIds1, grown);
+            eventIds2 = Arrays.copyOf(eventIds2, grown);
+        }
+        eventTimes[eventCount] = time;
+        eventTypes[eventCount] = type;
+        eventIds1[eventCount] = id1;
+        eventIds2[eventCount] = id2;
+        eventCount++;
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= persons.length) {
+            int grown = Math.max(id + 1, persons.length * 2);
+            persons = Arrays.copyOf(persons, grown);
+            addedAt = Arrays.copyOf(addedAt, grown);
+            removedAt = Arrays.copyOf(removedAt, grown);
+            previous = Arrays.copyOf(previous, grown);
+            edges = Arrays.copyOf(edges, grown);
+        }
+    }
+
+    /**
+     * Returns the logged changes made in a time range, in the order they were
+     * made.
+     *
+     * @param from the start of the range, inclusive
+     * @param to   the end of the range, exclusive
+     * @return the changes
+     */
+    List<GraphEvent> events(long from, long to) {
+        List<GraphEvent> events = new ArrayList<>();
+        for (int i = firstEvent(from); i < eventCount && eventTimes[i] < to; i++) {
+            String name2 = eventIds2[i] >= 0 ? persons[eventIds2[i]].getName() : null;
+            events.add(new GraphEvent(eventTypes[i], eventTimes[i], persons[eventIds1[i]].getName(), name2));
+        }
+        return events;
+    }
+
+    /**
+     * Returns the index of the first event at or after an instant; the times
+     * are sorted.
+     */
+    private int firstEvent(long instant) {
+        int low = 0;
+        int high = eventCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (eventTimes[mid] < instant) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the id a name belonged to at an instant.
+     *
+     * @param name    the name
+     * @param instant the instant
+     * @return the id, or -1 if nobody had the name then
+     */
+    int idAt(String name, long instant) {
+        Integer latest = latestIds.get(name);
+        int id = latest != null ? latest : -1;
+        while (id >= 0 && addedAt[id] > instant) {
+            id = previous[id];
+        }
+        return id >= 0 && removedAt[id] > instant ? id : -1;
+    }
+
+    /**
+     * Checks whether a person id was in the network at an instant.
+     *
+     * @param id      the id
+     * @param instant the instant
+     * @return true if the person had been added and not yet removed
+     */
+    boolean isPresent(int id, long instant) {
+        return addedAt[id] <= instant && removedAt[id] > instant;
+    }
+
+    /**
+     * Returns the number of ids handed out so far.
+     *
+     * @return the id limit
+     */
+    int idLimit() {
+        return idLimit;
+    }
+
+    /**
+     * Returns the person of an id.
+     *
+     * @param id the id
+     * @return the person, or null for an id removed before tracking started
+     */
+    Person person(int id) {
+        return persons[id];
+    }
+
+    /**
+     * Returns the friendships of a person id.
+     *
+     * @param id the id
+     * @return the friend list, sorted by start time
+     */
+    Edges edges(int id) {
+        return edges[id];
+    }
+
+    /**
+     * Returns the ids of everyone who ever had a hobby.
+     *
+     * @param hobby the hobby
+     * @return the ids, or null if nobody had it
+     */
+    IdList hobbyMembers(String hobby) {
+        return hobbyMembers.get(hobby);
+    }
+}
@@ -0,0 +1,86 @@
+import java.util.*;
+
+/**
+ * Compares queries on the live graph with the same queries on
+ * {@link TemporalView}s of the present and of the middle of the graph's
+ * history. The graph is a Barabasi-Albert graph whose friendships are added
+ * one second apart, with one in ten of them removed again later, so the
+ * history holds friendships that ended as well as current ones.
+ */
+public class TemporalQueryBenchmark {
+    private static final int QUERIES = 200;
+    private static final int CLUSTER_RUNS = 5;
+    private static final int ROUNDS = 3;
+
+    /**
+     * Builds the graph and prints the time per query of each kind.
+     *
+     * @param args optional number of people, 100000 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 100_000;
+        int[] edges = SyntheticGraphs.barabasiAlbert(n, 5, 42);
+        Random random = new Random(42);
+
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        graph.setHistoryTracking(true);
+        long time = 1_700_000_000_000L;
+        graph.advanceClock(new Date(time));
+        for (int u = 0; u < n; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 18 + u % 60, SyntheticGraphs.hobbies(random));
+        }
+        for (int i = 0; i < edges.length; i += 2) {
+            time += 1000;
+            graph.advanceClock(new Date(time));
+            graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+            if (i % 20 == 0 && i > 0) {
+                // End a random earlier friendship
+                int j = 2 * random.nextInt(i / 2);
+                graph.removeFriendship(SyntheticGraphs.name(edges[j]), SyntheticGraphs.name(edges[j + 1]));
+            }
+        }
+        long middle = 1_700_000_000_000L + (time - 1_700_000_000_000L) / 2;
+        System.out.printf("%d people, %d friendship changes, %d logged events%n", n,
+                edges.length / 2 + edges.length / 40, graph.getHistory(null, null).size());
+
+        String[] sources = new String[QUERIES];
+        String[] targets = new String[QUERIES];
+        for (int i = 0; i < QUERIES; i++) {
+            sources[i] = SyntheticGraphs.name(random.nextInt(n));
+            targets[i] = SyntheticGraphs.name(random.nextInt(n));
+        }
+
+        System.out.printf("%-20s %14s %14s %14s%n", "network", "path us", "suggest us", "clusters ms");
+        for (int round = 0; round < ROUNDS; round++) {
+            // The last round is measured, the others warm up
+            boolean print = round == ROUNDS - 1;
+            measure("live", graph, sources, targets, print);
+            measure("as of now", graph.asOf(new Date(time)), sources, targets, print);
+            measure("as of middle", graph.asOf(new Date(middle)), sources, targets, print);
+        }
+    }
+
+    private static void measure(String label, SocialNetwork network, String[] sources, String[] targets,
+            boolean print) {
+        long begin = System.nanoTime();
+        for (int i = 0; i < sources.length; i++) {
+            network.findShortestPath(sources[i], targets[i]);
+        }
+        double pathMicros = (System.nanoTime() - begin) / 1e3 / sources.length;
+
+        begin = System.nanoTime();
+        for (String source : sources) {
+            network.suggestFriends(source, 10);
+        }
+        double suggestMicros = (System.nanoTime() - begin) / 1e3 / sources.length;
+
+        begin = System.nanoTime();
+        for (int i = 0; i < CLUSTER_RUNS; i++) {
+            network.countClusters();
+        }
+        double clusterMillis = (System.nanoTime() - begin) / 1e6 / CLUSTER_RUNS;
+        if (print) {
+            System.out.printf("%-20s %14.1f %14.1f %14.1f%n", label, pathMicros, suggestMicros, clusterMillis);
+        }
+    }
+}
@@ -0,0 +1,229 @@
+import java.util.*;
+
+/**
+ * Read-only view of a {@link SocialNetworkGraph} as it was at an instant,
+ * opened with {@link SocialNetworkGraph#asOf(Date)}. The view copies nothing:
+ * it reads the time-stamped friend lists of the graph's history and skips
+ * friendships that had not started or had already ended at its instant, so
+ * a query about the past costs about as much as the same query about the
+ * present. Every method that would change the network throws
+ * {@link UnsupportedOperationException}.
+ *
+ * <p>The view must be read from the thread that changes the graph. Changes
+ * are stamped with times no earlier than the last one, so the answers of a
+ * view only change if the graph records more changes at its very instant.
+ */
+public class TemporalView implements SocialNetwork {
+    private final TemporalAdjacency history;
+    private final long instant;
+
+    /**
+     * Constructs a new TemporalView object.
+     *
+     * @param history the history to read
+     * @param instant the instant, in milliseconds since the epoch
+     */
+    TemporalView(TemporalAdjacency history, long instant) {
+        this.history = history;
+        this.instant = instant;
+    }
+
+    /**
+     * Returns the instant of the view.
+     *
+     * @return the instant
+     */
+    public Date getInstant() {
+        return new Date(instant);
+    }
+
+    /**
+     * Returns the friends a person had at the instant of the view.
+     *
+     * @param name the name of the person
+     * @return the friends in the order the friendships started, or an empty
+     *         list if the person was not in the network
+     */
+    public List<Person> getFriends(String name) {
+        List<Person> friends = new ArrayList<>();
+        int id = history.idAt(name, instant);
+        if (id < 0) {
+            return friends;
+        }
+        TemporalAdjacency.Edges edges = history.edges(id);
+        int started = edges.startedBy(instant);
+        for (int i = 0; i < started; i++) {
+            if (edges.until[i] > instant) {
+                friends.add(history.person(edges.friends[i]));
+            }
+        }
+        return friends;
+    }
+
+    @Override
+    public boolean addPerson(String name, int age, List<String> hobbies) {
+        throw new UnsupportedOperationException("Views of the past are read-only.");
+    }
+
+    @Override
+    public boolean removePerson(String name) {
+        throw new UnsupportedOperationException("Views of the past are read-only.");
+    }
+
+    @Override
+    public boolean addFriendship(String name1, String name2) {
+        throw new UnsupportedOperationException("Views of the past are read-only.");
+    }
+
+    @Override
+    public boolean removeFriendship(String name1, String name2) {
+        throw new UnsupportedOperationException("Views of the past are read-only.");
+    }
+
+    @Override
+    public Person getPerson(String name) {
+        int id = history.idAt(name, instant);
+        return id >= 0 ? history.person(id) : null;
+    }
+
+    @Override
+    public Optional<List<Person>> findShortestPath(String startName, String endName) {
+        int start = history.idAt(startName, instant);
+        int end = history.idAt(endName, instant);
+        if (start < 0 || end < 0) {
+            return Optional.empty();
+        }
+
+        // Id each reached person came from; -1 marks people not reached yet
+        int[] prev = new int[history.idLimit()];
+        Arrays.fill(prev, -1);
+        int[] queue = new int[history.idLimit()];
+        int head = 0;
+        int tail = 0;
+        queue[tail++] = start;
+        prev[start] = start;
+        while (head < tail) {
+            int current = queue[head++];
+            if (current == end) {
+                List<Person> path = new ArrayList<>();
+                for (int at = end; at != start; at = prev[at]) {
+                    path.add(history.person(at));
+                }
+                path.add(history.person(start));
+                Collections.reverse(path);
+                return Optional.of(Collections.unmodifiableList(path));
+            }
+            TemporalAdjacency.Edges edges = history.edges(current);
+            int started = edges.startedBy(instant);
+            for (int i = 0; i < started; i++) {
+                int friend = edges.friends[i];
+                if (edges.until[i] > instant && prev[friend] < 0) {
+                    prev[friend] = current;
+                    queue[tail++] = friend;
+                }
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public ClusterResult countClusters() {
+        int idLimit = history.idLimit();
+        BitSet visited = new BitSet(idLimit);
+        int[] queue = new int[idLimit];
+        List<List<Person>> clusters = new ArrayList<>();
+        for (int id = 0; id < idLimit; id++) {
+            if (visited.get(id) || !history.isPresent(id, instant)) {
+                continue;
+            }
+            List<Person> cluster = new ArrayList<>();
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = id;
+            visited.set(id);
+            while (head < tail) {
+                int current = queue[head++];
+                cluster.add(history.person(current));
+                TemporalAdjacency.Edges edges = history.edges(current);
+                int started = edges.startedBy(instant);
+                for (int i = 0; i < started; i++) {
+                    int friend = edges.friends[i];
+                    if (edges.until[i] > instant && !visited.get(friend)) {
+                        visited.set(friend);
+                        queue[tail++] = friend;
+                    }
+                }
+            }
+            clusters.add(cluster);
+        }
+        return new ClusterResult(clusters);
+    }
+
+    @Override
+    public List<Suggestion> suggestFriends(String name, int maxSuggestions) {
+        int id = history.idAt(name, instant);
+        if (id < 0 || maxSuggestions <= 0) {
+            return new ArrayList<>();
+        }
+        Person person = history.person(id);
+        Set<String> hobbies = new HashSet<>(person.getHobbies());
+        BitSet friends = new BitSet(history.idLimit());
+        for (Person friend : getFriends(name)) {
+            friends.set(friend.getId());
+        }
+
+        // Count mutual friends over the friends of friends, as the live graph does
+        Map<Integer, int[]> mutualCounts = new HashMap<>();
+        for (int friend = friends.nextSetBit(0); friend >= 0; friend = friends.nextSetBit(friend + 1)) {
+            TemporalAdjacency.Edges edges = history.edges(friend);
+            int started = edges.startedBy(instant);
+            for (int i = 0; i < started; i++) {
+                int candidate = edges.friends[i];
+                if (edges.until[i] > instant && candidate != id && !friends.get(candidate)) {
+                    mutualCounts.computeIfAbsent(candidate, c -> new int[1])[0]++;
+                }
+            }
+        }
+
+        // People present at the instant who share hobbies but no friends
+        Map<Integer, int[]> sharing = new HashMap<>();
+        for (String hobby : hobbies) {
+            TemporalAdjacency.IdList members = history.hobbyMembers(hobby);
+            for (int i = 0; members != null && i < members.size; i++) {
+                int candidate = members.ids[i];
+                if (candidate != id && !friends.get(candidate) && !mutualCounts.containsKey(candidate)
+                        && history.isPresent(candidate, instant)) {
+                    sharing.computeIfAbsent(candidate, c -> new int[1])[0]++;
+                }
+            }
+        }
+
+        // Keep only the best maxSuggestions candidates, worst on top of the
+        // heap; the heap never holds more than all the candidates
+        int capacity = Math.min(maxSuggestions, mutualCounts.size() + sharing.size()) + 1;
+        PriorityQueue<Suggestion> best = new PriorityQueue<>(capacity, Suggestion.BEST_FIRST.reversed());
+        for (Map.Entry<Integer, int[]> candidate : mutualCounts.entrySet()) {
+            Person potentialFriend = history.person(candidate.getKey());
+            SocialNetworkGraph.offer(best, maxSuggestions, potentialFriend, candidate.getValue()[0],
+                    countCommon(hobbies, potentialFriend));
+        }
+        for (Map.Entry<Integer, int[]> candidate : sharing.entrySet()) {
+            SocialNetworkGraph.offer(best, maxSuggestions, history.person(candidate.getKey()), 0,
+                    candidate.getValue()[0]);
+        }
+
+        List<Suggestion> suggestions = new ArrayList<>(best);
+        suggestions.sort(Suggestion.BEST_FIRST);
+        return suggestions;
+    }
+
+    private static int countCommon(Set<String> hobbies, Person other) {
+        int common = 0;
+        for (String hobby : new HashSet<>(other.getHobbies())) {
+            if (hobbies.contains(hobby)) {
+                common++;
+            }
+        }
+        return common;
+    }
+}
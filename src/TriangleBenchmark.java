@@ -0,0 +1,110 @@
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Compares triangle counting by hash-set lookups over the live friend sets
+ * with {@link TriangleCounter} on pools of 1 thread up to one thread per
+ * core, on a Barabasi-Albert graph and on a graph of tight communities, and
+ * measures what incremental triangle tracking adds to the cost of adding
+ * friendships.
+ */
+public class TriangleBenchmark {
+    private static final int ADDED = 100_000;
+
+    /**
+     * Builds the graphs and prints the time of each way of counting.
+     *
+     * @param args optional number of people, 200000 by default
+     */
+    public static void main(String[] args) {
+        int n = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        int cores = Runtime.getRuntime().availableProcessors();
+        List<Integer> threads = new ArrayList<>();
+        for (int t = 1; t < cores; t *= 2) {
+            threads.add(t);
+        }
+        threads.add(cores);
+
+        System.out.printf("%-14s %-22s %12s %14s%n", "graph", "method", "ms", "triangles");
+        run("barabasi", SyntheticGraphs.barabasiAlbert(n, 10, 42), n, threads);
+        run("communities", SyntheticGraphs.communities(n, n / 100, 20, 0.1, 42), n, threads);
+    }
+
+    private static void run(String label, int[] edges, int n, List<Integer> threads) {
+        SocialNetworkGraph graph = load(edges, n, edges.length / 2 - ADDED);
+        for (int round = 0; round < 2; round++) {
+            // The last round is measured, the first warms up
+            boolean print = round == 1;
+            long start = System.nanoTime();
+            long triangles = countWithSets(graph);
+            if (print) {
+                System.out.printf("%-14s %-22s %12.0f %14d%n", label, "hash sets", (System.nanoTime() - start) / 1e6,
+                        triangles);
+            }
+            GraphSnapshot snapshot = GraphSnapshot.of(graph);
+            for (int t : threads) {
+                ForkJoinPool pool = new ForkJoinPool(t);
+                start = System.nanoTime();
+                TriangleResult result = new TriangleCounter(pool).count(snapshot);
+                if (print) {
+                    System.out.printf("%-14s %-22s %12.0f %14d%n", label, "sorted arrays, " + t + " thr",
+                            (System.nanoTime() - start) / 1e6, result.getTotal());
+                }
+                pool.shutdown();
+            }
+        }
+
+        // The last friendships of the graph, added with tracking off and on
+        for (boolean tracking : new boolean[] { false, true }) {
+            graph.setTriangleTracking(tracking);
+            long start = System.nanoTime();
+            for (int i = edges.length - 2 * ADDED; i < edges.length; i += 2) {
+                graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+            }
+            double micros = (System.nanoTime() - start) / 1e3 / ADDED;
+            System.out.printf("%-14s %-22s %12.2f %14s%n", label, "us/add, tracking " + (tracking ? "on" : "off"),
+                    micros, tracking ? String.valueOf(graph.getTriangleCount()) : "");
+            // Take them out again for the second pass
+            for (int i = edges.length - 2 * ADDED; i < edges.length && !tracking; i += 2) {
+                graph.removeFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+            }
+        }
+        System.out.printf("%-14s %-22s %12s %14d%n", label, "recount after adds", "", graph.countTriangles()
+                .getTotal());
+    }
+
+    private static SocialNetworkGraph load(int[] edges, int n, int friendships) {
+        Random random = new Random(42);
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        for (int u = 0; u < n; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 18 + u % 60, SyntheticGraphs.hobbies(random));
+        }
+        for (int i = 0; i < 2 * friendships; i += 2) {
+            graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+        }
+        return graph;
+    }
+
+    /**
+     * Counts every triangle once per friendship it contains by looking the
+     * friends of one end up in the friend set of the other, then divides by
+     * three.
+     */
+    private static long countWithSets(SocialNetworkGraph graph) {
+        long found = 0;
+        for (Map.Entry<Person, Set<Person>> entry : graph.friendships.entrySet()) {
+            Person person = entry.getKey();
+            for (Person friend : entry.getValue()) {
+                if (friend.getId() > person.getId()) {
+                    Set<Person> other = graph.friendships.get(friend);
+                    for (Person third : entry.getValue()) {
+                        if (third != person && third != friend && other.contains(third)) {
+                            found++;
+                        }
+                    }
+                }
+            }
+        }
+        return found / 3;
+    }
+}
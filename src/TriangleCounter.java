@@ -0,0 +1,265 @@
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/**
+ * Counts the triangles of a {@link GraphSnapshot} on a fork/join pool: sets
+ * of three people who are all friends with each other.
+ *
+ * <p>Vertices are ranked by degree, and every friendship is kept only at its
+ * lower-ranked end, in sorted int arrays indexed by rank. A triangle is then
+ * found exactly once, at its lowest-ranked vertex u, as a vertex common to the
+ * forward lists of u and of a forward neighbor of u. Ranking by degree keeps
+ * the forward lists of hubs short, so the total work stays near m^1.5 even on
+ * graphs with very uneven degrees. Two lists are intersected by merging them,
+ * or by galloping through the longer one when their lengths differ a lot.
+ * Vertex ranges are counted in parallel; the per-vertex counts are atomic,
+ * since a triangle adds to all three of its corners.
+ */
+public class TriangleCounter {
+    private static final int VERTEX_GRAIN = 1024;
+    // Gallop through the longer list once it is this many times longer
+    private static final int GALLOP_RATIO = 16;
+
+    private final ForkJoinPool pool;
+
+    /**
+     * Constructs a new TriangleCounter object on the common pool.
+     */
+    public TriangleCounter() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Constructs a new TriangleCounter object.
+     *
+     * @param pool the pool running the work
+     */
+    public TriangleCounter(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Counts the triangles of a snapshot, in total and per vertex. Friendships
+     * of a person with themselves are ignored.
+     *
+     * @param snapshot the graph to analyze
+     * @return the counts
+     */
+    public TriangleResult count(GraphSnapshot snapshot) {
+        int n = snapshot.vertexCount();
+        int[] targets = snapshot.targets();
+        int[] degrees = new int[n];
+        long[] order = new long[n];
+        for (int u = 0; u < n; u++) {
+            degrees[u] = snapshot.degree(u);
+            int end = snapshot.offset(u) + snapshot.degree(u);
+            for (int i = snapshot.offset(u); i < end; i++) {
+                if (targets[i] == u) {
+                    degrees[u]--;
+                }
+            }
+            order[u] = (long) degrees[u] << 32 | u;
+        }
+
+        // Rank by degree, then by vertex to break ties
+        Arrays.sort(order);
+        int[] rankOf = new int[n];
+        for (int r = 0; r < n; r++) {
+            rankOf[(int) order[r]] = r;
+        }
+
+        // Forward lists: the higher-ranked neighbors of every rank
+        int[] offsets = new int[n + 1];
+        for (int u = 0; u < n; u++) {
+            int end = snapshot.offset(u) + snapshot.degree(u);
+            for (int i = snapshot.offset(u); i < end; i++) {
+                if (rankOf[targets[i]] > rankOf[u]) {
+                    offsets[rankOf[u] + 1]++;
+                }
+            }
+        }
+        for (int r = 0; r < n; r++) {
+            offsets[r + 1] += offsets[r];
+        }
+        int[] forward = new int[offsets[n]];
+        int[] fill = Arrays.copyOf(offsets, n);
+        for (int u = 0; u < n; u++) {
+            int end = snapshot.offset(u) + snapshot.degree(u);
+            for (int i = snapshot.offset(u); i < end; i++) {
+                if (rankOf[targets[i]] > rankOf[u]) {
+                    forward[fill[rankOf[u]]++] = rankOf[targets[i]];
+                }
+            }
+        }
+
+        AtomicLongArray byRank = new AtomicLongArray(n);
+        pool.invoke(new SortTask(offsets, forward, 0, n));
+        long total = pool.invoke(new CountTask(offsets, forward, byRank, 0, n));
+
+        long[] triangles = new long[n];
+        for (int u = 0; u < n; u++) {
+            triangles[u] = byRank.get(rankOf[u]);
+        }
+        return new TriangleResult(snapshot, triangles, degrees, total);
+    }
+
+    /**
+     * Sorts the forward lists of a range of ranks.
+     */
+    private static class SortTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] offsets;
+        private final int[] forward;
+        private final int from;
+        private final int to;
+
+        SortTask(int[] offsets, int[] forward, int from, int to) {
+            this.offsets = offsets;
+            this.forward = forward;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from > VERTEX_GRAIN) {
+                int mid = (from + to) >>> 1;
+                invokeAll(new SortTask(offsets, forward, from, mid), new SortTask(offsets, forward, mid, to));
+                return;
+            }
+            for (int r = from; r < to; r++) {
+                Arrays.sort(forward, offsets[r], offsets[r + 1]);
+            }
+        }
+    }
+
+    /**
+     * Finds the triangles whose lowest corner is in a range of ranks, adds
+     * them to the counts of their corners and returns how many there are.
+     */
+    private static class CountTask extends RecursiveTask<Long> {
+        private static final long serialVersionUID = 1L;
+
+        private final int[] offsets;
+        private final int[] forward;
+        private final AtomicLongArray byRank;
+        private final int from;
+        private final int to;
+
+        CountTask(int[] offsets, int[] forward, AtomicLongArray byRank, int from, int to) {
+            this.offsets = offsets;
+            this.forward = forward;
+            this.byRank = byRank;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Long compute() {
+            if (to - from > VERTEX_GRAIN) {
+                int mid = (from + to) >>> 1;
+                CountTask left = new CountTask(offsets, forward, byRank, from, mid);
+                CountTask right = new CountTask(offsets, forward, byRank, mid, to);
+                invokeAll(left, right);
+                return left.join() + right.join();
+            }
+            long found = 0;
+            for (int u = from; u < to; u++) {
+                long atU = 0;
+                int end = offsets[u + 1];
+                for (int i = offsets[u]; i < end; i++) {
+                    int v = forward[i];
+                    // Third corners above v: the rest of u's list against v's
+                    long atV = intersect(forward, i + 1, end, offsets[v], offsets[v + 1], byRank);
+                    if (atV > 0) {
+                        byRank.addAndGet(v, atV);
+                        atU += atV;
+                    }
+                }
+                if (atU > 0) {
+                    byRank.addAndGet(u, atU);
+                    found += atU;
+                }
+            }
+            return found;
+        }
+    }
+
+    /**
+     * Counts the values two sorted ranges of an array have in common, and adds
+     * one to the count of each of them.
+     *
+     * @param lists  the array holding both ranges
+     * @param aFrom  the start of the first range
+     * @param aTo    the end of the first range
+     * @param bFrom  the start of the second range
+     * @param bTo    the end of the second range
+     * @param counts the counts to add to
+     * @return the number of common values
+     */
+    private static long intersect(int[] lists, int aFrom, int aTo, int bFrom, int bTo, AtomicLongArray counts) {
+        if (aTo - aFrom > bTo - bFrom) {
+            int swapFrom = aFrom;
+            int swapTo = aTo;
+            aFrom = bFrom;
+            aTo = bTo;
+            bFrom = swapFrom;
+            bTo = swapTo;
+        }
+        long common = 0;
+        int a = aFrom;
+        int b = bFrom;
+        if ((long) (aTo - aFrom) * GALLOP_RATIO < bTo - bFrom) {
+            // Look every value of the short list up in the long one, each
+            // search starting where the last one ended
+            for (; a < aTo && b < bTo; a++) {
+                int value = lists[a];
+                int step = 1;
+                int low = b;
+                while (b < bTo && lists[b] < value) {
+                    low = b + 1;
+                    b = Math.min(bTo, b + step);
+                    step <<= 1;
+                }
+                b = lowerBound(lists, low, b, value);
+                if (b < bTo && lists[b] == value) {
+                    counts.incrementAndGet(value);
+                    common++;
+                    b++;
+                }
+            }
+            return common;
+        }
+        while (a < aTo && b < bTo) {
+            if (lists[a] < lists[b]) {
+                a++;
+            } else if (lists[a] > lists[b]) {
+                b++;
+            } else {
+                counts.incrementAndGet(lists[a]);
+                common++;
+                a++;
+                b++;
+            }
+        }
+        return common;
+    }
+
+    /**
+     * Returns the first index in a sorted range whose value is not less than
+     * a key, or the end of the range.
+     */
+    private static int lowerBound(int[] lists, int from, int to, int key) {
+        while (from < to) {
+            int mid = (from + to) >>> 1;
+            if (lists[mid] < key) {
+                from = mid + 1;
+            } else {
+                to = mid;
+            }
+        }
+        return from;
+    }
+}
@@ -0,0 +1,129 @@
+import java.util.*;
+
+/**
+ * Triangle counts of every person of a {@link SocialNetworkGraph}, kept up to
+ * date as friendships change. A new friendship closes one triangle for every
+ * friend the two people share, so the update intersects their friend sets,
+ * iterating the smaller one; removing a friendship or a person undoes the
+ * same. Friendships of a person with themselves are ignored.
+ */
+class TriangleIndex {
+    // Triangles at every person id
+    private long[] counts = new long[16];
+    private long total;
+
+    /**
+     * Constructs a new TriangleIndex object from a full count.
+     *
+     * @param snapshot the counted graph
+     * @param result   the counts of the snapshot
+     */
+    TriangleIndex(GraphSnapshot snapshot, TriangleResult result) {
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            Person person = snapshot.person(u);
+            ensureCapacity(person.getId());
+            counts[person.getId()] = result.getTriangles(person);
+        }
+        total = result.getTotal();
+    }
+
+    private void ensureCapacity(int id) {
+        if (id >= counts.length) {
+            counts = Arrays.copyOf(counts, Math.max(id + 1, counts.length * 2));
+        }
+    }
+
+    /**
+     * Records a new friendship. The friend sets must already hold it.
+     *
+     * @param person1  the first person
+     * @param person2  the second person
+     * @param friends1 the friends of the first person
+     * @param friends2 the friends of the second person
+     */
+    void link(Person person1, Person person2, Set<Person> friends1, Set<Person> friends2) {
+        change(person1, person2, friends1, friends2, 1);
+    }
+
+    /**
+     * Records the end of a friendship. The friend sets must no longer hold it.
+     *
+     * @param person1  the first person
+     * @param person2  the second person
+     * @param friends1 the friends of the first person
+     * @param friends2 the friends of the second person
+     */
+    void unlink(Person person1, Person person2, Set<Person> friends1, Set<Person> friends2) {
+        change(person1, person2, friends1, friends2, -1);
+    }
+
+    private void change(Person person1, Person person2, Set<Person> friends1, Set<Person> friends2, int sign) {
+        if (person1 == person2) {
+            return;
+        }
+        if (friends1.size() > friends2.size()) {
+            Set<Person> swap = friends1;
+            friends1 = friends2;
+            friends2 = swap;
+        }
+        ensureCapacity(Math.max(person1.getId(), person2.getId()));
+        long common = 0;
+        for (Person friend : friends1) {
+            if (friend != person1 && friend != person2 && friends2.contains(friend)) {
+                counts[friend.getId()] += sign;
+                common++;
+            }
+        }
+        counts[person1.getId()] += sign * common;
+        counts[person2.getId()] += sign * common;
+        total += sign * common;
+    }
+
+    /**
+     * Records the removal of a person, before their friendships are removed.
+     *
+     * @param person      the person
+     * @param friends     the friends of the person
+     * @param friendships the friend sets of everyone
+     */
+    void removePerson(Person person, Set<Person> friends, Map<Person, Set<Person>> friendships) {
+        for (Person friend : friends) {
+            if (friend != person) {
+                // Every friend loses the triangles through the person
+                Set<Person> friendsOfFriend = friendships.get(friend);
+                Set<Person> smaller = friends.size() < friendsOfFriend.size() ? friends : friendsOfFriend;
+                Set<Person> larger = smaller == friends ? friendsOfFriend : friends;
+                long common = 0;
+                for (Person other : smaller) {
+                    if (other != person && other != friend && larger.contains(other)) {
+                        common++;
+                    }
+                }
+                counts[friend.getId()] -= common;
+            }
+        }
+        if (person.getId() < counts.length) {
+            total -= counts[person.getId()];
+            counts[person.getId()] = 0;
+        }
+    }
+
+    /**
+     * Returns the number of triangles a person is part of.
+     *
+     * @param id the person
+     * @return the number of triangles
+     */
+    long count(int id) {
+        return id < counts.length ? counts[id] : 0;
+    }
+
+    /**
+     * Returns the number of triangles in the graph.
+     *
+     * @return the number of triangles
+     */
+    long total() {
+        return total;
+    }
+}
@@ -0,0 +1,135 @@
+import java.util.*;
+
+/**
+ * The triangles of a {@link GraphSnapshot}, as counted by
+ * {@link TriangleCounter}: sets of three people who are all friends with each
+ * other, in total and per person, and the clustering coefficients derived
+ * from them. A person whose friends hardly know each other has a low
+ * coefficient, which together with many friends is typical of accounts that
+ * befriend strangers in bulk.
+ */
+public class TriangleResult {
+    private final GraphSnapshot snapshot;
+    private final long[] triangles;
+    private final int[] degrees;
+    private final long total;
+    // Vertex of every person id in the snapshot, -1 for ids it does not hold
+    private final int[] vertexOf;
+
+    /**
+     * Constructs a new TriangleResult object.
+     *
+     * @param snapshot  the analyzed graph
+     * @param triangles the number of triangles at every vertex
+     * @param degrees   the number of friends of every vertex, not counting
+     *                  the vertex itself
+     * @param total     the number of triangles in the graph
+     */
+    TriangleResult(GraphSnapshot snapshot, long[] triangles, int[] degrees, long total) {
+        this.snapshot = snapshot;
+        this.triangles = triangles;
+        this.degrees = degrees;
+        this.total = total;
+        int idLimit = 0;
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            idLimit = Math.max(idLimit, snapshot.person(u).getId() + 1);
+        }
+        vertexOf = new int[idLimit];
+        Arrays.fill(vertexOf, -1);
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            vertexOf[snapshot.person(u).getId()] = u;
+        }
+    }
+
+    /**
+     * Returns the number of triangles in the graph.
+     *
+     * @return the number of triangles
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * Returns the number of triangles a person is part of, which is the
+     * number of pairs of their friends who are friends with each other.
+     *
+     * @param person the person
+     * @return the number of triangles, or 0 if the person was not in the graph
+     */
+    public long getTriangles(Person person) {
+        int u = vertex(person);
+        return u >= 0 ? triangles[u] : 0;
+    }
+
+    /**
+     * Returns the local clustering coefficient of a person: the share of the
+     * pairs of their friends who are friends with each other.
+     *
+     * @param person the person
+     * @return the coefficient between 0 and 1, or 0 if the person has fewer
+     *         than two friends or was not in the graph
+     */
+    public double getClusteringCoefficient(Person person) {
+        int u = vertex(person);
+        return u >= 0 ? coefficient(triangles[u], degrees[u]) : 0;
+    }
+
+    /**
+     * Returns the mean of the local clustering coefficients of everyone,
+     * counting people with fewer than two friends as 0.
+     *
+     * @return the average clustering coefficient
+     */
+    public double getAverageClusteringCoefficient() {
+        double sum = 0;
+        for (int u = 0; u < triangles.length; u++) {
+            sum += coefficient(triangles[u], degrees[u]);
+        }
+        return triangles.length == 0 ? 0 : sum / triangles.length;
+    }
+
+    /**
+     * Returns the global clustering coefficient: the share of the paths of
+     * two friendships whose ends are friends as well.
+     *
+     * @return three times the triangles over the paths of length two
+     */
+    public double getTransitivity() {
+        long wedges = 0;
+        for (int degree : degrees) {
+            wedges += (long) degree * (degree - 1) / 2;
+        }
+        return wedges == 0 ? 0 : 3.0 * total / wedges;
+    }
+
+    /**
+     * Returns the local clustering coefficient of a vertex.
+     *
+     * @param triangles the triangles at the vertex
+     * @param degree    the friends of the vertex
+     * @return the coefficient, or 0 below two friends
+     */
+    static double coefficient(long triangles, int degree) {
+        return degree < 2 ? 0 : 2.0 * triangles / ((double) degree * (degree - 1));
+    }
+
+    private int vertex(Person person) {
+        int id = person.getId();
+        if (id < 0 || id >= vertexOf.length || vertexOf[id] < 0 || snapshot.person(vertexOf[id]) != person) {
+            return -1;
+        }
+        return vertexOf[id];
+    }
+
+    /**
+     * Returns a string representation of the result.
+     *
+     * @return the number of triangles and the clustering coefficients
+     */
+    @Override
+    public String toString() {
+        return String.format("%d triangles, average clustering %.4f, transitivity %.4f", total,
+                getAverageClusteringCoefficient(), getTransitivity());
+    }
+}
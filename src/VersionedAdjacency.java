@@ -0,0 +1,212 @@
+import java.util.*;
+
+/**
+ * Epoch-based copy-on-write history of the friend sets of a
+ * {@link SocialNetworkGraph}, from which {@link GraphVersion} snapshots read.
+ *
+ * <p>Opening a snapshot only bumps the write epoch. After that, the first
+ * write to a person's friend set copies the set: the copy becomes the live
+ * set and the old one is kept, unchanged, as a history entry tagged with the
+ * last epoch it was valid in. A snapshot taken at epoch s reads the oldest
+ * history entry still valid at s, or the live set if nothing has changed
+ * since. Sets that a snapshot can reach are never modified again, so
+ * snapshots can be read from other threads while the graph keeps changing.
+ *
+ * <p>Only the writing thread may call the methods that change the store and
+ * {@link #open()}; {@link #close(long)} may be called from any thread.
+ */
+class VersionedAdjacency {
+    private static final int CHUNK_BITS = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    // Cells by person id; chunks are shared between generations of the outer
+    // array, so a snapshot holding an old outer array still sees every cell
+    private volatile Cell[][] chunks = new Cell[0][];
+    private volatile int size;
+    private volatile long epoch;
+
+    // Number of open snapshots per epoch
+    private final TreeMap<Long, Integer> openSnapshots = new TreeMap<>();
+    private volatile int openCount;
+
+    /**
+     * Version state of one person.
+     */
+    static final class Cell {
+        final Person person;
+        final long addedEpoch;
+        volatile long removedEpoch = Long.MAX_VALUE;
+        volatile Set<Person> live;
+        long liveEpoch;
+        volatile Version history;
+
+        Cell(Person person, Set<Person> live, long epoch) {
+            this.person = person;
+            this.live = live;
+            this.addedEpoch = epoch;
+            this.liveEpoch = epoch;
+        }
+    }
+
+    /**
+     * A retired friend set, newest first in each cell's history.
+     */
+    static final class Version {
+        final Set<Person> friends;
+        final long validUntil;
+        volatile Version older;
+
+        Version(Set<Person> friends, long validUntil, Version older) {
+            this.friends = friends;
+            this.validUntil = validUntil;
+            this.older = older;
+        }
+    }
+
+    /**
+     * Registers a newly added person, whose id must be the next free id.
+     *
+     * @param person  the new person
+     * @param friends the live friend set of the person
+     */
+    void add(Person person, Set<Person> friends) {
+        int id = person.getId();
+        Cell[][] current = chunks;
+        if ((id >> CHUNK_BITS) >= current.length) {
+            Cell[][] grown = Arrays.copyOf(current, current.length + 1);
+            grown[current.length] = new Cell[CHUNK_SIZE];
+            current = grown;
+            chunks = grown;
+        }
+        current[id >> CHUNK_BITS][id & (CHUNK_SIZE - 1)] = new Cell(person, friends, epoch);
+        size = id + 1;
+    }
+
+    /**
+     * Marks a person as removed in the current epoch.
+     *
+     * @param person the removed person
+     */
+    void remove(Person person) {
+        cell(chunks, person.getId()).removedEpoch = epoch;
+    }
+
+    /**
+     * Returns the friend set of a person that may be modified in place,
+     * copying it first if an open snapshot might read the current one.
+     *
+     * @param person the person whose friends are about to change
+     * @param live   the live friend set of the person
+     * @return the set to modify; differs from live if a copy was made
+     */
+    Set<Person> forWrite(Person person, Set<Person> live) {
+        Cell cell = cell(chunks, person.getId());
+        if (openCount == 0) {
+            cell.history = null;
+            return live;
+        }
+        long current = epoch;
+        if (cell.liveEpoch == current) {
+            // Already copied in this epoch; no snapshot has seen the copy
+            return live;
+        }
+
+        // Publish the history entry before the copy, so a reader that still
+        // sees the old live set also finds the entry covering its epoch
+        Set<Person> copy = new LinkedHashSet<>(live);
+        Version entry = new Version(live, current - 1, cell.history);
+        prune(entry, oldestOpen());
+        cell.history = entry;
+        cell.live = copy;
+        cell.liveEpoch = current;
+        return copy;
+    }
+
+    /**
+     * Opens a snapshot of the current state.
+     *
+     * @return the snapshot
+     */
+    synchronized GraphVersion open() {
+        long snapshotEpoch = epoch;
+        epoch = snapshotEpoch + 1;
+        openSnapshots.merge(snapshotEpoch, 1, Integer::sum);
+        openCount++;
+        return new GraphVersion(this, snapshotEpoch, chunks, size);
+    }
+
+    /**
+     * Releases a snapshot so its history can be reclaimed.
+     *
+     * @param snapshotEpoch the epoch of the snapshot
+     */
+    synchronized void close(long snapshotEpoch) {
+        Integer count = openSnapshots.get(snapshotEpoch);
+        if (count == null) {
+            return;
+        }
+        if (count == 1) {
+            openSnapshots.remove(snapshotEpoch);
+        } else {
+            openSnapshots.put(snapshotEpoch, count - 1);
+        }
+        openCount--;
+    }
+
+    /**
+     * Returns the number of snapshots not yet closed.
+     *
+     * @return the number of open snapshots
+     */
+    int openCount() {
+        return openCount;
+    }
+
+    /**
+     * Returns the friend set of a person as it was at the end of an epoch.
+     *
+     * @param cell          the version state of the person
+     * @param snapshotEpoch the epoch
+     * @return the friend set; must not be modified
+     */
+    static Set<Person> friendsAt(Cell cell, long snapshotEpoch) {
+        // Read the live set before the history, matching the write order
+        Set<Person> friends = cell.live;
+        for (Version version = cell.history; version != null && version.validUntil >= snapshotEpoch;
+                version = version.older) {
+            friends = version.friends;
+        }
+        return friends;
+    }
+
+    /**
+     * Returns the cell of a person id.
+     *
+     * @param chunks the chunk array to read from
+     * @param id     the person id
+     * @return the cell
+     */
+    static Cell cell(Cell[][] chunks, int id) {
+        return chunks[id >> CHUNK_BITS][id & (CHUNK_SIZE - 1)];
+    }
+
+    private synchronized long oldestOpen() {
+        return openSnapshots.isEmpty() ? Long.MAX_VALUE : openSnapshots.firstKey();
+    }
+
+    /**
+     * Cuts off the history entries no open snapshot can read any more.
+     *
+     * @param newest the newest entry
+     * @param oldest the epoch of the oldest open snapshot
+     */
+    private static void prune(Version newest, long oldest) {
+        for (Version version = newest; version != null; version = version.older) {
+            Version older = version.older;
+            if (older != null && older.validUntil < oldest) {
+                version.older = null;
+                return;
+            }
+        }
+    }
+}
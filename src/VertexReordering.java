@@ -0,0 +1,198 @@
+import java.util.*;
+
+/**
+ * Renumbers the vertices of a {@link GraphSnapshot} so that people who are
+ * friends get nearby numbers. A snapshot numbers vertices in the iteration
+ * order of the graph's people, which has nothing to do with who knows whom,
+ * so every step of a traversal reads the per-vertex arrays at a random
+ * place and misses the cache once the graph outgrows it. After reordering,
+ * the neighbors of a vertex, and the vertices a search visits next, mostly
+ * sit in the same few cache lines.
+ *
+ * <p>The reordered snapshot lays the neighbor lists out in the new order and
+ * sorts every list, so it reads the targets array front to back as well.
+ * Traversals over it visit people in a different order than traversals over
+ * the live graph; analyses whose results do not depend on that order, such
+ * as centrality and triangle counts, give the same answers.
+ */
+public class VertexReordering {
+
+    /**
+     * The ways to order the vertices.
+     */
+    public enum Order {
+        /**
+         * Breadth-first from each component's first vertex, so that each BFS
+         * level is contiguous.
+         */
+        BFS,
+        /**
+         * Reverse Cuthill-McKee: breadth-first from a vertex of least degree,
+         * visiting neighbors by increasing degree, then reversed. Keeps the
+         * numbers of friends close for every vertex, not just on average.
+         */
+        REVERSE_CUTHILL_MCKEE,
+        /**
+         * By decreasing degree, so that the people most often read by
+         * traversals share the same cache lines.
+         */
+        DEGREE
+    }
+
+    private VertexReordering() {
+    }
+
+    /**
+     * Returns a copy of a snapshot with its vertices renumbered.
+     *
+     * @param snapshot the snapshot to copy
+     * @param order    the order to number the vertices in
+     * @return the reordered snapshot
+     */
+    public static GraphSnapshot reorder(GraphSnapshot snapshot, Order order) {
+        int[] oldOf;
+        switch (order) {
+            case BFS:
+                oldOf = breadthFirst(snapshot, false);
+                break;
+            case REVERSE_CUTHILL_MCKEE:
+                oldOf = breadthFirst(snapshot, true);
+                for (int i = 0, j = oldOf.length - 1; i < j; i++, j--) {
+                    int swap = oldOf[i];
+                    oldOf[i] = oldOf[j];
+                    oldOf[j] = swap;
+                }
+                break;
+            default:
+                oldOf = byDegree(snapshot, false);
+                break;
+        }
+        return relabel(snapshot, oldOf);
+    }
+
+    /**
+     * Lists the vertices in BFS order, one component after another. Cuthill-
+     * McKee starts each component at an unvisited vertex of least degree and
+     * visits neighbors by increasing degree; plain BFS starts at the first
+     * unvisited vertex and keeps the snapshot's neighbor order.
+     */
+    private static int[] breadthFirst(GraphSnapshot snapshot, boolean cuthillMcKee) {
+        int n = snapshot.vertexCount();
+        int[] targets = snapshot.targets();
+        int[] starts = cuthillMcKee ? byDegree(snapshot, true) : null;
+        boolean[] visited = new boolean[n];
+        int[] queue = new int[n];
+        long[] keys = new long[16];
+        int tail = 0;
+        for (int s = 0; s < n; s++) {
+            int start = cuthillMcKee ? starts[s] : s;
+            if (visited[start]) {
+                continue;
+            }
+            int head = tail;
+            queue[tail++] = start;
+            visited[start] = true;
+            while (head < tail) {
+                int current = queue[head++];
+                int end = snapshot.offset(current) + snapshot.degree(current);
+                if (!cuthillMcKee) {
+                    for (int i = snapshot.offset(current); i < end; i++) {
+                        if (!visited[targets[i]]) {
+                            visited[targets[i]] = true;
+                            queue[tail++] = targets[i];
+                        }
+                    }
+                    continue;
+                }
+                // Unvisited neighbors by degree, then vertex
+                int count = 0;
+                for (int i = snapshot.offset(current); i < end; i++) {
+                    int neighbor = targets[i];
+                    if (!visited[neighbor]) {
+                        visited[neighbor] = true;
+                        if (count == keys.length) {
+                            keys = Arrays.copyOf(keys, count * 2);
+                        }
+                        keys[count++] = (long) snapshot.degree(neighbor) << 32 | neighbor;
+                    }
+                }
+                Arrays.sort(keys, 0, count);
+                for (int k = 0; k < count; k++) {
+                    queue[tail++] = (int) keys[k];
+                }
+            }
+        }
+        return queue;
+    }
+
+    /**
+     * Lists the vertices by degree, ties by vertex number.
+     */
+    private static int[] byDegree(GraphSnapshot snapshot, boolean ascending) {
+        int n = snapshot.vertexCount();
+        long[] keys = new long[n];
+        for (int u = 0; u < n; u++) {
+            long degree = ascending ? snapshot.degree(u) : Integer.MAX_VALUE - snapshot.degree(u);
+            keys[u] = degree << 32 | u;
+        }
+        Arrays.sort(keys);
+        int[] vertices = new int[n];
+        for (int i = 0; i < n; i++) {
+            vertices[i] = (int) keys[i];
+        }
+        return vertices;
+    }
+
+    /**
+     * Builds the snapshot in the new numbering, with sorted neighbor lists.
+     *
+     * @param snapshot the snapshot to copy
+     * @param oldOf    the old number of every new vertex
+     * @return the renumbered snapshot
+     */
+    private static GraphSnapshot relabel(GraphSnapshot snapshot, int[] oldOf) {
+        int n = snapshot.vertexCount();
+        int[] targets = snapshot.targets();
+        int[] newOf = new int[n];
+        for (int v = 0; v < n; v++) {
+            newOf[oldOf[v]] = v;
+        }
+        Person[] vertices = new Person[n];
+        int[] offsets = new int[n + 1];
+        int[] relabeled = new int[targets.length];
+        for (int v = 0; v < n; v++) {
+            int u = oldOf[v];
+            vertices[v] = snapshot.person(u);
+            int start = snapshot.offset(u);
+            int degree = snapshot.degree(u);
+            offsets[v + 1] = offsets[v] + degree;
+            for (int i = 0; i < degree; i++) {
+                relabeled[offsets[v] + i] = newOf[targets[start + i]];
+            }
+            Arrays.sort(relabeled, offsets[v], offsets[v + 1]);
+        }
+        return new GraphSnapshot(vertices, offsets, relabeled);
+    }
+
+    /**
+     * Returns the average number of bits in the distance between the numbers
+     * of two friends, a measure of how scattered the reads of a traversal
+     * are: friends whose numbers are close enough to share cache lines or
+     * pages count for little, whatever the size of the graph. Lower is
+     * better.
+     *
+     * @param snapshot the snapshot to measure
+     * @return the mean of log2(1 + |u - v|) over all neighbor entries
+     */
+    public static double averageLogGap(GraphSnapshot snapshot) {
+        int[] targets = snapshot.targets();
+        double sum = 0;
+        for (int u = 0; u < snapshot.vertexCount(); u++) {
+            int end = snapshot.offset(u) + snapshot.degree(u);
+            for (int i = snapshot.offset(u); i < end; i++) {
+                sum += 32 - Integer.numberOfLeadingZeros(Math.abs(targets[i] - u));
+            }
+        }
+        return targets.length == 0 ? 0 : sum / targets.length;
+    }
+}
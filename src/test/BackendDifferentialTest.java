@@ -0,0 +1,156 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Runs the same random changes against every backend and checks that the
+ * compact, concurrent and mapped backends answer the queries like the
+ * default {@link SocialNetworkGraph}: the same clusters, shortest paths of
+ * the same length and the same suggestions in the same order.
+ */
+class BackendDifferentialTest {
+    private static final int PEOPLE = 300;
+
+    private final SocialNetworkGraph expected = new SocialNetworkGraph();
+    private final List<SocialNetwork> backends = new ArrayList<>();
+
+    @TempDir
+    Path directory;
+
+    /**
+     * Applies a random mix of additions and removals to the default,
+     * compact and concurrent backends, checking that they all report the
+     * same outcome, then writes the result as a mapped graph.
+     *
+     * @throws IOException if the mapped graph cannot be written
+     */
+    @BeforeEach
+    void build() throws IOException {
+        List<SocialNetwork> mutable = Arrays.asList(expected, new CompactSocialNetworkGraph(),
+                new ConcurrentSocialNetworkGraph());
+        Random random = new Random(11);
+        for (int step = 0; step < 6000; step++) {
+            int op = random.nextInt(10);
+            String name1 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            String name2 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            List<String> hobbies = SyntheticGraphs.hobbies(random);
+            Set<Boolean> outcomes = new HashSet<>();
+            for (SocialNetwork network : mutable) {
+                if (op < 3) {
+                    outcomes.add(network.addPerson(name1, 20 + op, hobbies));
+                } else if (op < 4) {
+                    outcomes.add(network.removePerson(name1));
+                } else if (op < 8) {
+                    outcomes.add(network.addFriendship(name1, step % 50 == 0 ? name1 : name2));
+                } else {
+                    outcomes.add(network.removeFriendship(name1, name2));
+                }
+            }
+            assertEquals(1, outcomes.size(), "Backends disagree on step " + step);
+        }
+        backends.addAll(mutable.subList(1, mutable.size()));
+
+        Path file = directory.resolve("graph.mapped");
+        expected.exportMapped(file);
+        backends.add(SocialNetworkGraph.openMapped(file));
+    }
+
+    /**
+     * Checks that every backend finds the same clusters.
+     */
+    @Test
+    void clustersMatch() {
+        Set<Set<String>> clusters = clusters(expected);
+        for (SocialNetwork backend : backends) {
+            assertEquals(clusters, clusters(backend), backend.getClass().getName());
+        }
+    }
+
+    /**
+     * Checks that every backend finds a path exactly when the default graph
+     * does, as short as its path, and made of real friendships.
+     */
+    @Test
+    void shortestPathsMatch() {
+        Random random = new Random(12);
+        for (int query = 0; query < 300; query++) {
+            String start = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            String end = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            Optional<List<Person>> path = expected.findShortestPath(start, end);
+            for (SocialNetwork backend : backends) {
+                Optional<List<Person>> other = backend.findShortestPath(start, end);
+                String message = backend.getClass().getName() + " from " + start + " to " + end;
+                assertEquals(path.isPresent(), other.isPresent(), message);
+                if (path.isPresent()) {
+                    assertEquals(path.get().size(), other.get().size(), message);
+                    assertValidPath(start, end, other.get());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that every backend makes the same suggestions in the same
+     * order, for limits below and above the number of candidates.
+     */
+    @Test
+    void suggestionsMatch() {
+        Random random = new Random(13);
+        for (int query = 0; query < 300; query++) {
+            String name = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            int max = query % 3 == 0 ? Integer.MAX_VALUE : 1 + random.nextInt(10);
+            List<String> suggestions = describe(expected.suggestFriends(name, max));
+            for (SocialNetwork backend : backends) {
+                assertEquals(suggestions, describe(backend.suggestFriends(name, max)),
+                        backend.getClass().getName() + " for " + name);
+            }
+        }
+    }
+
+    /**
+     * Checks that no backend lets a person befriend themselves.
+     */
+    @Test
+    void selfFriendshipIsRejected() {
+        String name = expected.people.keySet().iterator().next();
+        assertFalse(expected.addFriendship(name, name));
+        for (SocialNetwork backend : backends.subList(0, 2)) {
+            assertFalse(backend.addFriendship(name, name), backend.getClass().getName());
+        }
+    }
+
+    private void assertValidPath(String start, String end, List<Person> path) {
+        assertEquals(start, path.get(0).getName());
+        assertEquals(end, path.get(path.size() - 1).getName());
+        for (int i = 1; i < path.size(); i++) {
+            Person from = expected.getPerson(path.get(i - 1).getName());
+            Person to = expected.getPerson(path.get(i).getName());
+            assertTrue(expected.friendships.get(from).contains(to), from.getName() + " - " + to.getName());
+        }
+    }
+
+    private static Set<Set<String>> clusters(SocialNetwork network) {
+        Set<Set<String>> clusters = new HashSet<>();
+        for (List<Person> cluster : network.countClusters().getClusters()) {
+            Set<String> names = new HashSet<>();
+            for (Person member : cluster) {
+                names.add(member.getName());
+            }
+            clusters.add(names);
+        }
+        return clusters;
+    }
+
+    private static List<String> describe(List<Suggestion> suggestions) {
+        List<String> described = new ArrayList<>();
+        for (Suggestion suggestion : suggestions) {
+            described.add(suggestion.getPerson().getName() + " " + suggestion.getMutualFriends() + " "
+                    + suggestion.getCommonHobbies());
+        }
+        return described;
+    }
+}
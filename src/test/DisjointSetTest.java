@@ -0,0 +1,112 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests {@link DisjointSet} on its own and through the cluster queries of
+ * {@link SocialNetworkGraph}, which keep one up to date as friendships are
+ * added and rebuild it after removals.
+ */
+class DisjointSetTest {
+
+    /**
+     * Checks unions, finds and the set count against a plain labelling of
+     * the elements, past the initial capacity.
+     */
+    @Test
+    void unionsMatchLabels() {
+        DisjointSet sets = new DisjointSet(2);
+        int[] label = new int[200];
+        for (int i = 0; i < label.length; i++) {
+            assertEquals(i, sets.add());
+            label[i] = i;
+        }
+        Random random = new Random(21);
+        for (int step = 0; step < 150; step++) {
+            int a = random.nextInt(label.length);
+            int b = random.nextInt(label.length);
+            int from = label[b];
+            assertEquals(label[a] != from, sets.union(a, b));
+            for (int i = 0; i < label.length; i++) {
+                if (label[i] == from) {
+                    label[i] = label[a];
+                }
+            }
+        }
+        assertEquals(label.length, sets.size());
+        assertEquals(Arrays.stream(label).distinct().count(), sets.setCount());
+        for (int a = 0; a < label.length; a++) {
+            for (int b = 0; b < label.length; b++) {
+                assertEquals(label[a] == label[b], sets.find(a) == sets.find(b));
+            }
+        }
+    }
+
+    /**
+     * Interleaves friendship and person removals with additions and checks
+     * the cluster queries after every change against a breadth-first
+     * labelling of the friend sets.
+     */
+    @Test
+    void clustersAreRebuiltAfterRemovals() {
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        Random random = new Random(22);
+        int people = 120;
+        for (int u = 0; u < people; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 30, SyntheticGraphs.hobbies(random));
+        }
+        for (int step = 0; step < 1500; step++) {
+            String name1 = SyntheticGraphs.name(random.nextInt(people));
+            String name2 = SyntheticGraphs.name(random.nextInt(people));
+            int op = random.nextInt(10);
+            if (op < 5) {
+                graph.addFriendship(name1, name2);
+            } else if (op < 8) {
+                graph.removeFriendship(name1, name2);
+            } else if (op < 9) {
+                graph.removePerson(name1);
+            } else {
+                graph.addPerson(name1, 30, SyntheticGraphs.hobbies(random));
+            }
+
+            Map<Person, Integer> components = components(graph);
+            assertEquals(new HashSet<>(components.values()).size(), graph.clusterCount(), "step " + step);
+            assertEquals(components.get(graph.getPerson(name1)) != null
+                    && components.get(graph.getPerson(name1)).equals(components.get(graph.getPerson(name2))),
+                    graph.sameCluster(name1, name2), "step " + step);
+            if (step % 100 == 0) {
+                for (Person a : components.keySet()) {
+                    for (Person b : components.keySet()) {
+                        assertEquals(components.get(a).equals(components.get(b)),
+                                graph.clusterOf(a.getName()) == graph.clusterOf(b.getName()));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Labels every person with the first person of their component found by
+     * a plain breadth-first search over the friend sets.
+     */
+    private static Map<Person, Integer> components(SocialNetworkGraph graph) {
+        Map<Person, Integer> components = new HashMap<>();
+        for (Person start : graph.people.values()) {
+            if (components.containsKey(start)) {
+                continue;
+            }
+            Deque<Person> queue = new ArrayDeque<>();
+            queue.add(start);
+            components.put(start, start.getId());
+            while (!queue.isEmpty()) {
+                for (Person friend : graph.friendships.get(queue.poll())) {
+                    if (components.putIfAbsent(friend, start.getId()) == null) {
+                        queue.add(friend);
+                    }
+                }
+            }
+        }
+        return components;
+    }
+}
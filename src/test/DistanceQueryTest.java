@@ -0,0 +1,159 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests the distance queries of {@link SocialNetworkGraph}, which share a
+ * cached snapshot and a {@link FrontierSearch}, against a plain
+ * breadth-first search over the friend sets. Changes are interleaved with
+ * the queries, so a snapshot that outlived a change would show.
+ */
+class DistanceQueryTest {
+    private static final int PEOPLE = 200;
+
+    private final SocialNetworkGraph graph = new SocialNetworkGraph();
+    private final Random random = new Random(51);
+
+    /**
+     * Loads a sparse random graph, which leaves several people unreachable.
+     */
+    @BeforeEach
+    void load() {
+        for (int u = 0; u < PEOPLE; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 30, SyntheticGraphs.hobbies(random));
+        }
+        int[] edges = SyntheticGraphs.erdosRenyi(PEOPLE, 3, 51);
+        for (int i = 0; i < edges.length; i += 2) {
+            graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+        }
+    }
+
+    /**
+     * Checks the distances from one or several sources to many targets,
+     * unknown names included.
+     */
+    @Test
+    void distancesMatchBfs() {
+        for (int round = 0; round < 100; round++) {
+            List<String> sources = names(1 + random.nextInt(3));
+            List<String> targets = names(20);
+            targets.add("Nobody");
+            Map<Person, Integer> expected = new LinkedHashMap<>();
+            Map<Person, Integer> reached = bfs(sources, Integer.MAX_VALUE);
+            for (String target : targets) {
+                Person person = graph.getPerson(target);
+                if (person != null && reached.containsKey(person)) {
+                    expected.put(person, reached.get(person));
+                }
+            }
+            assertEquals(expected, graph.findDistances(sources, targets), "round " + round);
+            change();
+        }
+    }
+
+    /**
+     * Checks everyone within a number of hops, nearest first, without the
+     * person themselves.
+     */
+    @Test
+    void withinHopsMatchesBfs() {
+        for (int round = 0; round < 100; round++) {
+            String name = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            int maxHops = random.nextInt(4);
+            Map<Person, Integer> expected = bfs(Collections.singletonList(name), maxHops);
+            expected.remove(graph.getPerson(name));
+            Map<Person, Integer> found = graph.findWithinHops(name, maxHops);
+            assertEquals(expected, found, "round " + round);
+            int previous = 0;
+            for (int distance : found.values()) {
+                assertTrue(distance >= previous, "nearest first");
+                previous = distance;
+            }
+            change();
+        }
+        assertTrue(graph.findWithinHops("Nobody", 2).isEmpty());
+    }
+
+    /**
+     * Checks the paths from one person to many others: each is as long as
+     * the distance and made of friendships.
+     */
+    @Test
+    void pathsMatchBfs() {
+        for (int round = 0; round < 50; round++) {
+            String start = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            List<String> ends = names(10);
+            Map<Person, Integer> distances = bfs(Collections.singletonList(start), Integer.MAX_VALUE);
+            Map<Person, List<Person>> paths = graph.findShortestPaths(start, ends);
+            for (String end : ends) {
+                Person person = graph.getPerson(end);
+                List<Person> path = paths.get(person);
+                if (person == null || !distances.containsKey(person)) {
+                    assertNull(path, end);
+                    continue;
+                }
+                assertEquals(distances.get(person) + 1, path.size(), end);
+                assertEquals(start, path.get(0).getName());
+                for (int i = 1; i < path.size(); i++) {
+                    assertTrue(graph.friendships.get(path.get(i - 1)).contains(path.get(i)));
+                }
+            }
+            change();
+        }
+    }
+
+    private List<String> names(int count) {
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            names.add(SyntheticGraphs.name(random.nextInt(PEOPLE)));
+        }
+        return names;
+    }
+
+    /**
+     * Makes one random change, which must invalidate the cached snapshot.
+     */
+    private void change() {
+        String name1 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+        String name2 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+        int op = random.nextInt(10);
+        if (op < 5) {
+            graph.addFriendship(name1, name2);
+        } else if (op < 8) {
+            graph.removeFriendship(name1, name2);
+        } else if (op < 9) {
+            graph.removePerson(name1);
+        } else {
+            graph.addPerson(name1, 30, SyntheticGraphs.hobbies(random));
+        }
+    }
+
+    /**
+     * Finds the distance from the nearest source to everyone within a
+     * number of hops with a plain breadth-first search.
+     */
+    private Map<Person, Integer> bfs(Collection<String> sourceNames, int maxHops) {
+        Map<Person, Integer> distances = new HashMap<>();
+        Deque<Person> queue = new ArrayDeque<>();
+        for (String name : sourceNames) {
+            Person source = graph.getPerson(name);
+            if (source != null && distances.putIfAbsent(source, 0) == null) {
+                queue.add(source);
+            }
+        }
+        while (!queue.isEmpty()) {
+            Person current = queue.poll();
+            int distance = distances.get(current);
+            if (distance == maxHops) {
+                continue;
+            }
+            for (Person friend : graph.friendships.get(current)) {
+                if (distances.putIfAbsent(friend, distance + 1) == null) {
+                    queue.add(friend);
+                }
+            }
+        }
+        return distances;
+    }
+}
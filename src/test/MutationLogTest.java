@@ -0,0 +1,143 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests that {@link MutationLog#replay(Path, long, SocialNetworkGraph)}
+ * applies every whole record and stops cleanly at a torn or corrupt tail,
+ * truncating the segment to the last whole record.
+ */
+class MutationLogTest {
+    @TempDir
+    Path directory;
+
+    private Path file;
+    // Size of the segment after each record; ends[0] is the bare header
+    private final List<Long> ends = new ArrayList<>();
+
+    /**
+     * Writes a segment of seven records, forcing each one so that the
+     * boundaries between them are known.
+     *
+     * @throws IOException if the segment cannot be written
+     */
+    @BeforeEach
+    void write() throws IOException {
+        file = directory.resolve("log-1");
+        try (MutationLog log = new MutationLog(file, 0, 1024, 1000)) {
+            ends.add(Files.size(file));
+            log.appendAddPerson(new Person("Ann", 30, Arrays.asList("chess", "hiking")));
+            end(log);
+            log.appendAddPerson(new Person("Bob", 31, Collections.singletonList("chess")));
+            end(log);
+            log.appendAddPerson(new Person("Cem", 32, Collections.emptyList()));
+            end(log);
+            log.appendFriendship(MutationLog.ADD_FRIENDSHIP, "Ann", "Bob");
+            end(log);
+            log.appendFriendship(MutationLog.ADD_FRIENDSHIP, "Bob", "Cem");
+            end(log);
+            log.appendFriendship(MutationLog.REMOVE_FRIENDSHIP, "Ann", "Bob");
+            end(log);
+            log.appendRemovePerson("Cem");
+            end(log);
+        }
+    }
+
+    private void end(MutationLog log) throws IOException {
+        log.sync();
+        ends.add(Files.size(file));
+    }
+
+    /**
+     * Checks that a whole segment replays in full and is left untouched.
+     *
+     * @throws IOException if replay fails
+     */
+    @Test
+    void replaysEveryRecord() throws IOException {
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        assertEquals(7, MutationLog.replay(file, 0, graph));
+        assertEquals(Arrays.asList("Ann", "Bob"), names(graph));
+        assertTrue(graph.friendships.get(graph.getPerson("Bob")).isEmpty());
+        assertEquals(Arrays.asList("chess", "hiking"), graph.getPerson("Ann").getHobbies());
+        assertEquals(ends.get(7), Files.size(file));
+    }
+
+    /**
+     * Checks that records covered by a checkpoint are skipped.
+     *
+     * @throws IOException if replay fails
+     */
+    @Test
+    void skipsCheckpointedRecords() throws IOException {
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        graph.addPerson("Ann", 30, Arrays.asList("chess", "hiking"));
+        graph.addPerson("Bob", 31, Collections.singletonList("chess"));
+        assertEquals(7, MutationLog.replay(file, 2, graph));
+        assertEquals(Arrays.asList("Ann", "Bob"), names(graph));
+    }
+
+    /**
+     * Cuts the segment inside every record in turn and checks that replay
+     * keeps the records before the cut and truncates the torn one.
+     *
+     * @throws IOException if replay fails
+     */
+    @Test
+    void stopsAtTornTail() throws IOException {
+        byte[] whole = Files.readAllBytes(file);
+        for (int record = 1; record < ends.size(); record++) {
+            for (long cut : new long[] { ends.get(record - 1) + 3, ends.get(record) - 1 }) {
+                Files.write(file, Arrays.copyOf(whole, (int) cut));
+                long last = MutationLog.replay(file, 0, new SocialNetworkGraph());
+                assertEquals(record - 1, last, "cut at " + cut);
+                assertEquals(ends.get(record - 1), Files.size(file), "cut at " + cut);
+            }
+        }
+    }
+
+    /**
+     * Checks that a record whose checksum does not match ends the segment.
+     *
+     * @throws IOException if replay fails
+     */
+    @Test
+    void stopsAtCorruptRecord() throws IOException {
+        byte[] bytes = Files.readAllBytes(file);
+        bytes[(int) (ends.get(4) + 12)] ^= 0x40;
+        Files.write(file, bytes);
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        assertEquals(4, MutationLog.replay(file, 0, graph));
+        assertEquals(Arrays.asList("Ann", "Bob", "Cem"), names(graph));
+        assertEquals(ends.get(4), Files.size(file));
+    }
+
+    /**
+     * Appends a record header claiming a huge length and checks that replay
+     * treats it as the end of the segment instead of allocating for it.
+     *
+     * @throws IOException if replay fails
+     */
+    @Test
+    void ignoresImpossibleLength() throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.APPEND)) {
+            ByteBuffer header = ByteBuffer.allocate(8).putInt(Integer.MAX_VALUE - 8).putInt(0);
+            header.flip();
+            channel.write(header);
+        }
+        assertEquals(7, MutationLog.replay(file, 0, new SocialNetworkGraph()));
+        assertEquals(ends.get(7), Files.size(file));
+    }
+
+    private static List<String> names(SocialNetworkGraph graph) {
+        List<String> names = new ArrayList<>(graph.people.keySet());
+        Collections.sort(names);
+        return names;
+    }
+}
@@ -0,0 +1,154 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests that a {@link TemporalView} answers as the network stood at its
+ * instant, compared with what the live graph answered at that time, and
+ * that it still does after {@link SocialNetworkGraph#forgetHistoryBefore}
+ * drops the history older than the instants queried.
+ */
+class TemporalViewTest {
+    private static final int PEOPLE = 150;
+    private static final long START = 1_700_000_000_000L;
+
+    private final SocialNetworkGraph graph = new SocialNetworkGraph();
+    private final List<Long> instants = new ArrayList<>();
+    private final List<List<Object>> answers = new ArrayList<>();
+    private final Random random = new Random(31);
+
+    /**
+     * Seeds the network and turns history tracking on.
+     */
+    @BeforeEach
+    void seed() {
+        for (int u = 0; u < PEOPLE / 2; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 20 + u % 40, SyntheticGraphs.hobbies(random));
+        }
+        for (int i = 0; i < 200; i++) {
+            graph.addFriendship(SyntheticGraphs.name(random.nextInt(PEOPLE / 2)),
+                    SyntheticGraphs.name(random.nextInt(PEOPLE / 2)));
+        }
+        graph.setHistoryTracking(true);
+    }
+
+    /**
+     * Checks every view against the answers recorded at its instant.
+     */
+    @Test
+    void viewsMatchThePast() {
+        change(40);
+        assertViewsMatch(0);
+    }
+
+    /**
+     * Forgets the history twice while changes go on and checks that the
+     * views at or after the horizon are unaffected, that the changes before
+     * it are gone, and that earlier views can no longer be opened.
+     */
+    @Test
+    void viewsMatchAfterForgetting() {
+        change(20);
+        int events = graph.getHistory(null, null).size();
+        long horizon = instants.get(10);
+        graph.forgetHistoryBefore(new Date(horizon));
+        assertTrue(graph.getHistory(null, null).size() < events);
+        assertTrue(graph.getHistory(null, new Date(horizon)).isEmpty());
+        assertViewsMatch(10);
+
+        change(20);
+        horizon = instants.get(25);
+        graph.forgetHistoryBefore(new Date(horizon));
+        // An earlier horizon than the current one changes nothing
+        graph.forgetHistoryBefore(new Date(instants.get(5)));
+        assertViewsMatch(25);
+        long before = horizon - 1;
+        assertThrows(IllegalArgumentException.class, () -> graph.asOf(new Date(before)));
+    }
+
+    /**
+     * Checks that forgetting needs history tracking.
+     */
+    @Test
+    void forgettingNeedsTracking() {
+        graph.setHistoryTracking(false);
+        assertThrows(IllegalStateException.class, () -> graph.forgetHistoryBefore(new Date(START)));
+    }
+
+    /**
+     * Makes a number of rounds of random changes, each at a later instant,
+     * and records what the live graph answers after each round.
+     */
+    private void change(int rounds) {
+        for (int round = 0; round < rounds; round++) {
+            long instant = START + 1000L * (instants.size() + 1);
+            graph.advanceClock(new Date(instant));
+            for (int k = 0; k < 30; k++) {
+                int op = random.nextInt(10);
+                String name1 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+                String name2 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+                if (op < 2) {
+                    graph.addPerson(name1, 25, SyntheticGraphs.hobbies(random));
+                } else if (op < 3) {
+                    graph.removePerson(name1);
+                } else if (op < 7) {
+                    graph.addFriendship(name1, name2);
+                } else {
+                    graph.removeFriendship(name1, name2);
+                }
+            }
+            instants.add(instant);
+            answers.add(answers(graph, null));
+        }
+    }
+
+    private void assertViewsMatch(int from) {
+        for (int i = from; i < instants.size(); i++) {
+            TemporalView view = graph.asOf(new Date(instants.get(i)));
+            assertEquals(answers.get(i), answers(view, view), "as of round " + i);
+        }
+    }
+
+    /**
+     * Collects the friends, a shortest path length and the suggestions of a
+     * fixed set of people, and the clusters.
+     */
+    private List<Object> answers(SocialNetwork network, TemporalView view) {
+        List<Object> answers = new ArrayList<>();
+        Random queries = new Random(32);
+        for (int q = 0; q < 40; q++) {
+            String name = SyntheticGraphs.name(queries.nextInt(PEOPLE));
+            String other = SyntheticGraphs.name(queries.nextInt(PEOPLE));
+            answers.add(String.valueOf(network.getPerson(name)));
+            answers.add(friendNames(view, name));
+            answers.add(network.findShortestPath(name, other).map(List::size).orElse(-1));
+            answers.add(network.suggestFriends(name, 5).toString());
+        }
+        Set<Set<String>> clusters = new HashSet<>();
+        for (List<Person> cluster : network.countClusters().getClusters()) {
+            Set<String> names = new HashSet<>();
+            for (Person member : cluster) {
+                names.add(member.getName());
+            }
+            clusters.add(names);
+        }
+        answers.add(clusters);
+        return answers;
+    }
+
+    private Set<String> friendNames(TemporalView view, String name) {
+        Collection<Person> friends;
+        if (view != null) {
+            friends = view.getFriends(name);
+        } else {
+            Person person = graph.getPerson(name);
+            friends = person != null ? graph.friendships.get(person) : Collections.emptySet();
+        }
+        Set<String> names = new TreeSet<>();
+        for (Person friend : friends) {
+            names.add(friend.getName());
+        }
+        return names;
+    }
+}
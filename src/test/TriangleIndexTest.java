@@ -0,0 +1,90 @@
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.*;
+
+/**
+ * Tests that the triangle counts kept up to date by a {@link TriangleIndex}
+ * match a full count by {@link TriangleCounter} after every change, and that
+ * the full count matches a brute-force count.
+ */
+class TriangleIndexTest {
+    private static final int PEOPLE = 80;
+
+    /**
+     * Applies random changes with triangle tracking on and compares the
+     * tracked counts with full counts.
+     */
+    @Test
+    void trackedCountsMatchFullCounts() {
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        Random random = new Random(41);
+        for (int u = 0; u < PEOPLE; u++) {
+            graph.addPerson(SyntheticGraphs.name(u), 30, SyntheticGraphs.hobbies(random));
+        }
+        int[] edges = SyntheticGraphs.communities(PEOPLE, 4, 8, 0.1, 41);
+        for (int i = 0; i < edges.length; i += 2) {
+            graph.addFriendship(SyntheticGraphs.name(edges[i]), SyntheticGraphs.name(edges[i + 1]));
+        }
+        graph.setTriangleTracking(true);
+
+        for (int step = 0; step < 1000; step++) {
+            String name1 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            String name2 = SyntheticGraphs.name(random.nextInt(PEOPLE));
+            int op = random.nextInt(20);
+            if (op < 10) {
+                graph.addFriendship(name1, name2);
+            } else if (op < 18) {
+                graph.removeFriendship(name1, name2);
+            } else if (op < 19) {
+                graph.removePerson(name1);
+            } else {
+                graph.addPerson(name1, 30, SyntheticGraphs.hobbies(random));
+            }
+
+            TriangleResult full = graph.countTriangles();
+            assertEquals(full.getTotal(), graph.getTriangleCount(), "step " + step);
+            if (step % 50 == 0) {
+                assertEquals(bruteForce(graph), full.getTotal(), "step " + step);
+                for (Person person : graph.people.values()) {
+                    assertEquals(full.getTriangles(person), graph.getTriangleCount(person.getName()),
+                            person.getName());
+                    assertEquals(full.getClusteringCoefficient(person),
+                            graph.getClusteringCoefficient(person.getName()), 1e-12, person.getName());
+                }
+            }
+        }
+    }
+
+    /**
+     * Checks that the tracked counts need tracking to be on.
+     */
+    @Test
+    void countsNeedTracking() {
+        SocialNetworkGraph graph = new SocialNetworkGraph();
+        assertThrows(IllegalStateException.class, graph::getTriangleCount);
+    }
+
+    /**
+     * Counts the triangles by checking every triple of people.
+     */
+    private static long bruteForce(SocialNetworkGraph graph) {
+        List<Person> people = new ArrayList<>(graph.people.values());
+        long triangles = 0;
+        for (int a = 0; a < people.size(); a++) {
+            Set<Person> friendsA = graph.friendships.get(people.get(a));
+            for (int b = a + 1; b < people.size(); b++) {
+                if (!friendsA.contains(people.get(b))) {
+                    continue;
+                }
+                Set<Person> friendsB = graph.friendships.get(people.get(b));
+                for (int c = b + 1; c < people.size(); c++) {
+                    if (friendsA.contains(people.get(c)) && friendsB.contains(people.get(c))) {
+                        triangles++;
+                    }
+                }
+            }
+        }
+        return triangles;
+    }
+}